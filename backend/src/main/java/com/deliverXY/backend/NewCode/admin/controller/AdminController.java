@@ -1,5 +1,6 @@
 package com.deliverXY.backend.NewCode.admin.controller;
 
+import com.deliverXY.backend.NewCode.admin.dashboard.DashboardFeed;
 import com.deliverXY.backend.NewCode.admin.dto.AdminDashboardDTO;
 import com.deliverXY.backend.NewCode.admin.dto.AssignDeliveryDTO;
 import com.deliverXY.backend.NewCode.admin.service.AdminEarningsService;
@@ -12,6 +13,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -21,6 +23,7 @@ public class AdminController {
     private final AdminService adminService;
     private final AdminEarningsService adminEarningsService;
     private final AppUserKYCService kycService;
+    private final DashboardFeed dashboardFeed;
 
     @GetMapping("/dashboard")
     @PreAuthorize("hasRole('ADMIN')")
@@ -28,6 +31,13 @@ public class AdminController {
         return ApiResponse.ok(adminService.getDashboardStats());
     }
 
+    /** Dashboard counts as server-sent events: a snapshot, then deltas as they change. */
+    @GetMapping(value = "/dashboard/stream", produces = "text/event-stream")
+    @PreAuthorize("hasRole('ADMIN')")
+    public SseEmitter streamDashboard() {
+        return dashboardFeed.subscribe();
+    }
+
     @GetMapping("/users")
     @PreAuthorize("hasRole('ADMIN')")
     public ApiResponse<?> getUsers( @RequestParam(defaultValue = "0") int page,
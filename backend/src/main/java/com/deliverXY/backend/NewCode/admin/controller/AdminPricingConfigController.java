@@ -3,6 +3,7 @@ package com.deliverXY.backend.NewCode.admin.controller;
 import com.deliverXY.backend.NewCode.common.response.ApiResponse;
 import com.deliverXY.backend.NewCode.deliveries.domain.PricingConfig;
 import com.deliverXY.backend.NewCode.deliveries.dto.PricingConfigDTO;
+import com.deliverXY.backend.NewCode.deliveries.pricing.PricingSnapshotService;
 import com.deliverXY.backend.NewCode.deliveries.service.PricingConfigService;
 import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +19,7 @@ import java.util.stream.Collectors;
 public class AdminPricingConfigController {
 
     private final PricingConfigService pricingConfigService;
+    private final PricingSnapshotService pricingSnapshots;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -43,6 +45,9 @@ public class AdminPricingConfigController {
                 .orElseThrow(() -> new NotFoundException("Pricing config not found: " + id));
         applyDTO(config, dto);
         config = pricingConfigService.save(config);
+
+        // Saved and committed above; publish it to the quote path
+        pricingSnapshots.refresh(config.getCity());
         return ApiResponse.ok(toDTO(config));
     }
 
@@ -0,0 +1,100 @@
+package com.deliverXY.backend.NewCode.admin.controller;
+
+import com.deliverXY.backend.NewCode.common.response.ApiResponse;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingZone;
+import com.deliverXY.backend.NewCode.deliveries.pricing.FareEstimateCache;
+import com.deliverXY.backend.NewCode.deliveries.dto.PricingZoneDTO;
+import com.deliverXY.backend.NewCode.deliveries.repository.PricingZoneRepository;
+import com.deliverXY.backend.NewCode.deliveries.zones.ZoneIndex;
+import com.deliverXY.backend.NewCode.deliveries.zones.ZonePolygon;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/pricing-zones")
+@RequiredArgsConstructor
+public class AdminPricingZoneController {
+
+    private final PricingZoneRepository zoneRepo;
+    private final ZoneIndex zoneIndex;
+    private final FareEstimateCache estimateCache;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<List<PricingZoneDTO>> list() {
+        return ApiResponse.ok(zoneRepo.findAll().stream()
+                .map(AdminPricingZoneController::toDTO)
+                .toList());
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<PricingZoneDTO> create(@RequestBody PricingZoneDTO dto) {
+        if (dto.getCity() == null || dto.getName() == null || dto.getType() == null) {
+            throw new BadRequestException("city, name and type are required");
+        }
+        PricingZone zone = new PricingZone();
+        zone.setCity(dto.getCity());
+        zone.setName(dto.getName());
+        zone.setType(dto.getType());
+        zone.setPolygon(validatedPolygon(dto));
+        zone.setIsActive(dto.getIsActive() == null || dto.getIsActive());
+
+        zone = zoneRepo.save(zone);
+        zoneIndex.reload();
+        estimateCache.invalidateAll();
+        return ApiResponse.ok(toDTO(zone));
+    }
+
+    @PutMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<PricingZoneDTO> update(@PathVariable Long id, @RequestBody PricingZoneDTO dto) {
+        PricingZone zone = zoneRepo.findById(id)
+                .orElseThrow(() -> new NotFoundException("Pricing zone not found: " + id));
+        if (dto.getCity() != null) zone.setCity(dto.getCity());
+        if (dto.getName() != null) zone.setName(dto.getName());
+        if (dto.getType() != null) zone.setType(dto.getType());
+        if (dto.getPolygon() != null) zone.setPolygon(validatedPolygon(dto));
+        if (dto.getIsActive() != null) zone.setIsActive(dto.getIsActive());
+
+        zone = zoneRepo.save(zone);
+        zoneIndex.reload();
+        estimateCache.invalidateAll();
+        return ApiResponse.ok(toDTO(zone));
+    }
+
+    private static String validatedPolygon(PricingZoneDTO dto) {
+        if (dto.getPolygon() == null || dto.getPolygon().size() < 3) {
+            throw new BadRequestException("polygon needs at least 3 [lat, lon] vertices");
+        }
+        try {
+            String ring = ZonePolygon.format(dto.getPolygon());
+            ZonePolygon.parse(null, dto.getCity(), dto.getName(), dto.getType(), ring);
+            return ring;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new BadRequestException("Invalid polygon: " + e.getMessage());
+        }
+    }
+
+    private static PricingZoneDTO toDTO(PricingZone z) {
+        List<List<Double>> vertices = new ArrayList<>();
+        for (String vertex : z.getPolygon().split(";")) {
+            String[] parts = vertex.split(",");
+            vertices.add(List.of(Double.parseDouble(parts[0]), Double.parseDouble(parts[1])));
+        }
+        return PricingZoneDTO.builder()
+                .id(z.getId())
+                .city(z.getCity())
+                .name(z.getName())
+                .type(z.getType())
+                .polygon(vertices)
+                .isActive(z.getIsActive())
+                .build();
+    }
+}
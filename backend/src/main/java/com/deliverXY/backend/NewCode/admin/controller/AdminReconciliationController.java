@@ -0,0 +1,55 @@
+package com.deliverXY.backend.NewCode.admin.controller;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.common.response.ApiResponse;
+import com.deliverXY.backend.NewCode.payments.reconciliation.ReconciliationMismatch;
+import com.deliverXY.backend.NewCode.payments.reconciliation.ReconciliationRun;
+import com.deliverXY.backend.NewCode.payments.reconciliation.ReconciliationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+@RequiredArgsConstructor
+public class AdminReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    /** Starts comparing a statement from the statement directory; the run continues in the background. */
+    @PostMapping("/runs")
+    @PreAuthorize("hasRole(\'ADMIN\')")
+    public ApiResponse<ReconciliationRun> start(@RequestParam PaymentProvider provider,
+                                                @RequestParam String statement) {
+        return ApiResponse.ok(reconciliationService.start(provider, statement));
+    }
+
+    @PostMapping("/runs/{runId}/resume")
+    @PreAuthorize("hasRole(\'ADMIN\')")
+    public ApiResponse<ReconciliationRun> resume(@PathVariable Long runId) {
+        return ApiResponse.ok(reconciliationService.resume(runId));
+    }
+
+    @GetMapping("/runs")
+    @PreAuthorize("hasRole(\'ADMIN\')")
+    public ApiResponse<List<ReconciliationRun>> recentRuns() {
+        return ApiResponse.ok(reconciliationService.recentRuns());
+    }
+
+    @GetMapping("/runs/{runId}")
+    @PreAuthorize("hasRole(\'ADMIN\')")
+    public ApiResponse<ReconciliationRun> getRun(@PathVariable Long runId) {
+        return ApiResponse.ok(reconciliationService.getRun(runId));
+    }
+
+    /** Mismatches in id order; pass the last id seen as {@code after} for the next page. */
+    @GetMapping("/runs/{runId}/mismatches")
+    @PreAuthorize("hasRole(\'ADMIN\')")
+    public ApiResponse<List<ReconciliationMismatch>> getMismatches(@PathVariable Long runId,
+                                                                   @RequestParam(required = false) Long after,
+                                                                   @RequestParam(defaultValue = "100") int limit) {
+        return ApiResponse.ok(reconciliationService.getMismatches(runId, after, limit));
+    }
+}
@@ -0,0 +1,204 @@
+package com.deliverXY.backend.NewCode.admin.dashboard;
+
+import com.deliverXY.backend.NewCode.admin.dto.AdminDashboardDTO;
+import com.deliverXY.backend.NewCode.common.enums.DeliveryStatus;
+import com.deliverXY.backend.NewCode.common.enums.KYCStatus;
+import com.deliverXY.backend.NewCode.common.enums.UserRole;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Admin dashboard counts kept in memory: users by role, KYC records by
+ * status and deliveries by status. Services report registrations,
+ * deletions and status transitions once their transaction commits, so
+ * reading the dashboard is O(1). A periodic reconcile replaces the
+ * counts with one grouped COUNT query, which also repairs anything that
+ * changed without going through a hook.
+ */
+@Service
+@Slf4j
+public class DashboardCounters {
+
+    private static final String COUNT_SQL = """
+            SELECT 'USER' AS kind, role AS status, COUNT(*) FROM app_user GROUP BY role
+            UNION ALL
+            SELECT 'KYC', kyc_status, COUNT(*) FROM app_user_kyc GROUP BY kyc_status
+            UNION ALL
+            SELECT 'DELIVERY', status, COUNT(*) FROM deliveries GROUP BY status
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    // Guarded by this; updates are rare next to reads and each is a few array writes
+    private final long[] users = new long[UserRole.values().length];
+    private final long[] kyc = new long[KYCStatus.values().length];
+    private final long[] deliveries = new long[DeliveryStatus.values().length];
+    private long usersWithoutRole;
+    private boolean loaded;
+
+    /** Updates seen while a reconcile query runs; replayed on top of its result. */
+    private List<Runnable> duringReconcile;
+    private final Object reconcileLock = new Object();
+
+    public DashboardCounters(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public synchronized AdminDashboardDTO snapshot() {
+        long totalUsers = usersWithoutRole;
+        for (long n : users) totalUsers += n;
+        long totalDeliveries = 0;
+        for (long n : deliveries) totalDeliveries += n;
+
+        return new AdminDashboardDTO(
+                totalUsers,
+                users[UserRole.CLIENT.ordinal()],
+                users[UserRole.AGENT.ordinal()],
+                kyc[KYCStatus.PENDING.ordinal()],
+                totalDeliveries,
+                deliveries[DeliveryStatus.REQUESTED.ordinal()],
+                deliveries[DeliveryStatus.IN_TRANSIT.ordinal()],
+                deliveries[DeliveryStatus.DELIVERED.ordinal()]
+        );
+    }
+
+    // -------------------------------------------------------------
+    // EVENTS (applied once the surrounding transaction commits)
+    // -------------------------------------------------------------
+    public void onUserCreated(UserRole role) {
+        afterCommit(() -> addUser(role, 1));
+    }
+
+    public void onUserDeleted(UserRole role) {
+        afterCommit(() -> addUser(role, -1));
+    }
+
+    /** {@code from} is null for a new KYC record. */
+    public void onKycStatusChange(KYCStatus from, KYCStatus to) {
+        if (from == to) return;
+        afterCommit(() -> {
+            if (from != null) kyc[from.ordinal()]--;
+            if (to != null) kyc[to.ordinal()]++;
+        });
+    }
+
+    public void onDeliveryCreated(DeliveryStatus status) {
+        onDeliveryStatusChange(null, status);
+    }
+
+    public void onDeliveryDeleted(DeliveryStatus status) {
+        onDeliveryStatusChange(status, null);
+    }
+
+    /** {@code from} is null for a new delivery, {@code to} for a deleted one. */
+    public void onDeliveryStatusChange(DeliveryStatus from, DeliveryStatus to) {
+        if (from == to) return;
+        afterCommit(() -> {
+            if (from != null) deliveries[from.ordinal()]--;
+            if (to != null) deliveries[to.ordinal()]++;
+        });
+    }
+
+    private void addUser(UserRole role, int delta) {
+        if (role != null) users[role.ordinal()] += delta;
+        else usersWithoutRole += delta;
+    }
+
+    private void afterCommit(Runnable update) {
+        Runnable apply = () -> apply(update);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply.run();
+            }
+        });
+    }
+
+    private synchronized void apply(Runnable update) {
+        update.run();
+        if (duringReconcile != null) duringReconcile.add(update);
+    }
+
+    // -------------------------------------------------------------
+    // RECONCILE
+    // -------------------------------------------------------------
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Reloads every count from the database. Updates that land while the
+     * query runs are re-applied on top of its result, so they are not lost.
+     */
+    @Scheduled(fixedDelayString = "${dashboard.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            reload();
+        }
+    }
+
+    private void reload() {
+        synchronized (this) {
+            duringReconcile = new ArrayList<>();
+        }
+        try {
+            long[] u = new long[users.length];
+            long[] k = new long[kyc.length];
+            long[] d = new long[deliveries.length];
+            long[] noRole = new long[1];
+
+            jdbc.query(COUNT_SQL, rs -> {
+                String status = rs.getString(2);
+                long count = rs.getLong(3);
+                switch (rs.getString(1)) {
+                    case "USER" -> {
+                        if (status == null) noRole[0] += count;
+                        else u[UserRole.valueOf(status).ordinal()] += count;
+                    }
+                    case "KYC" -> {
+                        if (status != null) k[KYCStatus.valueOf(status).ordinal()] += count;
+                    }
+                    case "DELIVERY" -> {
+                        if (status != null) d[DeliveryStatus.valueOf(status).ordinal()] += count;
+                    }
+                    default -> { }
+                }
+            });
+
+            synchronized (this) {
+                AdminDashboardDTO before = snapshot();
+                System.arraycopy(u, 0, users, 0, u.length);
+                System.arraycopy(k, 0, kyc, 0, k.length);
+                System.arraycopy(d, 0, deliveries, 0, d.length);
+                usersWithoutRole = noRole[0];
+                duringReconcile.forEach(Runnable::run);
+
+                AdminDashboardDTO after = snapshot();
+                if (loaded && !before.equals(after)) {
+                    log.info("Dashboard counters corrected from {} to {}", before, after);
+                }
+                loaded = true;
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to reconcile dashboard counters", e);
+        } finally {
+            synchronized (this) {
+                duringReconcile = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.deliverXY.backend.NewCode.admin.dashboard;
+
+import com.deliverXY.backend.NewCode.admin.dto.AdminDashboardDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Server-sent dashboard updates. A subscriber first gets a "snapshot"
+ * event, then a "delta" event per tick in which a count changed, holding
+ * only the changed counts as differences. Changes are coalesced per tick,
+ * and the snapshot is the baseline the next delta is computed against,
+ * so applying deltas to it always adds up.
+ */
+@Service
+@Slf4j
+public class DashboardFeed {
+
+    private final DashboardCounters counters;
+    private final long timeoutMs;
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private AdminDashboardDTO lastSent;
+    private long sequence;
+
+    public record Delta(long sequence, Map<String, Long> changes) {
+    }
+
+    public DashboardFeed(DashboardCounters counters,
+                         @Value("${dashboard.sse-timeout-ms:1800000}") long timeoutMs) {
+        this.counters = counters;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public synchronized SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+
+        if (lastSent == null) lastSent = counters.snapshot();
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").id(String.valueOf(sequence)).data(lastSent));
+            subscribers.add(emitter);
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    @Scheduled(fixedRateString = "${dashboard.push-interval-ms:1000}")
+    public synchronized void broadcast() {
+        if (subscribers.isEmpty()) {
+            // Nobody holds the baseline; the next subscriber starts from a fresh snapshot
+            lastSent = null;
+            return;
+        }
+
+        AdminDashboardDTO current = counters.snapshot();
+        Map<String, Long> changes = diff(lastSent, current);
+        if (changes.isEmpty()) return;
+
+        lastSent = current;
+        Delta delta = new Delta(++sequence, changes);
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name("delta").id(String.valueOf(delta.sequence())).data(delta));
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; it gets a new snapshot when it reconnects
+                subscribers.remove(emitter);
+                log.debug("Dropping dashboard subscriber: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, Long> diff(AdminDashboardDTO from, AdminDashboardDTO to) {
+        Map<String, Long> changes = new LinkedHashMap<>();
+        put(changes, "totalUsers", to.getTotalUsers() - from.getTotalUsers());
+        put(changes, "totalClients", to.getTotalClients() - from.getTotalClients());
+        put(changes, "totalAgents", to.getTotalAgents() - from.getTotalAgents());
+        put(changes, "pendingKYC", to.getPendingKYC() - from.getPendingKYC());
+        put(changes, "totalDeliveries", to.getTotalDeliveries() - from.getTotalDeliveries());
+        put(changes, "pendingDeliveries", to.getPendingDeliveries() - from.getPendingDeliveries());
+        put(changes, "activeDeliveries", to.getActiveDeliveries() - from.getActiveDeliveries());
+        put(changes, "completedDeliveries", to.getCompletedDeliveries() - from.getCompletedDeliveries());
+        return changes;
+    }
+
+    private static void put(Map<String, Long> changes, String counter, long delta) {
+        if (delta != 0) changes.put(counter, delta);
+    }
+}
@@ -1,5 +1,6 @@
 package com.deliverXY.backend.NewCode.admin.service.impl;
 
+import com.deliverXY.backend.NewCode.admin.dashboard.DashboardCounters;
 import com.deliverXY.backend.NewCode.admin.dto.AdminDashboardDTO;
 import com.deliverXY.backend.NewCode.admin.dto.AdminUserDTO;
 import com.deliverXY.backend.NewCode.admin.service.AdminService;
@@ -13,8 +14,6 @@ import com.deliverXY.backend.NewCode.kyc.service.AppUserKYCService;
 import com.deliverXY.backend.NewCode.user.service.AppUserService;
 import com.deliverXY.backend.NewCode.drivers.domain.DriverLocation;
 import com.deliverXY.backend.NewCode.drivers.repository.DriverLocationRepository;
-import com.deliverXY.backend.NewCode.common.enums.DeliveryStatus;
-import com.deliverXY.backend.NewCode.common.enums.KYCStatus;
 import com.deliverXY.backend.NewCode.common.enums.UserRole;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -31,31 +30,11 @@ public class AdminServiceImpl implements AdminService {
     private final AppUserKYCService kycService;
     private final DeliveryService deliveryService;
     private final DriverLocationRepository driverLocationRepository;
+    private final DashboardCounters dashboardCounters;
 
     @Override
     public AdminDashboardDTO getDashboardStats() {
-
-
-        long totalUsers = userService.countALL();
-        long totalClients = userService.countByRole(UserRole.CLIENT);
-        long totalAgents = userService.countByRole(UserRole.AGENT);
-        long pendingKYC = kycService.countByStatus(KYCStatus.PENDING);
-
-        long totalDeliveries = deliveryService.countAll();
-        long pendingDeliveries = deliveryService.countByStatus(DeliveryStatus.REQUESTED);
-        long activeDeliveries = deliveryService.countByStatus(DeliveryStatus.IN_TRANSIT);
-        long completedDeliveries = deliveryService.countByStatus(DeliveryStatus.DELIVERED);
-
-        return new AdminDashboardDTO(
-                totalUsers,
-                totalClients,
-                totalAgents,
-                pendingKYC,
-                totalDeliveries,
-                pendingDeliveries,
-                activeDeliveries,
-                completedDeliveries
-        );
+        return dashboardCounters.snapshot();
     }
 
     @Override
@@ -1,9 +1,7 @@
 package com.deliverXY.backend.NewCode.common.constants;
 
 public class DriverConstants {
-    public static final double INITIAL_SEARCH_RADIUS_KM = 1.5;
     public static final double MAX_SEARCH_RADIUS_KM = 10.0;
-    public static final double SEARCH_RADIUS_INCREMENT_KM = 1.0;
     public static final double BROADCAST_RADIUS_KM = 3.0;
     public static final double AVERAGE_DRIVER_SPEED_KMH = 40.0; // Slightly higher than city speed (35) as they are usually on main roads
 }
@@ -0,0 +1,7 @@
+package com.deliverXY.backend.NewCode.common.enums;
+
+public enum ZoneType {
+    CITY,        // service area; decides which city's pricing applies
+    CITY_CENTER, // city center multiplier
+    AIRPORT      // fixed airport surcharge
+}
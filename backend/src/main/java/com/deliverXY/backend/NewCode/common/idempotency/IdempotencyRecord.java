@@ -0,0 +1,44 @@
+package com.deliverXY.backend.NewCode.common.idempotency;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Durable tier of the idempotency store: one row per (scope, user, key).
+ * The row is claimed before the request runs and completed with the
+ * stored response afterwards. Written by {@link IdempotencyService} only.
+ */
+@Entity
+@Table(
+        name = "idempotency_keys",
+        indexes = @Index(name = "idx_idempotency_expires", columnList = "expires_at")
+)
+@Data
+@NoArgsConstructor
+public class IdempotencyRecord {
+
+    public enum Status { IN_PROGRESS, COMPLETED }
+
+    @Id
+    @Column(name = "store_key", length = 200)
+    private String storeKey;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
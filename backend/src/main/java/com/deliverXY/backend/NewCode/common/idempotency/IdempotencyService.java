@@ -0,0 +1,270 @@
+package com.deliverXY.backend.NewCode.common.idempotency;
+
+import com.deliverXY.backend.NewCode.common.response.ApiResponse;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.exceptions.ConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency keys for retried mutations.
+ * A request carrying an Idempotency-Key header is claimed in
+ * idempotency_keys before it runs, and its response is stored when it
+ * succeeds. A retry with the same key gets the stored response back
+ * without running again. Completed keys are also kept in a bounded
+ * in-memory tier, so a retry storm is answered without a database round
+ * trip. Keys expire after {@code idempotency.ttl-hours}.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private static final String CLAIM_SQL = """
+            INSERT INTO idempotency_keys (store_key, request_hash, status, created_at, expires_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (store_key) DO NOTHING
+            """;
+
+    /** Takes over a claim whose owner died mid-request, or a key that expired but was not purged yet. */
+    private static final String TAKE_OVER_SQL = """
+            UPDATE idempotency_keys
+            SET request_hash = ?, status = 'IN_PROGRESS', response = NULL, created_at = ?, expires_at = ?
+            WHERE store_key = ? AND ((status = 'IN_PROGRESS' AND created_at < ?) OR expires_at < ?)
+            """;
+
+    private static final String FIND_SQL =
+            "SELECT request_hash, status, response FROM idempotency_keys WHERE store_key = ?";
+
+    private static final String COMPLETE_SQL =
+            "UPDATE idempotency_keys SET status = 'COMPLETED', response = ? WHERE store_key = ?";
+
+    private static final String RELEASE_SQL =
+            "DELETE FROM idempotency_keys WHERE store_key = ? AND status = 'IN_PROGRESS'";
+
+    private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE expires_at < ?";
+
+    private static final Stored DONE = new Stored("", true, null);
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Cache<String, Stored> hot;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter inProgress;
+    private final Counter mismatched;
+
+    /** A claimed key as seen by a retry; {@code response} is the stored ApiResponse JSON. */
+    private record Stored(String requestHash, boolean completed, String response) {
+    }
+
+    public IdempotencyService(JdbcTemplate jdbc,
+                              ObjectMapper mapper,
+                              MeterRegistry meters,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${idempotency.lease-seconds:60}") long leaseSeconds,
+                              @Value("${idempotency.hot-max-entries:100000}") long hotMaxEntries) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.hot = Caffeine.newBuilder()
+                .maximumSize(hotMaxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+
+        this.executed = meters.counter("idempotency.requests", "outcome", "executed");
+        this.replayed = meters.counter("idempotency.requests", "outcome", "replayed");
+        this.inProgress = meters.counter("idempotency.requests", "outcome", "in_progress");
+        this.mismatched = meters.counter("idempotency.requests", "outcome", "mismatched");
+    }
+
+    // -------------------------------------------------------------
+    // REQUESTS (Idempotency-Key header)
+    // -------------------------------------------------------------
+
+    /**
+     * Runs {@code action} once per (scope, user, key). Without a key the
+     * action just runs. A retry gets the stored response; a retry while
+     * the first attempt is still running fails with 409, and reusing a
+     * key for a different request fails with 400. Failed attempts (an
+     * exception or an unsuccessful response) release the key so the
+     * client can retry.
+     */
+    public <T> ApiResponse<T> execute(String scope, Long userId, String key, Object request,
+                                      Class<T> dataType, Supplier<ApiResponse<T>> action) {
+        if (key == null || key.isBlank()) return action.get();
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String storeKey = scope + ":" + (userId != null ? userId : "-") + ":" + key;
+        String requestHash = fingerprint(request);
+
+        Stored hit = hot.getIfPresent(storeKey);
+        if (hit == null) hit = claimOrFind(storeKey, requestHash);
+        if (hit != null) return replay(storeKey, hit, requestHash, dataType);
+
+        ApiResponse<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            jdbc.update(RELEASE_SQL, storeKey);
+            throw e;
+        }
+
+        if (response == null || !response.isSuccess()) {
+            jdbc.update(RELEASE_SQL, storeKey);
+            return response;
+        }
+
+        String json = write(response);
+        jdbc.update(COMPLETE_SQL, json, storeKey);
+        hot.put(storeKey, new Stored(requestHash, true, json));
+        executed.increment();
+        return response;
+    }
+
+    /** Null when this caller now owns the key, otherwise the existing claim. */
+    private Stored claimOrFind(String storeKey, String requestHash) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            Timestamp created = Timestamp.valueOf(now);
+            Timestamp expires = Timestamp.valueOf(now.plus(ttl));
+
+            if (jdbc.update(CLAIM_SQL, storeKey, requestHash, IdempotencyRecord.Status.IN_PROGRESS.name(),
+                    created, expires) == 1) {
+                return null;
+            }
+            if (jdbc.update(TAKE_OVER_SQL, requestHash, created, expires, storeKey,
+                    Timestamp.valueOf(now.minus(lease)), created) == 1) {
+                return null;
+            }
+
+            List<Stored> rows = jdbc.query(FIND_SQL, (rs, i) -> new Stored(rs.getString(1),
+                    IdempotencyRecord.Status.COMPLETED.name().equals(rs.getString(2)), rs.getString(3)), storeKey);
+            // Empty when the owner released the key in between; claim again
+            if (!rows.isEmpty()) return rows.get(0);
+        }
+        inProgress.increment();
+        throw new ConflictException("A request with this " + HEADER + " is still being processed");
+    }
+
+    private <T> ApiResponse<T> replay(String storeKey, Stored stored, String requestHash, Class<T> dataType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            mismatched.increment();
+            throw new BadRequestException(HEADER + " was already used for a different request");
+        }
+        if (!stored.completed()) {
+            inProgress.increment();
+            throw new ConflictException("A request with this " + HEADER + " is still being processed");
+        }
+
+        hot.put(storeKey, stored);
+        replayed.increment();
+        try {
+            JavaType type = mapper.getTypeFactory().constructParametricType(ApiResponse.class, dataType);
+            return mapper.readValue(stored.response(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for " + storeKey + " is unreadable", e);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // INTERNAL OPERATIONS
+    // -------------------------------------------------------------
+
+    /**
+     * Marks {@code scope:id} as done in the caller's transaction. Returns
+     * true the first time and false for every duplicate; once the first
+     * one committed, duplicates are answered from memory. The mark rolls
+     * back with the caller, so a failed attempt can run again.
+     */
+    public boolean claimOnce(String scope, Object id) {
+        String storeKey = scope + ":" + id;
+        if (hot.getIfPresent(storeKey) != null) {
+            replayed.increment();
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        boolean claimed = jdbc.update(CLAIM_SQL, storeKey, "", IdempotencyRecord.Status.COMPLETED.name(),
+                Timestamp.valueOf(now), Timestamp.valueOf(now.plus(ttl))) == 1;
+        if (!claimed) {
+            hot.put(storeKey, DONE);
+            replayed.increment();
+            return false;
+        }
+
+        afterCommit(() -> hot.put(storeKey, DONE));
+        executed.increment();
+        return true;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // -------------------------------------------------------------
+    // HOUSEKEEPING
+    // -------------------------------------------------------------
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        int purged = jdbc.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now()));
+        if (purged > 0) log.debug("Purged {} expired idempotency keys", purged);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(write(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialise " + value.getClass().getSimpleName(), e);
+        }
+    }
+}
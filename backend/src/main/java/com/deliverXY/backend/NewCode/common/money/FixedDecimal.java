@@ -0,0 +1,162 @@
+package com.deliverXY.backend.NewCode.common.money;
+
+import java.math.BigDecimal;
+
+/**
+ * Exact decimal as {@code unscaled * 10^-scale}, the same model as
+ * BigDecimal but held in a long. Arithmetic throws ArithmeticException
+ * instead of silently overflowing, so callers can fall back to BigDecimal.
+ */
+public record FixedDecimal(long unscaled, int scale) {
+
+    public static final FixedDecimal ONE = new FixedDecimal(1, 0);
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+    private static final long LIMB_MASK = 0xFFFF_FFFFL;
+
+    public static FixedDecimal of(BigDecimal value) {
+        return new FixedDecimal(value.unscaledValue().longValueExact(), value.scale());
+    }
+
+    public static FixedDecimal of(long value) {
+        return new FixedDecimal(value, 0);
+    }
+
+    /**
+     * Same digits as {@code BigDecimal.valueOf(value)}, which is defined via
+     * {@link Double#toString(double)}; parsed without building a BigDecimal.
+     */
+    public static FixedDecimal of(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new ArithmeticException("Not a finite number: " + value);
+        }
+        String s = Double.toString(value);
+
+        long unscaled = 0;
+        int fractionDigits = 0;
+        int exponent = 0;
+        boolean negative = false;
+        boolean inFraction = false;
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '-') {
+                negative = true;
+            } else if (c == '.') {
+                inFraction = true;
+            } else if (c == 'E') {
+                exponent = Integer.parseInt(s, i + 1, s.length(), 10);
+                break;
+            } else {
+                unscaled = Math.addExact(Math.multiplyExact(unscaled, 10L), c - '0');
+                if (inFraction) fractionDigits++;
+            }
+        }
+        return new FixedDecimal(negative ? -unscaled : unscaled, fractionDigits - exponent);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    public int signum() {
+        return Long.signum(unscaled);
+    }
+
+    /** Exact; the result takes the larger scale. */
+    public FixedDecimal add(FixedDecimal other) {
+        int s = Math.max(scale, other.scale);
+        return new FixedDecimal(Math.addExact(rescale(unscaled, scale, s), rescale(other.unscaled, other.scale, s)), s);
+    }
+
+    public FixedDecimal subtract(FixedDecimal other) {
+        int s = Math.max(scale, other.scale);
+        return new FixedDecimal(Math.subtractExact(rescale(unscaled, scale, s), rescale(other.unscaled, other.scale, s)), s);
+    }
+
+    public int compareTo(FixedDecimal other) {
+        int s = Math.max(scale, other.scale);
+        return Long.compare(rescale(unscaled, scale, s), rescale(other.unscaled, other.scale, s));
+    }
+
+    /**
+     * {@code (this * other)} rounded HALF_UP to {@code targetScale}, returned
+     * as the unscaled long. Equal to
+     * {@code a.multiply(b).setScale(targetScale, HALF_UP).unscaledValue()}.
+     */
+    public long multiplyHalfUp(FixedDecimal other, int targetScale) {
+        return multiplyHalfUp(unscaled, scale, other.unscaled, other.scale, targetScale);
+    }
+
+    /** {@code this} rounded HALF_UP to {@code targetScale}, as the unscaled long. */
+    public long roundHalfUp(int targetScale) {
+        return multiplyHalfUp(unscaled, scale, 1L, 0, targetScale);
+    }
+
+    // -------------------------------------------------------------
+    // PRIMITIVES
+    // -------------------------------------------------------------
+    static long rescale(long unscaled, int from, int to) {
+        return to == from ? unscaled : Math.multiplyExact(unscaled, pow10(to - from));
+    }
+
+    static long pow10(int n) {
+        if (n < 0 || n >= POW10.length) throw new ArithmeticException("10^" + n + " does not fit in a long");
+        return POW10[n];
+    }
+
+    static long multiplyHalfUp(long a, int aScale, long b, int bScale, int targetScale) {
+        int sign = Long.signum(a) * Long.signum(b);
+        if (sign == 0) return 0;
+        if (a == Long.MIN_VALUE || b == Long.MIN_VALUE) throw new ArithmeticException("long overflow");
+        long x = Math.abs(a);
+        long y = Math.abs(b);
+
+        int drop = aScale + bScale - targetScale;
+        if (drop <= 0) {
+            return sign * Math.multiplyExact(Math.multiplyExact(x, y), pow10(-drop));
+        }
+
+        // Keep one extra digit, then round on it: HALF_UP rounds up iff that digit >= 5
+        long kept;
+        long hi = Math.multiplyHigh(x, y);
+        long lo = x * y;
+        if (hi == 0 && lo >= 0) {
+            kept = drop - 1 < POW10.length ? lo / POW10[drop - 1] : 0;
+        } else {
+            kept = divide128(hi, lo, drop - 1);
+        }
+        return sign * (kept / 10 + (kept % 10 >= 5 ? 1 : 0));
+    }
+
+    /**
+     * floor((hi*2^64 + lo) / 10^digits) for a non-negative 128-bit value,
+     * dividing 32-bit limbs by at most 10^9 at a time so every partial
+     * remainder fits in a long.
+     */
+    private static long divide128(long hi, long lo, int digits) {
+        long l3 = hi >>> 32, l2 = hi & LIMB_MASK, l1 = lo >>> 32, l0 = lo & LIMB_MASK;
+
+        while (digits > 0) {
+            int step = Math.min(digits, 9);
+            long d = POW10[step];
+            long r;
+
+            r = l3 % d; l3 = l3 / d;
+            long t = (r << 32) | l2; l2 = t / d; r = t % d;
+            t = (r << 32) | l1; l1 = t / d; r = t % d;
+            t = (r << 32) | l0; l0 = t / d;
+
+            digits -= step;
+            if (l3 == 0 && l2 == 0 && l1 == 0 && l0 == 0) return 0;
+        }
+
+        if (l3 != 0 || l2 != 0 || l1 > Integer.MAX_VALUE) throw new ArithmeticException("long overflow");
+        return (l1 << 32) | l0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.deliverXY.backend.NewCode.common.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount in minor units (cents/deni) plus ISO currency code. All supported
+ * currencies use two minor digits.
+ */
+public record Money(long minorUnits, String currency) {
+
+    public static final int MINOR_DIGITS = 2;
+
+    public static Money zero(String currency) {
+        return new Money(0, currency);
+    }
+
+    public static Money of(BigDecimal amount, String currency) {
+        return new Money(amount.setScale(MINOR_DIGITS, RoundingMode.HALF_UP).unscaledValue().longValueExact(), currency);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, MINOR_DIGITS);
+    }
+
+    /** Same double as {@code toBigDecimal().doubleValue()}: both are the correctly rounded quotient. */
+    public double toDouble() {
+        return minorUnits / 100.0;
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+}
@@ -1,20 +1,29 @@
 package com.deliverXY.backend.NewCode.deliveries.controller;
 
 import com.deliverXY.backend.NewCode.common.response.ApiResponse;
+import com.deliverXY.backend.NewCode.deliveries.dto.BulkFareQuoteDTO;
 import com.deliverXY.backend.NewCode.deliveries.dto.DeliveryDTO;
 import com.deliverXY.backend.NewCode.deliveries.dto.DeliveryResponseDTO;
 import com.deliverXY.backend.NewCode.deliveries.dto.FareEstimateDTO;
 import com.deliverXY.backend.NewCode.deliveries.dto.FareResponseDTO;
 import com.deliverXY.backend.NewCode.deliveries.service.DeliveryService;
 import com.deliverXY.backend.NewCode.security.UserPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -23,6 +32,7 @@ import java.util.List;
 public class DeliveryController {
 
     private final DeliveryService deliveryService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ApiResponse<Page<DeliveryResponseDTO>> getAll(
@@ -135,4 +145,24 @@ public class DeliveryController {
     ) {
         return ApiResponse.ok(deliveryService.estimateFare(request, principal.getUser()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Prices up to {@code BULK_QUOTE_MAX_ROUTES} routes against one pricing
+     * snapshot and streams the quotes as NDJSON, one line per route.
+     */
+    @PostMapping(value = "/estimate-fare/batch", produces = "application/x-ndjson")
+    public StreamingResponseBody estimateFares(@Valid @RequestBody BulkFareQuoteDTO request) {
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            deliveryService.quoteFares(request.getRoutes(), quote -> {
+                try {
+                    writer.write(objectMapper.writeValueAsString(quote));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+    }
+}
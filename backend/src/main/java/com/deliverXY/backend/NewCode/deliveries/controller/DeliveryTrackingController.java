@@ -1,11 +1,18 @@
 package com.deliverXY.backend.NewCode.deliveries.controller;
 
 import com.deliverXY.backend.NewCode.common.response.ApiResponse;
-import com.deliverXY.backend.NewCode.deliveries.domain.DeliveryTracking;
+import com.deliverXY.backend.NewCode.deliveries.dto.TrackingFrameDTO;
 import com.deliverXY.backend.NewCode.deliveries.service.DeliveryTrackingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @RestController
@@ -16,7 +23,7 @@ public class DeliveryTrackingController {
     private final DeliveryTrackingService service;
 
     @PostMapping("/{deliveryId}/update")
-    public ApiResponse<DeliveryTracking> update(
+    public ApiResponse<TrackingFrameDTO> update(
             @PathVariable Long deliveryId,
             @RequestBody Map<String, Double> body
     ) {
@@ -29,9 +36,33 @@ public class DeliveryTrackingController {
         );
     }
 
+    /**
+     * Snapshot of the latest position. Live clients should subscribe to
+     * /topic/tracking/{deliveryId} instead of polling this endpoint.
+     */
     @GetMapping("/{deliveryId}")
-    public ApiResponse<DeliveryTracking> get(@PathVariable Long deliveryId) {
+    public ApiResponse<TrackingFrameDTO> get(@PathVariable Long deliveryId) {
         return ApiResponse.ok(service.getTracking(deliveryId));
     }
-}
 
+    /**
+     * Replays the recorded route as NDJSON, one point per line, without
+     * loading the whole route into memory.
+     */
+    @GetMapping(value = "/{deliveryId}/route", produces = "application/x-ndjson")
+    public StreamingResponseBody route(@PathVariable Long deliveryId) {
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            service.replayRoute(deliveryId, p -> {
+                try {
+                    writer.write("{\"lat\":" + p.latitude()
+                            + ",\"lon\":" + p.longitude()
+                            + ",\"ts\":" + p.timestampMillis() + "}\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+    }
+}
@@ -64,6 +64,16 @@ public class Delivery {
     private String dropoffInstructions;
     private Double distanceKm;
 
+    // ACTUAL ROUTE (filled in from the GPS trail once the delivery is finished)
+    private Double actualDistanceKm;
+
+    @Column(columnDefinition = "TEXT")
+    private String routePolyline;
+
+    // PRICING (config id + revision of the snapshot that priced this delivery)
+    private Long pricingConfigId;
+    private Long pricingVersion;
+
 
     // TIMING
     private LocalDateTime requestedPickupTime;
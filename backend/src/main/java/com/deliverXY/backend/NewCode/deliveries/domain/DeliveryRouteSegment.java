@@ -0,0 +1,41 @@
+package com.deliverXY.backend.NewCode.deliveries.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One appended batch of GPS breadcrumbs for a delivery, encoded with
+ * {@link com.deliverXY.backend.NewCode.deliveries.route.RouteCodec}.
+ * Once the delivery is finished all its segments are merged into one.
+ */
+@Entity
+@Table(
+        name = "delivery_route_segments",
+        indexes = {
+                @Index(name = "idx_route_segment_delivery", columnList = "delivery_id")
+        }
+)
+@Data
+@NoArgsConstructor
+public class DeliveryRouteSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "delivery_id", nullable = false)
+    private Long deliveryId;
+
+    private Integer pointCount;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime endedAt;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] points;
+
+    private Boolean compacted = false;
+}
@@ -63,5 +63,9 @@ public class PricingConfig {
     @Column(name = "platform_commission_percent")
     private Double platformCommissionPercent = 20.0;
 
+    /** Bumped on every save; quotes record it to show which pricing priced them. */
+    @Column(name = "revision")
+    private Long revision = 0L;
+
     private String description; // e.g., "Standard delivery in Skopje"
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.deliverXY.backend.NewCode.deliveries.domain;
+
+import com.deliverXY.backend.NewCode.common.enums.ZoneType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "pricing_zones", indexes = {
+        @Index(name = "idx_pricing_zone_city", columnList = "city")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingZone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String city;
+
+    @Column(nullable = false)
+    private String name; // e.g., "Skopje Center", "Skopje Airport"
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ZoneType type;
+
+    /** Outer ring as "lat,lon;lat,lon;..." — first vertex is not repeated. */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String polygon;
+
+    @Column(name = "is_active")
+    private Boolean isActive = true;
+}
@@ -0,0 +1,22 @@
+package com.deliverXY.backend.NewCode.deliveries.dto;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkFareQuoteDTO {
+
+    @NotEmpty(message = "At least one route is required")
+    @Size(max = DeliveryConstants.BULK_QUOTE_MAX_ROUTES,
+            message = "At most " + DeliveryConstants.BULK_QUOTE_MAX_ROUTES + " routes per request")
+    private List<@Valid FareEstimateDTO> routes;
+}
@@ -57,6 +57,8 @@ public class DeliveryResponseDTO {
     private Double estimatedDistance;
     private Integer estimatedDuration;
     private String trackingCode;
+    private Double actualDistanceKm;
+    private String routePolyline;
 
     // Metadata
     private LocalDateTime createdAt;
@@ -1,20 +1,19 @@
 package com.deliverXY.backend.NewCode.deliveries.dto;
 
+import com.deliverXY.backend.NewCode.common.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class FareBreakdown {
 
-    private BigDecimal totalFare;
-    private BigDecimal baseFare;
-    private BigDecimal distanceFare;
-    private BigDecimal timeFare;
+    private Money totalFare;
+    private Money baseFare;
+    private Money distanceFare;
+    private Money timeFare;
 
     private double distanceKm;
     private int estimatedMinutes;
@@ -22,7 +21,12 @@ public class FareBreakdown {
     private String currency;
 
     private double surgeMultiplier;
+    private boolean demandSurge; // surge came from live demand, not the time of week
+
+    private Money cityCenterCharge;
+    private Money airportCharge;
 
-    private BigDecimal cityCenterCharge;
-    private BigDecimal airportCharge;
+    // Which pricing snapshot produced this quote
+    private Long pricingConfigId;
+    private long pricingVersion;
 }
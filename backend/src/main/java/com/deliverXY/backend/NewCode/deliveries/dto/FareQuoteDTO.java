@@ -0,0 +1,27 @@
+package com.deliverXY.backend.NewCode.deliveries.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a bulk quote; {@code index} is the route's position in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FareQuoteDTO {
+    private int index;
+
+    private Double totalFare;
+    private String currency;
+
+    private Double distanceKm;
+    private Integer estimatedMinutes;
+
+    private Double surgeMultiplier;
+    private Double cityCenterAmount;
+    private Double airportAmount;
+
+    private Long pricingVersion;
+}
@@ -30,4 +30,5 @@ public class FareResponseDTO {
     private String surgeReason;
     private Double discount;
     private String promoCodeApplied;
+    private Long pricingVersion;
 }
\ No newline at end of file
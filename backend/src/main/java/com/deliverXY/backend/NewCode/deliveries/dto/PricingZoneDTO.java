@@ -0,0 +1,23 @@
+package com.deliverXY.backend.NewCode.deliveries.dto;
+
+import com.deliverXY.backend.NewCode.common.enums.ZoneType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PricingZoneDTO {
+
+    private Long id;
+    private String city;
+    private String name;
+    private ZoneType type;
+    private List<List<Double>> polygon; // [[lat, lon], ...], outer ring, not closed
+    private Boolean isActive;
+}
@@ -0,0 +1,40 @@
+package com.deliverXY.backend.NewCode.deliveries.dto;
+
+import com.deliverXY.backend.NewCode.deliveries.domain.DeliveryTracking;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest known position of a delivery, as pushed on /topic/tracking/{id}.
+ * {@code sequence} grows with every ping so clients can drop stale frames.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackingFrameDTO {
+
+    private Long deliveryId;
+    private Double latitude;
+    private Double longitude;
+
+    private Double estimatedDistanceKm;
+    private Integer estimatedMinutes;
+
+    private LocalDateTime updatedAt;
+    private long sequence;
+
+    public static TrackingFrameDTO from(DeliveryTracking t) {
+        return new TrackingFrameDTO(
+                t.getDeliveryId(),
+                t.getCurrentLatitude(),
+                t.getCurrentLongitude(),
+                t.getEstimatedDistance(),
+                t.getEstimatedDuration(),
+                t.getLastLocationUpdate(),
+                0L
+        );
+    }
+}
@@ -71,6 +71,10 @@ public class DeliveryMapper {
             dto.setAgentEmail(a.getEmail());
         }
 
+        // Route
+        dto.setActualDistanceKm(delivery.getActualDistanceKm());
+        dto.setRoutePolyline(delivery.getRoutePolyline());
+
         // Meta
         dto.setCreatedAt(delivery.getCreatedAt());
         dto.setUpdatedAt(delivery.getUpdatedAt());
@@ -0,0 +1,139 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.common.money.FixedDecimal;
+import com.deliverXY.backend.NewCode.common.money.Money;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fare arithmetic on long-backed fixed-point decimals.
+ * Every step mirrors the BigDecimal formula it replaced (exact sums, each
+ * product rounded HALF_UP to two decimals), so results are identical. If a
+ * value ever leaves the range of a long the quote is recomputed with
+ * BigDecimal by {@link #priceDecimal}, the reference implementation.
+ */
+public final class FareCalculator {
+
+    private FareCalculator() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    private static final int SCALE = Money.MINOR_DIGITS; // For currency
+
+    public static FareBreakdown price(PricingSnapshot pricing, SurgeBand band, double demandMultiplier,
+                                      double distanceKm, int estimatedMinutes,
+                                      boolean inCityCenter, boolean atAirport) {
+        try {
+            return priceFixed(pricing, band, demandMultiplier, distanceKm, estimatedMinutes, inCityCenter, atAirport);
+        } catch (ArithmeticException e) {
+            return priceDecimal(pricing, band, demandMultiplier, distanceKm, estimatedMinutes, inCityCenter, atAirport);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // FIXED-POINT PATH
+    // -------------------------------------------------------------
+    static FareBreakdown priceFixed(PricingSnapshot pricing, SurgeBand band, double demandMultiplier,
+                                    double distanceKm, int estimatedMinutes,
+                                    boolean inCityCenter, boolean atAirport) {
+        PricingSnapshot.FixedRates rates = pricing.fixed();
+
+        long distanceFare = FixedDecimal.of(distanceKm).multiplyHalfUp(rates.perKmRate(), SCALE);
+        long timeFare = FixedDecimal.of(estimatedMinutes).multiplyHalfUp(rates.perMinuteRate(), SCALE);
+
+        // (Base + Distance + Time) * Surge; the sum is exact at the base fare's scale
+        FixedDecimal preSurgeTotal = rates.baseFare()
+                .add(new FixedDecimal(Math.addExact(distanceFare, timeFare), SCALE));
+
+        // Comparing the doubles orders them exactly as comparing their BigDecimal.valueOf forms
+        double bandSurge = rates.surgeValue(band);
+        boolean demandWins = demandMultiplier > bandSurge;
+        FixedDecimal surge = demandWins ? FixedDecimal.of(demandMultiplier) : rates.surge(band);
+
+        long afterSurge = preSurgeTotal.multiplyHalfUp(surge, SCALE);
+
+        long cityCenterCharge = 0;
+        if (inCityCenter && rates.cityCenterExtra().signum() > 0) {
+            cityCenterCharge = new FixedDecimal(afterSurge, SCALE).multiplyHalfUp(rates.cityCenterExtra(), SCALE);
+        }
+
+        long airportCharge = atAirport ? rates.airportSurcharge().roundHalfUp(SCALE) : 0;
+
+        long total = Math.addExact(Math.addExact(afterSurge, cityCenterCharge), airportCharge);
+        if (rates.minimumFare().compareTo(new FixedDecimal(total, SCALE)) > 0) {
+            total = rates.minimumFare().roundHalfUp(SCALE);
+        }
+
+        String currency = pricing.currency();
+        return new FareBreakdown(
+                new Money(total, currency),
+                new Money(rates.baseFare().roundHalfUp(SCALE), currency),
+                new Money(distanceFare, currency),
+                new Money(timeFare, currency),
+                distanceKm,
+                estimatedMinutes,
+                currency,
+                demandWins ? demandMultiplier : bandSurge,
+                demandWins,
+                new Money(cityCenterCharge, currency),
+                new Money(airportCharge, currency),
+                pricing.configId(),
+                pricing.version()
+        );
+    }
+
+    // -------------------------------------------------------------
+    // BIGDECIMAL REFERENCE PATH
+    // -------------------------------------------------------------
+    static FareBreakdown priceDecimal(PricingSnapshot pricing, SurgeBand band, double demandMultiplier,
+                                      double distanceKm, int estimatedMinutes,
+                                      boolean inCityCenter, boolean atAirport) {
+        BigDecimal baseFare = pricing.baseFare();
+
+        BigDecimal distanceFare = BigDecimal.valueOf(distanceKm).multiply(pricing.perKmRate())
+                .setScale(SCALE, RoundingMode.HALF_UP);
+        BigDecimal timeFare = BigDecimal.valueOf(estimatedMinutes).multiply(pricing.perMinuteRate())
+                .setScale(SCALE, RoundingMode.HALF_UP);
+
+        BigDecimal bandSurge = pricing.surgeMultiplier(band);
+        BigDecimal demandSurge = BigDecimal.valueOf(demandMultiplier);
+        BigDecimal surgeMultiplier = bandSurge.max(demandSurge);
+
+        BigDecimal afterSurge = baseFare.add(distanceFare).add(timeFare)
+                .multiply(surgeMultiplier)
+                .setScale(SCALE, RoundingMode.HALF_UP);
+
+        BigDecimal cityCenterCharge = BigDecimal.ZERO;
+        if (inCityCenter && pricing.cityCenterMultiplier().compareTo(BigDecimal.ONE) > 0) {
+            cityCenterCharge = afterSurge
+                    .multiply(pricing.cityCenterMultiplier().subtract(BigDecimal.ONE))
+                    .setScale(SCALE, RoundingMode.HALF_UP);
+        }
+
+        BigDecimal airportCharge = (atAirport ? pricing.airportSurcharge() : BigDecimal.ZERO)
+                .setScale(SCALE, RoundingMode.HALF_UP);
+
+        BigDecimal total = afterSurge.add(cityCenterCharge).add(airportCharge)
+                .max(pricing.minimumFare())
+                .setScale(SCALE, RoundingMode.HALF_UP);
+
+        String currency = pricing.currency();
+        return new FareBreakdown(
+                Money.of(total, currency),
+                Money.of(baseFare, currency),
+                Money.of(distanceFare, currency),
+                Money.of(timeFare, currency),
+                distanceKm,
+                estimatedMinutes,
+                currency,
+                surgeMultiplier.doubleValue(),
+                demandSurge.compareTo(bandSurge) > 0,
+                Money.of(cityCenterCharge, currency),
+                Money.of(airportCharge, currency),
+                pricing.configId(),
+                pricing.version()
+        );
+    }
+}
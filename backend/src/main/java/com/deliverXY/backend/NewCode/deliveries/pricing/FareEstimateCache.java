@@ -0,0 +1,79 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded W-TinyLFU cache of fare estimates. Pickup and dropoff are keyed
+ * by their cell on a ~50 m grid, so dragging the map pin a few metres reuses
+ * the quote. The key also carries everything else a fare depends on (zone
+ * surcharges, snapshot identity, time band, demand surge), so an entry can
+ * never be served against different pricing; stale entries are simply never
+ * looked up again. Callers get their own copy of the cached breakdown.
+ * Hits, misses and evictions are exported as cache.* metrics with
+ * cache=fare.estimate.
+ */
+@Component
+public class FareEstimateCache {
+
+    /** Snap step in degrees (~55 m of latitude, ~40 m of longitude at 42°N). */
+    public static final double SNAP_DEG = 0.0005;
+
+    private static final long SNAP_COLUMNS = (long) Math.ceil(360 / SNAP_DEG);
+
+    /**
+     * Retained size of one entry (key, FareBreakdown with its Money fields
+     * and the cache node), measured as the heap growth over 200k entries.
+     */
+    private static final int ENTRY_WEIGHT_BYTES = 320;
+
+    private final Cache<Key, FareBreakdown> cache;
+
+    public record Key(long pickupCell, long dropoffCell, boolean cityCenter, boolean airport,
+                      SurgeBand band, int demandSurgeTenths, Long pricingConfigId, long pricingVersion) {
+    }
+
+    public FareEstimateCache(MeterRegistry meters,
+                             @Value("${pricing.estimate-cache.max-bytes:16777216}") long maxBytes,
+                             @Value("${pricing.estimate-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key k, FareBreakdown v) -> ENTRY_WEIGHT_BYTES)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meters, cache, "fare.estimate");
+    }
+
+    /** FareBreakdown is mutable, so the cached instance never leaves this class. */
+    public FareBreakdown get(Key key, Function<Key, FareBreakdown> loader) {
+        return copyOf(cache.get(key, loader));
+    }
+
+    /** Drops everything; called when pricing or zones change. */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public static long cellOf(double lat, double lon) {
+        long row = Math.round((lat + 90) / SNAP_DEG);
+        long col = Math.round((lon + 180) / SNAP_DEG);
+        return row * SNAP_COLUMNS + col;
+    }
+
+    private static FareBreakdown copyOf(FareBreakdown f) {
+        return new FareBreakdown(f.getTotalFare(), f.getBaseFare(), f.getDistanceFare(), f.getTimeFare(),
+                f.getDistanceKm(), f.getEstimatedMinutes(), f.getCurrency(),
+                f.getSurgeMultiplier(), f.isDemandSurge(),
+                f.getCityCenterCharge(), f.getAirportCharge(),
+                f.getPricingConfigId(), f.getPricingVersion());
+    }
+}
@@ -0,0 +1,117 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.common.money.FixedDecimal;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingConfig;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable, pre-converted view of one active {@link PricingConfig}.
+ * Rates are already BigDecimal and surge bands already resolved, so a quote
+ * does no conversion or DB work. {@code configId} + {@code version} identify
+ * exactly which pricing produced a quote.
+ */
+public record PricingSnapshot(
+        Long configId,
+        long version,
+        String city,
+        String currency,
+        BigDecimal baseFare,
+        BigDecimal perKmRate,
+        BigDecimal perMinuteRate,
+        BigDecimal minimumFare,
+        BigDecimal cityCenterMultiplier,
+        BigDecimal airportSurcharge,
+        Map<SurgeBand, BigDecimal> surgeMultipliers,
+        double platformCommissionPercent,
+        FixedRates fixed
+) {
+
+    /**
+     * The same rates as long-backed decimals for {@link FareCalculator}.
+     * Surge is indexed by {@link SurgeBand#ordinal()}.
+     */
+    public record FixedRates(
+            FixedDecimal baseFare,
+            FixedDecimal perKmRate,
+            FixedDecimal perMinuteRate,
+            FixedDecimal minimumFare,
+            FixedDecimal cityCenterExtra, // multiplier - 1
+            FixedDecimal airportSurcharge,
+            FixedDecimal[] surge,
+            double[] surgeValues
+    ) {
+
+        static FixedRates of(BigDecimal baseFare, BigDecimal perKmRate, BigDecimal perMinuteRate,
+                             BigDecimal minimumFare, BigDecimal cityCenterMultiplier,
+                             BigDecimal airportSurcharge, Map<SurgeBand, BigDecimal> surge) {
+            FixedDecimal[] surgeFixed = new FixedDecimal[SurgeBand.values().length];
+            double[] surgeValues = new double[SurgeBand.values().length];
+            for (SurgeBand band : SurgeBand.values()) {
+                surgeFixed[band.ordinal()] = FixedDecimal.of(surge.get(band));
+                surgeValues[band.ordinal()] = surge.get(band).doubleValue();
+            }
+            return new FixedRates(
+                    FixedDecimal.of(baseFare),
+                    FixedDecimal.of(perKmRate),
+                    FixedDecimal.of(perMinuteRate),
+                    FixedDecimal.of(minimumFare),
+                    FixedDecimal.of(cityCenterMultiplier).subtract(FixedDecimal.ONE),
+                    FixedDecimal.of(airportSurcharge),
+                    surgeFixed,
+                    surgeValues
+            );
+        }
+
+        public FixedDecimal surge(SurgeBand band) {
+            return surge[band.ordinal()];
+        }
+
+        public double surgeValue(SurgeBand band) {
+            return surgeValues[band.ordinal()];
+        }
+    }
+
+    private static final double DEFAULT_PLATFORM_COMMISSION_PERCENT = 20.0;
+
+    public static PricingSnapshot of(PricingConfig c) {
+        Map<SurgeBand, BigDecimal> surge = new EnumMap<>(SurgeBand.class);
+        surge.put(SurgeBand.NIGHT, BigDecimal.valueOf(c.getNightMultiplier()));
+        surge.put(SurgeBand.PEAK, BigDecimal.valueOf(c.getPeakHourMultiplier()));
+        surge.put(SurgeBand.WEEKEND, BigDecimal.valueOf(c.getWeekendMultiplier()));
+        surge.put(SurgeBand.NORMAL, BigDecimal.valueOf(c.getSurgeMultiplier()));
+
+        BigDecimal baseFare = BigDecimal.valueOf(c.getBaseFare());
+        BigDecimal perKmRate = BigDecimal.valueOf(c.getPerKmRate());
+        BigDecimal perMinuteRate = BigDecimal.valueOf(c.getPerMinuteRate());
+        BigDecimal minimumFare = BigDecimal.valueOf(c.getMinimumFare());
+        BigDecimal cityCenterMultiplier = BigDecimal.valueOf(c.getCityCenterMultiplier());
+        BigDecimal airportSurcharge = BigDecimal.valueOf(c.getAirportSurcharge());
+
+        return new PricingSnapshot(
+                c.getId(),
+                c.getRevision() != null ? c.getRevision() : 0L,
+                c.getCity(),
+                c.getCurrency(),
+                baseFare,
+                perKmRate,
+                perMinuteRate,
+                minimumFare,
+                cityCenterMultiplier,
+                airportSurcharge,
+                Collections.unmodifiableMap(surge),
+                c.getPlatformCommissionPercent() != null
+                        ? c.getPlatformCommissionPercent()
+                        : DEFAULT_PLATFORM_COMMISSION_PERCENT,
+                FixedRates.of(baseFare, perKmRate, perMinuteRate, minimumFare,
+                        cityCenterMultiplier, airportSurcharge, surge)
+        );
+    }
+
+    public BigDecimal surgeMultiplier(SurgeBand band) {
+        return surgeMultipliers.get(band);
+    }
+}
@@ -0,0 +1,61 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.deliveries.service.PricingConfigService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the active pricing snapshot per city behind one atomically swapped
+ * reference. Reads are a plain map lookup; the DB is only consulted the
+ * first time a city is priced and when an admin changes a config.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PricingSnapshotService {
+
+    private final PricingConfigService pricingConfigService;
+    private final FareEstimateCache estimateCache;
+
+    private final AtomicReference<Map<String, PricingSnapshot>> snapshots = new AtomicReference<>(Map.of());
+
+    public PricingSnapshot current(String city) {
+        PricingSnapshot snapshot = snapshots.get().get(city);
+        return snapshot != null ? snapshot : load(city);
+    }
+
+    private synchronized PricingSnapshot load(String city) {
+        PricingSnapshot snapshot = snapshots.get().get(city);
+        if (snapshot != null) return snapshot;
+
+        snapshot = PricingSnapshot.of(pricingConfigService.getActivePricing(city));
+        Map<String, PricingSnapshot> next = new HashMap<>(snapshots.get());
+        next.put(city, snapshot);
+        snapshots.set(Map.copyOf(next));
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds every cached city plus {@code changedCity} and swaps them in
+     * at once, so no quote ever sees a half-updated set of prices.
+     */
+    public synchronized void refresh(String changedCity) {
+        Set<String> cities = new HashSet<>(snapshots.get().keySet());
+        if (changedCity != null) cities.add(changedCity);
+
+        Map<String, PricingSnapshot> next = new HashMap<>();
+        for (String city : cities) {
+            next.put(city, PricingSnapshot.of(pricingConfigService.getActivePricing(city)));
+        }
+        snapshots.set(Map.copyOf(next));
+        estimateCache.invalidateAll();
+        log.info("Pricing snapshots refreshed for {}", next.keySet());
+    }
+}
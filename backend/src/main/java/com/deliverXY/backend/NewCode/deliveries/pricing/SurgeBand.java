@@ -0,0 +1,34 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.common.constants.TimeConstants;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Time-of-week bands that carry their own surge multiplier in the pricing config.
+ */
+public enum SurgeBand {
+    NIGHT,
+    PEAK,
+    WEEKEND,
+    NORMAL;
+
+    public static SurgeBand at(LocalDateTime now) {
+        LocalTime time = now.toLocalTime();
+
+        // NIGHT_START/NIGHT_END wrap midnight, hence isAfter OR isBefore
+        if (time.isAfter(TimeConstants.NIGHT_START) || time.isBefore(TimeConstants.NIGHT_END))
+            return NIGHT;
+
+        if ((time.isAfter(TimeConstants.MORNING_PEAK_START) && time.isBefore(TimeConstants.MORNING_PEAK_END)) ||
+                (time.isAfter(TimeConstants.EVENING_PEAK_START) && time.isBefore(TimeConstants.EVENING_PEAK_END)))
+            return PEAK;
+
+        if (now.getDayOfWeek() == DayOfWeek.SATURDAY || now.getDayOfWeek() == DayOfWeek.SUNDAY)
+            return WEEKEND;
+
+        return NORMAL;
+    }
+}
@@ -5,6 +5,7 @@ import com.deliverXY.backend.NewCode.deliveries.domain.Delivery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -53,4 +54,8 @@ public interface DeliveryRepository extends JpaRepository<Delivery,Long> {
             List<DeliveryStatus> statuses
     );
 
+    @Modifying
+    @Query("UPDATE Delivery d SET d.actualDistanceKm = :km, d.routePolyline = :polyline WHERE d.id = :id")
+    int updateRoute(@Param("id") Long id, @Param("km") Double actualDistanceKm, @Param("polyline") String polyline);
+
 }
\ No newline at end of file
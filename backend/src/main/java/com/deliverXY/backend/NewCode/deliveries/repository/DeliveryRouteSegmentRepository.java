@@ -0,0 +1,20 @@
+package com.deliverXY.backend.NewCode.deliveries.repository;
+
+import com.deliverXY.backend.NewCode.deliveries.domain.DeliveryRouteSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DeliveryRouteSegmentRepository extends JpaRepository<DeliveryRouteSegment, Long> {
+
+    List<DeliveryRouteSegment> findByDeliveryIdOrderByIdAsc(Long deliveryId);
+
+    @Modifying
+    @Query("DELETE FROM DeliveryRouteSegment s WHERE s.deliveryId = :deliveryId")
+    void deleteByDeliveryId(@Param("deliveryId") Long deliveryId);
+}
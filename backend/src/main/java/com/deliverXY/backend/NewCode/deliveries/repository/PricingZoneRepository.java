@@ -0,0 +1,14 @@
+package com.deliverXY.backend.NewCode.deliveries.repository;
+
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingZone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PricingZoneRepository extends JpaRepository<PricingZone, Long> {
+
+    List<PricingZone> findByIsActiveTrueOrderByIdAsc();
+
+}
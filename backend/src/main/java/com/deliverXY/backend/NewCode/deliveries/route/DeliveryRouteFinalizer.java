@@ -0,0 +1,117 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
+import com.deliverXY.backend.NewCode.deliveries.service.impl.LocationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the raw GPS trail of a finished delivery into the travelled
+ * distance and a simplified polyline. Called from route compaction, which
+ * runs on the scheduler thread, never on the status-change request.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeliveryRouteFinalizer {
+
+    private final LocationService locationService;
+    private final DeliveryRepository deliveryRepo;
+
+    public void finalizeRoute(Long deliveryId, List<RoutePoint> trail) {
+        if (trail.isEmpty()) return;
+
+        List<RoutePoint> clean = removeJitter(trail);
+
+        double travelledKm = 0;
+        for (int i = 1; i < clean.size(); i++) {
+            RoutePoint a = clean.get(i - 1);
+            RoutePoint b = clean.get(i);
+            travelledKm += locationService.distanceKm(a.latitude(), a.longitude(), b.latitude(), b.longitude());
+        }
+
+        List<RoutePoint> simplified = RouteSimplifier.simplify(clean, DeliveryConstants.ROUTE_SIMPLIFY_TOLERANCE_METERS);
+
+        deliveryRepo.updateRoute(
+                deliveryId,
+                BigDecimal.valueOf(travelledKm).setScale(2, RoundingMode.HALF_UP).doubleValue(),
+                PolylineEncoder.encode(simplified)
+        );
+        log.debug("Delivery {} travelled {} km ({} raw, {} clean, {} simplified points)",
+                deliveryId, travelledKm, trail.size(), clean.size(), simplified.size());
+    }
+
+    /**
+     * Drops points that barely moved from the last kept point (standing
+     * still) or that imply an impossible speed (GPS spikes).
+     * The last kept point is only an anchor, not ground truth: when
+     * {@link DeliveryConstants#ROUTE_REANCHOR_FIXES} rejected fixes in a row
+     * agree with each other, the trail continues from them, and an anchor
+     * no other fix ever agreed with (a spike on the first point) is dropped.
+     */
+    List<RoutePoint> removeJitter(List<RoutePoint> trail) {
+        List<RoutePoint> clean = new ArrayList<>(trail.size());
+        RoutePoint last = trail.get(0);
+        clean.add(last);
+        boolean confirmed = false;
+        List<RoutePoint> outvoting = new ArrayList<>(DeliveryConstants.ROUTE_REANCHOR_FIXES);
+
+        for (int i = 1; i < trail.size(); i++) {
+            RoutePoint p = trail.get(i);
+            if (p.timestampMillis() <= last.timestampMillis()) continue;
+
+            double km = distanceKm(last, p);
+            if (km < DeliveryConstants.ROUTE_MIN_STEP_KM) {
+                confirmed = true;
+                continue;
+            }
+
+            if (!plausible(last, p)) {
+                // Rejected fixes only count together while they agree with each other
+                if (!outvoting.isEmpty() && !plausible(outvoting.get(outvoting.size() - 1), p)) {
+                    outvoting.clear();
+                }
+                outvoting.add(p);
+
+                if (outvoting.size() == DeliveryConstants.ROUTE_REANCHOR_FIXES) {
+                    if (!confirmed) clean.remove(clean.size() - 1);
+                    clean.addAll(outvoting);
+                    last = outvoting.get(outvoting.size() - 1);
+                    confirmed = true;
+                    outvoting.clear();
+                }
+                continue;
+            }
+
+            clean.add(p);
+            last = p;
+            confirmed = true;
+            outvoting.clear();
+        }
+
+        // Keep the final fix so the polyline ends where the delivery ended
+        RoutePoint end = trail.get(trail.size() - 1);
+        if (last != end && end.timestampMillis() > last.timestampMillis() && plausible(last, end)) {
+            clean.add(end);
+        }
+        return clean;
+    }
+
+    private boolean plausible(RoutePoint from, RoutePoint to) {
+        long dtMillis = to.timestampMillis() - from.timestampMillis();
+        if (dtMillis <= 0) return false;
+        double kmh = distanceKm(from, to) / (dtMillis / 3_600_000.0);
+        return kmh <= DeliveryConstants.ROUTE_MAX_SPEED_KMH;
+    }
+
+    private double distanceKm(RoutePoint a, RoutePoint b) {
+        return locationService.distanceKm(a.latitude(), a.longitude(), b.latitude(), b.longitude());
+    }
+}
@@ -0,0 +1,208 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+import com.deliverXY.backend.NewCode.deliveries.domain.DeliveryRouteSegment;
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRouteSegmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Append-only breadcrumb log per delivery.
+ * Pings are buffered in memory and appended as one encoded segment per
+ * delivery per flush. When a delivery reaches a terminal status its
+ * segments are merged into a single compacted segment; pings that still
+ * arrive for it afterwards are ignored.
+ */
+@Service
+@Slf4j
+public class DeliveryRouteRecorder {
+
+    private final DeliveryRouteSegmentRepository segmentRepo;
+    private final DeliveryRouteFinalizer finalizer;
+    private final TransactionTemplate tx;
+    private final long closedRetentionMs;
+
+    private final ConcurrentHashMap<Long, List<RoutePoint>> buffers = new ConcurrentHashMap<>();
+    private final Set<Long> finished = ConcurrentHashMap.newKeySet();
+    /** Finished deliveries (completion time in millis) whose late pings are dropped. */
+    private final ConcurrentHashMap<Long, Long> closed = new ConcurrentHashMap<>();
+
+    public DeliveryRouteRecorder(DeliveryRouteSegmentRepository segmentRepo,
+                                 DeliveryRouteFinalizer finalizer,
+                                 PlatformTransactionManager txManager,
+                                 @Value("${route.closed-retention-ms:3600000}") long closedRetentionMs) {
+        this.segmentRepo = segmentRepo;
+        this.finalizer = finalizer;
+        this.tx = new TransactionTemplate(txManager);
+        this.closedRetentionMs = closedRetentionMs;
+    }
+
+    public void record(Long deliveryId, double lat, double lon, long timestampMillis) {
+        if (closed.containsKey(deliveryId)) return;
+
+        RoutePoint point = new RoutePoint(lat, lon, timestampMillis);
+        buffers.compute(deliveryId, (id, points) -> {
+            if (points == null) points = new ArrayList<>();
+            points.add(point);
+            return points;
+        });
+    }
+
+    /**
+     * Marks the delivery as finished once the status change commits; its
+     * route is compacted and finalized (travelled distance, simplified
+     * polyline) on the next flush.
+     */
+    public void complete(Long deliveryId) {
+        afterCommit(() -> {
+            closed.put(deliveryId, System.currentTimeMillis());
+            finished.add(deliveryId);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // -------------------------------------------------------------
+    // WRITE PATH
+    // -------------------------------------------------------------
+    @Scheduled(fixedDelayString = "${route.flush-interval-ms:10000}")
+    public void flush() {
+        appendBuffered();
+
+        for (Long deliveryId : finished) {
+            // Points recorded after the append above but before completion
+            List<RoutePoint> late = buffers.remove(deliveryId);
+            try {
+                tx.executeWithoutResult(status -> compact(deliveryId, late));
+                finished.remove(deliveryId);
+            } catch (RuntimeException e) {
+                log.error("Failed to compact route of delivery {}", deliveryId, e);
+                if (late != null) requeue(deliveryId, late);
+            }
+        }
+
+        long cutoff = System.currentTimeMillis() - closedRetentionMs;
+        closed.entrySet().removeIf(e -> e.getValue() < cutoff && !finished.contains(e.getKey()));
+    }
+
+    private void appendBuffered() {
+        List<DeliveryRouteSegment> segments = new ArrayList<>();
+        List<Long> drained = new ArrayList<>();
+
+        for (Long deliveryId : buffers.keySet()) {
+            List<RoutePoint> points = buffers.remove(deliveryId);
+            if (points == null || points.isEmpty()) continue;
+
+            segments.add(toSegment(deliveryId, points, false));
+            drained.add(deliveryId);
+        }
+        if (segments.isEmpty()) return;
+
+        try {
+            tx.executeWithoutResult(status -> segmentRepo.saveAll(segments));
+        } catch (RuntimeException e) {
+            log.error("Failed to append route segments for {} deliveries, re-queueing", segments.size(), e);
+            for (int i = 0; i < segments.size(); i++) {
+                List<RoutePoint> points = new ArrayList<>(segments.get(i).getPointCount());
+                RouteCodec.decode(segments.get(i).getPoints(), points::add);
+                requeue(drained.get(i), points);
+            }
+        }
+    }
+
+    private void requeue(Long deliveryId, List<RoutePoint> points) {
+        // Older points go in front of anything recorded since the drain
+        buffers.merge(deliveryId, new ArrayList<>(points), (newer, older) -> {
+            older.addAll(newer);
+            return older;
+        });
+    }
+
+    private void compact(Long deliveryId, List<RoutePoint> late) {
+        List<DeliveryRouteSegment> segments = segmentRepo.findByDeliveryIdOrderByIdAsc(deliveryId);
+        boolean hasLate = late != null && !late.isEmpty();
+        if (segments.isEmpty() && !hasLate) return;
+        if (!hasLate && segments.size() == 1 && Boolean.TRUE.equals(segments.get(0).getCompacted())) return;
+
+        List<RoutePoint> points = new ArrayList<>();
+        for (DeliveryRouteSegment s : segments) {
+            RouteCodec.decode(s.getPoints(), points::add);
+        }
+        if (hasLate) points.addAll(late);
+
+        segmentRepo.deleteAll(segments);
+        segmentRepo.save(toSegment(deliveryId, points, true));
+        finalizer.finalizeRoute(deliveryId, points);
+        log.debug("Compacted {} route segments ({} points) for delivery {}", segments.size(), points.size(), deliveryId);
+    }
+
+    private static DeliveryRouteSegment toSegment(Long deliveryId, List<RoutePoint> points, boolean compacted) {
+        DeliveryRouteSegment s = new DeliveryRouteSegment();
+        s.setDeliveryId(deliveryId);
+        s.setPointCount(points.size());
+        s.setStartedAt(toLocal(points.get(0).timestampMillis()));
+        s.setEndedAt(toLocal(points.get(points.size() - 1).timestampMillis()));
+        s.setPoints(RouteCodec.encode(points));
+        s.setCompacted(compacted);
+        return s;
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    // -------------------------------------------------------------
+    // READ PATH
+    // -------------------------------------------------------------
+
+    /**
+     * Streams the route in recording order: the stored segments, loaded
+     * with one ordered query, followed by points still waiting for the
+     * next flush. A finished delivery has a single compacted segment.
+     */
+    public void replay(Long deliveryId, Consumer<RoutePoint> sink) {
+        for (DeliveryRouteSegment s : segmentRepo.findByDeliveryIdOrderByIdAsc(deliveryId)) {
+            RouteCodec.decode(s.getPoints(), sink);
+        }
+
+        // Copy under the map's lock so concurrent record() calls are not torn
+        List<List<RoutePoint>> pending = new ArrayList<>(1);
+        buffers.computeIfPresent(deliveryId, (id, points) -> {
+            pending.add(List.copyOf(points));
+            return points;
+        });
+        pending.forEach(points -> points.forEach(sink));
+    }
+
+    public void discard(Long deliveryId) {
+        buffers.remove(deliveryId);
+        finished.remove(deliveryId);
+        closed.remove(deliveryId);
+        segmentRepo.deleteByDeliveryId(deliveryId);
+    }
+}
@@ -0,0 +1,41 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+import java.util.List;
+
+/**
+ * Encoded polyline format (precision 1e-5) understood by Google Maps,
+ * Mapbox and Leaflet plugins, so clients can draw the route directly.
+ */
+public final class PolylineEncoder {
+
+    private static final double PRECISION = 100_000.0;
+
+    private PolylineEncoder() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static String encode(List<RoutePoint> points) {
+        StringBuilder sb = new StringBuilder(points.size() * 8);
+        long prevLat = 0;
+        long prevLon = 0;
+
+        for (RoutePoint p : points) {
+            long lat = Math.round(p.latitude() * PRECISION);
+            long lon = Math.round(p.longitude() * PRECISION);
+            appendValue(sb, lat - prevLat);
+            appendValue(sb, lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return sb.toString();
+    }
+
+    private static void appendValue(StringBuilder sb, long value) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
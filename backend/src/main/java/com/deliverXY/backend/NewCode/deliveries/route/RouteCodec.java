@@ -0,0 +1,113 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Binary encoding for a run of route points.
+ * Coordinates are stored as micro-degrees and every field as the zig-zag
+ * varint delta from the previous point, so a typical ping costs 4-6 bytes
+ * instead of a full row.
+ *
+ * Layout: count, then (dLatE6, dLonE6, dTimeMs) per point.
+ */
+public final class RouteCodec {
+
+    private static final double E6 = 1_000_000.0;
+
+    private RouteCodec() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static byte[] encode(List<RoutePoint> points) {
+        Buffer buf = new Buffer(points.size() * 6 + 5);
+        buf.writeVarLong(points.size());
+
+        int prevLat = 0;
+        int prevLon = 0;
+        long prevTime = 0;
+        for (RoutePoint p : points) {
+            int lat = toE6(p.latitude());
+            int lon = toE6(p.longitude());
+
+            buf.writeVarLong(zigZag(lat - prevLat));
+            buf.writeVarLong(zigZag(lon - prevLon));
+            buf.writeVarLong(zigZag(p.timestampMillis() - prevTime));
+
+            prevLat = lat;
+            prevLon = lon;
+            prevTime = p.timestampMillis();
+        }
+        return buf.toByteArray();
+    }
+
+    /**
+     * Decodes points one by one into the sink, without materialising a list.
+     */
+    public static void decode(byte[] data, Consumer<RoutePoint> sink) {
+        int[] pos = {0};
+        long count = readVarLong(data, pos);
+
+        int lat = 0;
+        int lon = 0;
+        long time = 0;
+        for (long i = 0; i < count; i++) {
+            lat += (int) unZigZag(readVarLong(data, pos));
+            lon += (int) unZigZag(readVarLong(data, pos));
+            time += unZigZag(readVarLong(data, pos));
+            sink.accept(new RoutePoint(lat / E6, lon / E6, time));
+        }
+    }
+
+    private static int toE6(double degrees) {
+        return (int) Math.round(degrees * E6);
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static long readVarLong(byte[] data, int[] pos) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+            shift += 7;
+        }
+    }
+
+    private static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        private Buffer(int capacity) {
+            this.bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        private void writeVarLong(long v) {
+            while ((v & ~0x7FL) != 0) {
+                put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            put((byte) v);
+        }
+
+        private void put(byte b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[size++] = b;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+/**
+ * One GPS breadcrumb of a delivery route.
+ */
+public record RoutePoint(double latitude, double longitude, long timestampMillis) {
+}
@@ -0,0 +1,87 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Douglas-Peucker simplification of a GPS trail.
+ * Points are projected onto a local plane around the first point, which
+ * is accurate to well under a metre at city scale, and the recursion is
+ * replaced by an explicit stack so 10k+ point trails are safe.
+ */
+public final class RouteSimplifier {
+
+    private static final double EARTH_RADIUS_M = DeliveryConstants.EARTH_RADIUS_KM * 1000.0;
+
+    private RouteSimplifier() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static List<RoutePoint> simplify(List<RoutePoint> points, double toleranceMeters) {
+        int n = points.size();
+        if (n < 3) return new ArrayList<>(points);
+
+        double cosLat = Math.cos(Math.toRadians(points.get(0).latitude()));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.toRadians(points.get(i).longitude()) * cosLat * EARTH_RADIUS_M;
+            y[i] = Math.toRadians(points.get(i).latitude()) * EARTH_RADIUS_M;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+
+        double tolerance2 = toleranceMeters * toleranceMeters;
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+
+            int farthest = -1;
+            double farthest2 = tolerance2;
+            for (int i = start + 1; i < end; i++) {
+                double d2 = segmentDistance2(x[i], y[i], x[start], y[start], x[end], y[end]);
+                if (d2 > farthest2) {
+                    farthest2 = d2;
+                    farthest = i;
+                }
+            }
+
+            if (farthest >= 0) {
+                keep[farthest] = true;
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+
+        List<RoutePoint> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) result.add(points.get(i));
+        }
+        return result;
+    }
+
+    /** Squared distance from (px, py) to the segment (ax, ay)-(bx, by). */
+    private static double segmentDistance2(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+
+        double t = len2 == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / len2;
+        t = Math.max(0, Math.min(1, t));
+
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+}
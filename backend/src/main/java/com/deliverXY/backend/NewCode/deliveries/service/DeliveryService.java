@@ -4,6 +4,7 @@ import com.deliverXY.backend.NewCode.common.enums.DeliveryStatus;
 import com.deliverXY.backend.NewCode.deliveries.dto.DeliveryDTO;
 import com.deliverXY.backend.NewCode.deliveries.dto.DeliveryResponseDTO;
 import com.deliverXY.backend.NewCode.deliveries.dto.FareEstimateDTO;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareQuoteDTO;
 import com.deliverXY.backend.NewCode.deliveries.dto.FareResponseDTO;
 import com.deliverXY.backend.NewCode.user.domain.AppUser;
 import jakarta.validation.Valid;
@@ -11,6 +12,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface DeliveryService {
     Page<DeliveryResponseDTO> getAllDeliveries(Pageable pageable);
@@ -36,5 +38,8 @@ public interface DeliveryService {
 
     FareResponseDTO estimateFare(@Valid FareEstimateDTO request, AppUser user);
 
+    /** List-price quotes for many routes, streamed to {@code sink} in request order. */
+    void quoteFares(List<FareEstimateDTO> routes, Consumer<FareQuoteDTO> sink);
+
     DeliveryResponseDTO getActiveDelivery(Long agentId);
 }
\ No newline at end of file
@@ -1,9 +1,15 @@
 package com.deliverXY.backend.NewCode.deliveries.service;
 
 
-import com.deliverXY.backend.NewCode.deliveries.domain.DeliveryTracking;
+import com.deliverXY.backend.NewCode.deliveries.dto.TrackingFrameDTO;
+import com.deliverXY.backend.NewCode.deliveries.route.RoutePoint;
+
+import java.util.function.Consumer;
 
 public interface DeliveryTrackingService {
-    DeliveryTracking updateLocation(Long deliveryId, Double lat, Double lon);
-    DeliveryTracking getTracking(Long deliveryId);
-} 
\ No newline at end of file
+    TrackingFrameDTO updateLocation(Long deliveryId, Double lat, Double lon);
+    TrackingFrameDTO getTracking(Long deliveryId);
+    void replayRoute(Long deliveryId, Consumer<RoutePoint> sink);
+    void complete(Long deliveryId);
+    void discard(Long deliveryId);
+}
@@ -1,13 +1,18 @@
 package com.deliverXY.backend.NewCode.deliveries.service.impl;
 
+import com.deliverXY.backend.NewCode.admin.dashboard.DashboardCounters;
 import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.common.idempotency.IdempotencyService;
 import com.deliverXY.backend.NewCode.common.enums.PaymentStatus;
 import com.deliverXY.backend.NewCode.deliveries.domain.*;
 import com.deliverXY.backend.NewCode.deliveries.dto.*;
 import com.deliverXY.backend.NewCode.deliveries.repository.*;
 import com.deliverXY.backend.NewCode.deliveries.mapper.DeliveryMapper;
+import com.deliverXY.backend.NewCode.deliveries.pricing.PricingSnapshotService;
+import com.deliverXY.backend.NewCode.deliveries.route.DeliveryRouteRecorder;
 import com.deliverXY.backend.NewCode.deliveries.service.DeliveryService;
-import com.deliverXY.backend.NewCode.deliveries.service.PricingConfigService;
+import com.deliverXY.backend.NewCode.deliveries.service.DeliveryTrackingService;
+import com.deliverXY.backend.NewCode.deliveries.surge.SurgeEngine;
 import com.deliverXY.backend.NewCode.deliveries.validator.DeliveryValidator;
 import com.deliverXY.backend.NewCode.earnings.domain.DriverEarnings;
 import com.deliverXY.backend.NewCode.earnings.repository.DriverEarningsRepository;
@@ -17,6 +22,7 @@ import com.deliverXY.backend.NewCode.payments.domain.Payment;
 import com.deliverXY.backend.NewCode.payments.repository.PaymentRepository;
 import com.deliverXY.backend.NewCode.payments.service.PaymentService;
 import com.deliverXY.backend.NewCode.user.domain.AppUser;
+import com.deliverXY.backend.NewCode.user.stats.UserDeliveryCounters;
 import com.deliverXY.backend.NewCode.common.enums.DeliveryStatus;
 import com.deliverXY.backend.NewCode.wallet.service.WalletService;
 import lombok.RequiredArgsConstructor;
@@ -30,6 +36,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static com.deliverXY.backend.NewCode.common.enums.DeliveryStatus.*;
 
@@ -45,15 +52,19 @@ public class DeliveryServiceImpl implements DeliveryService {
     private final PaymentRepository paymentRepo;
     private final GeocodingService geocodingService;
     private final PaymentService paymentService;
+    private final DeliveryRouteRecorder routeRecorder;
+    private final DeliveryTrackingService tracking;
+    private final SurgeEngine surgeEngine;
+    private final UserDeliveryCounters deliveryCounters;
+    private final DashboardCounters dashboardCounters;
+    private final IdempotencyService idempotency;
 
     private final DeliveryMapper mapper;
     private final DeliveryValidator validator;
 
 
     private final PricingService pricingService;
-    private final PricingConfigService pricingConfigService;
-
-    private static final String DEFAULT_CITY = "Skopje";
+    private final PricingSnapshotService pricingSnapshots;
 
     private Delivery load(Long id) {
         return deliveryRepo.findById(id)
@@ -62,6 +73,9 @@ public class DeliveryServiceImpl implements DeliveryService {
     private DeliveryResponseDTO respond(Delivery d){
         return mapper.toResponse(d);
     }
+    private static Long agentId(Delivery d) {
+        return d.getAgent() != null ? d.getAgent().getId() : null;
+    }
     private void logHistory(Delivery d, String note, String by){
         DeliveryHistory h = new DeliveryHistory();
         h.setDelivery(d);
@@ -137,7 +151,8 @@ public class DeliveryServiceImpl implements DeliveryService {
                 }
 
                 GeocodingService.GeoPoint geo =
-                        geocodingService.geocode(d.getDropoffAddress(), "Skopje");
+                        geocodingService.geocode(d.getDropoffAddress(),
+                                pricingService.cityAt(d.getPickupLatitude(), d.getPickupLongitude()));
 
                 d.setDropoffLatitude(geo.lat());
                 d.setDropoffLongitude(geo.lng());
@@ -156,11 +171,19 @@ public class DeliveryServiceImpl implements DeliveryService {
                         .setScale(2, RoundingMode.HALF_UP)
                         .doubleValue()
         );
+        d.setPricingConfigId(breakdown.getPricingConfigId());
+        d.setPricingVersion(breakdown.getPricingVersion());
 
         d.setStatus(DeliveryStatus.REQUESTED);
         d.setTrackingCode("TRK-" + System.currentTimeMillis());
 
         deliveryRepo.save(d);
+        deliveryCounters.onCreated(client.getId());
+        dashboardCounters.onDeliveryCreated(REQUESTED);
+
+        if (d.getPickupLatitude() != null && d.getPickupLongitude() != null) {
+            surgeEngine.requestOpened(d.getId(), d.getPickupLatitude(), d.getPickupLongitude());
+        }
 
         PaymentProvider provider =
                 dto.getPaymentProvider() != null
@@ -170,13 +193,13 @@ public class DeliveryServiceImpl implements DeliveryService {
         if (provider == PaymentProvider.WALLET) {
             walletService.ensureSufficientBalance(
                     client.getId(),
-                    breakdown.getTotalFare()
+                    breakdown.getTotalFare().toBigDecimal()
             );
         }
 
         paymentService.initializePayment(
                 d.getId(),
-                breakdown.getTotalFare(),
+                breakdown.getTotalFare().toBigDecimal(),
                 provider,
                 client.getId()
         );
@@ -225,11 +248,15 @@ public class DeliveryServiceImpl implements DeliveryService {
         }
 
 
+        DeliveryStatus previous = d.getStatus();
         d.setAgent(agent);
         d.setStatus(ASSIGNED);
         d.setAssignedAt(LocalDateTime.now());
 
         deliveryRepo.save(d);
+        dashboardCounters.onDeliveryStatusChange(previous, ASSIGNED);
+        surgeEngine.requestClosed(d.getId());
+        surgeEngine.markBusy(agent.getId());
 
         logHistory(d, "Assigned to agent " + agent.getUsername(), agent.getUsername());
 
@@ -238,6 +265,11 @@ public class DeliveryServiceImpl implements DeliveryService {
     @Transactional
     public void settleDeliveryEarnings(Delivery d) {
 
+        // Retried DELIVERED updates stop here, before the payment lookup and the ledger posting
+        if (!idempotency.claimOnce("delivery.settle", d.getId())) {
+            return;
+        }
+
         Payment payment = paymentRepo.findByDeliveryId(d.getId())
                 .orElseThrow(() -> new BadRequestException("Payment not found"));
 
@@ -252,19 +284,20 @@ public class DeliveryServiceImpl implements DeliveryService {
         BigDecimal total = payment.getAmount();
 
         // Use platform commission % from active pricing config (driver gets remainder)
-        var pricingConfig = pricingConfigService.getActivePricing(DEFAULT_CITY);
-        double platformPct = pricingConfig.getPlatformCommissionPercent() != null
-                ? pricingConfig.getPlatformCommissionPercent() / 100.0
-                : 0.20;
+        double platformPct = pricingSnapshots
+                .current(pricingService.cityAt(d.getPickupLatitude(), d.getPickupLongitude()))
+                .platformCommissionPercent() / 100.0;
         double driverPct = 1.0 - platformPct;
         BigDecimal driverCut = total
                 .multiply(BigDecimal.valueOf(driverPct))
                 .setScale(2, RoundingMode.HALF_UP);
         BigDecimal platformCut = total.subtract(driverCut);
 
-        walletService.deposit(
+        walletService.settleDelivery(
                 d.getAgent().getId(),
                 driverCut,
+                platformCut,
+                payment.getProvider() == PaymentProvider.WALLET,
                 "DELIVERY_EARNINGS_" + d.getTrackingCode()
         );
 
@@ -292,6 +325,7 @@ public class DeliveryServiceImpl implements DeliveryService {
     @Transactional
     public DeliveryResponseDTO updateStatus(Long id, String status) {
         Delivery d = load(id);
+        DeliveryStatus oldStatus = d.getStatus();
         DeliveryStatus newStatus = DeliveryStatus.fromString(status);
 
         switch (newStatus) {
@@ -306,6 +340,15 @@ public class DeliveryServiceImpl implements DeliveryService {
         }
         d.setStatus(newStatus);
         deliveryRepo.save(d);
+        deliveryCounters.onStatusChange(d.getClient().getId(), agentId(d), oldStatus, newStatus);
+        dashboardCounters.onDeliveryStatusChange(oldStatus, newStatus);
+        if (oldStatus == REQUESTED && newStatus != REQUESTED) surgeEngine.requestClosed(d.getId());
+
+        if (newStatus.isTerminal()) {
+            routeRecorder.complete(d.getId());
+            tracking.complete(d.getId());
+            if (d.getAgent() != null) surgeEngine.markIdle(d.getAgent().getId());
+        }
 
         logHistory(d, "Status changed to " + status, "SYSTEM");
 
@@ -319,7 +362,12 @@ public class DeliveryServiceImpl implements DeliveryService {
     public void delete(Long id) {
         Delivery delivery = load(id);
         deliveryRepo.delete(delivery);
+        deliveryCounters.onDeleted(delivery.getClient().getId(), agentId(delivery), delivery.getStatus());
+        dashboardCounters.onDeliveryDeleted(delivery.getStatus());
+        surgeEngine.requestClosed(id);
         historyRepo.deleteAll(historyRepo.findByDelivery_IdOrderByChangedAtAsc(id));
+        routeRecorder.discard(id);
+        tracking.discard(id);
     }
 
     @Override
@@ -334,14 +382,14 @@ public class DeliveryServiceImpl implements DeliveryService {
 
     @Override
     public FareResponseDTO estimateFare(FareEstimateDTO dto, AppUser user) {
-        FareBreakdown breakdown = pricingService.getFareBreakdown(
+        FareBreakdown breakdown = pricingService.estimate(
                 dto.getPickupLatitude(),
                 dto.getPickupLongitude(),
                 dto.getDropoffLatitude(),
                 dto.getDropoffLongitude()
         );
 
-        BigDecimal total = breakdown.getTotalFare();
+        BigDecimal total = breakdown.getTotalFare().toBigDecimal();
         BigDecimal discount = BigDecimal.ZERO;
         String promoApplied = null;
 
@@ -358,21 +406,40 @@ public class DeliveryServiceImpl implements DeliveryService {
                 breakdown.getCurrency(),
                 breakdown.getDistanceKm(),
                 breakdown.getEstimatedMinutes(),
-                breakdown.getBaseFare().doubleValue(),
-                breakdown.getDistanceFare().doubleValue(),
-                breakdown.getTimeFare().doubleValue(),
+                breakdown.getBaseFare().toDouble(),
+                breakdown.getDistanceFare().toDouble(),
+                breakdown.getTimeFare().toDouble(),
                 breakdown.getSurgeMultiplier(),
-                breakdown.getCityCenterCharge().doubleValue() > 0,
-                breakdown.getCityCenterCharge().doubleValue(),
-                breakdown.getAirportCharge().doubleValue() > 0,
-                breakdown.getAirportCharge().doubleValue(),
+                breakdown.getCityCenterCharge().isPositive(),
+                breakdown.getCityCenterCharge().toDouble(),
+                breakdown.getAirportCharge().isPositive(),
+                breakdown.getAirportCharge().toDouble(),
                 dto.getPromoCode(),
-                surgeReason(breakdown.getSurgeMultiplier()),
+                breakdown.isDemandSurge() ? "High Demand" : surgeReason(breakdown.getSurgeMultiplier()),
                 discount.doubleValue(), // Final discount
-                promoApplied
+                promoApplied,
+                breakdown.getPricingVersion()
         );
     }
 
+    /**
+     * Promo codes are per-user and per-order, so bulk quotes are list prices.
+     */
+    @Override
+    public void quoteFares(List<FareEstimateDTO> routes, Consumer<FareQuoteDTO> sink) {
+        pricingService.quoteAll(routes, (breakdown, index) -> sink.accept(new FareQuoteDTO(
+                index,
+                breakdown.getTotalFare().toDouble(),
+                breakdown.getCurrency(),
+                breakdown.getDistanceKm(),
+                breakdown.getEstimatedMinutes(),
+                breakdown.getSurgeMultiplier(),
+                breakdown.getCityCenterCharge().toDouble(),
+                breakdown.getAirportCharge().toDouble(),
+                breakdown.getPricingVersion()
+        )));
+    }
+
     @Override
     public DeliveryResponseDTO getActiveDelivery(Long agentId) {
         return deliveryRepo
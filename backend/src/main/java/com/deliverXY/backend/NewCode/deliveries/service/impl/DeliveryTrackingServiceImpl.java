@@ -1,50 +1,267 @@
 package com.deliverXY.backend.NewCode.deliveries.service.impl;
 
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
 import com.deliverXY.backend.NewCode.deliveries.domain.DeliveryTracking;
+import com.deliverXY.backend.NewCode.deliveries.dto.TrackingFrameDTO;
 import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
 import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryTrackingRepository;
+import com.deliverXY.backend.NewCode.deliveries.route.DeliveryRouteRecorder;
+import com.deliverXY.backend.NewCode.deliveries.route.RoutePoint;
 import com.deliverXY.backend.NewCode.deliveries.service.DeliveryTrackingService;
-import lombok.RequiredArgsConstructor;
+import com.deliverXY.backend.NewCode.deliveries.websocket.DeliveryTrackingPublisher;
+import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class DeliveryTrackingServiceImpl implements DeliveryTrackingService {
 
     private final DeliveryTrackingRepository repo;
     private final DeliveryRepository deliveryRepo;
     private final LocationService locationService;
+    private final DeliveryTrackingPublisher publisher;
+    private final DeliveryRouteRecorder routeRecorder;
+    private final TransactionTemplate tx;
+    private final long idleEvictMinutes;
+    private final int maxAttempts;
 
-    @Override
-    @Transactional
-    public DeliveryTracking updateLocation(Long deliveryId, Double lat, Double lon) {
-        var delivery = deliveryRepo.findById(deliveryId)
-                .orElseThrow(() -> new RuntimeException("Delivery not found"));
+    /** Live state per delivery; pings are served from here, not the DB. */
+    private final ConcurrentHashMap<Long, LiveTracking> live = new ConcurrentHashMap<>();
+    /** Consecutive rejected checkpoint writes per delivery; cleared by a successful write. */
+    private final ConcurrentHashMap<Long, Integer> failures = new ConcurrentHashMap<>();
 
-        DeliveryTracking t = repo.findById(deliveryId)
-                .orElse(new DeliveryTracking());
+    private static final class LiveTracking {
+        private final Double dropoffLatitude;
+        private final Double dropoffLongitude;
+        private long sequence;
+        private TrackingFrameDTO latest;
+        private boolean dirty;
+        /** Terminal status committed; evicted once its last frame is written. */
+        private boolean finished;
 
-        t.setDelivery(delivery);
-        t.setCurrentLatitude(lat);
-        t.setCurrentLongitude(lon);
+        private LiveTracking(Double dropoffLatitude, Double dropoffLongitude) {
+            this.dropoffLatitude = dropoffLatitude;
+            this.dropoffLongitude = dropoffLongitude;
+        }
+    }
 
-        double distance = locationService.distanceKm(
-                lat, lon,
-                delivery.getDropoffLatitude(),
-                delivery.getDropoffLongitude()
-        );
+    public DeliveryTrackingServiceImpl(DeliveryTrackingRepository repo,
+                                       DeliveryRepository deliveryRepo,
+                                       LocationService locationService,
+                                       DeliveryTrackingPublisher publisher,
+                                       DeliveryRouteRecorder routeRecorder,
+                                       PlatformTransactionManager txManager,
+                                       @Value("${tracking.idle-evict-minutes:30}") long idleEvictMinutes,
+                                       @Value("${tracking.max-attempts:3}") int maxAttempts) {
+        this.repo = repo;
+        this.deliveryRepo = deliveryRepo;
+        this.locationService = locationService;
+        this.publisher = publisher;
+        this.routeRecorder = routeRecorder;
+        this.tx = new TransactionTemplate(txManager);
+        this.idleEvictMinutes = idleEvictMinutes;
+        this.maxAttempts = maxAttempts;
+    }
 
-        t.setEstimatedDistance(distance);
-        t.setEstimatedDuration(locationService.calculateETA(distance, 35));
-        t.setLastLocationUpdate(java.time.LocalDateTime.now());
+    @Override
+    public TrackingFrameDTO updateLocation(Long deliveryId, Double lat, Double lon) {
+        // Dropoff is loaded once per delivery, on the first ping
+        LiveTracking state = live.computeIfAbsent(deliveryId, id -> {
+            var delivery = deliveryRepo.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Delivery not found"));
+            return new LiveTracking(delivery.getDropoffLatitude(), delivery.getDropoffLongitude());
+        });
+
+        Double distance = null;
+        Integer eta = null;
+        if (state.dropoffLatitude != null && state.dropoffLongitude != null) {
+            distance = locationService.distanceKm(lat, lon, state.dropoffLatitude, state.dropoffLongitude);
+            eta = locationService.calculateETA(distance, DeliveryConstants.AVERAGE_CITY_SPEED_KMH);
+        }
+
+        TrackingFrameDTO frame;
+        synchronized (state) {
+            frame = new TrackingFrameDTO(deliveryId, lat, lon, distance, eta, LocalDateTime.now(), ++state.sequence);
+            state.latest = frame;
+            state.dirty = true;
+        }
+
+        publisher.offer(frame);
+        routeRecorder.record(deliveryId, lat, lon, System.currentTimeMillis());
+        return frame;
+    }
 
-        return repo.save(t);
+    @Override
+    public void replayRoute(Long deliveryId, Consumer<RoutePoint> sink) {
+        routeRecorder.replay(deliveryId, sink);
     }
 
     @Override
-    public DeliveryTracking getTracking(Long deliveryId) {
+    public TrackingFrameDTO getTracking(Long deliveryId) {
+        LiveTracking state = live.get(deliveryId);
+        if (state != null) {
+            synchronized (state) {
+                if (state.latest != null) return state.latest;
+            }
+        }
         return repo.findById(deliveryId)
-                .orElseThrow(() -> new RuntimeException("Tracking not found"));
+                .map(TrackingFrameDTO::from)
+                .orElseThrow(() -> new NotFoundException("Tracking not found"));
+    }
+
+    /** Live state is dropped once the status change commits and the last frame is checkpointed. */
+    @Override
+    public void complete(Long deliveryId) {
+        afterCommit(() -> {
+            LiveTracking state = live.get(deliveryId);
+            if (state == null) return;
+            synchronized (state) {
+                state.finished = true;
+            }
+        });
+    }
+
+    /** Live state is dropped without a checkpoint once the delete commits. */
+    @Override
+    public void discard(Long deliveryId) {
+        afterCommit(() -> forget(deliveryId));
+    }
+
+    private void forget(Long deliveryId) {
+        live.remove(deliveryId);
+        failures.remove(deliveryId);
+        publisher.forget(deliveryId);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // -------------------------------------------------------------
+    // CHECKPOINT
+    // -------------------------------------------------------------
+
+    /**
+     * Writes the latest position of every delivery that moved since the last
+     * checkpoint, and drops deliveries that have stopped pinging or finished.
+     * If the write fails the deliveries are marked dirty again for the next
+     * run; a delivery the database rejects is split out of the batch and
+     * dropped after a few attempts, so it cannot hold back the rest.
+     */
+    @Scheduled(fixedDelayString = "${tracking.persist-interval-ms:30000}")
+    public void checkpoint() {
+        Map<Long, TrackingFrameDTO> changed = new HashMap<>();
+        LocalDateTime idleCutoff = LocalDateTime.now().minusMinutes(idleEvictMinutes);
+
+        live.forEach((deliveryId, state) -> {
+            synchronized (state) {
+                if (state.dirty) {
+                    changed.put(deliveryId, state.latest);
+                    state.dirty = false;
+                } else if (state.finished || state.latest == null
+                        || state.latest.getUpdatedAt().isBefore(idleCutoff)) {
+                    live.remove(deliveryId, state);
+                    publisher.forget(deliveryId);
+                }
+            }
+        });
+        if (changed.isEmpty()) return;
+
+        writeOrSplit(new ArrayList<>(changed.entrySet()));
+    }
+
+    /**
+     * Writes the frames in one transaction. When the database rejects one
+     * (e.g. its delivery was deleted), the batch is halved and each half
+     * retried until the bad delivery is on its own. Other failures
+     * (connection, timeout) mark the whole batch dirty again.
+     */
+    private void writeOrSplit(List<Map.Entry<Long, TrackingFrameDTO>> batch) {
+        try {
+            tx.executeWithoutResult(status -> save(batch));
+        } catch (NonTransientDataAccessException e) {
+            if (batch.size() == 1) {
+                rejected(batch.get(0).getKey(), e);
+                return;
+            }
+            int mid = batch.size() / 2;
+            writeOrSplit(batch.subList(0, mid));
+            writeOrSplit(batch.subList(mid, batch.size()));
+            return;
+        } catch (RuntimeException e) {
+            log.error("Failed to checkpoint tracking for {} deliveries, retrying next run", batch.size(), e);
+            batch.forEach(entry -> markDirty(entry.getKey()));
+            return;
+        }
+
+        if (!failures.isEmpty()) {
+            batch.forEach(entry -> failures.remove(entry.getKey()));
+        }
+    }
+
+    private void rejected(Long deliveryId, NonTransientDataAccessException e) {
+        int attempts = failures.merge(deliveryId, 1, Integer::sum);
+        if (attempts < maxAttempts) {
+            markDirty(deliveryId);
+            return;
+        }
+        forget(deliveryId);
+        log.warn("Dropping live tracking of delivery {} after {} rejected checkpoints: {}",
+                deliveryId, attempts, e.getMostSpecificCause().getMessage());
+    }
+
+    private void markDirty(Long deliveryId) {
+        LiveTracking state = live.get(deliveryId);
+        if (state == null) return;
+        synchronized (state) {
+            state.dirty = true;
+        }
+    }
+
+    private void save(List<Map.Entry<Long, TrackingFrameDTO>> changed) {
+        Map<Long, DeliveryTracking> rows = new HashMap<>();
+        repo.findAllById(changed.stream().map(Map.Entry::getKey).toList())
+                .forEach(t -> rows.put(t.getDeliveryId(), t));
+
+        for (var entry : changed) {
+            DeliveryTracking t = rows.computeIfAbsent(entry.getKey(), id -> {
+                DeliveryTracking created = new DeliveryTracking();
+                created.setDelivery(deliveryRepo.getReferenceById(id));
+                return created;
+            });
+            TrackingFrameDTO frame = entry.getValue();
+            t.setCurrentLatitude(frame.getLatitude());
+            t.setCurrentLongitude(frame.getLongitude());
+            t.setEstimatedDistance(frame.getEstimatedDistanceKm());
+            t.setEstimatedDuration(frame.getEstimatedMinutes());
+            t.setLastLocationUpdate(frame.getUpdatedAt());
+        }
+        repo.saveAll(rows.values());
+        log.debug("Checkpointed tracking for {} deliveries", rows.size());
     }
-}
\ No newline at end of file
+}
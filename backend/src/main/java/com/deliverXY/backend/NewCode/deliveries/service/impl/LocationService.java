@@ -9,14 +9,6 @@ public class LocationService {
 
     private static final double EARTH_RADIUS_KM = DeliveryConstants.EARTH_RADIUS_KM;
 
-    // Skopje City Center Polygon
-    private static final double[][] CITY_CENTER_POLYGON = DeliveryConstants.CITY_CENTER_POLYGON;
-
-    // Airport
-    private static final double AIRPORT_LAT = DeliveryConstants.SKOPJE_AIRPORT_LAT;
-    private static final double AIRPORT_LON = DeliveryConstants.SKOPJE_AIRPORT_LON;
-    private static final double AIRPORT_RADIUS_KM = DeliveryConstants.AIRPORT_RADIUS_KM; // 1km
-
     /**
      * HAVERSINE distance
      */
@@ -32,6 +24,25 @@ public class LocationService {
         return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
     }
 
+    /**
+     * HAVERSINE over parallel arrays, written into {@code out}.
+     * Same formula as {@link #distanceKm}, so a batch quote and a single
+     * quote of the same route agree to the last digit.
+     */
+    public void distancesKm(double[] lat1, double[] lon1, double[] lat2, double[] lon2, double[] out) {
+        for (int i = 0; i < out.length; i++) {
+            double dLat = Math.toRadians(lat2[i] - lat1[i]);
+            double dLon = Math.toRadians(lon2[i] - lon1[i]);
+
+            double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                    + Math.cos(Math.toRadians(lat1[i]))
+                    * Math.cos(Math.toRadians(lat2[i]))
+                    * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+            out[i] = EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        }
+    }
+
     /**
      * ETA based on average city speed
      */
@@ -46,33 +57,4 @@ public class LocationService {
     public boolean isWithinRadius(double lat1, double lon1, double lat2, double lon2, double radiusKm) {
         return distanceKm(lat1, lon1, lat2, lon2) <= radiusKm;
     }
-
-    /**
-     * Polygon check for city center
-     */
-    public boolean isInCityCenter(double lat, double lon) {
-        boolean inside = false;
-        int j = CITY_CENTER_POLYGON.length - 1;
-
-        for (int i = 0; i < CITY_CENTER_POLYGON.length; i++) {
-            double latI = CITY_CENTER_POLYGON[i][0];
-            double lonI = CITY_CENTER_POLYGON[i][1];
-            double latJ = CITY_CENTER_POLYGON[j][0];
-            double lonJ = CITY_CENTER_POLYGON[j][1];
-
-            if ((lonI > lon) != (lonJ > lon) &&
-                    lat < ((latJ - latI) * (lon - lonI) / (lonJ - lonI) + latI)) {
-                inside = !inside;
-            }
-            j = i;
-        }
-        return inside;
-    }
-
-    /**
-     * Airport region check
-     */
-    public boolean isAtAirport(double lat, double lon) {
-        return distanceKm(lat, lon, AIRPORT_LAT, AIRPORT_LON) <= AIRPORT_RADIUS_KM;
-    }
 }
@@ -31,6 +31,7 @@ public class PricingConfigServiceImpl implements PricingConfigService {
     @Override
     @Transactional
     public PricingConfig save(PricingConfig config) {
+        config.setRevision(config.getRevision() == null ? 1L : config.getRevision() + 1);
         return repo.save(config);
     }
 
@@ -1,21 +1,30 @@
 package com.deliverXY.backend.NewCode.deliveries.service.impl;
 
 import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
-import com.deliverXY.backend.NewCode.common.constants.TimeConstants;
-import com.deliverXY.backend.NewCode.deliveries.domain.PricingConfig;
-import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown; // Assume this DTO now uses BigDecimal for currency fields
-import com.deliverXY.backend.NewCode.deliveries.service.PricingConfigService;
+import com.deliverXY.backend.NewCode.common.enums.ZoneType;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareEstimateDTO;
+import com.deliverXY.backend.NewCode.deliveries.pricing.FareCalculator;
+import com.deliverXY.backend.NewCode.deliveries.pricing.FareEstimateCache;
+import com.deliverXY.backend.NewCode.deliveries.pricing.PricingSnapshot;
+import com.deliverXY.backend.NewCode.deliveries.pricing.PricingSnapshotService;
+import com.deliverXY.backend.NewCode.deliveries.pricing.SurgeBand;
+import com.deliverXY.backend.NewCode.deliveries.surge.SurgeEngine;
+import com.deliverXY.backend.NewCode.deliveries.zones.ZoneIndex;
 import com.deliverXY.backend.NewCode.payments.service.PromoCodeService;
 import com.deliverXY.backend.NewCode.user.domain.AppUser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.DayOfWeek;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 @Service
 @RequiredArgsConstructor
@@ -24,81 +33,140 @@ public class PricingService {
 
     private final LocationService geolocationService;
     private final PromoCodeService promoCodeService;
-    private final PricingConfigService pricingConfigService;
-
-    private static final String DEFAULT_CITY = "Skopje";
+    private final PricingSnapshotService pricingSnapshots;
+    private final ZoneIndex zoneIndex;
+    private final SurgeEngine surgeEngine;
+    private final FareEstimateCache estimateCache;
+
+    /** Pricing used for points outside every configured city. */
+    @Value("${pricing.default-city:Skopje}")
+    private String defaultCity;
     private static final int SCALE = 2; // For currency
 
     // -------------------------------------------------------------
-    // MAIN FARE BREAKDOWN (REPLACES calculateFare and calculateFareFromCoordinates)
+    // FARE BREAKDOWN
     // -------------------------------------------------------------
     /**
-     * Calculates the full fare breakdown using BigDecimal for accuracy.
+     * Calculates the full fare breakdown with exact fixed-point arithmetic.
      */
     public FareBreakdown getFareBreakdown(double pickupLat, double pickupLon,
                                           double dropoffLat, double dropoffLon) {
-
-        PricingConfig config = pricingConfigService.getActivePricing(DEFAULT_CITY);
+        ZoneIndex.ZoneMatch pickupZones = zoneIndex.resolve(pickupLat, pickupLon);
+        ZoneIndex.ZoneMatch dropoffZones = zoneIndex.resolve(dropoffLat, dropoffLon);
+        PricingSnapshot pricing = pricingSnapshots.current(cityOf(pickupZones, dropoffZones));
 
         double distanceKm = geolocationService.distanceKm(pickupLat, pickupLon, dropoffLat, dropoffLon);
-        int estimatedMinutes = geolocationService.calculateETA(distanceKm, DeliveryConstants.AVERAGE_CITY_SPEED_KMH);
+        return price(pricing, SurgeBand.at(LocalDateTime.now()), surgeEngine.multiplierAt(pickupLat, pickupLon),
+                distanceKm, pickupZones, dropoffZones);
+    }
 
-        // Convert configuration rates to BigDecimal
-        BigDecimal baseFare = BigDecimal.valueOf(config.getBaseFare());
-        BigDecimal perKmRate = BigDecimal.valueOf(config.getPerKmRate());
-        BigDecimal perMinuteRate = BigDecimal.valueOf(config.getPerMinuteRate());
-        BigDecimal minimumFare = BigDecimal.valueOf(config.getMinimumFare());
+    /**
+     * Fare estimate for the quote screen, served from {@link FareEstimateCache}.
+     * Only the cache key is snapped; zones, demand and a missed entry's
+     * distance come from the exact points. Everything but the distance is
+     * part of the key, so a hit differs from an exact quote by the few
+     * metres of distance inside one grid cell. Zones and demand are resolved
+     * before the lookup because they are part of the key, so a hit only
+     * skips the distance and the fare arithmetic. Delivery creation keeps
+     * using the exact {@link #getFareBreakdown(double, double, double, double)}.
+     */
+    public FareBreakdown estimate(double pickupLat, double pickupLon,
+                                  double dropoffLat, double dropoffLon) {
+        ZoneIndex.ZoneMatch pickupZones = zoneIndex.resolve(pickupLat, pickupLon);
+        ZoneIndex.ZoneMatch dropoffZones = zoneIndex.resolve(dropoffLat, dropoffLon);
+        PricingSnapshot pricing = pricingSnapshots.current(cityOf(pickupZones, dropoffZones));
+        SurgeBand band = SurgeBand.at(LocalDateTime.now());
+        double demand = surgeEngine.multiplierAt(pickupLat, pickupLon);
+
+        FareEstimateCache.Key key = new FareEstimateCache.Key(
+                FareEstimateCache.cellOf(pickupLat, pickupLon),
+                FareEstimateCache.cellOf(dropoffLat, dropoffLon),
+                isPickupOrDropoffIn(ZoneType.CITY_CENTER, pickupZones, dropoffZones),
+                isPickupOrDropoffIn(ZoneType.AIRPORT, pickupZones, dropoffZones),
+                band,
+                (int) Math.round(demand * 10),
+                pricing.configId(),
+                pricing.version());
+
+        return estimateCache.get(key, k -> price(pricing, band, demand,
+                geolocationService.distanceKm(pickupLat, pickupLon, dropoffLat, dropoffLon),
+                pickupZones, dropoffZones));
+    }
 
-        // Calculate Distance and Time Fares
-        BigDecimal distanceDec = BigDecimal.valueOf(distanceKm);
-        BigDecimal minutesDec = BigDecimal.valueOf(estimatedMinutes);
+    /**
+     * City whose pricing applies at the point, or the default city.
+     */
+    public String cityAt(Double lat, Double lon) {
+        if (lat == null || lon == null) return defaultCity;
+        String city = zoneIndex.resolve(lat, lon).city();
+        return city != null ? city : defaultCity;
+    }
 
-        BigDecimal distanceFare = distanceDec.multiply(perKmRate).setScale(SCALE, RoundingMode.HALF_UP);
-        BigDecimal timeFare = minutesDec.multiply(perMinuteRate).setScale(SCALE, RoundingMode.HALF_UP);
+    private String cityOf(ZoneIndex.ZoneMatch pickupZones, ZoneIndex.ZoneMatch dropoffZones) {
+        if (pickupZones.city() != null) return pickupZones.city();
+        if (dropoffZones.city() != null) return dropoffZones.city();
+        return defaultCity;
+    }
 
-        // Calculate Surge Multiplier
-        BigDecimal surgeMultiplier = getSurgeMultiplier(config);
+    /**
+     * Prices against an explicit snapshot, so callers that quote several
+     * trips can pin them all to the same pricing.
+     */
+    public FareBreakdown getFareBreakdown(PricingSnapshot pricing,
+                                          double pickupLat, double pickupLon,
+                                          double dropoffLat, double dropoffLon) {
+        double distanceKm = geolocationService.distanceKm(pickupLat, pickupLon, dropoffLat, dropoffLon);
+        return price(pricing, SurgeBand.at(LocalDateTime.now()), surgeEngine.multiplierAt(pickupLat, pickupLon),
+                distanceKm,
+                zoneIndex.resolve(pickupLat, pickupLon),
+                zoneIndex.resolve(dropoffLat, dropoffLon));
+    }
 
-        // Base Calculation: (Base + Distance + Time) * Surge
-        BigDecimal preSurgeTotal = baseFare.add(distanceFare).add(timeFare);
-        BigDecimal afterSurge = preSurgeTotal
-                .multiply(surgeMultiplier)
-                .setScale(SCALE, RoundingMode.HALF_UP);
+    /**
+     * Prices many routes in one pass. Distances are computed in a single
+     * loop over primitive arrays, the time band is read once, and each city's
+     * snapshot is pinned on first use so the whole batch is priced against
+     * the same pricing even if an admin saves a change mid-way. Results are
+     * handed to {@code sink} in input order with their index.
+     */
+    public void quoteAll(List<FareEstimateDTO> routes, ObjIntConsumer<FareBreakdown> sink) {
+        int n = routes.size();
+        double[] pickupLat = new double[n];
+        double[] pickupLon = new double[n];
+        double[] dropoffLat = new double[n];
+        double[] dropoffLon = new double[n];
+        for (int i = 0; i < n; i++) {
+            FareEstimateDTO r = routes.get(i);
+            pickupLat[i] = r.getPickupLatitude();
+            pickupLon[i] = r.getPickupLongitude();
+            dropoffLat[i] = r.getDropoffLatitude();
+            dropoffLon[i] = r.getDropoffLongitude();
+        }
 
-        boolean inCityCenter = isPickupOrDropoffInCityCenter(pickupLat, pickupLon, dropoffLat, dropoffLon);
-        BigDecimal cityCenterMultiplier = getCityCenterMultiplier(config, pickupLat, pickupLon, dropoffLat, dropoffLon);
+        double[] distances = new double[n];
+        geolocationService.distancesKm(pickupLat, pickupLon, dropoffLat, dropoffLon, distances);
 
-        BigDecimal cityCenterCharge = BigDecimal.ZERO;
-        if (inCityCenter && cityCenterMultiplier.compareTo(BigDecimal.ONE) > 0) {
-            cityCenterCharge = afterSurge
-                    .multiply(cityCenterMultiplier.subtract(BigDecimal.ONE))
-                    .setScale(SCALE, RoundingMode.HALF_UP);
-        }
+        SurgeBand band = SurgeBand.at(LocalDateTime.now());
+        Map<String, PricingSnapshot> pinned = new HashMap<>();
 
-        BigDecimal airportSurcharge = getAirportSurcharge(config, pickupLat, pickupLon, dropoffLat, dropoffLon)
-                .setScale(SCALE, RoundingMode.HALF_UP);
+        for (int i = 0; i < n; i++) {
+            ZoneIndex.ZoneMatch pickupZones = zoneIndex.resolve(pickupLat[i], pickupLon[i]);
+            ZoneIndex.ZoneMatch dropoffZones = zoneIndex.resolve(dropoffLat[i], dropoffLon[i]);
+            PricingSnapshot pricing = pinned.computeIfAbsent(cityOf(pickupZones, dropoffZones), pricingSnapshots::current);
 
-        // Total = afterSurge + cityCenterCharge + airportSurcharge
-        BigDecimal total = afterSurge
-                .add(cityCenterCharge)
-                .add(airportSurcharge)
-                .setScale(SCALE, RoundingMode.HALF_UP);
+            double demand = surgeEngine.multiplierAt(pickupLat[i], pickupLon[i]);
+            sink.accept(price(pricing, band, demand, distances[i], pickupZones, dropoffZones), i);
+        }
+    }
 
-        // Minimum fare
-        total = total.max(minimumFare).setScale(SCALE, RoundingMode.HALF_UP);
+    private FareBreakdown price(PricingSnapshot pricing, SurgeBand band, double demandMultiplier, double distanceKm,
+                                ZoneIndex.ZoneMatch pickupZones, ZoneIndex.ZoneMatch dropoffZones) {
 
-        return new FareBreakdown(
-                total,
-                baseFare,
-                distanceFare,
-                timeFare,
-                distanceKm,
-                estimatedMinutes,
-                config.getCurrency(),
-                surgeMultiplier.doubleValue(),
-                cityCenterCharge,
-                airportSurcharge
-        );
+        int estimatedMinutes = geolocationService.calculateETA(distanceKm, DeliveryConstants.AVERAGE_CITY_SPEED_KMH);
+
+        return FareCalculator.price(pricing, band, demandMultiplier, distanceKm, estimatedMinutes,
+                isPickupOrDropoffIn(ZoneType.CITY_CENTER, pickupZones, dropoffZones),
+                isPickupOrDropoffIn(ZoneType.AIRPORT, pickupZones, dropoffZones));
     }
 
     /**
@@ -115,83 +183,7 @@ public class PricingService {
     // -------------------------------------------------------------
     // ZONE CHARGE HELPERS
     // -------------------------------------------------------------
-    private BigDecimal getCityCenterMultiplier(PricingConfig config, double pickupLat, double pickupLon,
-                                               double dropoffLat, double dropoffLon) {
-        if (isPickupOrDropoffInCityCenter(pickupLat, pickupLon, dropoffLat, dropoffLon)) {
-            return BigDecimal.valueOf(config.getCityCenterMultiplier());
-        }
-        return BigDecimal.ONE; // Return 1 (no multiplication effect)
-    }
-
-    private BigDecimal getAirportSurcharge(PricingConfig config, double pickupLat, double pickupLon,
-                                           double dropoffLat, double dropoffLon) {
-        if (isPickupOrDropoffAtAirport(pickupLat, pickupLon, dropoffLat, dropoffLon)) {
-            return BigDecimal.valueOf(config.getAirportSurcharge());
-        }
-        return BigDecimal.ZERO;
-    }
-
-    private boolean isPickupOrDropoffInCityCenter(double pickupLat, double pickupLon,
-                                                  double dropoffLat, double dropoffLon) {
-        // Re-implementing the original logic delegation
-        return isInCityCenter(pickupLat, pickupLon) || isInCityCenter(dropoffLat, dropoffLon);
-    }
-
-    private boolean isPickupOrDropoffAtAirport(double pickupLat, double pickupLon,
-                                               double dropoffLat, double dropoffLon) {
-        // Re-implementing the original logic delegation
-        return isAtAirport(pickupLat, pickupLon) || isAtAirport(dropoffLat, dropoffLon);
-    }
-
-    // -------------------------------------------------------------
-    // SURGE LOGIC
-    // -------------------------------------------------------------
-    private BigDecimal getSurgeMultiplier(PricingConfig config) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalTime time = now.toLocalTime();
-
-        // NOTE: NIGHT_START/NIGHT_END requires careful comparison across midnight.
-        // The original logic handles this by checking isAfter OR isBefore.
-        if (time.isAfter(TimeConstants.NIGHT_START) || time.isBefore(TimeConstants.NIGHT_END))
-            return BigDecimal.valueOf(config.getNightMultiplier());
-
-        if ((time.isAfter(TimeConstants.MORNING_PEAK_START) && time.isBefore(TimeConstants.MORNING_PEAK_END)) ||
-                (time.isAfter(TimeConstants.EVENING_PEAK_START) && time.isBefore(TimeConstants.EVENING_PEAK_END)))
-            return BigDecimal.valueOf(config.getPeakHourMultiplier());
-
-        if (now.getDayOfWeek() == DayOfWeek.SATURDAY || now.getDayOfWeek() == DayOfWeek.SUNDAY)
-            return BigDecimal.valueOf(config.getWeekendMultiplier());
-
-        return BigDecimal.valueOf(config.getSurgeMultiplier());
-    }
-
-    // -------------------------------------------------------------
-    // REDUNDANT METHODS REMOVED: calculateFare, calculateFareFromCoordinates, applyZoneCharges.
-    // -------------------------------------------------------------
-
-    // -------------------------------------------------------------
-    // LOCATION HELPERS (Kept for delegation consistency)
-    // -------------------------------------------------------------
-    private boolean isInCityCenter(double lat, double lon) {
-        return geolocationService.isWithinRadius(
-                lat, lon,
-                DeliveryConstants.SKOPJE_CENTER_LAT,
-                DeliveryConstants.SKOPJE_CENTER_LON,
-                DeliveryConstants.CITY_CENTER_RADIUS_KM
-        );
-    }
-
-    private boolean isAtAirport(double lat, double lon) {
-        return geolocationService.isWithinRadius(
-                lat, lon,
-                DeliveryConstants.SKOPJE_AIRPORT_LAT,
-                DeliveryConstants.SKOPJE_AIRPORT_LON,
-                DeliveryConstants.AIRPORT_RADIUS_KM
-        );
+    private static boolean isPickupOrDropoffIn(ZoneType type, ZoneIndex.ZoneMatch pickup, ZoneIndex.ZoneMatch dropoff) {
+        return pickup.in(type) || dropoff.in(type);
     }
-
-    // -------------------------------------------------------------
-    // HELPERS (Removed double round, only keeping BigDecimal round if needed)
-    // -------------------------------------------------------------
-    // The previous `round(double val)` method is removed as we primarily use BigDecimal.
-}
\ No newline at end of file
+}
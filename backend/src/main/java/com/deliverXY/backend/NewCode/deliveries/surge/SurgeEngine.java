@@ -0,0 +1,304 @@
+package com.deliverXY.backend.NewCode.deliveries.surge;
+
+import com.deliverXY.backend.NewCode.common.enums.DeliveryStatus;
+import com.deliverXY.backend.NewCode.deliveries.domain.Delivery;
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Demand/supply surge per grid cell.
+ * Demand is the number of open REQUESTED deliveries in the cell: a request
+ * opens on create and closes on assign, cancel or delete, each once its
+ * transaction commits. Supply is pings from idle drivers, counted into
+ * per-cell ring buffers of LongAdders, one slot per bucket. On every bucket
+ * tick the two are turned into a target multiplier, smoothed and published
+ * as an immutable map that pricing reads without locking.
+ */
+@Component
+@Slf4j
+public class SurgeEngine {
+
+    /** Cell edge in degrees (~2.2 km of latitude). */
+    static final double CELL_SIZE_DEG = 0.02;
+
+    private static final long COLUMNS = (long) Math.ceil(360 / CELL_SIZE_DEG);
+    private static final int STEPS_PER_UNIT = 10; // multipliers are published in 0.1 steps
+
+    private final DeliveryRepository deliveryRepo;
+
+    private final long bucketMillis;
+    private final int windowBuckets;
+    private final double smoothing;
+    private final double sensitivity;
+    private final double maxMultiplier;
+
+    /** Open REQUESTED deliveries: delivery id to pickup cell. */
+    private final ConcurrentHashMap<Long, Long> openRequests = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, CellWindow> windows = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, DriverMark> driverMarks = new ConcurrentHashMap<>();
+    private final Set<Long> busyDrivers = ConcurrentHashMap.newKeySet();
+
+    /** Only touched by {@link #recompute()}, which the scheduler never runs concurrently. */
+    private final Map<Long, Double> smoothed = new HashMap<>();
+
+    /** Published multipliers; cells at 1.0 are absent. */
+    private volatile Map<Long, Double> multipliers = Map.of();
+
+    /**
+     * Supply ring buffer. Each slot remembers the bucket it holds; the first
+     * writer of a new bucket resets it, and sums skip slots from buckets
+     * that have left the window, so stale counts never survive a late or
+     * missed tick.
+     */
+    private final class CellWindow {
+        private final LongAdder[] supply = adders(windowBuckets);
+        private final AtomicLongArray buckets = new AtomicLongArray(windowBuckets);
+
+        LongAdder slot(long epoch) {
+            int i = SurgeEngine.this.slot(epoch);
+            if (buckets.get(i) != epoch) {
+                synchronized (this) {
+                    if (buckets.get(i) != epoch) {
+                        supply[i].reset();
+                        buckets.set(i, epoch);
+                    }
+                }
+            }
+            return supply[i];
+        }
+
+        /** Supply over the buckets in {@code [from, to]}. */
+        long sum(long from, long to) {
+            long total = 0;
+            for (int i = 0; i < windowBuckets; i++) {
+                long bucket = buckets.get(i);
+                if (bucket >= from && bucket <= to) total += supply[i].sum();
+            }
+            return total;
+        }
+
+        /** Resets every slot holding a bucket older than {@code oldest}. */
+        synchronized void expire(long oldest) {
+            for (int i = 0; i < windowBuckets; i++) {
+                if (buckets.get(i) < oldest) supply[i].reset();
+            }
+        }
+    }
+
+    /** Last (bucket, cell) a driver was counted in, so each driver counts once per bucket. */
+    private record DriverMark(long epoch, long cell) {
+    }
+
+    public SurgeEngine(DeliveryRepository deliveryRepo,
+                       MeterRegistry meters,
+                       @Value("${surge.bucket-ms:30000}") long bucketMillis,
+                       @Value("${surge.window-buckets:20}") int windowBuckets,
+                       @Value("${surge.smoothing:0.3}") double smoothing,
+                       @Value("${surge.sensitivity:0.5}") double sensitivity,
+                       @Value("${surge.max-multiplier:2.0}") double maxMultiplier) {
+        this.deliveryRepo = deliveryRepo;
+        this.bucketMillis = bucketMillis;
+        this.windowBuckets = Math.max(windowBuckets, 2);
+        this.smoothing = smoothing;
+        this.sensitivity = sensitivity;
+        this.maxMultiplier = maxMultiplier;
+
+        meters.gauge("surge.cells.surging", this, engine -> engine.multipliers.size());
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] a = new LongAdder[n];
+        for (int i = 0; i < n; i++) a[i] = new LongAdder();
+        return a;
+    }
+
+    // -------------------------------------------------------------
+    // WARM-UP
+    // -------------------------------------------------------------
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (Delivery d : deliveryRepo.findByStatus(DeliveryStatus.REQUESTED)) {
+            if (d.getPickupLatitude() != null && d.getPickupLongitude() != null) {
+                openRequests.putIfAbsent(d.getId(), cellOf(d.getPickupLatitude(), d.getPickupLongitude()));
+            }
+        }
+        for (DeliveryStatus status : List.of(DeliveryStatus.ASSIGNED, DeliveryStatus.PICKED_UP, DeliveryStatus.IN_TRANSIT)) {
+            for (Delivery d : deliveryRepo.findByStatus(status)) {
+                if (d.getAgent() != null) busyDrivers.add(d.getAgent().getId());
+            }
+        }
+        log.info("Surge engine started with {} open requests and {} busy drivers",
+                openRequests.size(), busyDrivers.size());
+    }
+
+    // -------------------------------------------------------------
+    // SIGNALS
+    // -------------------------------------------------------------
+
+    /** A REQUESTED delivery was created with its pickup at the point. */
+    public void requestOpened(Long deliveryId, double lat, double lon) {
+        long cell = cellOf(lat, lon);
+        afterCommit(() -> openRequests.put(deliveryId, cell));
+    }
+
+    /** The delivery left REQUESTED (assigned, cancelled or deleted). */
+    public void requestClosed(Long deliveryId) {
+        afterCommit(() -> openRequests.remove(deliveryId));
+    }
+
+    public void recordDriverPing(Long driverId, double lat, double lon) {
+        if (busyDrivers.contains(driverId)) return;
+
+        long epoch = epoch();
+        long cell = cellOf(lat, lon);
+        DriverMark mark = driverMarks.get(driverId);
+        if (mark != null && mark.epoch() == epoch && mark.cell() == cell) return;
+
+        driverMarks.put(driverId, new DriverMark(epoch, cell));
+        window(cell).slot(epoch).increment();
+    }
+
+    public void markBusy(Long driverId) {
+        afterCommit(() -> busyDrivers.add(driverId));
+    }
+
+    public void markIdle(Long driverId) {
+        afterCommit(() -> busyDrivers.remove(driverId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // -------------------------------------------------------------
+    // READS
+    // -------------------------------------------------------------
+
+    /**
+     * Current demand multiplier at the point; 1.0 where supply keeps up.
+     */
+    public double multiplierAt(double lat, double lon) {
+        return multipliers.getOrDefault(cellOf(lat, lon), 1.0);
+    }
+
+    // -------------------------------------------------------------
+    // RECOMPUTE
+    // -------------------------------------------------------------
+
+    /**
+     * Counts open requests per cell, sums supply over the completed buckets
+     * in the window, smooths toward the target multiplier and publishes the
+     * result. Every slot that has fallen out of the window since the last
+     * tick is cleared, however many buckets that was.
+     */
+    @Scheduled(fixedRateString = "${surge.bucket-ms:30000}")
+    public void recompute() {
+        long epoch = epoch();
+        long oldest = epoch - windowBuckets + 1;
+
+        Map<Long, Long> demandByCell = new HashMap<>();
+        for (Long cell : openRequests.values()) demandByCell.merge(cell, 1L, Long::sum);
+
+        Set<Long> cells = new HashSet<>(windows.keySet());
+        cells.addAll(smoothed.keySet());
+        cells.addAll(demandByCell.keySet());
+
+        Map<Long, Double> next = new HashMap<>();
+        for (Long cell : cells) {
+            CellWindow w = windows.get(cell);
+            long supply = 0;
+            boolean idle = true;
+            if (w != null) {
+                w.expire(oldest);
+                supply = w.sum(oldest, epoch - 1);
+                idle = supply == 0 && w.sum(epoch, epoch) == 0;
+            }
+            long demand = demandByCell.getOrDefault(cell, 0L);
+
+            double previous = smoothed.getOrDefault(cell, 1.0);
+            double value = previous + smoothing * (target(demand, supply) - previous);
+
+            if (demand == 0 && idle && quantize(value) <= 1.0) {
+                if (w != null) windows.remove(cell, w);
+                smoothed.remove(cell);
+                continue;
+            }
+            smoothed.put(cell, value);
+
+            double published = quantize(value);
+            if (published > 1.0) next.put(cell, published);
+        }
+
+        multipliers = Map.copyOf(next);
+        driverMarks.values().removeIf(mark -> mark.epoch() < epoch - 1);
+        if (!next.isEmpty()) log.debug("Surge active in {} cells", next.size());
+    }
+
+    /**
+     * Open requests per idle driver. Supply is summed over the completed
+     * buckets, so it is averaged back to drivers present per bucket.
+     */
+    private double target(long demand, long supply) {
+        if (demand == 0) return 1.0;
+        double drivers = Math.max((double) supply / (windowBuckets - 1), 1.0);
+        double ratio = demand / drivers;
+        return Math.min(Math.max(1.0 + sensitivity * (ratio - 1.0), 1.0), maxMultiplier);
+    }
+
+    /** Published in fixed steps so quotes don't flicker between ticks. */
+    private static double quantize(double value) {
+        return Math.round(value * STEPS_PER_UNIT) / (double) STEPS_PER_UNIT;
+    }
+
+    // -------------------------------------------------------------
+    // CELLS
+    // -------------------------------------------------------------
+    private CellWindow window(long cell) {
+        return windows.computeIfAbsent(cell, c -> new CellWindow());
+    }
+
+    private long epoch() {
+        return now() / bucketMillis;
+    }
+
+    /** Overridden by tests that replay a scripted timeline. */
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    private int slot(long epoch) {
+        return (int) (epoch % windowBuckets);
+    }
+
+    static long cellOf(double lat, double lon) {
+        long row = (long) Math.floor((lat + 90) / CELL_SIZE_DEG);
+        long col = (long) Math.floor((lon + 180) / CELL_SIZE_DEG);
+        return row * COLUMNS + col;
+    }
+}
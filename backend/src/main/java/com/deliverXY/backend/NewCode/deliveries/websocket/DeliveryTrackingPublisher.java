@@ -0,0 +1,71 @@
+package com.deliverXY.backend.NewCode.deliveries.websocket;
+
+import com.deliverXY.backend.NewCode.deliveries.dto.TrackingFrameDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes delivery positions to /topic/tracking/{deliveryId}.
+ * Frames are coalesced per delivery and sent on a fixed tick, so however
+ * often a driver pings, each subscriber gets at most one frame per
+ * delivery per tick, and that frame is always the latest one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeliveryTrackingPublisher {
+
+    public static final String TOPIC_PREFIX = "/topic/tracking/";
+
+    private final SimpMessagingTemplate ws;
+
+    private final ConcurrentHashMap<Long, TrackingFrameDTO> outbox = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, TrackingFrameDTO> lastSent = new ConcurrentHashMap<>();
+
+    public void offer(TrackingFrameDTO frame) {
+        outbox.merge(frame.getDeliveryId(), frame,
+                (queued, incoming) -> incoming.getSequence() >= queued.getSequence() ? incoming : queued);
+    }
+
+    public void forget(Long deliveryId) {
+        outbox.remove(deliveryId);
+        lastSent.remove(deliveryId);
+    }
+
+    @Scheduled(fixedRateString = "${tracking.broadcast-interval-ms:1000}")
+    public void broadcast() {
+        for (Long deliveryId : outbox.keySet()) {
+            TrackingFrameDTO frame = outbox.remove(deliveryId);
+            if (frame == null) continue;
+
+            ws.convertAndSend(TOPIC_PREFIX + deliveryId, frame);
+            lastSent.put(deliveryId, frame);
+        }
+    }
+
+    /**
+     * A new or reconnecting subscriber gets the current frame on the next
+     * tick rather than waiting for the driver to move.
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        String destination = StompHeaderAccessor.wrap(event.getMessage()).getDestination();
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) return;
+
+        try {
+            Long deliveryId = Long.valueOf(destination.substring(TOPIC_PREFIX.length()));
+            TrackingFrameDTO frame = lastSent.get(deliveryId);
+            if (frame != null) offer(frame);
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring subscription to malformed tracking destination {}", destination);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.deliverXY.backend.NewCode.deliveries.zones;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+import com.deliverXY.backend.NewCode.common.enums.ZoneType;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingZone;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Zones seeded into an empty pricing_zones table, matching the areas that
+ * used to be hard-coded for Skopje. After the first start they are plain
+ * rows, edited through the admin API like any other city's zones.
+ */
+final class DefaultZones {
+
+    private DefaultZones() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    private static final int CIRCLE_VERTICES = 32;
+    private static final double KM_PER_DEGREE_LAT = Math.PI * DeliveryConstants.EARTH_RADIUS_KM / 180.0;
+
+    static List<PricingZone> skopje() {
+        return List.of(
+                zone("Skopje", ZoneType.CITY,
+                        "41.90,21.25;41.90,21.70;42.08,21.70;42.08,21.25"),
+                zone("Skopje Center", ZoneType.CITY_CENTER, circle(41.9973, 21.4280, 2.0)),
+                zone("Skopje Airport", ZoneType.AIRPORT, circle(41.9616, 21.6214, 1.0))
+        );
+    }
+
+    private static PricingZone zone(String name, ZoneType type, String polygon) {
+        PricingZone z = new PricingZone();
+        z.setCity("Skopje");
+        z.setName(name);
+        z.setType(type);
+        z.setPolygon(polygon);
+        z.setIsActive(true);
+        return z;
+    }
+
+    /** Regular polygon approximating a radius around a point. */
+    private static String circle(double lat, double lon, double radiusKm) {
+        double latSpan = radiusKm / KM_PER_DEGREE_LAT;
+        double lonSpan = latSpan / Math.cos(Math.toRadians(lat));
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < CIRCLE_VERTICES; i++) {
+            double angle = 2 * Math.PI * i / CIRCLE_VERTICES;
+            if (i > 0) sb.append(';');
+            sb.append(String.format(Locale.ROOT, "%.6f,%.6f",
+                    lat + latSpan * Math.sin(angle), lon + lonSpan * Math.cos(angle)));
+        }
+        return sb.toString();
+    }
+}
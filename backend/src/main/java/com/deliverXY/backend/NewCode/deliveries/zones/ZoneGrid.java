@@ -0,0 +1,130 @@
+package com.deliverXY.backend.NewCode.deliveries.zones;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable uniform grid over the bounding box of all zones. Every cell lists
+ * the zones that cover it completely (no geometry test needed) and the zones
+ * whose boundary passes through it (ray cast needed). A lookup is one array
+ * index plus, at most, a ray cast against the few boundary zones of the cell.
+ */
+final class ZoneGrid {
+
+    /** Cell edge in degrees (~1.1 km of latitude), widened if the grid would get too big. */
+    private static final double CELL_SIZE_DEG = 0.01;
+    private static final long MAX_CELLS = 1 << 20;
+
+    private static final int[] NONE = new int[0];
+
+    static final ZoneGrid EMPTY = new ZoneGrid(List.of());
+
+    final ZonePolygon[] zones;
+
+    private final double minLat, minLon, cellDeg;
+    private final int rows, cols;
+    private final int[][] full;
+    private final int[][] partial;
+
+    ZoneGrid(List<ZonePolygon> zoneList) {
+        this.zones = zoneList.toArray(new ZonePolygon[0]);
+
+        if (zones.length == 0) {
+            minLat = minLon = 0;
+            cellDeg = CELL_SIZE_DEG;
+            rows = cols = 0;
+            full = partial = new int[0][];
+            return;
+        }
+
+        double loLat = Double.MAX_VALUE, hiLat = -Double.MAX_VALUE;
+        double loLon = Double.MAX_VALUE, hiLon = -Double.MAX_VALUE;
+        for (ZonePolygon z : zones) {
+            loLat = Math.min(loLat, z.minLat);
+            hiLat = Math.max(hiLat, z.maxLat);
+            loLon = Math.min(loLon, z.minLon);
+            hiLon = Math.max(hiLon, z.maxLon);
+        }
+
+        double size = CELL_SIZE_DEG;
+        while ((long) (Math.floor((hiLat - loLat) / size) + 1) * (long) (Math.floor((hiLon - loLon) / size) + 1) > MAX_CELLS) {
+            size *= 2;
+        }
+
+        minLat = loLat;
+        minLon = loLon;
+        cellDeg = size;
+        rows = (int) Math.floor((hiLat - loLat) / size) + 1;
+        cols = (int) Math.floor((hiLon - loLon) / size) + 1;
+        full = new int[rows * cols][];
+        partial = new int[rows * cols][];
+
+        List<List<Integer>> fullLists = new ArrayList<>();
+        List<List<Integer>> partialLists = new ArrayList<>();
+        for (int i = 0; i < rows * cols; i++) {
+            fullLists.add(null);
+            partialLists.add(null);
+        }
+
+        for (int zi = 0; zi < zones.length; zi++) {
+            ZonePolygon z = zones[zi];
+            for (int r = row(z.minLat); r <= row(z.maxLat); r++) {
+                for (int c = col(z.minLon); c <= col(z.maxLon); c++) {
+                    double cMinLat = minLat + r * cellDeg;
+                    double cMinLon = minLon + c * cellDeg;
+                    double cMaxLat = cMinLat + cellDeg;
+                    double cMaxLon = cMinLon + cellDeg;
+
+                    List<List<Integer>> target;
+                    if (z.boundaryCrosses(cMinLat, cMinLon, cMaxLat, cMaxLon)) {
+                        target = partialLists;
+                    } else if (z.contains(cMinLat + cellDeg / 2, cMinLon + cellDeg / 2)) {
+                        target = fullLists;
+                    } else {
+                        continue;
+                    }
+
+                    int cell = r * cols + c;
+                    if (target.get(cell) == null) target.set(cell, new ArrayList<>(2));
+                    target.get(cell).add(zi);
+                }
+            }
+        }
+
+        for (int i = 0; i < rows * cols; i++) {
+            full[i] = toArray(fullLists.get(i));
+            partial[i] = toArray(partialLists.get(i));
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        if (list == null) return NONE;
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor((lat - minLat) / cellDeg);
+    }
+
+    private int col(double lon) {
+        return (int) Math.floor((lon - minLon) / cellDeg);
+    }
+
+    /**
+     * Hands every zone containing the point to {@code sink}.
+     */
+    void forEachAt(double lat, double lon, Consumer<ZonePolygon> sink) {
+        int r = row(lat);
+        int c = col(lon);
+        if (r < 0 || r >= rows || c < 0 || c >= cols) return;
+
+        int cell = r * cols + c;
+        for (int zi : full[cell]) {
+            sink.accept(zones[zi]);
+        }
+        for (int zi : partial[cell]) {
+            if (zones[zi].contains(lat, lon)) sink.accept(zones[zi]);
+        }
+    }
+}
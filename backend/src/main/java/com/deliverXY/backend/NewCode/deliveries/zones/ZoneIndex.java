@@ -0,0 +1,103 @@
+package com.deliverXY.backend.NewCode.deliveries.zones;
+
+import com.deliverXY.backend.NewCode.common.enums.ZoneType;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingZone;
+import com.deliverXY.backend.NewCode.deliveries.repository.PricingZoneRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Point-in-zone lookups over every active pricing zone of every city.
+ * Zones are loaded from pricing_zones into an immutable grid that is
+ * swapped atomically on reload, so lookups never lock.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ZoneIndex {
+
+    private final PricingZoneRepository zoneRepo;
+
+    private final AtomicReference<ZoneGrid> grid = new AtomicReference<>(ZoneGrid.EMPTY);
+
+    /**
+     * City and zone types at one point. {@code city} is null outside every
+     * CITY zone.
+     */
+    public record ZoneMatch(String city, Set<ZoneType> types) {
+
+        static final ZoneMatch NONE = new ZoneMatch(null, Collections.emptySet());
+
+        public boolean in(ZoneType type) {
+            return types.contains(type);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // LOADING
+    // -------------------------------------------------------------
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (zoneRepo.count() == 0) {
+            zoneRepo.saveAll(DefaultZones.skopje());
+            log.info("No pricing zones found, seeded the default Skopje zones");
+        }
+        reload();
+    }
+
+    /**
+     * Rebuilds the grid from the active zones and swaps it in.
+     */
+    public void reload() {
+        List<ZonePolygon> zones = new ArrayList<>();
+        for (PricingZone z : zoneRepo.findByIsActiveTrueOrderByIdAsc()) {
+            try {
+                zones.add(ZonePolygon.parse(z.getId(), z.getCity(), z.getName(), z.getType(), z.getPolygon()));
+            } catch (IllegalArgumentException e) {
+                log.error("Skipping pricing zone {} ({}): {}", z.getId(), z.getName(), e.getMessage());
+            }
+        }
+        grid.set(new ZoneGrid(zones));
+        log.info("Zone index loaded with {} zones", zones.size());
+    }
+
+    // -------------------------------------------------------------
+    // QUERIES
+    // -------------------------------------------------------------
+    public ZoneMatch resolve(double lat, double lon) {
+        ZoneGrid g = grid.get();
+        String[] city = {null};
+        long[] cityZoneId = {Long.MAX_VALUE};
+        Set<ZoneType> types = EnumSet.noneOf(ZoneType.class);
+
+        g.forEachAt(lat, lon, z -> {
+            types.add(z.getType());
+            // Overlapping city areas: the oldest zone wins, independent of grid order
+            if (z.getType() == ZoneType.CITY && z.getId() != null && z.getId() < cityZoneId[0]) {
+                cityZoneId[0] = z.getId();
+                city[0] = z.getCity();
+            }
+        });
+        return types.isEmpty() ? ZoneMatch.NONE : new ZoneMatch(city[0], types);
+    }
+
+    public List<ZonePolygon> zonesAt(double lat, double lon) {
+        List<ZonePolygon> result = new ArrayList<>(2);
+        grid.get().forEachAt(lat, lon, result::add);
+        return result;
+    }
+
+    public int size() {
+        return grid.get().zones.length;
+    }
+}
@@ -0,0 +1,146 @@
+package com.deliverXY.backend.NewCode.deliveries.zones;
+
+import com.deliverXY.backend.NewCode.common.enums.ZoneType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable polygon of one pricing zone, with its bounding box precomputed.
+ */
+public final class ZonePolygon {
+
+    private final Long id;
+    private final String city;
+    private final String name;
+    private final ZoneType type;
+
+    private final double[] lats;
+    private final double[] lons;
+
+    final double minLat, maxLat, minLon, maxLon;
+
+    public ZonePolygon(Long id, String city, String name, ZoneType type, double[] lats, double[] lons) {
+        if (lats.length != lons.length || lats.length < 3) {
+            throw new IllegalArgumentException("Zone " + name + " needs at least 3 vertices");
+        }
+        this.id = id;
+        this.city = city;
+        this.name = name;
+        this.type = type;
+        this.lats = lats.clone();
+        this.lons = lons.clone();
+
+        double loLat = Double.MAX_VALUE, hiLat = -Double.MAX_VALUE;
+        double loLon = Double.MAX_VALUE, hiLon = -Double.MAX_VALUE;
+        for (int i = 0; i < lats.length; i++) {
+            loLat = Math.min(loLat, lats[i]);
+            hiLat = Math.max(hiLat, lats[i]);
+            loLon = Math.min(loLon, lons[i]);
+            hiLon = Math.max(hiLon, lons[i]);
+        }
+        this.minLat = loLat;
+        this.maxLat = hiLat;
+        this.minLon = loLon;
+        this.maxLon = hiLon;
+    }
+
+    /**
+     * Parses the "lat,lon;lat,lon;..." ring stored in pricing_zones.
+     */
+    public static ZonePolygon parse(Long id, String city, String name, ZoneType type, String ring) {
+        List<double[]> vertices = new ArrayList<>();
+        for (String vertex : ring.split(";")) {
+            if (vertex.isBlank()) continue;
+            String[] parts = vertex.split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed vertex '" + vertex + "' in zone " + name);
+            }
+            vertices.add(new double[]{Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())});
+        }
+
+        double[] lats = new double[vertices.size()];
+        double[] lons = new double[vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            lats[i] = vertices.get(i)[0];
+            lons[i] = vertices.get(i)[1];
+        }
+        return new ZonePolygon(id, city, name, type, lats, lons);
+    }
+
+    public static String format(List<List<Double>> vertices) {
+        StringBuilder sb = new StringBuilder();
+        for (List<Double> v : vertices) {
+            if (v.size() != 2) throw new IllegalArgumentException("Vertices must be [lat, lon] pairs");
+            if (!sb.isEmpty()) sb.append(';');
+            sb.append(v.get(0)).append(',').append(v.get(1));
+        }
+        return sb.toString();
+    }
+
+    public Long getId() { return id; }
+    public String getCity() { return city; }
+    public String getName() { return name; }
+    public ZoneType getType() { return type; }
+
+    /**
+     * Even-odd ray cast; the bounding box rejects most points first.
+     */
+    public boolean contains(double lat, double lon) {
+        if (lat < minLat || lat > maxLat || lon < minLon || lon > maxLon) return false;
+
+        boolean inside = false;
+        for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+            if ((lons[i] > lon) != (lons[j] > lon) &&
+                    lat < (lats[j] - lats[i]) * (lon - lons[i]) / (lons[j] - lons[i]) + lats[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * True if any edge of the polygon touches the given rectangle. Used at
+     * index build time to tell boundary cells from fully covered ones.
+     */
+    boolean boundaryCrosses(double rMinLat, double rMinLon, double rMaxLat, double rMaxLon) {
+        for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+            double aLat = lats[j], aLon = lons[j], bLat = lats[i], bLon = lons[i];
+
+            if (Math.max(aLat, bLat) < rMinLat || Math.min(aLat, bLat) > rMaxLat ||
+                    Math.max(aLon, bLon) < rMinLon || Math.min(aLon, bLon) > rMaxLon) continue;
+
+            if (inRect(aLat, aLon, rMinLat, rMinLon, rMaxLat, rMaxLon) ||
+                    inRect(bLat, bLon, rMinLat, rMinLon, rMaxLat, rMaxLon)) return true;
+
+            if (segmentsIntersect(aLat, aLon, bLat, bLon, rMinLat, rMinLon, rMinLat, rMaxLon) ||
+                    segmentsIntersect(aLat, aLon, bLat, bLon, rMaxLat, rMinLon, rMaxLat, rMaxLon) ||
+                    segmentsIntersect(aLat, aLon, bLat, bLon, rMinLat, rMinLon, rMaxLat, rMinLon) ||
+                    segmentsIntersect(aLat, aLon, bLat, bLon, rMinLat, rMaxLon, rMaxLat, rMaxLon)) return true;
+        }
+        return false;
+    }
+
+    private static boolean inRect(double lat, double lon, double minLat, double minLon, double maxLat, double maxLon) {
+        return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+    }
+
+    private static boolean segmentsIntersect(double p1y, double p1x, double p2y, double p2x,
+                                             double q1y, double q1x, double q2y, double q2x) {
+        double d1 = cross(q1x, q1y, q2x, q2y, p1x, p1y);
+        double d2 = cross(q1x, q1y, q2x, q2y, p2x, p2y);
+        double d3 = cross(p1x, p1y, p2x, p2y, q1x, q1y);
+        double d4 = cross(p1x, p1y, p2x, p2y, q2x, q2y);
+
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+            return true;
+        }
+        // Touching or collinear cases count as crossing; being conservative
+        // only turns a full cell into a boundary cell.
+        return d1 == 0 || d2 == 0 || d3 == 0 || d4 == 0;
+    }
+
+    private static double cross(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+}
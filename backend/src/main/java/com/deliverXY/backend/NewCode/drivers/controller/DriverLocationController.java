@@ -49,7 +49,7 @@ public class DriverLocationController {
 
     /**
      * Endpoint used to find the single nearest available driver for assignment.
-     * This calls the matching logic (which iterates radius bands).
+     * This calls the matching logic (a single k-nearest search with k = 1).
      */
     @GetMapping("/nearby/nearest")
     public ApiResponse<AppUser> findNearestDriver(
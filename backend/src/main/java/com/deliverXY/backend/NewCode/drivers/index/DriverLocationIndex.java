@@ -0,0 +1,246 @@
+package com.deliverXY.backend.NewCode.drivers.index;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+import com.deliverXY.backend.NewCode.deliveries.service.impl.LocationService;
+import com.deliverXY.backend.NewCode.drivers.domain.DriverLocation;
+import com.deliverXY.backend.NewCode.drivers.repository.DriverLocationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory grid index over the latest known position of every driver.
+ * Each position lives in exactly one fixed-size lat/lon cell, so radius and
+ * nearest-driver lookups only visit the handful of cells around the query
+ * point instead of scanning the whole driver_locations table.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DriverLocationIndex {
+
+    /** Cell edge in degrees (~1.1 km of latitude). */
+    static final double CELL_SIZE_DEG = 0.01;
+
+    private static final long ROWS = (long) Math.ceil(180 / CELL_SIZE_DEG);
+    private static final long COLUMNS = (long) Math.ceil(360 / CELL_SIZE_DEG);
+    private static final double KM_PER_DEGREE_LAT = Math.PI * DeliveryConstants.EARTH_RADIUS_KM / 180.0;
+
+    private final LocationService locationService;
+    private final DriverLocationRepository locationRepo;
+
+    private final ConcurrentHashMap<Long, DriverPosition> positions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public record DriverPosition(Long driverId, double latitude, double longitude,
+                                 long cell, LocalDateTime updatedAt) {
+    }
+
+    public record Neighbor(Long driverId, double latitude, double longitude, double distanceKm) {
+    }
+
+    // -------------------------------------------------------------
+    // WARM-UP
+    // -------------------------------------------------------------
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<DriverLocation> all = locationRepo.findAll();
+        for (DriverLocation loc : all) {
+            if (loc.getLatitude() != null && loc.getLongitude() != null) {
+                upsert(loc.getDriverId(), loc.getLatitude(), loc.getLongitude(), loc.getUpdatedAt());
+            }
+        }
+        log.info("Driver location index loaded with {} drivers", positions.size());
+    }
+
+    // -------------------------------------------------------------
+    // WRITES
+    // -------------------------------------------------------------
+    public void upsert(Long driverId, double lat, double lon) {
+        upsert(driverId, lat, lon, LocalDateTime.now());
+    }
+
+    public void upsert(Long driverId, double lat, double lon, LocalDateTime updatedAt) {
+        long cell = cellOf(lat, lon);
+
+        positions.compute(driverId, (id, previous) -> {
+            if (previous == null || previous.cell() != cell) {
+                if (previous != null) {
+                    removeFromCell(previous.cell(), id);
+                }
+                cells.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            return new DriverPosition(id, lat, lon, cell, updatedAt);
+        });
+    }
+
+    public void remove(Long driverId) {
+        positions.computeIfPresent(driverId, (id, previous) -> {
+            removeFromCell(previous.cell(), id);
+            return null;
+        });
+    }
+
+    private void removeFromCell(long cell, Long driverId) {
+        cells.computeIfPresent(cell, (c, members) -> {
+            members.remove(driverId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    // -------------------------------------------------------------
+    // QUERIES
+    // -------------------------------------------------------------
+    public Optional<DriverPosition> position(Long driverId) {
+        return Optional.ofNullable(positions.get(driverId));
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * All drivers within {@code radiusKm} of the point, nearest first.
+     */
+    public List<Neighbor> withinRadius(double lat, double lon, double radiusKm) {
+        double latSpan = radiusKm / KM_PER_DEGREE_LAT;
+        double lonSpan = latSpan / Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+
+        long rowMin = row(lat - latSpan);
+        long rowMax = row(lat + latSpan);
+        long colMin = column(lon - lonSpan);
+        long colMax = column(lon + lonSpan);
+
+        List<Neighbor> result = new ArrayList<>();
+        for (long r = rowMin; r <= rowMax; r++) {
+            for (long c = colMin; c <= colMax; c++) {
+                long cell = r * COLUMNS + c;
+                Set<Long> members = cells.get(cell);
+                if (members == null) continue;
+
+                for (Long driverId : members) {
+                    DriverPosition p = positions.get(driverId);
+                    if (p == null || p.cell() != cell) continue;
+
+                    double d = locationService.distanceKm(lat, lon, p.latitude(), p.longitude());
+                    if (d <= radiusKm) {
+                        result.add(new Neighbor(driverId, p.latitude(), p.longitude(), d));
+                    }
+                }
+            }
+        }
+        result.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return result;
+    }
+
+    /**
+     * The {@code k} nearest drivers within {@code maxKm}, nearest first.
+     * Best-first search: cells and drivers share one queue ordered by
+     * distance, so a driver popped from the queue is confirmed nearer than
+     * anything still unexplored and the search stops after the k-th one.
+     */
+    public List<Neighbor> nearest(double lat, double lon, int k, double maxKm) {
+        List<Neighbor> result = new ArrayList<>(Math.max(k, 0));
+        if (k <= 0) return result;
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distanceKm));
+        Set<Long> visited = new HashSet<>();
+
+        long startRow = row(lat);
+        long startCol = column(lon);
+        visited.add(startRow * COLUMNS + startCol);
+        queue.add(new Candidate(startRow, startCol, null, 0.0));
+
+        while (!queue.isEmpty() && result.size() < k) {
+            Candidate next = queue.poll();
+
+            if (next.driver() != null) {
+                result.add(next.driver());
+                continue;
+            }
+
+            long cell = next.row() * COLUMNS + next.col();
+            Set<Long> members = cells.get(cell);
+            if (members != null) {
+                for (Long driverId : members) {
+                    DriverPosition p = positions.get(driverId);
+                    // Skip drivers that moved cells mid-search; they are picked up in their new cell
+                    if (p == null || p.cell() != cell) continue;
+
+                    double d = locationService.distanceKm(lat, lon, p.latitude(), p.longitude());
+                    if (d <= maxKm) {
+                        queue.add(new Candidate(next.row(), next.col(),
+                                new Neighbor(driverId, p.latitude(), p.longitude(), d), d));
+                    }
+                }
+            }
+
+            for (long r = next.row() - 1; r <= next.row() + 1; r++) {
+                for (long c = next.col() - 1; c <= next.col() + 1; c++) {
+                    if (r < 0 || r >= ROWS || c < 0 || c >= COLUMNS) continue;
+                    if (!visited.add(r * COLUMNS + c)) continue;
+
+                    double bound = cellLowerBoundKm(lat, lon, r, c);
+                    if (bound <= maxKm) {
+                        queue.add(new Candidate(r, c, null, bound));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Queue entry: either an unexplored cell or a driver with its exact distance. */
+    private record Candidate(long row, long col, Neighbor driver, double distanceKm) {
+    }
+
+    /**
+     * Planar lower bound on the distance from the point to any position in
+     * the cell. Longitude is scaled at the cell edge nearest the pole and the
+     * result is shaved by 1%, so it never exceeds the haversine distance.
+     */
+    private static double cellLowerBoundKm(double lat, double lon, long r, long c) {
+        double latMin = r * CELL_SIZE_DEG - 90.0;
+        double latMax = latMin + CELL_SIZE_DEG;
+        double lonMin = c * CELL_SIZE_DEG - 180.0;
+        double lonMax = lonMin + CELL_SIZE_DEG;
+
+        double dLat = Math.max(0.0, Math.max(latMin - lat, lat - latMax));
+        double dLon = Math.max(0.0, Math.max(lonMin - lon, lon - lonMax));
+
+        double polarLat = Math.max(Math.abs(lat), Math.max(Math.abs(latMin), Math.abs(latMax)));
+        double kmLat = dLat * KM_PER_DEGREE_LAT;
+        double kmLon = dLon * KM_PER_DEGREE_LAT * Math.cos(Math.toRadians(Math.min(polarLat, 90.0)));
+
+        return Math.sqrt(kmLat * kmLat + kmLon * kmLon) * 0.99;
+    }
+
+    // -------------------------------------------------------------
+    // CELL HELPERS
+    // -------------------------------------------------------------
+    static long cellOf(double lat, double lon) {
+        return row(lat) * COLUMNS + column(lon);
+    }
+
+    private static long row(double lat) {
+        double clamped = Math.max(-90.0, Math.min(90.0, lat));
+        return Math.min((long) Math.floor((clamped + 90.0) / CELL_SIZE_DEG), ROWS - 1);
+    }
+
+    private static long column(double lon) {
+        double clamped = Math.max(-180.0, Math.min(180.0, lon));
+        return Math.min((long) Math.floor((clamped + 180.0) / CELL_SIZE_DEG), COLUMNS - 1);
+    }
+}
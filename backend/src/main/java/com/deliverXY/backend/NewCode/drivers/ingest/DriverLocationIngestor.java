@@ -0,0 +1,198 @@
+package com.deliverXY.backend.NewCode.drivers.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for driver GPS pings. Only the latest ping per driver
+ * is kept; the buffer is drained on a fixed cadence into driver_locations
+ * with a single JDBC batch upsert, instead of one transaction per ping.
+ * A row the database rejects is split out of the batch and retried on its
+ * own a few times before it is dropped, so it cannot hold back the rest.
+ */
+@Component
+@Slf4j
+public class DriverLocationIngestor {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO driver_locations (driver_id, latitude, longitude, updated_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (driver_id) DO UPDATE
+            SET latitude = EXCLUDED.latitude,
+                longitude = EXCLUDED.longitude,
+                updated_at = EXCLUDED.updated_at
+            WHERE driver_locations.updated_at IS NULL
+               OR driver_locations.updated_at <= EXCLUDED.updated_at
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    private final ConcurrentHashMap<Long, Ping> pending = new ConcurrentHashMap<>();
+    /** Consecutive rejected writes per driver; cleared by a successful write. */
+    private final ConcurrentHashMap<Long, Integer> failures = new ConcurrentHashMap<>();
+
+    private final Timer flushLatency;
+    private final DistributionSummary batchSize;
+    private final Counter supersededPings;
+    private final Counter outOfOrderPings;
+    private final Counter rejectedPings;
+    private final Counter failedPings;
+
+    private final int capacity;
+    private final int maxAttempts;
+
+    public record Ping(Long driverId, double latitude, double longitude, long receivedAtMillis) {
+    }
+
+    public DriverLocationIngestor(JdbcTemplate jdbc,
+                                  PlatformTransactionManager txManager,
+                                  MeterRegistry meters,
+                                  @Value("${drivers.location.buffer-capacity:50000}") int capacity,
+                                  @Value("${drivers.location.max-attempts:3}") int maxAttempts) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+
+        this.flushLatency = Timer.builder("drivers.location.flush.latency")
+                .description("Time to write one batch of driver locations")
+                .register(meters);
+        this.batchSize = DistributionSummary.builder("drivers.location.flush.batch.size")
+                .description("Driver locations written per flush")
+                .register(meters);
+        this.supersededPings = droppedCounter(meters, "superseded");
+        this.outOfOrderPings = droppedCounter(meters, "out_of_order");
+        this.rejectedPings = droppedCounter(meters, "buffer_full");
+        this.failedPings = droppedCounter(meters, "write_failed");
+
+        meters.gauge("drivers.location.buffer.size", pending, ConcurrentHashMap::size);
+    }
+
+    private static Counter droppedCounter(MeterRegistry meters, String reason) {
+        return Counter.builder("drivers.location.pings.dropped")
+                .description("Pings dropped before reaching the database")
+                .tag("reason", reason)
+                .register(meters);
+    }
+
+    /**
+     * Buffers a ping. A newer buffered ping for the same driver wins; an
+     * older one is replaced. Returns false if the ping was not buffered.
+     */
+    public boolean accept(Ping ping) {
+        if (pending.size() >= capacity && !pending.containsKey(ping.driverId())) {
+            rejectedPings.increment();
+            return false;
+        }
+
+        boolean[] accepted = {true};
+        pending.merge(ping.driverId(), ping, (current, incoming) -> {
+            if (incoming.receivedAtMillis() < current.receivedAtMillis()) {
+                outOfOrderPings.increment();
+                accepted[0] = false;
+                return current;
+            }
+            supersededPings.increment();
+            return incoming;
+        });
+        return accepted[0];
+    }
+
+    @Scheduled(fixedDelayString = "${drivers.location.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        List<Ping> batch = drain();
+        if (batch.isEmpty()) return;
+
+        Integer written = flushLatency.record(() -> writeOrSplit(batch));
+        batchSize.record(written != null ? written : 0);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private List<Ping> drain() {
+        List<Ping> batch = new ArrayList<>(pending.size());
+        for (Long driverId : pending.keySet()) {
+            Ping ping = pending.remove(driverId);
+            if (ping != null) batch.add(ping);
+        }
+        return batch;
+    }
+
+    /**
+     * Writes the batch in one transaction and returns the rows written.
+     * When the database rejects a row, the batch is halved and each half
+     * retried, which isolates the bad row in a logarithmic number of
+     * round trips. Other failures (connection, timeout) re-queue the batch
+     * as is; the pings are still the latest and will be retried next flush.
+     */
+    private int writeOrSplit(List<Ping> batch) {
+        try {
+            tx.executeWithoutResult(status -> write(batch));
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                rejected(batch.get(0), e);
+                return 0;
+            }
+            int mid = batch.size() / 2;
+            return writeOrSplit(batch.subList(0, mid)) + writeOrSplit(batch.subList(mid, batch.size()));
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} driver locations, re-queueing", batch.size(), e);
+            batch.forEach(this::requeue);
+            return 0;
+        }
+
+        if (!failures.isEmpty()) {
+            batch.forEach(ping -> failures.remove(ping.driverId()));
+        }
+        return batch.size();
+    }
+
+    private void rejected(Ping ping, DataIntegrityViolationException e) {
+        int attempts = failures.merge(ping.driverId(), 1, Integer::sum);
+        if (attempts < maxAttempts) {
+            requeue(ping);
+            return;
+        }
+        failures.remove(ping.driverId());
+        failedPings.increment();
+        log.warn("Dropping location of driver {} after {} rejected writes: {}",
+                ping.driverId(), attempts, e.getMostSpecificCause().getMessage());
+    }
+
+    private void write(List<Ping> batch) {
+        jdbc.batchUpdate(UPSERT_SQL, batch, batch.size(), (ps, ping) -> {
+            ps.setLong(1, ping.driverId());
+            ps.setDouble(2, ping.latitude());
+            ps.setDouble(3, ping.longitude());
+            ps.setTimestamp(4, new Timestamp(ping.receivedAtMillis()));
+        });
+    }
+
+    private void requeue(Ping ping) {
+        // A ping that arrived while we were writing is newer; keep it
+        pending.merge(ping.driverId(), ping,
+                (current, failed) -> current.receivedAtMillis() >= failed.receivedAtMillis() ? current : failed);
+    }
+}
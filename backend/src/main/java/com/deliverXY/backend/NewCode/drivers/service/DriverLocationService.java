@@ -3,5 +3,12 @@ package com.deliverXY.backend.NewCode.drivers.service;
 import com.deliverXY.backend.NewCode.drivers.domain.DriverLocation;
 
 public interface DriverLocationService {
+
+    /**
+     * Records a GPS ping. The returned location echoes the accepted
+     * position and is not a persisted row: it reaches driver_locations on
+     * the next ingestor flush, unless a newer ping for the same driver
+     * replaces it in the buffer first.
+     */
     DriverLocation updateLocation(Long driverId, Double lat, Double lon);
 }
\ No newline at end of file
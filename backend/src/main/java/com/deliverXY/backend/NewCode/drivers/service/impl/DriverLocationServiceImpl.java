@@ -1,38 +1,49 @@
 package com.deliverXY.backend.NewCode.drivers.service.impl;
 
+import com.deliverXY.backend.NewCode.deliveries.surge.SurgeEngine;
 import com.deliverXY.backend.NewCode.drivers.domain.DriverLocation;
-import com.deliverXY.backend.NewCode.drivers.repository.DriverLocationRepository;
+import com.deliverXY.backend.NewCode.drivers.index.DriverLocationIndex;
+import com.deliverXY.backend.NewCode.drivers.ingest.DriverLocationIngestor;
 import com.deliverXY.backend.NewCode.drivers.service.DriverLocationService;
-import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
-import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Service
 @RequiredArgsConstructor
 public class DriverLocationServiceImpl implements DriverLocationService {
 
-    private final DriverLocationRepository locationRepo;
-    private final AppUserRepository appUserRepo; // To load the driver user
+    private final DriverLocationIndex locationIndex;
+    private final DriverLocationIngestor ingestor;
+    private final SurgeEngine surgeEngine;
 
+    /**
+     * The driver id comes from the authenticated principal, so the user is
+     * known to exist. The ping is visible to matching straight away through
+     * the index and reaches driver_locations on the next ingestor flush.
+     */
     @Override
-    @Transactional
     public DriverLocation updateLocation(Long driverId, Double lat, Double lon) {
-        // 1. Load the driver user to ensure they exist
-        var driver = appUserRepo.findById(driverId)
-                .orElseThrow(() -> new NotFoundException("Driver not found")); // Use proper exception
+        long now = System.currentTimeMillis();
+        LocalDateTime updatedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault());
+
+        // 1. Matching reads the index, so update it first
+        locationIndex.upsert(driverId, lat, lon, updatedAt);
 
-        // 2. Load existing location or create a new one
-        DriverLocation location = locationRepo.findById(driverId)
-                .orElse(new DriverLocation());
+        // 2. Hand the ping to the write-behind buffer
+        ingestor.accept(new DriverLocationIngestor.Ping(driverId, lat, lon, now));
 
-        // 3. Set properties
-        location.setDriver(driver);
+        // 3. Idle drivers count as supply for surge
+        surgeEngine.recordDriverPing(driverId, lat, lon);
+
+        DriverLocation location = new DriverLocation();
+        location.setDriverId(driverId);
         location.setLatitude(lat);
         location.setLongitude(lon);
-
-        // 4. Save (PrePersist/PreUpdate hooks will handle the timestamp)
-        return locationRepo.save(location);
+        location.setUpdatedAt(updatedAt);
+        return location;
     }
 }
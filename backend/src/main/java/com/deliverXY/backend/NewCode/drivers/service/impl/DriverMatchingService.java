@@ -4,60 +4,85 @@ import com.deliverXY.backend.NewCode.common.constants.DriverConstants;
 import com.deliverXY.backend.NewCode.deliveries.domain.Delivery;
 import com.deliverXY.backend.NewCode.deliveries.service.impl.LocationService;
 import com.deliverXY.backend.NewCode.drivers.domain.DriverLocation;
+import com.deliverXY.backend.NewCode.drivers.index.DriverLocationIndex;
 import com.deliverXY.backend.NewCode.drivers.repository.DriverLocationRepository;
 import com.deliverXY.backend.NewCode.user.domain.AppUser;
 import com.deliverXY.backend.NewCode.notifications.service.NotificationService;
-import lombok.RequiredArgsConstructor;
+import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+
 @Service
-@RequiredArgsConstructor
 public class DriverMatchingService {
 
     private final DriverLocationRepository locationRepo;
+    private final DriverLocationIndex locationIndex;
+    private final AppUserRepository appUserRepo;
     private final LocationService locationService;
     private final NotificationService notificationService;
+    private final int broadcastMaxDrivers;
 
-    public Optional<AppUser> findNearestDriver(double lat, double lon) {
-
-        double radius = DriverConstants.INITIAL_SEARCH_RADIUS_KM; // km initial
-        double maxRadius = DriverConstants.MAX_SEARCH_RADIUS_KM;
-
-        while (radius <= maxRadius) {
-
-            var drivers = locationRepo.findNearbyDrivers(lat, lon, radius);
-
-            if (!drivers.isEmpty()) {
-                return Optional.of(drivers.get(0).getDriver());
-            }
+    public DriverMatchingService(DriverLocationRepository locationRepo,
+                                 DriverLocationIndex locationIndex,
+                                 AppUserRepository appUserRepo,
+                                 LocationService locationService,
+                                 NotificationService notificationService,
+                                 @Value("${drivers.broadcast.max-drivers:0}") int broadcastMaxDrivers) {
+        this.locationRepo = locationRepo;
+        this.locationIndex = locationIndex;
+        this.appUserRepo = appUserRepo;
+        this.locationService = locationService;
+        this.notificationService = notificationService;
+        this.broadcastMaxDrivers = broadcastMaxDrivers;
+    }
 
-            radius += DriverConstants.SEARCH_RADIUS_INCREMENT_KM;
-        }
+    public Optional<AppUser> findNearestDriver(double lat, double lon) {
+        return findNearestDrivers(lat, lon, 1, DriverConstants.MAX_SEARCH_RADIUS_KM).stream()
+                .findFirst()
+                .flatMap(n -> appUserRepo.findById(n.driverId()));
+    }
 
-        return Optional.empty();
+    /**
+     * Up to {@code k} drivers within {@code maxKm}, ordered by distance,
+     * found in a single best-first pass over the location index.
+     */
+    public List<DriverLocationIndex.Neighbor> findNearestDrivers(double lat, double lon, int k, double maxKm) {
+        return locationIndex.nearest(lat, lon, k, maxKm);
     }
 
+    /**
+     * Notifies every driver within the broadcast radius, or only the
+     * nearest {@code drivers.broadcast.max-drivers} when that is set.
+     */
     public void broadcastDeliveryRequest(Delivery d) {
 
-        var drivers = locationRepo.findNearbyDrivers(
-                d.getPickupLatitude(),
-                d.getPickupLongitude(),
-                DriverConstants.BROADCAST_RADIUS_KM
-        );
+        var candidates = broadcastMaxDrivers > 0
+                ? findNearestDrivers(d.getPickupLatitude(), d.getPickupLongitude(),
+                        broadcastMaxDrivers, DriverConstants.BROADCAST_RADIUS_KM)
+                : locationIndex.withinRadius(d.getPickupLatitude(), d.getPickupLongitude(),
+                        DriverConstants.BROADCAST_RADIUS_KM);
+
+        var driverIds = candidates.stream()
+                .map(DriverLocationIndex.Neighbor::driverId)
+                .toList();
 
-        for (var dl : drivers) {
-            notificationService.sendDeliveryRequest(dl.getDriver(), d);
+        for (var driver : appUserRepo.findAllById(driverIds)) {
+            notificationService.sendDeliveryRequest(driver, d);
         }
     }
 
     public int calculateDriverETA(Long driverId, double pickupLat, double pickupLon) {
-        return locationRepo.findById(driverId)
-                .map(loc -> {
+        return locationIndex.position(driverId)
+                .map(pos -> {
                     double dist = locationService.distanceKm(
-                            loc.getLatitude(),
-                            loc.getLongitude(),
+                            pos.latitude(),
+                            pos.longitude(),
                             pickupLat,
                             pickupLon
                     );
@@ -67,6 +92,18 @@ public class DriverMatchingService {
     }
 
     public List<DriverLocation> listDriversInRadius(Double latitude, Double longitude, Double radius) {
-            return locationRepo.findNearbyDrivers(latitude, longitude, radius);
+        var ids = locationIndex.withinRadius(latitude, longitude, radius).stream()
+                .map(DriverLocationIndex.Neighbor::driverId)
+                .toList();
+
+        // Index gives the ordering; the rows are fetched by primary key only
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+
+        return locationRepo.findAllById(ids).stream()
+                .sorted(Comparator.comparing(loc -> rank.get(loc.getDriverId())))
+                .toList();
     }
 }
@@ -4,8 +4,11 @@ import com.deliverXY.backend.NewCode.earnings.domain.DriverEarnings;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -16,4 +19,13 @@ public interface DriverEarningsRepository extends JpaRepository<DriverEarnings,
     List<DriverEarnings> findAllByCreatedAtBetween(LocalDateTime lastWeek, LocalDateTime now);
 
     Page<DriverEarnings> findByAgentId(Long driverId, Pageable pageable);
-}
\ No newline at end of file
+
+    @Query("SELECT e.agentId AS agentId, SUM(e.driverEarnings) AS total FROM DriverEarnings e " +
+            "WHERE e.agentId IS NOT NULL AND e.createdAt >= :from AND e.createdAt < :to GROUP BY e.agentId")
+    List<AgentTotal> sumByAgentBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    interface AgentTotal {
+        Long getAgentId();
+        BigDecimal getTotal();
+    }
+}
@@ -0,0 +1,39 @@
+package com.deliverXY.backend.NewCode.earnings.rollup;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Earnings totals of one closed day, maintained by {@link EarningsRollup}.
+ * Days are contiguous up to the newest row, including days without
+ * deliveries, so the newest day is also the rollup's watermark.
+ */
+@Entity
+@Table(name = "earnings_daily_rollup")
+@Data
+@NoArgsConstructor
+public class EarningsDailyRollup {
+
+    @Id
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long deliveries;
+
+    @Column(name = "driver_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal driverTotal = BigDecimal.ZERO;
+
+    @Column(name = "tip_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal tipTotal = BigDecimal.ZERO;
+
+    @Column(name = "platform_revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal platformRevenue = BigDecimal.ZERO;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private LocalDateTime refreshedAt;
+}
@@ -0,0 +1,182 @@
+package com.deliverXY.backend.NewCode.earnings.rollup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Platform-wide earnings totals without scanning history.
+ * Closed days are aggregated into earnings_daily_rollup by one
+ * set-based statement per refresh; the totals are the sum of those rows
+ * plus a live aggregate of the rows after the newest rolled-up day.
+ * Recent days are re-stated on every refresh because payments can be
+ * settled after their earnings row is written.
+ */
+@Service
+@Slf4j
+public class EarningsRollup {
+
+    /** Earnings rows joined to their payment, with the fee implied by the payment split. */
+    private static final String EARNINGS_ROWS = """
+            SELECT e.created_at, e.delivery_id, e.driver_earnings, e.tip, p.platform_fee, p.amount,
+                   p.amount - CASE WHEN COALESCE(p.driver_amount, 0) > 0 THEN p.driver_amount
+                                   ELSE COALESCE(e.driver_earnings, 0) END
+                            - COALESCE(p.tip, 0) AS derived_fee
+            FROM driver_earnings e
+            LEFT JOIN payments p ON p.delivery_id = e.delivery_id
+            WHERE e.created_at >= ? AND e.created_at < ?
+            """;
+
+    /**
+     * Platform revenue per row: the payment's platform fee, else what the
+     * payment leaves after the driver and the tip, else a quarter of the
+     * driver's earnings (the driver keeps 80%, the platform 20%). Rows
+     * without a delivery count toward drivers and tips but earn the
+     * platform nothing.
+     */
+    private static final String TOTALS = """
+            COUNT(*) AS deliveries,
+            COALESCE(SUM(r.driver_earnings), 0) AS driver_total,
+            COALESCE(SUM(r.tip), 0) AS tip_total,
+            COALESCE(SUM(CASE
+                WHEN r.delivery_id IS NULL THEN 0
+                WHEN COALESCE(r.platform_fee, 0) > 0 THEN r.platform_fee
+                WHEN COALESCE(r.amount, 0) > 0 AND r.derived_fee > 0 THEN r.derived_fee
+                WHEN COALESCE(r.driver_earnings, 0) > 0 THEN ROUND(r.driver_earnings * 0.25, 2)
+                ELSE 0
+            END), 0) AS platform_revenue
+            """;
+
+    private static final String REFRESH_SQL = """
+            INSERT INTO earnings_daily_rollup (day, deliveries, driver_total, tip_total, platform_revenue, refreshed_at)
+            SELECT d.day::date, COALESCE(a.deliveries, 0), COALESCE(a.driver_total, 0), COALESCE(a.tip_total, 0),
+                   COALESCE(a.platform_revenue, 0), ?
+            FROM generate_series(?::date, ?::date, interval '1 day') AS d(day)
+            LEFT JOIN (
+                SELECT r.created_at::date AS day,
+            """ + TOTALS + """
+                FROM (
+            """ + EARNINGS_ROWS + """
+                ) r
+                GROUP BY r.created_at::date
+            ) a ON a.day = d.day::date
+            ON CONFLICT (day) DO UPDATE SET
+                deliveries = EXCLUDED.deliveries,
+                driver_total = EXCLUDED.driver_total,
+                tip_total = EXCLUDED.tip_total,
+                platform_revenue = EXCLUDED.platform_revenue,
+                refreshed_at = EXCLUDED.refreshed_at
+            """;
+
+    private static final String LIVE_SQL = "SELECT " + TOTALS + " FROM (" + EARNINGS_ROWS + ") r";
+
+    private static final String ROLLED_SQL = """
+            SELECT COALESCE(SUM(deliveries), 0) AS deliveries,
+                   COALESCE(SUM(driver_total), 0) AS driver_total,
+                   COALESCE(SUM(tip_total), 0) AS tip_total,
+                   COALESCE(SUM(platform_revenue), 0) AS platform_revenue,
+                   MAX(day) AS watermark
+            FROM earnings_daily_rollup
+            """;
+
+    private static final String WATERMARK_SQL = "SELECT MAX(day) FROM earnings_daily_rollup";
+
+    private static final String FIRST_EARNING_SQL = "SELECT MIN(created_at) FROM driver_earnings";
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final RowMapper<Totals> TOTALS_MAPPER = (rs, i) -> new Totals(
+            rs.getLong("deliveries"),
+            rs.getBigDecimal("driver_total"),
+            rs.getBigDecimal("tip_total"),
+            rs.getBigDecimal("platform_revenue"));
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int restateDays;
+
+    public record Totals(long deliveries, BigDecimal driverTotal, BigDecimal tipTotal, BigDecimal platformRevenue) {
+
+        Totals plus(Totals other) {
+            return new Totals(deliveries + other.deliveries, driverTotal.add(other.driverTotal),
+                    tipTotal.add(other.tipTotal), platformRevenue.add(other.platformRevenue));
+        }
+    }
+
+    public EarningsRollup(JdbcTemplate jdbc,
+                          PlatformTransactionManager txManager,
+                          @Value("${earnings.rollup.restate-days:7}") int restateDays) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.restateDays = restateDays;
+    }
+
+    /** All-time totals: rolled-up days plus a live aggregate of the (at most few) days after them. */
+    public Totals totals() {
+        LocalDate[] watermark = new LocalDate[1];
+        Totals rolled = jdbc.queryForObject(ROLLED_SQL, (rs, i) -> {
+            Date day = rs.getDate("watermark");
+            watermark[0] = day != null ? day.toLocalDate() : null;
+            return TOTALS_MAPPER.mapRow(rs, i);
+        });
+
+        LocalDateTime liveFrom = watermark[0] != null ? watermark[0].plusDays(1).atStartOfDay() : BEGINNING;
+        Totals live = jdbc.queryForObject(LIVE_SQL, TOTALS_MAPPER,
+                Timestamp.valueOf(liveFrom), Timestamp.valueOf(LocalDate.now().plusDays(2).atStartOfDay()));
+        return rolled.plus(live);
+    }
+
+    // -------------------------------------------------------------
+    // REFRESH
+    // -------------------------------------------------------------
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshOnStartup() {
+        refresh();
+    }
+
+    /**
+     * Rolls up every closed day after the watermark and re-states the
+     * last {@code earnings.rollup.restate-days} before it. The first
+     * refresh backfills all history.
+     */
+    @Scheduled(cron = "${earnings.rollup.cron:0 10 0 * * *}")
+    public void refresh() {
+        try {
+            LocalDate through = LocalDate.now().minusDays(1);
+            LocalDate watermark = jdbc.queryForObject(WATERMARK_SQL, LocalDate.class);
+
+            LocalDate from;
+            if (watermark != null) {
+                from = watermark.plusDays(1).minusDays(restateDays);
+            } else {
+                Timestamp first = jdbc.queryForObject(FIRST_EARNING_SQL, Timestamp.class);
+                if (first == null) return;
+                from = first.toLocalDateTime().toLocalDate();
+            }
+            if (from.isAfter(through)) return;
+
+            long started = System.currentTimeMillis();
+            Integer days = tx.execute(status -> jdbc.update(REFRESH_SQL,
+                    Timestamp.valueOf(LocalDateTime.now()),
+                    Date.valueOf(from), Date.valueOf(through),
+                    Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(through.plusDays(1).atStartOfDay())));
+            log.info("Rolled up earnings for {} day(s) from {} to {} in {} ms",
+                    days, from, through, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.error("Failed to refresh the earnings rollup", e);
+        }
+    }
+}
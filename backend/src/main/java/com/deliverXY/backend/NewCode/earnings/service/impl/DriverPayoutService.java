@@ -1,52 +1,74 @@
 package com.deliverXY.backend.NewCode.earnings.service.impl;
 
-import com.deliverXY.backend.NewCode.earnings.domain.DriverEarnings;
-import com.deliverXY.backend.NewCode.earnings.domain.DriverPayout;
-import com.deliverXY.backend.NewCode.earnings.repository.DriverPayoutRepository;
+import com.deliverXY.backend.NewCode.common.enums.PayoutStatus;
 import com.deliverXY.backend.NewCode.earnings.repository.DriverEarningsRepository;
-import com.deliverXY.backend.NewCode.wallet.service.WalletService;
+import com.deliverXY.backend.NewCode.earnings.repository.DriverEarningsRepository.AgentTotal;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "earnings.weekly-payout.enabled", havingValue = "true")
 public class DriverPayoutService {
-    private final DriverPayoutRepository driverPayoutRepository;
+
+    // A driver that already has a row for the period is skipped, so a rerun adds nothing
+    private static final String INSERT_PAYOUT_SQL = """
+            INSERT INTO driver_payouts (driver_id, amount_paid, period_start, period_end, status, paid_at, transaction_ref)
+            SELECT ?, ?, ?, ?, ?, ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM driver_payouts WHERE driver_id = ? AND period_start = ?)
+            """;
+
     private final DriverEarningsRepository earningsRepository;
-    private final WalletService walletService;
+    private final JdbcTemplate jdbc;
 
+    /**
+     * Records last week's earnings (Monday to Monday) as one payout row
+     * per driver. Drivers are credited when each delivery settles
+     * (WalletService.settleDelivery), so the weekly run moves no money;
+     * it only states what the wallet already received.
+     */
     @Scheduled( cron = "0 0 3 * * MON")
+    @Transactional
     public void generateWeeklyPayout(){
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime lastWeek = now.minusDays(7);
-
-        var toPay = earningsRepository.findAllByCreatedAtBetween(lastWeek,now);
-
-        Map<Long, BigDecimal> grouped = new HashMap<>();
-
-        for(DriverEarnings e : toPay){
-            grouped.merge(e.getAgentId(), e.getDriverEarnings(), BigDecimal::add);
-        }
+        LocalDateTime periodEnd = LocalDate.now()
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                .atStartOfDay();
+        LocalDateTime periodStart = periodEnd.minusWeeks(1);
 
-        for (var entry : grouped.entrySet()){
-            Long agentId = entry.getKey();
-            BigDecimal amount = entry.getValue();
+        List<AgentTotal> totals = earningsRepository.sumByAgentBetween(periodStart, periodEnd).stream()
+                .filter(t -> t.getTotal() != null && t.getTotal().signum() > 0)
+                .toList();
+        if (totals.isEmpty()) return;
 
-            walletService.deposit(agentId, amount, "Weekly payout");
+        Timestamp start = Timestamp.valueOf(periodStart);
+        Timestamp end = Timestamp.valueOf(periodEnd);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String reference = "WEEKLY_PAYOUT_" + periodStart.toLocalDate();
 
-            driverPayoutRepository.save(DriverPayout.builder()
-                    .driverId(agentId)
-                    .amountPaid(amount)
-                    .periodStart(lastWeek)
-                    .periodEnd(now)
-                    .build()
-            );
-        }
+        jdbc.batchUpdate(INSERT_PAYOUT_SQL, totals, totals.size(), (ps, total) -> {
+            ps.setLong(1, total.getAgentId());
+            ps.setBigDecimal(2, total.getTotal());
+            ps.setTimestamp(3, start);
+            ps.setTimestamp(4, end);
+            ps.setString(5, PayoutStatus.PAID.name());
+            ps.setTimestamp(6, now);
+            ps.setString(7, reference);
+            ps.setLong(8, total.getAgentId());
+            ps.setTimestamp(9, start);
+        });
+        log.info("Weekly payout {}: recorded {} drivers", reference, totals.size());
     }
 }
@@ -1,5 +1,6 @@
 package com.deliverXY.backend.NewCode.kyc.service.impl;
 
+import com.deliverXY.backend.NewCode.admin.dashboard.DashboardCounters;
 import com.deliverXY.backend.NewCode.common.enums.KYCStatus;
 import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
 import com.deliverXY.backend.NewCode.kyc.dto.KYCUpdateDTO;
@@ -20,11 +21,14 @@ import java.util.Optional;
 public class AppUserKYCServiceImpl implements AppUserKYCService {
     private final AppUserKYCRepository repo;
     private final AppUserService userService;
+    private final DashboardCounters dashboardCounters;
     @Override
     public AppUserKYC submitKYC(Long userId, KYCUpdateDTO kyc) {
         AppUser user = userService.requireById(userId);
 
-        AppUserKYC existing = findKYC(userId).orElse(new AppUserKYC());
+        Optional<AppUserKYC> found = findKYC(userId);
+        KYCStatus before = found.map(AppUserKYC::getKycStatus).orElse(null);
+        AppUserKYC existing = found.orElse(new AppUserKYC());
         existing.setUser(user);
 
         if (existing.getKycStatus() == KYCStatus.APPROVED) {
@@ -39,7 +43,9 @@ public class AppUserKYCServiceImpl implements AppUserKYCService {
         existing.setKycStatus(KYCStatus.PENDING);
         existing.setSubmittedAt(LocalDateTime.now());
 
-        return repo.save(existing);
+        AppUserKYC saved = repo.save(existing);
+        dashboardCounters.onKycStatusChange(before, KYCStatus.PENDING);
+        return saved;
     }
 
     @Override
@@ -47,6 +53,7 @@ public class AppUserKYCServiceImpl implements AppUserKYCService {
         AppUserKYC kyc = findKYC(userId)
                 .orElseThrow(() -> new NotFoundException("KYC record not found for approval"));
 
+        KYCStatus before = kyc.getKycStatus();
         AppUser user = kyc.getUser();
         if (user != null) {
             user.setIsVerified(true);
@@ -57,7 +64,9 @@ public class AppUserKYCServiceImpl implements AppUserKYCService {
         kyc.setRejectionReason(null);
         kyc.setReviewedBy(reviewer);
 
-        return repo.save(kyc);
+        AppUserKYC saved = repo.save(kyc);
+        dashboardCounters.onKycStatusChange(before, KYCStatus.APPROVED);
+        return saved;
     }
 
     @Override
@@ -65,11 +74,14 @@ public class AppUserKYCServiceImpl implements AppUserKYCService {
         AppUserKYC kyc = findKYC(userId)
                 .orElseThrow(() -> new NotFoundException("KYC record not found for rejection"));
 
+        KYCStatus before = kyc.getKycStatus();
         kyc.setKycStatus(KYCStatus.REJECTED);
         kyc.setRejectionReason(reason);
         kyc.setReviewedBy(reviewer);
 
-        return repo.save(kyc);
+        AppUserKYC saved = repo.save(kyc);
+        dashboardCounters.onKycStatusChange(before, KYCStatus.REJECTED);
+        return saved;
     }
 
     @Override
@@ -1,8 +1,10 @@
 package com.deliverXY.backend.NewCode.payments.controller;
 
+import com.deliverXY.backend.NewCode.common.idempotency.IdempotencyService;
 import com.deliverXY.backend.NewCode.common.response.ApiResponse;
 import com.deliverXY.backend.NewCode.payments.dto.PaymentInitRequest;
 import com.deliverXY.backend.NewCode.payments.dto.PaymentResultDTO;
+import com.deliverXY.backend.NewCode.payments.inbox.InboundEventQueue;
 import com.deliverXY.backend.NewCode.payments.service.PaymentService;
 import com.deliverXY.backend.NewCode.security.UserPrincipal;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +12,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -17,6 +20,8 @@ import java.math.BigDecimal;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final IdempotencyService idempotency;
+    private final InboundEventQueue inbox;
 
     @PostMapping("/init")
     public ApiResponse<PaymentResultDTO> initPayment(
@@ -33,23 +38,48 @@ public class PaymentController {
         return ApiResponse.ok(result);
     }
 
+    /**
+     * Queues the confirmation and answers with the payment as it stands;
+     * the new status is applied by the inbound event worker. Repeated
+     * calls while one is queued collapse into it.
+     */
     @PostMapping("/confirm/{reference}")
     public ApiResponse<PaymentResultDTO> confirmPayment(@PathVariable String reference) {
-        return ApiResponse.ok(paymentService.confirmPayment(reference));
+        PaymentResultDTO current = paymentService.getPaymentByReference(reference);
+        boolean queued = inbox.enqueuePaymentConfirmation(reference);
+        current.setMessage(queued ? "Confirmation queued" : "Confirmation already queued");
+        return ApiResponse.ok(current);
     }
 
     @PostMapping("/refund/{paymentId}")
     public ApiResponse<String> refund(
             @PathVariable Long paymentId,
             @RequestParam BigDecimal amount,
-            @RequestParam String reason
+            @RequestParam String reason,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        return idempotency.execute("payment.refund", userId(principal), idempotencyKey,
+                List.of(paymentId, amount, reason), String.class, () -> {
+                    paymentService.refund(paymentId, amount, reason);
+                    return ApiResponse.ok("Refund completed");
+                });
+    }
+
+    @GetMapping("/{paymentId}")
+    public ApiResponse<PaymentResultDTO> getPayment(
+            @PathVariable Long paymentId,
+            @AuthenticationPrincipal UserPrincipal principal
     ) {
-        paymentService.refund(paymentId, amount, reason);
-        return ApiResponse.ok("Refund completed");
+        return ApiResponse.ok(paymentService.getPayment(paymentId, principal.getUser().getId()));
     }
 
     @GetMapping("/my")
     public ApiResponse<?> getMyPayments(@AuthenticationPrincipal UserPrincipal principal) {
         return ApiResponse.ok(paymentService.getPaymentsByUser(principal.getUser().getId()));
     }
+
+    private static Long userId(UserPrincipal principal) {
+        return principal != null ? principal.getUser().getId() : null;
+    }
 }
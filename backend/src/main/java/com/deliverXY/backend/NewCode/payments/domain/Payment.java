@@ -14,7 +14,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(
+        name = "payments",
+        indexes = @Index(name = "idx_payment_delivery", columnList = "delivery_id")
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
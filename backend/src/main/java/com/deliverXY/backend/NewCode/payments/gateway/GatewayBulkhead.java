@@ -0,0 +1,134 @@
+package com.deliverXY.backend.NewCode.payments.gateway;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.exceptions.PaymentException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs external payment gateway calls off the request thread, one
+ * bulkhead per provider: a small pool (max-concurrent), a bounded queue
+ * (queue-capacity) and a timeout (timeout-ms). A full bulkhead rejects
+ * immediately, so a slow provider backs up its own lane and nothing
+ * else. Limits come from payments.gateway.{provider}.*, falling back to
+ * payments.gateway.*.
+ */
+@Component
+@Slf4j
+public class GatewayBulkhead {
+
+    private final Environment env;
+    private final MeterRegistry meters;
+    private final ConcurrentHashMap<PaymentProvider, Lane> lanes = new ConcurrentHashMap<>();
+
+    private record Lane(ThreadPoolExecutor pool, long timeoutMs) {
+    }
+
+    public GatewayBulkhead(Environment env, MeterRegistry meters) {
+        this.env = env;
+        this.meters = meters;
+    }
+
+    /**
+     * Starts {@code call} in the provider's lane. The future fails with a
+     * PaymentException when the lane is full and with a TimeoutException
+     * when the call overruns.
+     */
+    public <T> CompletableFuture<T> submit(PaymentProvider provider, Supplier<T> call) {
+        Lane lane = lanes.computeIfAbsent(provider, this::open);
+        Timer.Sample sample = Timer.start(meters);
+
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(call, lane.pool())
+                    .orTimeout(lane.timeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            meters.counter("payments.gateway.rejected", "provider", tag(provider)).increment();
+            return CompletableFuture.failedFuture(
+                    new PaymentException(provider + " is busy, please try again shortly"));
+        }
+
+        return future.whenComplete((result, error) -> sample.stop(meters.timer("payments.gateway.call",
+                "provider", tag(provider),
+                "outcome", error == null ? "ok" : unwrap(error) instanceof TimeoutException ? "timeout" : "error")));
+    }
+
+    /** Same as {@link #submit}, waiting for the result; a timeout surfaces as a PaymentException. */
+    public <T> T call(PaymentProvider provider, Supplier<T> call) {
+        try {
+            return submit(provider, call).join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof TimeoutException) {
+                throw new PaymentException(provider + " did not respond in time");
+            }
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
+    private Lane open(PaymentProvider provider) {
+        int maxConcurrent = limit(provider, "max-concurrent", 8);
+        int queueCapacity = limit(provider, "queue-capacity", 64);
+        long timeoutMs = limit(provider, "timeout-ms", 10_000);
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), threads(provider),
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("payments.gateway.active", pool, ThreadPoolExecutor::getActiveCount)
+                .tag("provider", tag(provider)).register(meters);
+        Gauge.builder("payments.gateway.queued", pool, p -> p.getQueue().size())
+                .tag("provider", tag(provider)).register(meters);
+
+        log.info("Opened gateway bulkhead for {}: {} concurrent, {} queued, {} ms timeout",
+                provider, maxConcurrent, queueCapacity, timeoutMs);
+        return new Lane(pool, timeoutMs);
+    }
+
+    private int limit(PaymentProvider provider, String name, int fallback) {
+        Integer shared = env.getProperty("payments.gateway." + name, Integer.class, fallback);
+        return env.getProperty("payments.gateway." + tag(provider) + "." + name, Integer.class, shared);
+    }
+
+    private static ThreadFactory threads(PaymentProvider provider) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "gateway-" + tag(provider) + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static String tag(PaymentProvider provider) {
+        return provider.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(lane -> lane.pool().shutdown());
+    }
+}
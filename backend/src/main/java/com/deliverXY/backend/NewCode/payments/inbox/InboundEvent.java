@@ -0,0 +1,76 @@
+package com.deliverXY.backend.NewCode.payments.inbox;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A provider callback waiting to be applied. Accepted by
+ * {@link InboundEventQueue} and processed by {@link InboundEventWorker};
+ * rows are kept for a while after processing and then purged.
+ */
+@Entity
+@Table(
+        name = "inbound_events",
+        indexes = {
+                @Index(name = "idx_inbound_events_due", columnList = "status, next_attempt_at"),
+                @Index(name = "idx_inbound_events_order", columnList = "order_key, id")
+        }
+)
+@Data
+@NoArgsConstructor
+public class InboundEvent {
+
+    public enum Kind { PAYMENT_CONFIRMATION, TOPUP_CALLBACK }
+
+    public enum Status { PENDING, PROCESSING, DONE, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Kind kind;
+
+    // Events with the same order key are applied one at a time, oldest first
+    @Column(name = "order_key", nullable = false, length = 200)
+    private String orderKey;
+
+    // Set while the event is unprocessed, so a burst of identical callbacks collapses into one row
+    @Column(name = "dedupe_key", unique = true, length = 200)
+    private String dedupeKey;
+
+    // Payment reference or top-up id
+    @Column(nullable = false, length = 200)
+    private String subject;
+
+    private Boolean success;
+
+    @Column(length = 200)
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
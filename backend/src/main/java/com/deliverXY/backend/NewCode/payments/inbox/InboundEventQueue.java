@@ -0,0 +1,189 @@
+package com.deliverXY.backend.NewCode.payments.inbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Durable queue of provider callbacks (table inbound_events).
+ * Callbacks are accepted with one insert, collapsing duplicates of an
+ * unprocessed event by their dedupe key, and applied later by
+ * {@link InboundEventWorker}. Only the oldest open event of an order key
+ * can be claimed, so callbacks for one payment or top-up are applied in
+ * the order they arrived. Failed attempts are retried with exponential
+ * backoff until {@code payments.inbox.max-attempts}.
+ */
+@Service
+@Slf4j
+public class InboundEventQueue {
+
+    private static final String ENQUEUE_SQL = """
+            INSERT INTO inbound_events (kind, order_key, dedupe_key, subject, success, reference,
+                                        status, attempts, next_attempt_at, received_at)
+            VALUES (?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)
+            ON CONFLICT (dedupe_key) DO NOTHING
+            """;
+
+    /** Due events whose order key has nothing older still open; expired leases are taken back. */
+    private static final String CLAIM_SQL = """
+            UPDATE inbound_events SET status = 'PROCESSING', locked_until = ?, attempts = attempts + 1
+            WHERE id IN (
+                SELECT e.id FROM inbound_events e
+                WHERE ((e.status = 'PENDING' AND e.next_attempt_at <= ?)
+                       OR (e.status = 'PROCESSING' AND e.locked_until < ?))
+                  AND NOT EXISTS (SELECT 1 FROM inbound_events p
+                                  WHERE p.order_key = e.order_key AND p.id < e.id
+                                    AND p.status IN ('PENDING', 'PROCESSING'))
+                ORDER BY e.id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, kind, subject, success, reference, attempts
+            """;
+
+    private static final String DONE_SQL = """
+            UPDATE inbound_events SET status = 'DONE', dedupe_key = NULL, locked_until = NULL,
+                                      last_error = NULL, processed_at = ?
+            WHERE id = ?
+            """;
+
+    private static final String RETRY_SQL = """
+            UPDATE inbound_events SET status = 'PENDING', locked_until = NULL, next_attempt_at = ?, last_error = ?
+            WHERE id = ?
+            """;
+
+    private static final String FAIL_SQL = """
+            UPDATE inbound_events SET status = 'FAILED', dedupe_key = NULL, locked_until = NULL,
+                                      last_error = ?, processed_at = ?
+            WHERE id = ?
+            """;
+
+    private static final String PURGE_SQL = "DELETE FROM inbound_events WHERE status = 'DONE' AND processed_at < ?";
+
+    private final JdbcTemplate jdbc;
+    private final MeterRegistry meters;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final int retentionDays;
+
+    /** A claimed event; {@code attempts} includes the current one. */
+    public record Claimed(Long id, InboundEvent.Kind kind, String subject, Boolean success,
+                          String reference, int attempts) {
+    }
+
+    public InboundEventQueue(JdbcTemplate jdbc,
+                             MeterRegistry meters,
+                             @Value("${payments.inbox.lease-seconds:120}") long leaseSeconds,
+                             @Value("${payments.inbox.max-attempts:8}") int maxAttempts,
+                             @Value("${payments.inbox.backoff-ms:1000}") long backoffMs,
+                             @Value("${payments.inbox.max-backoff-ms:600000}") long maxBackoffMs,
+                             @Value("${payments.inbox.retention-days:7}") int retentionDays) {
+        this.jdbc = jdbc;
+        this.meters = meters;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.retentionDays = retentionDays;
+    }
+
+    // -------------------------------------------------------------
+    // ACCEPT
+    // -------------------------------------------------------------
+
+    /** Queues a payment confirmation; false when one for this reference is already waiting. */
+    public boolean enqueuePaymentConfirmation(String reference) {
+        String key = "payment:" + reference;
+        return enqueue(InboundEvent.Kind.PAYMENT_CONFIRMATION, key, key, reference, null, null);
+    }
+
+    /**
+     * Queues a top-up callback; false when one with the same outcome is
+     * already waiting. A failure and a later success for the same top-up
+     * are both kept and applied in the order they arrived.
+     */
+    public boolean enqueueTopUpCallback(Long topUpId, boolean success, String referenceId) {
+        String orderKey = "topup:" + topUpId;
+        return enqueue(InboundEvent.Kind.TOPUP_CALLBACK, orderKey, orderKey + ":" + success,
+                String.valueOf(topUpId), success, referenceId);
+    }
+
+    private boolean enqueue(InboundEvent.Kind kind, String orderKey, String dedupeKey, String subject,
+                            Boolean success, String reference) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        boolean accepted = jdbc.update(ENQUEUE_SQL, kind.name(), orderKey, dedupeKey, subject, success, reference,
+                now, now) == 1;
+        meters.counter("payments.inbox.received", "kind", kind.name(),
+                "outcome", accepted ? "queued" : "duplicate").increment();
+        return accepted;
+    }
+
+    // -------------------------------------------------------------
+    // PROCESS
+    // -------------------------------------------------------------
+
+    public List<Claimed> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp at = Timestamp.valueOf(now);
+        return jdbc.query(CLAIM_SQL, (rs, i) -> new Claimed(
+                        rs.getLong("id"),
+                        InboundEvent.Kind.valueOf(rs.getString("kind")),
+                        rs.getString("subject"),
+                        (Boolean) rs.getObject("success"),
+                        rs.getString("reference"),
+                        rs.getInt("attempts")),
+                Timestamp.valueOf(now.plus(lease)), at, at, limit);
+    }
+
+    public void markDone(Claimed event) {
+        jdbc.update(DONE_SQL, Timestamp.valueOf(LocalDateTime.now()), event.id());
+        meters.counter("payments.inbox.processed", "kind", event.kind().name(), "outcome", "done").increment();
+    }
+
+    /**
+     * Schedules another attempt after an exponential backoff with jitter,
+     * or parks the event as FAILED when it is permanent or out of attempts.
+     */
+    public void markFailed(Claimed event, Exception error, boolean permanent) {
+        String message = truncate(error.getClass().getSimpleName() + ": " + error.getMessage());
+        LocalDateTime now = LocalDateTime.now();
+
+        if (permanent || event.attempts() >= maxAttempts) {
+            log.error("Giving up on {} event {} for {} after {} attempt(s): {}",
+                    event.kind(), event.id(), event.subject(), event.attempts(), message);
+            jdbc.update(FAIL_SQL, message, Timestamp.valueOf(now), event.id());
+            meters.counter("payments.inbox.processed", "kind", event.kind().name(), "outcome", "failed").increment();
+            return;
+        }
+
+        long delay = Math.min(maxBackoffMs, backoffMs << Math.min(event.attempts() - 1, 20));
+        delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+        log.warn("{} event {} for {} failed (attempt {}), retrying in {} ms: {}",
+                event.kind(), event.id(), event.subject(), event.attempts(), delay, message);
+        jdbc.update(RETRY_SQL, Timestamp.valueOf(now.plusNanos(delay * 1_000_000)), message, event.id());
+        meters.counter("payments.inbox.processed", "kind", event.kind().name(), "outcome", "retry").increment();
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    // -------------------------------------------------------------
+    // HOUSEKEEPING
+    // -------------------------------------------------------------
+    @Scheduled(cron = "${payments.inbox.purge-cron:0 0 5 * * *}")
+    public void purge() {
+        int purged = jdbc.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        log.debug("Purged {} processed inbound events", purged);
+    }
+}
@@ -0,0 +1,100 @@
+package com.deliverXY.backend.NewCode.payments.inbox;
+
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
+import com.deliverXY.backend.NewCode.payments.service.PaymentService;
+import com.deliverXY.backend.NewCode.wallet.service.WalletService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies queued provider callbacks on a small worker pool. The poller
+ * claims up to {@code payments.inbox.batch-size} events at a time (never
+ * more than the pool has room for) and hands each to a worker, so a
+ * callback burst is absorbed by the table rather than by request threads.
+ */
+@Component
+@Slf4j
+public class InboundEventWorker {
+
+    private final InboundEventQueue queue;
+    private final PaymentService paymentService;
+    private final WalletService walletService;
+    private final int batchSize;
+    private final ThreadPoolExecutor pool;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public InboundEventWorker(InboundEventQueue queue,
+                              PaymentService paymentService,
+                              WalletService walletService,
+                              MeterRegistry meters,
+                              @Value("${payments.inbox.workers:4}") int workers,
+                              @Value("${payments.inbox.batch-size:100}") int batchSize) {
+        this.queue = queue;
+        this.paymentService = paymentService;
+        this.walletService = walletService;
+        this.batchSize = batchSize;
+
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "inbound-events-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        meters.gauge("payments.inbox.in_flight", inFlight);
+    }
+
+    @Scheduled(fixedDelayString = "${payments.inbox.poll-interval-ms:500}")
+    public void poll() {
+        if (pool.isShutdown()) return;
+        int room;
+        while ((room = batchSize - inFlight.get()) > 0) {
+            List<InboundEventQueue.Claimed> claimed = queue.claim(room);
+            for (InboundEventQueue.Claimed event : claimed) {
+                inFlight.incrementAndGet();
+                pool.execute(() -> {
+                    try {
+                        process(event);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+            // A short batch means the backlog is drained for now
+            if (claimed.size() < room) return;
+        }
+    }
+
+    private void process(InboundEventQueue.Claimed event) {
+        try {
+            switch (event.kind()) {
+                case PAYMENT_CONFIRMATION -> paymentService.confirmPayment(event.subject());
+                case TOPUP_CALLBACK -> walletService.finalizeTopUp(
+                        Long.valueOf(event.subject()), Boolean.TRUE.equals(event.success()), event.reference());
+            }
+            queue.markDone(event);
+        } catch (NotFoundException | BadRequestException | NumberFormatException e) {
+            queue.markFailed(event, e, true);
+        } catch (Exception e) {
+            queue.markFailed(event, e, false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Anything still running when we give up is reclaimed once its lease expires
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
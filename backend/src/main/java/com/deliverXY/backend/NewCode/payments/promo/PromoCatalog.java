@@ -0,0 +1,281 @@
+package com.deliverXY.backend.NewCode.payments.promo;
+
+import com.deliverXY.backend.NewCode.payments.domain.PromoCode;
+import com.deliverXY.backend.NewCode.payments.repository.PromoCodeRepository;
+import com.deliverXY.backend.NewCode.payments.repository.PromoCodeUsageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory promo code catalog keyed by normalised code.
+ * Each code carries an atomic redemption counter and the per-user
+ * redemption counts of the users who have used it, so validation runs
+ * without queries. Redemptions are reserved with a CAS against the usage
+ * limit and written to promo_codes.current_usage in batches.
+ * A Bloom filter over all known codes sits in front of every lookup, so
+ * guessed codes are turned away before touching the map or the database.
+ */
+@Component
+@Slf4j
+public class PromoCatalog {
+
+    private static final String ADD_USAGE_SQL =
+            "UPDATE promo_codes SET current_usage = COALESCE(current_usage, 0) + ? WHERE id = ?";
+
+    private final PromoCodeRepository promoCodeRepo;
+    private final PromoCodeUsageRepository usageRepo;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    private final double filterFpp;
+    private final int filterMinCapacity;
+    private volatile PromoCodeFilter filter = PromoCodeFilter.of(List.of(), 1, 0.01);
+    private final Counter filterRejections;
+
+    public enum Outcome { RESERVED, NOT_FOUND, LIMIT_REACHED, USER_LIMIT_REACHED }
+
+    /**
+     * Catalog entry. {@code terms} is a private copy of the row and is only
+     * ever replaced, never mutated.
+     */
+    static final class Entry {
+        private volatile PromoCode terms;
+        private final AtomicInteger used;
+        private final AtomicInteger unflushed = new AtomicInteger();
+        /** Redemptions per user id; users who never redeemed the code are absent. */
+        private final ConcurrentHashMap<Long, Integer> perUser = new ConcurrentHashMap<>();
+
+        private Entry(PromoCode terms) {
+            this.terms = terms;
+            this.used = new AtomicInteger(terms.getCurrentUsage() != null ? terms.getCurrentUsage() : 0);
+        }
+    }
+
+    public PromoCatalog(PromoCodeRepository promoCodeRepo,
+                        PromoCodeUsageRepository usageRepo,
+                        JdbcTemplate jdbc,
+                        PlatformTransactionManager txManager,
+                        MeterRegistry meters,
+                        @Value("${promo.filter.fpp:0.01}") double filterFpp,
+                        @Value("${promo.filter.min-capacity:1024}") int filterMinCapacity) {
+        this.promoCodeRepo = promoCodeRepo;
+        this.usageRepo = usageRepo;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.filterFpp = filterFpp;
+        this.filterMinCapacity = filterMinCapacity;
+
+        meters.gauge("promo.catalog.size", entries, ConcurrentHashMap::size);
+        meters.gauge("promo.filter.bits", this, catalog -> catalog.filter.bitSize());
+        meters.gauge("promo.filter.hashes", this, catalog -> catalog.filter.hashCount());
+        meters.gauge("promo.filter.fpp.expected", this, catalog -> catalog.filter.expectedFpp());
+        this.filterRejections = Counter.builder("promo.filter.rejections")
+                .description("Lookups of unknown promo codes rejected by the Bloom filter")
+                .register(meters);
+    }
+
+    // -------------------------------------------------------------
+    // LOADING
+    // -------------------------------------------------------------
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+
+            Map<Long, Entry> byId = new HashMap<>();
+            for (PromoCode code : promoCodeRepo.findAll()) {
+                Entry e = new Entry(copyOf(code));
+                entries.put(normalize(code.getCode()), e);
+                byId.put(code.getId(), e);
+            }
+            for (PromoCodeUsageRepository.UserUseCount c : usageRepo.countUsesPerUser()) {
+                Entry e = byId.get(c.getPromoCodeId());
+                if (e != null) e.perUser.put(c.getUserId(), (int) c.getUses());
+            }
+            rebuildFilter();
+            loaded = true;
+            log.info("Promo catalog loaded with {} codes", entries.size());
+        }
+    }
+
+    /**
+     * Adds a code or replaces its terms after an admin change. Counters of
+     * a known code are kept.
+     */
+    public void put(PromoCode code) {
+        ensureLoaded();
+        PromoCode terms = copyOf(code);
+        entries.compute(normalize(code.getCode()), (key, e) -> {
+            if (e == null) return new Entry(terms);
+            e.terms = terms;
+            return e;
+        });
+        rebuildFilter();
+    }
+
+    /**
+     * Rebuilt from the catalog keys with headroom for twice as many codes.
+     * Admin changes are rare, so a full rebuild is cheaper than a filter
+     * that supports deletes.
+     */
+    private synchronized void rebuildFilter() {
+        PromoCodeFilter rebuilt = PromoCodeFilter.of(entries.keySet(),
+                Math.max(filterMinCapacity, entries.size() * 2), filterFpp);
+        filter = rebuilt;
+        log.debug("Promo code filter rebuilt: {} codes, {} bits, {} hashes, expected fpp {}",
+                entries.size(), rebuilt.bitSize(), rebuilt.hashCount(), rebuilt.expectedFpp());
+    }
+
+    // -------------------------------------------------------------
+    // READS
+    // -------------------------------------------------------------
+    public PromoCode find(String code) {
+        Entry e = entry(code);
+        return e != null ? e.terms : null;
+    }
+
+    public int usage(String code) {
+        Entry e = entry(code);
+        return e != null ? e.used.get() : 0;
+    }
+
+    public int usageBy(String code, Long userId) {
+        Entry e = entry(code);
+        if (e == null) return 0;
+        return e.perUser.getOrDefault(userId, 0);
+    }
+
+    /** False only if the code is certainly not in the catalog. */
+    public boolean mightExist(String code) {
+        if (code == null) return false;
+        ensureLoaded();
+        if (filter.mightContain(normalize(code))) return true;
+        filterRejections.increment();
+        return false;
+    }
+
+    private Entry entry(String code) {
+        if (!mightExist(code)) return null;
+        return entries.get(normalize(code));
+    }
+
+    // -------------------------------------------------------------
+    // REDEMPTIONS
+    // -------------------------------------------------------------
+
+    /**
+     * Reserves one redemption for the user. The global counter is claimed
+     * first with a CAS against the usage limit, then the user's count; if
+     * the user is over their limit the global claim is given back.
+     */
+    public Outcome reserve(String code, Long userId) {
+        Entry e = entry(code);
+        if (e == null) return Outcome.NOT_FOUND;
+        PromoCode terms = e.terms;
+
+        Integer limit = terms.getUsageLimit();
+        while (true) {
+            int current = e.used.get();
+            if (limit != null && current >= limit) return Outcome.LIMIT_REACHED;
+            if (e.used.compareAndSet(current, current + 1)) break;
+        }
+
+        Integer perUserLimit = terms.getUsagePerUser();
+        boolean[] reserved = {true};
+        e.perUser.compute(userId, (id, n) -> {
+            int count = n != null ? n : 0;
+            if (perUserLimit != null && count >= perUserLimit) {
+                reserved[0] = false;
+                return n;
+            }
+            return count + 1;
+        });
+
+        if (!reserved[0]) {
+            e.used.decrementAndGet();
+            return Outcome.USER_LIMIT_REACHED;
+        }
+        e.unflushed.incrementAndGet();
+        return Outcome.RESERVED;
+    }
+
+    /** Gives back a reservation whose redemption was not recorded. */
+    public void release(String code, Long userId) {
+        Entry e = entry(code);
+        if (e == null) return;
+        e.used.decrementAndGet();
+        e.unflushed.decrementAndGet();
+        e.perUser.computeIfPresent(userId, (id, n) -> n > 1 ? n - 1 : null);
+    }
+
+    // -------------------------------------------------------------
+    // WRITE-BEHIND
+    // -------------------------------------------------------------
+    @Scheduled(fixedDelayString = "${promo.flush-interval-ms:5000}")
+    public void flush() {
+        List<Pending> batch = new ArrayList<>();
+        for (Entry e : entries.values()) {
+            int delta = e.unflushed.getAndSet(0);
+            if (delta != 0) batch.add(new Pending(e, delta));
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            tx.executeWithoutResult(status -> jdbc.batchUpdate(ADD_USAGE_SQL, batch, batch.size(), (ps, p) -> {
+                ps.setInt(1, p.delta());
+                ps.setLong(2, p.entry().terms.getId());
+            }));
+        } catch (RuntimeException ex) {
+            log.error("Failed to flush usage of {} promo codes, re-queueing", batch.size(), ex);
+            batch.forEach(p -> p.entry().unflushed.addAndGet(p.delta()));
+        }
+    }
+
+    private record Pending(Entry entry, int delta) {
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // -------------------------------------------------------------
+    // HELPERS
+    // -------------------------------------------------------------
+    static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static PromoCode copyOf(PromoCode p) {
+        return new PromoCode(p.getId(), p.getCode(), p.getDescription(), p.getCurrency(), p.getDiscountType(),
+                p.getDiscountValue(), p.getMaxDiscountAmount(), p.getMinOrderAmount(), p.getUsageLimit(),
+                p.getUsagePerUser(), p.getCurrentUsage(), p.getStartDate(), p.getEndDate(), p.getIsActive(),
+                p.getIsFirstOrderOnly(), p.getApplicableForNewUsersOnly(), p.getCreatedAt(), p.getCreatedBy());
+    }
+}
@@ -0,0 +1,95 @@
+package com.deliverXY.backend.NewCode.payments.promo;
+
+import java.util.Collection;
+
+/**
+ * Immutable Bloom filter over normalised promo codes.
+ * A negative answer means the code is definitely unknown; a positive one
+ * has to be confirmed against the catalog. Built once and swapped whole,
+ * so reads need no synchronisation.
+ */
+final class PromoCodeFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final long[] words;
+    private final long bits;
+    private final int hashes;
+    private final int insertions;
+
+    private PromoCodeFilter(long bits, int hashes, int insertions) {
+        this.words = new long[(int) ((bits + 63) >>> 6)];
+        this.bits = (long) words.length << 6;
+        this.hashes = hashes;
+        this.insertions = insertions;
+    }
+
+    /**
+     * Sizes the filter for {@code capacity} codes at the target false
+     * positive probability and adds every code in {@code codes}.
+     */
+    static PromoCodeFilter of(Collection<String> codes, int capacity, double fpp) {
+        int n = Math.max(capacity, codes.size());
+        n = Math.max(n, 1);
+        long m = Math.max(64, (long) Math.ceil(-n * Math.log(fpp) / (LN2 * LN2)));
+        int k = Math.max(1, (int) Math.round((double) m / n * LN2));
+
+        PromoCodeFilter filter = new PromoCodeFilter(m, k, codes.size());
+        for (String code : codes) filter.add(code);
+        return filter;
+    }
+
+    private void add(String code) {
+        long h = hash(code);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1 + i * h2);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String code) {
+        long h = hash(code);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    private long index(int combined) {
+        // Flip negative values, as in the usual Kirsch-Mitzenmacher scheme
+        return (combined < 0 ? ~combined : combined) % bits;
+    }
+
+    long bitSize() {
+        return bits;
+    }
+
+    int hashCount() {
+        return hashes;
+    }
+
+    /** False positive probability at the current fill, (1 - e^(-kn/m))^k. */
+    double expectedFpp() {
+        return Math.pow(1 - Math.exp(-(double) hashes * insertions / bits), hashes);
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 chars, finished with a murmur3 mix. */
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,44 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Reads statements exported from the provider's dashboard, dropped in
+ * {@code reconciliation.statement-dir}/{provider}/. Stands in for a
+ * provider reporting API.
+ */
+@Component
+public class FileStatementSource implements StatementSource {
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]{1,200}");
+
+    private final Path dir;
+
+    public FileStatementSource(@Value("${reconciliation.statement-dir:./statements}") String dir) {
+        this.dir = Path.of(dir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public BufferedReader open(PaymentProvider provider, String statement) throws IOException {
+        if (!NAME.matcher(statement).matches() || statement.startsWith(".")) {
+            throw new BadRequestException("Invalid statement name: " + statement);
+        }
+        Path file = dir.resolve(provider.name().toLowerCase(Locale.ROOT)).resolve(statement);
+        if (!Files.isRegularFile(file)) {
+            throw new NotFoundException("Statement not found: " + statement);
+        }
+        return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,61 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/** A reference on which our records and the provider statement disagree. */
+@Entity
+@Table(
+        name = "reconciliation_mismatches",
+        indexes = @Index(name = "idx_recon_mismatch_run", columnList = "run_id, id")
+)
+@Data
+@NoArgsConstructor
+public class ReconciliationMismatch {
+
+    public enum Type {
+        MISSING_AT_PROVIDER,    // we have it, the statement does not
+        MISSING_LOCALLY,        // the statement has it, we do not
+        DUPLICATE_AT_PROVIDER,  // the statement lists the reference more than once
+        AMOUNT_DRIFT,
+        STATUS_DRIFT,
+        CREDIT_DRIFT            // top-up status and wallet credit disagree
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(nullable = false, length = 255)
+    private String reference;
+
+    // PAYMENT or TOPUP; null when only the provider has the reference
+    @Column(name = "record_kind", length = 20)
+    private String recordKind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Type type;
+
+    @Column(name = "our_amount", precision = 19, scale = 2)
+    private BigDecimal ourAmount;
+
+    @Column(name = "provider_amount", precision = 19, scale = 2)
+    private BigDecimal providerAmount;
+
+    // Top-ups only: what the wallet was actually credited for the reference
+    @Column(name = "credited_amount", precision = 19, scale = 2)
+    private BigDecimal creditedAmount;
+
+    @Column(name = "our_status", length = 30)
+    private String ourStatus;
+
+    @Column(name = "provider_status", length = 30)
+    private String providerStatus;
+}
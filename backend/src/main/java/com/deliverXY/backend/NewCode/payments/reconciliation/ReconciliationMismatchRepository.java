@@ -0,0 +1,11 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ReconciliationMismatchRepository extends JpaRepository<ReconciliationMismatch, Long> {
+
+    List<ReconciliationMismatch> findByRunIdAndIdGreaterThanOrderByIdAsc(Long runId, Long afterId, Limit limit);
+}
@@ -0,0 +1,56 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One comparison of our payments and top-ups against a provider
+ * statement. {@code lastReference} is the checkpoint: everything up to
+ * it (on both sides) has been compared and its mismatches are stored.
+ */
+@Entity
+@Table(name = "reconciliation_runs")
+@Data
+@NoArgsConstructor
+public class ReconciliationRun {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentProvider provider;
+
+    // Statement file name, resolved by the StatementSource
+    @Column(nullable = false, length = 200)
+    private String statement;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "last_reference", length = 255)
+    private String lastReference;
+
+    @Column(nullable = false)
+    private long matched;
+
+    @Column(nullable = false)
+    private long mismatched;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,10 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    List<ReconciliationRun> findTop20ByOrderByIdDesc();
+}
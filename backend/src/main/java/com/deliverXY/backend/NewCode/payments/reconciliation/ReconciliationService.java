@@ -0,0 +1,395 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.exceptions.ConflictException;
+import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares our payments and top-ups with a provider statement.
+ * Both sides are streamed in reference order — ours through a
+ * server-side JDBC cursor, the statement line by line — and matched
+ * with a sorted merge join, so memory stays flat however many rows
+ * there are. Mismatches are written together with a checkpoint (the
+ * last reference compared) every {@code reconciliation.checkpoint-every}
+ * references; a failed or interrupted run resumes from its checkpoint.
+ */
+@Service
+@Slf4j
+public class ReconciliationService {
+
+    /** Payments and top-ups of one provider; top-ups carry what their reference credited to a wallet. */
+    private static final String OUR_RECORDS_SQL = """
+            SELECT reference, record_kind, amount, status, credited FROM (
+                SELECT p.provider_reference AS reference, 'PAYMENT' AS record_kind, p.amount, p.status,
+                       NULL::numeric AS credited
+                FROM payments p
+                WHERE p.provider = ? AND p.provider_reference IS NOT NULL
+                UNION ALL
+                SELECT t.reference_id, 'TOPUP', t.amount, t.status,
+                       (SELECT SUM(w.amount) FROM wallet_transactions w
+                        WHERE w.reference = t.reference_id AND w.type = ?)
+                FROM wallet_topups t
+                WHERE t.provider = ? AND t.reference_id IS NOT NULL
+            ) r
+            WHERE r.reference COLLATE "C" > ?
+            ORDER BY r.reference COLLATE "C"
+            """;
+
+    private static final String INSERT_MISMATCH_SQL = """
+            INSERT INTO reconciliation_mismatches (run_id, reference, record_kind, type, our_amount, provider_amount,
+                                                   credited_amount, our_status, provider_status)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String CHECKPOINT_SQL = """
+            UPDATE reconciliation_runs SET last_reference = ?, matched = ?, mismatched = ?
+            WHERE id = ?
+            """;
+
+    private static final String FINISH_SQL = """
+            UPDATE reconciliation_runs SET status = ?, error = ?, finished_at = ?
+            WHERE id = ?
+            """;
+
+    private static final int MAX_BUFFERED_MISMATCHES = 1000;
+
+    private final ReconciliationRunRepository runs;
+    private final ReconciliationMismatchRepository mismatches;
+    private final StatementSource statements;
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate cursor;
+    private final TransactionTemplate readTx;
+    private final TransactionTemplate writeTx;
+    private final MeterRegistry meters;
+    private final int checkpointEvery;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "reconciliation");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+
+    public ReconciliationService(ReconciliationRunRepository runs,
+                                 ReconciliationMismatchRepository mismatches,
+                                 StatementSource statements,
+                                 JdbcTemplate jdbc,
+                                 DataSource dataSource,
+                                 PlatformTransactionManager txManager,
+                                 MeterRegistry meters,
+                                 @Value("${reconciliation.fetch-size:1000}") int fetchSize,
+                                 @Value("${reconciliation.checkpoint-every:10000}") int checkpointEvery) {
+        this.runs = runs;
+        this.mismatches = mismatches;
+        this.statements = statements;
+        this.jdbc = jdbc;
+        this.meters = meters;
+        this.checkpointEvery = checkpointEvery;
+
+        // Postgres only streams with a fetch size inside a transaction
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(fetchSize);
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(txManager);
+        this.writeTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // -------------------------------------------------------------
+    // RUNS
+    // -------------------------------------------------------------
+
+    public ReconciliationRun start(PaymentProvider provider, String statement) {
+        if (provider == null || statement == null || statement.isBlank()) {
+            throw new BadRequestException("Provider and statement are required");
+        }
+        ReconciliationRun run = new ReconciliationRun();
+        run.setProvider(provider);
+        run.setStatement(statement);
+        run.setStatus(ReconciliationRun.Status.RUNNING);
+        run.setStartedAt(LocalDateTime.now());
+        runs.save(run);
+
+        active.add(run.getId());
+        submit(run.getId());
+        return run;
+    }
+
+    /** Continues a failed or orphaned run from its last checkpoint. */
+    public ReconciliationRun resume(Long runId) {
+        ReconciliationRun run;
+        // Checked under the same lock the worker holds while writing the final status
+        synchronized (active) {
+            run = getRun(runId);
+            if (run.getStatus() == ReconciliationRun.Status.COMPLETED) {
+                throw new BadRequestException("Reconciliation run " + runId + " already completed");
+            }
+            if (!active.add(runId)) {
+                throw new ConflictException("Reconciliation run " + runId + " is still running");
+            }
+        }
+        run.setStatus(ReconciliationRun.Status.RUNNING);
+        run.setError(null);
+        run.setFinishedAt(null);
+        runs.save(run);
+
+        submit(runId);
+        return run;
+    }
+
+    public ReconciliationRun getRun(Long runId) {
+        return runs.findById(runId)
+                .orElseThrow(() -> new NotFoundException("Reconciliation run not found: " + runId));
+    }
+
+    public List<ReconciliationRun> recentRuns() {
+        return runs.findTop20ByOrderByIdDesc();
+    }
+
+    public List<ReconciliationMismatch> getMismatches(Long runId, Long afterId, int limit) {
+        return mismatches.findByRunIdAndIdGreaterThanOrderByIdAsc(runId, afterId != null ? afterId : 0L,
+                Limit.of(Math.min(Math.max(limit, 1), 1000)));
+    }
+
+    /** Runs an active run; {@link #finish} lets go of it, or this does if it never got that far. */
+    private void submit(Long runId) {
+        executor.execute(() -> {
+            try {
+                execute(runId);
+            } catch (RuntimeException e) {
+                active.remove(runId);
+                throw e;
+            }
+        });
+    }
+
+    /** Writes the final status and lets go of the run in one step, so a resume never sees one without the other. */
+    private void finish(Long runId, ReconciliationRun.Status status, String error) {
+        synchronized (active) {
+            try {
+                jdbc.update(FINISH_SQL, status.name(), error, Timestamp.valueOf(LocalDateTime.now()), runId);
+            } finally {
+                active.remove(runId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // An interrupted run stays RUNNING with its checkpoint and can be resumed
+        executor.shutdownNow();
+    }
+
+    // -------------------------------------------------------------
+    // MERGE JOIN
+    // -------------------------------------------------------------
+
+    private void execute(Long runId) {
+        ReconciliationRun run = getRun(runId);
+        Progress progress = new Progress(run);
+        log.info("Reconciling {} against statement {} (run {}, from {})",
+                run.getProvider(), run.getStatement(), runId,
+                run.getLastReference() != null ? run.getLastReference() : "the start");
+
+        try (StatementReader statement = new StatementReader(statements.open(run.getProvider(), run.getStatement()))) {
+            if (run.getLastReference() != null) statement.skipThrough(run.getLastReference());
+
+            readTx.executeWithoutResult(status -> cursor.query(OUR_RECORDS_SQL,
+                    (ResultSet rs) -> compare(ours(rs), statement, progress),
+                    run.getProvider().name(), TransactionType.DEPOSIT.ordinal(), run.getProvider().name(),
+                    run.getLastReference() != null ? run.getLastReference() : ""));
+
+            // Whatever is left on the statement has no counterpart here
+            while (statement.peek() != null) {
+                StatementReader.Line line = takeGroup(statement, progress);
+                progress.add(mismatch(ReconciliationMismatch.Type.MISSING_LOCALLY, line.reference(), null, line));
+                progress.compared(line.reference());
+            }
+
+            checkpoint(progress);
+            finish(runId, ReconciliationRun.Status.COMPLETED, null);
+            log.info("Reconciliation run {} completed: {} matched, {} mismatched",
+                    runId, progress.matched, progress.mismatched);
+        } catch (Exception e) {
+            log.error("Reconciliation run {} failed after {}", runId, progress.checkpointed, e);
+            String error = String.valueOf(e.getMessage());
+            finish(runId, ReconciliationRun.Status.FAILED, error.length() > 500 ? error.substring(0, 500) : error);
+        }
+    }
+
+    private void compare(Ours ours, StatementReader statement, Progress progress) {
+        try {
+            // Statement references that sort before ours are missing here
+            while (statement.peek() != null && statement.peek().reference().compareTo(ours.reference()) < 0) {
+                StatementReader.Line line = takeGroup(statement, progress);
+                progress.add(mismatch(ReconciliationMismatch.Type.MISSING_LOCALLY, line.reference(), null, line));
+                progress.compared(line.reference());
+            }
+
+            StatementReader.Line line = statement.peek() != null && statement.peek().reference().equals(ours.reference())
+                    ? takeGroup(statement, progress)
+                    : null;
+
+            int before = progress.buffer.size();
+            if (line == null) {
+                progress.add(mismatch(ReconciliationMismatch.Type.MISSING_AT_PROVIDER, ours.reference(), ours, null));
+            } else {
+                if (ours.amount().compareTo(line.amount()) != 0) {
+                    progress.add(mismatch(ReconciliationMismatch.Type.AMOUNT_DRIFT, ours.reference(), ours, line));
+                }
+                if (!ours.outcome().equals(providerOutcome(line.status()))) {
+                    progress.add(mismatch(ReconciliationMismatch.Type.STATUS_DRIFT, ours.reference(), ours, line));
+                }
+            }
+            if (ours.creditDrift()) {
+                progress.add(mismatch(ReconciliationMismatch.Type.CREDIT_DRIFT, ours.reference(), ours, line));
+            }
+            if (progress.buffer.size() == before) progress.matched++;
+
+            progress.compared(ours.reference());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Takes the next statement line; further lines with the same reference are reported as duplicates. */
+    private StatementReader.Line takeGroup(StatementReader statement, Progress progress) throws IOException {
+        StatementReader.Line first = statement.next();
+        while (statement.peek() != null && statement.peek().reference().equals(first.reference())) {
+            progress.add(mismatch(ReconciliationMismatch.Type.DUPLICATE_AT_PROVIDER, first.reference(), null,
+                    statement.next()));
+        }
+        return first;
+    }
+
+    // -------------------------------------------------------------
+    // CHECKPOINTS
+    // -------------------------------------------------------------
+
+    /** Counters, unsaved mismatches and the last reference compared on both sides. */
+    private final class Progress {
+        private final Long runId;
+        private final List<Object[]> buffer = new ArrayList<>();
+        private String lastReference;
+        private String checkpointed;
+        private long matched;
+        private long mismatched;
+        private int sinceCheckpoint;
+
+        Progress(ReconciliationRun run) {
+            this.runId = run.getId();
+            this.lastReference = run.getLastReference();
+            this.checkpointed = run.getLastReference();
+            this.matched = run.getMatched();
+            this.mismatched = run.getMismatched();
+        }
+
+        void add(ReconciliationMismatch m) {
+            buffer.add(new Object[]{runId, m.getReference(), m.getRecordKind(), m.getType().name(),
+                    m.getOurAmount(), m.getProviderAmount(), m.getCreditedAmount(),
+                    m.getOurStatus(), m.getProviderStatus()});
+            mismatched++;
+            meters.counter("reconciliation.mismatches", "type", m.getType().name()).increment();
+        }
+
+        /** Everything up to {@code reference} is done; checkpoint when due. */
+        void compared(String reference) {
+            lastReference = reference;
+            if (++sinceCheckpoint >= checkpointEvery || buffer.size() >= MAX_BUFFERED_MISMATCHES) {
+                checkpoint(this);
+            }
+        }
+    }
+
+    /** Writes buffered mismatches and the checkpoint in one transaction, so a resume never repeats them. */
+    private void checkpoint(Progress progress) {
+        writeTx.executeWithoutResult(status -> {
+            if (!progress.buffer.isEmpty()) jdbc.batchUpdate(INSERT_MISMATCH_SQL, progress.buffer);
+            jdbc.update(CHECKPOINT_SQL, progress.lastReference, progress.matched, progress.mismatched, progress.runId);
+        });
+        progress.buffer.clear();
+        progress.checkpointed = progress.lastReference;
+        progress.sinceCheckpoint = 0;
+    }
+
+    // -------------------------------------------------------------
+    // RECORDS
+    // -------------------------------------------------------------
+
+    /** One of our rows, with its status reduced to SUCCEEDED / FAILED / PENDING. */
+    private record Ours(String reference, String kind, BigDecimal amount, String status, String outcome,
+                        BigDecimal credited) {
+
+        /** A top-up should have credited its amount exactly when it succeeded, and nothing otherwise. */
+        boolean creditDrift() {
+            if (!"TOPUP".equals(kind)) return false;
+            BigDecimal expected = "SUCCEEDED".equals(outcome) ? amount : BigDecimal.ZERO;
+            return expected.compareTo(credited != null ? credited : BigDecimal.ZERO) != 0;
+        }
+    }
+
+    private static Ours ours(ResultSet rs) throws SQLException {
+        String kind = rs.getString("record_kind");
+        String status = rs.getString("status");
+        String outcome = switch (status) {
+            case "COMPLETED", "SUCCESS" -> "SUCCEEDED";
+            case "FAILED" -> "FAILED";
+            default -> "PENDING";
+        };
+        return new Ours(rs.getString("reference"), kind, rs.getBigDecimal("amount"), status, outcome,
+                rs.getBigDecimal("credited"));
+    }
+
+    private static String providerOutcome(String status) {
+        return switch (status) {
+            case "succeeded", "success", "paid", "completed" -> "SUCCEEDED";
+            case "failed", "canceled", "cancelled", "requires_payment_method" -> "FAILED";
+            default -> "PENDING";
+        };
+    }
+
+    private static ReconciliationMismatch mismatch(ReconciliationMismatch.Type type, String reference,
+                                                   Ours ours, StatementReader.Line line) {
+        ReconciliationMismatch m = new ReconciliationMismatch();
+        m.setType(type);
+        m.setReference(reference);
+        if (ours != null) {
+            m.setRecordKind(ours.kind());
+            m.setOurAmount(ours.amount());
+            m.setOurStatus(ours.status());
+            if ("TOPUP".equals(ours.kind())) m.setCreditedAmount(ours.credited());
+        }
+        if (line != null) {
+            m.setProviderAmount(line.amount());
+            m.setProviderStatus(line.status());
+        }
+        return m;
+    }
+}
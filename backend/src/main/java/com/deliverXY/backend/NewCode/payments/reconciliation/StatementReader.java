@@ -0,0 +1,100 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pulls statement lines one at a time, so a statement of any size is
+ * read in constant memory. Fails on a line that sorts before the one
+ * preceding it, since the merge join depends on the order.
+ */
+final class StatementReader implements Closeable {
+
+    record Line(String reference, BigDecimal amount, String status) {
+    }
+
+    private final BufferedReader in;
+    private final int referenceCol;
+    private final int amountCol;
+    private final int statusCol;
+
+    private Line next;
+    private String previous;
+    private long lineNo = 1;
+
+    StatementReader(BufferedReader in) throws IOException {
+        this.in = in;
+        String header = in.readLine();
+        if (header == null) throw new IllegalStateException("Statement is empty");
+
+        List<String> columns = Arrays.stream(header.split(",", -1))
+                .map(c -> c.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int ref = columns.indexOf("reference");
+        this.referenceCol = ref >= 0 ? ref : columns.indexOf("id");
+        this.amountCol = columns.indexOf("amount");
+        this.statusCol = columns.indexOf("status");
+        if (referenceCol < 0 || amountCol < 0 || statusCol < 0) {
+            throw new IllegalStateException("Statement header needs reference, amount and status columns: " + header);
+        }
+        advance();
+    }
+
+    Line peek() {
+        return next;
+    }
+
+    Line next() throws IOException {
+        Line current = next;
+        advance();
+        return current;
+    }
+
+    /** Skips everything up to and including {@code reference}; used when resuming from a checkpoint. */
+    void skipThrough(String reference) throws IOException {
+        while (next != null && next.reference().compareTo(reference) <= 0) advance();
+    }
+
+    private void advance() throws IOException {
+        String raw;
+        do {
+            raw = in.readLine();
+            lineNo++;
+        } while (raw != null && raw.isBlank());
+
+        if (raw == null) {
+            next = null;
+            return;
+        }
+
+        String[] cells = raw.split(",", -1);
+        int needed = Math.max(referenceCol, Math.max(amountCol, statusCol));
+        if (cells.length <= needed) {
+            throw new IllegalStateException("Statement line " + lineNo + " has too few columns");
+        }
+
+        String reference = cells[referenceCol].trim();
+        if (previous != null && reference.compareTo(previous) < 0) {
+            throw new IllegalStateException("Statement is not sorted by reference at line " + lineNo
+                    + " (" + reference + " after " + previous + ")");
+        }
+        previous = reference;
+
+        try {
+            next = new Line(reference, new BigDecimal(cells[amountCol].trim()),
+                    cells[statusCol].trim().toLowerCase(Locale.ROOT));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Statement line " + lineNo + " has an invalid amount", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
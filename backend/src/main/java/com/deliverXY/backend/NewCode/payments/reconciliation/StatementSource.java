@@ -0,0 +1,16 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Where provider statements come from. A statement is CSV with a header
+ * row holding at least reference (or id), amount and status columns,
+ * sorted by reference in byte order (e.g. {@code LC_ALL=C sort}).
+ */
+public interface StatementSource {
+
+    BufferedReader open(PaymentProvider provider, String statement) throws IOException;
+}
@@ -4,6 +4,7 @@ import com.deliverXY.backend.NewCode.user.domain.AppUser;
 import com.deliverXY.backend.NewCode.payments.domain.PromoCode;
 import com.deliverXY.backend.NewCode.payments.domain.PromoCodeUsage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +15,14 @@ public interface PromoCodeUsageRepository extends JpaRepository<PromoCodeUsage,
     Long countByPromoCodeAndUser(PromoCode promoCode, AppUser user);
     
     List<PromoCodeUsage> findByUserOrderByUsedAtDesc(AppUser user);
+
+    @Query("SELECT u.promoCode.id AS promoCodeId, u.user.id AS userId, COUNT(u) AS uses " +
+            "FROM PromoCodeUsage u GROUP BY u.promoCode.id, u.user.id")
+    List<UserUseCount> countUsesPerUser();
+
+    interface UserUseCount {
+        Long getPromoCodeId();
+        Long getUserId();
+        long getUses();
+    }
 }
@@ -10,6 +10,15 @@ public interface PaymentGatewayProvider {
 
 
     PaymentProvider getProviderType();
+
+    /**
+     * Whether calls leave the process. Remote providers are called after
+     * the payment commits, through a bounded per-provider bulkhead.
+     */
+    default boolean isRemote() {
+        return false;
+    }
+
     /**
      * Initializes a transaction with the external provider.
      * @param payment The payment entity representing the transaction.
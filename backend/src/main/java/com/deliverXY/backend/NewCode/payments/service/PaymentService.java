@@ -13,6 +13,11 @@ public interface PaymentService {
 
     PaymentResultDTO confirmPayment(String providerReference);
 
+    /** Current state of one of the user's payments, e.g. to pick up the client secret once a PROCESSING payment is set up. */
+    PaymentResultDTO getPayment(Long paymentId, Long userId);
+
+    PaymentResultDTO getPaymentByReference(String providerReference);
+
     void refund(Long paymentId, BigDecimal amount, String reason);
 
 
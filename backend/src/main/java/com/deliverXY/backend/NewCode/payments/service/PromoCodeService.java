@@ -7,13 +7,16 @@ import com.deliverXY.backend.NewCode.user.domain.AppUser;
 import com.deliverXY.backend.NewCode.common.enums.DiscountType;
 import com.deliverXY.backend.NewCode.payments.domain.PromoCode;
 import com.deliverXY.backend.NewCode.payments.domain.PromoCodeUsage;
+import com.deliverXY.backend.NewCode.payments.promo.PromoCatalog;
+import com.deliverXY.backend.NewCode.user.stats.UserDeliveryCounters;
 import com.deliverXY.backend.NewCode.payments.repository.PromoCodeRepository;
 import com.deliverXY.backend.NewCode.payments.repository.PromoCodeUsageRepository;
-import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -28,7 +31,8 @@ public class PromoCodeService {
 
     private final PromoCodeRepository promoCodeRepository;
     private final PromoCodeUsageRepository promoCodeUsageRepository;
-    private final DeliveryRepository deliveryRepository;
+    private final PromoCatalog promoCatalog;
+    private final UserDeliveryCounters deliveryCounters;
 
     private static final int SCALE = 2; // Currency scale
     private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
@@ -53,15 +57,14 @@ public class PromoCodeService {
      * Validate and apply promo code
      */
     public PromoCodeValidationResult validatePromoCode(String code, AppUser user, BigDecimal orderAmount) {
-        log.info("Validating promo code '{}' for user {} with order amount {}", code, user.getId(), orderAmount);
-
-        Optional<PromoCode> promoCodeOpt = promoCodeRepository.findByCodeIgnoreCase(code);
+        // Unknown codes (mostly guesses) are rejected by the catalog's Bloom filter before anything else runs
+        PromoCode promoCode = promoCatalog.find(code);
 
-        if (promoCodeOpt.isEmpty()) {
+        if (promoCode == null) {
             return new PromoCodeValidationResult(false, "Promo code not found", BigDecimal.ZERO, null);
         }
 
-        PromoCode promoCode = promoCodeOpt.get();
+        log.info("Validating promo code '{}' for user {} with order amount {}", code, user.getId(), orderAmount);
 
         // Check if promo code is active
         if (promoCode.getIsActive() == null || !promoCode.getIsActive()) {
@@ -81,7 +84,7 @@ public class PromoCodeService {
         }
 
         // Check total usage limit
-        if (promoCode.getUsageLimit() != null && promoCode.getCurrentUsage() >= promoCode.getUsageLimit()) {
+        if (promoCode.getUsageLimit() != null && promoCatalog.usage(code) >= promoCode.getUsageLimit()) {
             return new PromoCodeValidationResult(false, "Promo code usage limit has been reached", BigDecimal.ZERO, null);
         }
 
@@ -96,21 +99,23 @@ public class PromoCodeService {
             );
         }
 
-        // Check if user is eligible (new user only promos) - First delivery check logic consolidated below
-        long userDeliveryCount = deliveryRepository.countByClientId(user.getId());
+        // Check if user is eligible (new user only promos); order history is only looked up for these codes
+        boolean newUsersOnly = Boolean.TRUE.equals(promoCode.getApplicableForNewUsersOnly());
+        boolean firstOrderOnly = Boolean.TRUE.equals(promoCode.getIsFirstOrderOnly());
+        boolean hasOrdered = (newUsersOnly || firstOrderOnly) && deliveryCounters.hasRequested(user.getId());
 
-        if (promoCode.getApplicableForNewUsersOnly() && userDeliveryCount > 0) {
+        if (newUsersOnly && hasOrdered) {
             return new PromoCodeValidationResult(false, "This promo code is only for new users", BigDecimal.ZERO, null);
         }
 
         // Check if it's first order only (this is redundant if 'ApplicableForNewUsersOnly' exists, but we keep it for now)
-        if (promoCode.getIsFirstOrderOnly() && userDeliveryCount > 0) {
+        if (firstOrderOnly && hasOrdered) {
             return new PromoCodeValidationResult(false, "This promo code is only valid for first order", BigDecimal.ZERO, null);
         }
 
         // Check usage per user limit
-        Long userUsageCount = promoCodeUsageRepository.countByPromoCodeAndUser(promoCode, user);
-        if (promoCode.getUsagePerUser() != null && userUsageCount != null && userUsageCount >= promoCode.getUsagePerUser()) {
+        int userUsageCount = promoCatalog.usageBy(code, user.getId());
+        if (promoCode.getUsagePerUser() != null && userUsageCount >= promoCode.getUsagePerUser()) {
             return new PromoCodeValidationResult(false, "You have already used this promo code the maximum number of times", BigDecimal.ZERO, null);
         }
 
@@ -150,7 +155,9 @@ public class PromoCodeService {
     }
 
     /**
-     * Record promo code usage
+     * Record promo code usage. The redemption is reserved in the catalog
+     * first, so concurrent redemptions can never exceed the usage limits;
+     * the reservation is given back if the transaction rolls back.
      */
     @Transactional
     public void recordPromoCodeUsage(PromoCode promoCode, AppUser user, Delivery delivery,
@@ -161,6 +168,14 @@ public class PromoCodeService {
             throw new BadRequestException("Cannot record promo usage with null amounts.");
         }
 
+        switch (promoCatalog.reserve(promoCode.getCode(), user.getId())) {
+            case NOT_FOUND -> throw new BadRequestException("Promo code not found");
+            case LIMIT_REACHED -> throw new BadRequestException("Promo code usage limit has been reached");
+            case USER_LIMIT_REACHED ->
+                    throw new BadRequestException("You have already used this promo code the maximum number of times");
+            case RESERVED -> releaseOnRollback(promoCode.getCode(), user.getId());
+        }
+
         PromoCodeUsage usage = new PromoCodeUsage();
         usage.setPromoCode(promoCode);
         usage.setUser(user);
@@ -173,21 +188,42 @@ public class PromoCodeService {
         BigDecimal finalAmount = originalAmount.subtract(discountAmount).max(BigDecimal.ZERO);
         usage.setFinalAmount(finalAmount);
 
+        // current_usage is written by the catalog's batched flush
         promoCodeUsageRepository.save(usage);
 
-        // Increment usage count
-        promoCode.setCurrentUsage(promoCode.getCurrentUsage() + 1);
-        promoCodeRepository.save(promoCode);
-
         log.info("Recorded promo code usage for code '{}' by user {}. Discount: {}", promoCode.getCode(), user.getId(), discountAmount);
     }
 
+    private void releaseOnRollback(String code, Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) promoCatalog.release(code, userId);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     /**
      * Create new promo code (Admin only)
      */
     @Transactional
     public PromoCode createPromoCode(PromoCode promoCode, String adminEmail) {
-        if (promoCodeRepository.existsByCodeIgnoreCase(promoCode.getCode())) {
+        if (promoCatalog.mightExist(promoCode.getCode())
+                && promoCodeRepository.existsByCodeIgnoreCase(promoCode.getCode())) {
             throw new BadRequestException("Promo code already exists");
         }
 
@@ -195,6 +231,8 @@ public class PromoCodeService {
         promoCode.setCurrentUsage(0);
 
         PromoCode saved = promoCodeRepository.save(promoCode);
+        // Not redeemable until the row is committed
+        afterCommit(() -> promoCatalog.put(saved));
         log.info("Created promo code '{}' by admin {}", saved.getCode(), adminEmail);
 
         return saved;
@@ -218,6 +256,7 @@ public class PromoCodeService {
      * Get promo code by code
      */
     public Optional<PromoCode> getPromoCodeByCode(String code) {
+        if (!promoCatalog.mightExist(code)) return Optional.empty();
         return promoCodeRepository.findByCodeIgnoreCase(code);
     }
 
@@ -238,7 +277,8 @@ public class PromoCodeService {
         }
         promoCodeRepository.findById(promoCodeId).ifPresent(promoCode -> {
             promoCode.setIsActive(false);
-            promoCodeRepository.save(promoCode);
+            PromoCode saved = promoCodeRepository.save(promoCode);
+            afterCommit(() -> promoCatalog.put(saved));
             log.info("Deactivated promo code '{}'", promoCode.getCode());
         });
     }
@@ -7,35 +7,54 @@ import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
 import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
 import com.deliverXY.backend.NewCode.payments.domain.Payment;
 import com.deliverXY.backend.NewCode.payments.dto.PaymentResultDTO;
+import com.deliverXY.backend.NewCode.payments.gateway.GatewayBulkhead;
 import com.deliverXY.backend.NewCode.payments.repository.PaymentRepository;
 import com.deliverXY.backend.NewCode.payments.service.PaymentGatewayProvider;
 import com.deliverXY.backend.NewCode.payments.service.PaymentService;
 import com.deliverXY.backend.NewCode.wallet.service.WalletService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class PaymentServiceImpl implements PaymentService {
 
     private final Map<PaymentProvider, PaymentGatewayProvider> providers;
     private final PaymentRepository paymentRepo;
     private final DeliveryRepository deliveryRepo;
     private final WalletService walletService;
+    private final GatewayBulkhead gatewayCalls;
+    private final TransactionTemplate tx;
 
     public PaymentServiceImpl(List<PaymentGatewayProvider> providerList,
                               PaymentRepository paymentRepo,
                               DeliveryRepository deliveryRepo,
-                              WalletService walletService) {
+                              WalletService walletService,
+                              GatewayBulkhead gatewayCalls,
+                              PlatformTransactionManager txManager) {
         this.paymentRepo = paymentRepo;
         this.deliveryRepo = deliveryRepo;
         this.walletService=walletService;
+        this.gatewayCalls = gatewayCalls;
+        this.tx = new TransactionTemplate(txManager);
+        // A call that is already done completes inside afterCommit, where REQUIRED would join the finished transaction
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
         this.providers = providerList.stream()
                 .collect(Collectors.toMap(PaymentGatewayProvider::getProviderType, Function.identity()));
     }
@@ -81,8 +100,8 @@ public class PaymentServiceImpl implements PaymentService {
         paymentRepo.save(payment);
         if (provider == PaymentProvider.WALLET) {
 
-            // 🔥 deduct funds immediately
-            walletService.withdraw(
+            // 🔥 move funds into escrow immediately
+            walletService.payIntoEscrow(
                     userId,
                     finalAmount,
                     "DELIVERY_PAYMENT_" + delivery.getTrackingCode()
@@ -106,8 +125,70 @@ public class PaymentServiceImpl implements PaymentService {
 
         PaymentGatewayProvider gateway = getGatewayProvider(provider);
 
+        if (gateway.isRemote()) {
+            // Nothing is held open across the provider call: the payment
+            // commits as PROCESSING and the call runs in the provider's
+            // bulkhead once this transaction is done.
+            payment.setStatus(PaymentStatus.PROCESSING);
+            paymentRepo.save(payment);
+
+            Long paymentId = payment.getId();
+            afterCommit(() -> gatewayCalls.submit(provider, () -> gateway.initiateTransaction(payment))
+                    .whenComplete((result, error) -> completeInitiation(paymentId, result, error)));
+
+            return PaymentResultDTO.builder()
+                    .paymentId(paymentId)
+                    .deliveryId(delivery.getId())
+                    .provider(provider)
+                    .amountPaid(payment.getAmount())
+                    .status(PaymentStatus.PROCESSING)
+                    .message("Payment is being set up with the provider")
+                    .build();
+        }
+
         PaymentResultDTO result = gateway.initiateTransaction(payment);
+        applyInitiation(payment, result);
+        paymentRepo.save(payment);
 
+        result.setPaymentId(payment.getId());
+        result.setDeliveryId(delivery.getId());
+        result.setProvider(provider);
+        result.setAmountPaid(payment.getAmount());
+
+        return result;
+    }
+
+    /** Records the provider's answer for a payment started after commit; failures and timeouts mark it FAILED. */
+    private void completeInitiation(Long paymentId, PaymentResultDTO result, Throwable error) {
+        try {
+            tx.executeWithoutResult(status -> paymentRepo.findById(paymentId).ifPresent(payment -> {
+                // A webhook or a confirm may already have moved it on
+                if (payment.getStatus() != PaymentStatus.PROCESSING) return;
+
+                if (isTimeout(error)) {
+                    // The provider may still create the intent; its webhook or reconciliation settles it
+                    log.warn("Initiating payment {} with {} timed out, leaving it PROCESSING", paymentId, payment.getProvider());
+                    return;
+                }
+                if (error != null) {
+                    log.warn("Initiating payment {} with {} failed: {}", paymentId, payment.getProvider(), error.toString());
+                    payment.setStatus(PaymentStatus.FAILED);
+                } else {
+                    applyInitiation(payment, result);
+                }
+                paymentRepo.save(payment);
+            }));
+        } catch (RuntimeException e) {
+            log.error("Could not record gateway result for payment {}", paymentId, e);
+        }
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof TimeoutException;
+    }
+
+    private static void applyInitiation(Payment payment, PaymentResultDTO result) {
         payment.setProviderReference(result.getProviderReference());
         payment.setProviderSessionId(result.getProviderSessionId());
         payment.setProviderChargeId(result.getProviderChargeId());
@@ -118,18 +199,53 @@ public class PaymentServiceImpl implements PaymentService {
         // If the result status is COMPLETED (e.g., Mock or instant provider like WALLET)
         if (newStatus == PaymentStatus.COMPLETED) {
             payment.setCompletedAt(LocalDateTime.now());
+        }
+    }
 
-
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
-        paymentRepo.save(payment);
+    /** Remote providers go through their bulkhead; in-process ones are called directly. */
+    private <T> T viaGateway(PaymentGatewayProvider gateway, Supplier<T> call) {
+        return gateway.isRemote() ? gatewayCalls.call(gateway.getProviderType(), call) : call.get();
+    }
 
-        result.setPaymentId(payment.getId());
-        result.setDeliveryId(delivery.getId());
-        result.setProvider(provider);
-        result.setAmountPaid(payment.getAmount());
+    @Override
+    public PaymentResultDTO getPayment(Long paymentId, Long userId) {
+        Payment payment = paymentRepo.findById(paymentId)
+                .filter(p -> p.getPayerId() != null && p.getPayerId().equals(userId))
+                .orElseThrow(() -> new NotFoundException("Payment not found: " + paymentId));
+        return toResult(payment);
+    }
 
-        return result;
+    @Override
+    public PaymentResultDTO getPaymentByReference(String reference) {
+        return paymentRepo.findByProviderReference(reference)
+                .map(PaymentServiceImpl::toResult)
+                .orElseThrow(() -> new NotFoundException("Invalid payment reference"));
+    }
+
+    private static PaymentResultDTO toResult(Payment payment) {
+        return PaymentResultDTO.builder()
+                .paymentId(payment.getId())
+                .deliveryId(payment.getDelivery().getId())
+                .provider(payment.getProvider())
+                .amountPaid(payment.getAmount())
+                .status(payment.getStatus())
+                .providerReference(payment.getProviderReference())
+                .providerSessionId(payment.getProviderSessionId())
+                .providerChargeId(payment.getProviderChargeId())
+                .build();
     }
 
     @Override
@@ -139,7 +255,7 @@ public class PaymentServiceImpl implements PaymentService {
                 .orElseThrow(() -> new NotFoundException("Invalid payment reference"));
 
         PaymentGatewayProvider gateway = getGatewayProvider(payment.getProvider());
-        PaymentResultDTO result = gateway.confirmTransaction(reference);
+        PaymentResultDTO result = viaGateway(gateway, () -> gateway.confirmTransaction(reference));
 
         PaymentStatus confirmedStatus = result.getStatus() != null ? result.getStatus() : payment.getStatus();
 
@@ -167,7 +283,10 @@ public class PaymentServiceImpl implements PaymentService {
                 .orElseThrow(() -> new NotFoundException("Payment not found: " + paymentId));
 
         PaymentGatewayProvider gateway = getGatewayProvider(payment.getProvider());
-        gateway.refundTransaction(payment, amount, reason);
+        viaGateway(gateway, () -> {
+            gateway.refundTransaction(payment, amount, reason);
+            return null;
+        });
     }
 
 
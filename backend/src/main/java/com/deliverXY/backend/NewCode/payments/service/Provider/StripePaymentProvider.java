@@ -8,6 +8,7 @@ import com.deliverXY.backend.NewCode.payments.service.PaymentGatewayProvider;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
@@ -24,10 +25,16 @@ public class StripePaymentProvider implements PaymentGatewayProvider {
     @Value("${stripe.secret-key}")
     private String secretKey;
 
+    // Below payments.gateway.stripe.timeout-ms, so a hung call frees its bulkhead thread
+    @Value("${stripe.read-timeout-ms:8000}")
+    private int timeoutMs;
+
     @PostConstruct
     public void init(){
         System.out.println("Stripe key loaded: " + (secretKey != null));
         Stripe.apiKey = secretKey;
+        Stripe.setConnectTimeout(Math.min(timeoutMs, 5000));
+        Stripe.setReadTimeout(timeoutMs);
     }
 
     @Override
@@ -35,6 +42,11 @@ public class StripePaymentProvider implements PaymentGatewayProvider {
         return PaymentProvider.STRIPE;
     }
 
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
     @Override
     public PaymentResultDTO initiateTransaction(Payment payment) {
 
@@ -50,6 +62,10 @@ public class StripePaymentProvider implements PaymentGatewayProvider {
                             .setCurrency("mkd")
                             .putMetadata("payment_id", payment.getId().toString())
                             .putMetadata("delivery_id", payment.getDelivery().getId().toString())
+                            .build(),
+                    // A call that timed out on our side may still have reached Stripe; a repeat returns the same intent
+                    RequestOptions.builder()
+                            .setIdempotencyKey("payment-" + payment.getId())
                             .build()
             );
 
@@ -27,7 +27,7 @@ public class WalletPaymentProvider implements PaymentGatewayProvider {
     public PaymentResultDTO initiateTransaction(Payment payment) {
         String ref = "ESCROW_HOLD_" + payment.getDelivery().getId() + "_" + UUID.randomUUID().toString().substring(0, 8);
 
-        walletService.withdraw(
+        walletService.payIntoEscrow(
                 payment.getPayerId(),
                 payment.getAmount(),
                 ref
@@ -55,6 +55,6 @@ public class WalletPaymentProvider implements PaymentGatewayProvider {
 
     @Override
     public void refundTransaction(Payment payment, BigDecimal amount, String reason) {
-        walletService.deposit(payment.getPayerId(), amount, reason);
+        walletService.refundFromEscrow(payment.getPayerId(), amount, reason);
     }
 }
@@ -23,4 +23,9 @@ public class AppUserStats {
     private Double rating = 0.0;
     private Integer totalDeliveries = 0;
     private BigDecimal totalEarnings = BigDecimal.ZERO;
+
+    // DELIVERY COUNTERS (maintained by UserDeliveryCounters; totalDeliveries = requested + completed)
+    private Integer requestedDeliveries = 0;
+    private Integer completedDeliveries = 0;
+    private Integer cancelledDeliveries = 0;
 }
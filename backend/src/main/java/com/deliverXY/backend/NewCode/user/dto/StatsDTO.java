@@ -8,5 +8,8 @@ import java.math.BigDecimal;
 public class StatsDTO {
     private Double rating;
     private Integer totalDeliveries;
+    private Integer requestedDeliveries;
+    private Integer completedDeliveries;
+    private Integer cancelledDeliveries;
     private BigDecimal totalEarnings;
 }
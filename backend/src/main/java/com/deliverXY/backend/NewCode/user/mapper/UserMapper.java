@@ -75,6 +75,9 @@ public class UserMapper {
 
         dto.setRating(stats.getRating());
         dto.setTotalDeliveries(stats.getTotalDeliveries());
+        dto.setRequestedDeliveries(stats.getRequestedDeliveries());
+        dto.setCompletedDeliveries(stats.getCompletedDeliveries());
+        dto.setCancelledDeliveries(stats.getCancelledDeliveries());
         dto.setTotalEarnings(stats.getTotalEarnings());
 
         return dto;
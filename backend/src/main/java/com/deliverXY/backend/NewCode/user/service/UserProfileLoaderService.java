@@ -8,6 +8,7 @@ import com.deliverXY.backend.NewCode.user.repository.AppUserAgentProfileReposito
 import com.deliverXY.backend.NewCode.kyc.repository.AppUserKYCRepository;
 import com.deliverXY.backend.NewCode.user.repository.AppUserLocationRepository;
 import com.deliverXY.backend.NewCode.user.repository.AppUserStatsRepository;
+import com.deliverXY.backend.NewCode.user.stats.UserDeliveryCounters;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -18,6 +19,7 @@ public class UserProfileLoaderService {
     private final AppUserAgentProfileRepository profileRepo;
     private final AppUserLocationRepository locationRepo;
     private final AppUserStatsRepository statsRepo;
+    private final UserDeliveryCounters deliveryCounters;
 
     public AppUserKYC getKYC(Long userId) {
         return kycRepo.findById(userId).orElse(null);
@@ -31,7 +33,24 @@ public class UserProfileLoaderService {
         return locationRepo.findById(userId).orElse(null);
     }
 
+    /**
+     * Stored stats with the delivery counts taken from the live counters,
+     * which may be ahead of the table by one flush. Returned as a copy so
+     * the managed row is never written from here.
+     */
     public AppUserStats getStats(Long userId) {
-        return statsRepo.findById(userId).orElse(null);
+        AppUserStats stats = new AppUserStats();
+        statsRepo.findById(userId).ifPresent(stored -> {
+            stats.setId(stored.getId());
+            stats.setRating(stored.getRating());
+            stats.setTotalEarnings(stored.getTotalEarnings());
+        });
+
+        UserDeliveryCounters.Counts counts = deliveryCounters.get(userId);
+        stats.setTotalDeliveries(counts.total());
+        stats.setRequestedDeliveries(counts.requested());
+        stats.setCompletedDeliveries(counts.completed());
+        stats.setCancelledDeliveries(counts.cancelled());
+        return stats;
     }
 }
@@ -1,5 +1,6 @@
 package com.deliverXY.backend.NewCode.user.service.impl;
 
+import com.deliverXY.backend.NewCode.admin.dashboard.DashboardCounters;
 import com.deliverXY.backend.NewCode.common.enums.UserRole;
 import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
 import com.deliverXY.backend.NewCode.user.domain.AppUser;
@@ -19,6 +20,7 @@ import java.util.Optional;
 public class AppUserServiceImpl implements AppUserService {
 
     private final AppUserRepository repo;
+    private final DashboardCounters dashboardCounters;
 
     @Override
     public Optional<AppUser> findById(Long id) {
@@ -57,7 +59,10 @@ public class AppUserServiceImpl implements AppUserService {
 
     @Override
     public AppUser save(AppUser user) {
-        return repo.save(user);
+        boolean created = user.getId() == null;
+        AppUser saved = repo.save(user);
+        if (created) dashboardCounters.onUserCreated(saved.getRole());
+        return saved;
     }
 
     @Override
@@ -67,18 +72,16 @@ public class AppUserServiceImpl implements AppUserService {
 
     @Override
     public void deleteById(Long id) {
-        if (!repo.existsById(id)) {
-            throw new NotFoundException("User not found: " + id);
-        }
-        repo.deleteById(id);
+        AppUser user = requireById(id);
+        repo.delete(user);
+        dashboardCounters.onUserDeleted(user.getRole());
     }
 
     @Override
     public void deleteByUsername(String username) {
-        if (!repo.existsByUsername(username)) {
-            throw new NotFoundException("User not found: " + username);
-        }
-        repo.deleteByUsername(username);
+        AppUser user = requireByUsername(username);
+        repo.delete(user);
+        dashboardCounters.onUserDeleted(user.getRole());
     }
     @Override
     public AppUser requireById(Long id) {
@@ -0,0 +1,280 @@
+package com.deliverXY.backend.NewCode.user.stats;
+
+import com.deliverXY.backend.NewCode.common.enums.DeliveryStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-user delivery counters backed by app_user_stats.
+ * Counts live in memory as immutable {@link Counts} per user, loaded from
+ * the table on first use and updated after the delivery transaction
+ * commits. Changed users are upserted on a fixed cadence (write-behind);
+ * a repair job rebuilds every row from deliveries.
+ */
+@Service
+@Slf4j
+public class UserDeliveryCounters {
+
+    private static final String LOAD_SQL = """
+            SELECT COALESCE(requested_deliveries, 0), COALESCE(completed_deliveries, 0),
+                   COALESCE(cancelled_deliveries, 0)
+            FROM app_user_stats WHERE user_id = ?
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO app_user_stats (user_id, rating, total_earnings, total_deliveries,
+                                        requested_deliveries, completed_deliveries, cancelled_deliveries)
+            VALUES (?, 0, 0, ?, ?, ?, ?)
+            ON CONFLICT (user_id) DO UPDATE
+            SET total_deliveries = EXCLUDED.total_deliveries,
+                requested_deliveries = EXCLUDED.requested_deliveries,
+                completed_deliveries = EXCLUDED.completed_deliveries,
+                cancelled_deliveries = EXCLUDED.cancelled_deliveries
+            """;
+
+    private static final String RESET_SQL = """
+            UPDATE app_user_stats
+            SET total_deliveries = 0, requested_deliveries = 0, completed_deliveries = 0, cancelled_deliveries = 0
+            """;
+
+    private static final String REBUILD_SQL = """
+            INSERT INTO app_user_stats (user_id, rating, total_earnings, total_deliveries,
+                                        requested_deliveries, completed_deliveries, cancelled_deliveries)
+            SELECT user_id, 0, 0, SUM(requested) + SUM(completed), SUM(requested), SUM(completed), SUM(cancelled)
+            FROM (
+                SELECT client_id AS user_id, COUNT(*) AS requested, 0 AS completed,
+                       COUNT(*) FILTER (WHERE status = 'CANCELLED') AS cancelled
+                FROM deliveries GROUP BY client_id
+                UNION ALL
+                SELECT agent_id, 0, COUNT(*), 0
+                FROM deliveries WHERE agent_id IS NOT NULL AND status = 'DELIVERED' GROUP BY agent_id
+            ) per_role
+            GROUP BY user_id
+            ON CONFLICT (user_id) DO UPDATE
+            SET total_deliveries = EXCLUDED.total_deliveries,
+                requested_deliveries = EXCLUDED.requested_deliveries,
+                completed_deliveries = EXCLUDED.completed_deliveries,
+                cancelled_deliveries = EXCLUDED.cancelled_deliveries
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int maxResident;
+
+    private final ConcurrentHashMap<Long, Counts> counts = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    /** Updates share the read side; the repair job takes the write side while it swaps in rebuilt rows. */
+    private final ReadWriteLock repairLock = new ReentrantReadWriteLock();
+
+    /**
+     * Deliveries a user requested as a client (and how many of those were
+     * cancelled), and deliveries they completed as an agent.
+     */
+    public record Counts(int requested, int completed, int cancelled) {
+
+        static final Counts ZERO = new Counts(0, 0, 0);
+
+        public int total() {
+            return requested + completed;
+        }
+
+        Counts plus(int requested, int completed, int cancelled) {
+            return new Counts(this.requested + requested, this.completed + completed, this.cancelled + cancelled);
+        }
+    }
+
+    public UserDeliveryCounters(JdbcTemplate jdbc,
+                                PlatformTransactionManager txManager,
+                                MeterRegistry meters,
+                                @Value("${stats.max-resident-users:200000}") int maxResident) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.maxResident = maxResident;
+
+        meters.gauge("stats.users.resident", counts, ConcurrentHashMap::size);
+        meters.gauge("stats.users.dirty", dirty, Set::size);
+    }
+
+    // -------------------------------------------------------------
+    // READS
+    // -------------------------------------------------------------
+    public Counts get(Long userId) {
+        if (userId == null) return Counts.ZERO;
+        return counts.computeIfAbsent(userId, this::load);
+    }
+
+    public boolean hasRequested(Long userId) {
+        return get(userId).requested() > 0;
+    }
+
+    private Counts load(Long userId) {
+        List<Counts> rows = jdbc.query(LOAD_SQL,
+                (rs, i) -> new Counts(rs.getInt(1), rs.getInt(2), rs.getInt(3)), userId);
+        return rows.isEmpty() ? Counts.ZERO : rows.get(0);
+    }
+
+    // -------------------------------------------------------------
+    // TRANSITIONS (applied once the surrounding transaction commits)
+    // -------------------------------------------------------------
+    public void onCreated(Long clientId) {
+        afterCommit(() -> add(clientId, 1, 0, 0));
+    }
+
+    public void onStatusChange(Long clientId, Long agentId, DeliveryStatus from, DeliveryStatus to) {
+        if (from == to) return;
+        int cancelled = contribution(to, DeliveryStatus.CANCELLED) - contribution(from, DeliveryStatus.CANCELLED);
+        int completed = contribution(to, DeliveryStatus.DELIVERED) - contribution(from, DeliveryStatus.DELIVERED);
+        afterCommit(() -> {
+            if (cancelled != 0) add(clientId, 0, 0, cancelled);
+            if (completed != 0 && agentId != null) add(agentId, 0, completed, 0);
+        });
+    }
+
+    public void onDeleted(Long clientId, Long agentId, DeliveryStatus status) {
+        int cancelled = contribution(status, DeliveryStatus.CANCELLED);
+        int completed = contribution(status, DeliveryStatus.DELIVERED);
+        afterCommit(() -> {
+            add(clientId, -1, 0, -cancelled);
+            if (completed != 0 && agentId != null) add(agentId, 0, -completed, 0);
+        });
+    }
+
+    private static int contribution(DeliveryStatus status, DeliveryStatus counted) {
+        return status == counted ? 1 : 0;
+    }
+
+    private void add(Long userId, int requested, int completed, int cancelled) {
+        if (userId == null) return;
+        repairLock.readLock().lock();
+        try {
+            counts.compute(userId, (id, c) -> {
+                Counts base = c != null ? c : load(id);
+                dirty.add(id);
+                return base.plus(requested, completed, cancelled);
+            });
+        } finally {
+            repairLock.readLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // -------------------------------------------------------------
+    // WRITE-BEHIND
+    // -------------------------------------------------------------
+    @Scheduled(fixedDelayString = "${stats.flush-interval-ms:5000}")
+    public void flush() {
+        if (!dirty.isEmpty()) write(drain());
+        evictIfOverCapacity();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private List<Row> drain() {
+        List<Row> batch = new ArrayList<>(dirty.size());
+        for (Long userId : dirty) {
+            dirty.remove(userId);
+            // add() marks the user inside compute, before get() can see the new value; reading
+            // under the entry's lock waits for that compute to finish
+            counts.computeIfPresent(userId, (id, c) -> {
+                batch.add(new Row(id, c));
+                return c;
+            });
+        }
+        return batch;
+    }
+
+    private void write(List<Row> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            tx.executeWithoutResult(status -> jdbc.batchUpdate(UPSERT_SQL, batch, batch.size(), (ps, row) -> {
+                ps.setLong(1, row.userId());
+                ps.setInt(2, row.counts().total());
+                ps.setInt(3, row.counts().requested());
+                ps.setInt(4, row.counts().completed());
+                ps.setInt(5, row.counts().cancelled());
+            }));
+        } catch (RuntimeException e) {
+            log.error("Failed to flush delivery counters of {} users, re-queueing", batch.size(), e);
+            batch.forEach(row -> dirty.add(row.userId()));
+        }
+    }
+
+    private void evictIfOverCapacity() {
+        if (counts.size() <= maxResident) return;
+        for (Long userId : counts.keySet()) {
+            // Clean entries only; a dirty one still has to be written
+            counts.computeIfPresent(userId, (id, c) -> dirty.contains(id) ? c : null);
+            if (counts.size() <= maxResident / 2) break;
+        }
+    }
+
+    private record Row(Long userId, Counts counts) {
+    }
+
+    // -------------------------------------------------------------
+    // REPAIR
+    // -------------------------------------------------------------
+    @EventListener(ApplicationReadyEvent.class)
+    public void repairOnStartup() {
+        repair();
+    }
+
+    /**
+     * Rebuilds every user's counters from deliveries with two set-based
+     * statements and drops the in-memory copies, which reload on next use.
+     * Pending counts are flushed first and updates wait while it runs.
+     */
+    @Scheduled(cron = "${stats.repair-cron:0 30 3 * * *}")
+    public void repair() {
+        repairLock.writeLock().lock();
+        try {
+            write(drain());
+            long started = System.currentTimeMillis();
+            Integer rows = tx.execute(status -> {
+                jdbc.update(RESET_SQL);
+                return jdbc.update(REBUILD_SQL);
+            });
+            counts.clear();
+            dirty.clear();
+            log.info("Rebuilt delivery counters of {} users in {} ms", rows, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild delivery counters", e);
+        } finally {
+            repairLock.writeLock().unlock();
+        }
+    }
+}
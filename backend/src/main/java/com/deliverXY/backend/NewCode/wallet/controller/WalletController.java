@@ -1,33 +1,52 @@
 package com.deliverXY.backend.NewCode.wallet.controller;
 
+import com.deliverXY.backend.NewCode.common.idempotency.IdempotencyService;
 import com.deliverXY.backend.NewCode.common.response.ApiResponse;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
 import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
+import com.deliverXY.backend.NewCode.payments.inbox.InboundEventQueue;
 import com.deliverXY.backend.NewCode.security.UserPrincipal;
 import com.deliverXY.backend.NewCode.wallet.dto.TopUpInitDTO;
 import com.deliverXY.backend.NewCode.wallet.dto.TopUpInitResponseDTO;
 import com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionDTO;
+import com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionPageDTO;
 import com.deliverXY.backend.NewCode.wallet.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/wallet")
 public class WalletController {
     private final WalletService walletService;
+    private final IdempotencyService idempotency;
+    private final InboundEventQueue inbox;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ApiResponse<?> getWallet(@AuthenticationPrincipal UserPrincipal principal) {
-        return ApiResponse.ok(walletService.getWallet(principal.getUser().getId()));
+        return ApiResponse.ok(walletService.getWalletOverview(principal.getUser().getId()));
     }
     @PostMapping("/topup/initiate")
     public ApiResponse<TopUpInitResponseDTO> initiateTopUp(
             @AuthenticationPrincipal UserPrincipal principal,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody TopUpInitDTO dto
 
     ){
@@ -39,12 +58,10 @@ public class WalletController {
                     "/api/wallet/topup/initiate"
             );
         }
-        return ApiResponse.ok(
-                walletService.initiateTopUp(
-                principal.getUser().getId(),
-                amount,
-                dto.getProvider()
-        ));
+        // A retried top-up gets the first PaymentIntent back instead of creating another
+        Long userId = principal.getUser().getId();
+        return idempotency.execute("wallet.topup", userId, idempotencyKey, dto, TopUpInitResponseDTO.class, () ->
+                ApiResponse.ok(walletService.initiateTopUp(userId, amount, dto.getProvider())));
     }
     @PostMapping("/create-initial/{userId}")
     @PreAuthorize( "hasRole('ADMIN')")
@@ -66,58 +83,120 @@ public class WalletController {
             @RequestParam boolean success,
             @RequestParam(required = false) String referenceId
     ) {
-        walletService.finalizeTopUp(topUpId, success, referenceId);
-        return ApiResponse.ok("Top-up finalized");
+        // Applied by the inbound event worker; duplicates of a queued callback collapse into it
+        inbox.enqueueTopUpCallback(topUpId, success, referenceId);
+        return ApiResponse.ok("Top-up callback accepted");
     }
 
 
     @PostMapping("/deposit")
     public ApiResponse<String> deposit(
             @AuthenticationPrincipal UserPrincipal principal,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody WalletTransactionDTO dto
     ) {
         BigDecimal amount = dto.getAmount();
         if (amount == null) {
             return ApiResponse.error("Amount is required for deposit.", 400, "AMOUNT_REQUIRED", "/api/wallet/deposit");
         }
-        walletService.deposit(
-                principal.getUser().getId(),
-                amount,
-                dto.getReference()
-        );
-        return ApiResponse.ok("Deposit successful");
+        Long userId = principal.getUser().getId();
+        return idempotency.execute("wallet.deposit", userId, idempotencyKey, dto, String.class, () -> {
+            walletService.deposit(
+                    userId,
+                    amount,
+                    dto.getReference()
+            );
+            return ApiResponse.ok("Deposit successful");
+        });
     }
 
     @PostMapping("/withdraw")
-    public ApiResponse<?> withdraw(
+    public ApiResponse<String> withdraw(
             @AuthenticationPrincipal UserPrincipal principal,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody WalletTransactionDTO dto
     ) {
         BigDecimal amount = dto.getAmount();
         if (amount == null) {
             return ApiResponse.error("Amount is required for withdrawal.", 400, "AMOUNT_REQUIRED", "/api/wallet/withdraw");
         }
-        try {
-            walletService.withdraw(
-                    principal.getUser().getId(),
-                    amount,
-                    dto.getReference()
-            );
-        }catch (NotFoundException e){
-            return ApiResponse.error(
-                    e.getMessage(),
-                    400,
-                    "WALLET_WITHDRAW_DENIED",
-                    "/api/wallet/withdraw"
-            );
+        Long userId = principal.getUser().getId();
+        return idempotency.execute("wallet.withdraw", userId, idempotencyKey, dto, String.class, () -> {
+            try {
+                walletService.withdraw(
+                        userId,
+                        amount,
+                        dto.getReference()
+                );
+            }catch (NotFoundException | BadRequestException e){
+                return ApiResponse.error(
+                        e.getMessage(),
+                        400,
+                        "WALLET_WITHDRAW_DENIED",
+                        "/api/wallet/withdraw"
+                );
+            }
+            return ApiResponse.ok("Withdraw successful");
+        });
+    }
+
+    @GetMapping("/transactions")
+    public ApiResponse<WalletTransactionPageDTO> getTransactions(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        return ApiResponse.ok(walletService.getTransactions(principal.getUser().getId(), cursor, limit));
+    }
+
+    /**
+     * Streams the whole statement as CSV (default) or NDJSON, newest
+     * first, without holding it in memory.
+     */
+    @GetMapping("/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestParam(defaultValue = "csv") String format
+    ) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        if (!ndjson && !"csv".equalsIgnoreCase(format)) {
+            throw new BadRequestException("Unsupported export format: " + format);
         }
+        Long userId = principal.getUser().getId();
 
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (!ndjson) writer.write("id,created_at,type,amount,reference\n");
+            walletService.exportTransactions(userId, tx -> {
+                try {
+                    writer.write(ndjson ? objectMapper.writeValueAsString(tx) : csvLine(tx));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
 
-        return ApiResponse.ok("Withdraw successful");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ndjson ? "application/x-ndjson" : "text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"wallet-statement." + (ndjson ? "ndjson" : "csv") + "\"")
+                .body(body);
     }
 
-    @GetMapping("/transactions")
-    public ApiResponse<?> getTransactions(@AuthenticationPrincipal UserPrincipal principal) {
-        return ApiResponse.ok(walletService.getTransactions(principal.getUser().getId()));
+    private static String csvLine(WalletTransactionDTO tx) {
+        return tx.getId() + "," + tx.getCreatedAt() + "," + tx.getType() + ","
+                + tx.getAmount() + "," + csvField(tx.getReference());
+    }
+
+    private static String csvField(String value) {
+        if (value == null) return "";
+        // References can be user-supplied; keep spreadsheets from evaluating them as formulas
+        if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) value = "'" + value;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 }
@@ -22,7 +22,8 @@ public class Wallet {
     @JsonIgnoreProperties({"vehicles", "hibernateLazyInitializer", "handler"})
     private AppUser user;
     
-    @Column(name = "balance", nullable = false)
+    // Projection of the ledger; only LedgerService moves it, with atomic SQL increments
+    @Column(name = "balance", nullable = false, updatable = false)
     private BigDecimal balance = BigDecimal.ZERO;
     
     @Column(name = "currency", nullable = false)
@@ -37,13 +38,14 @@ public class Wallet {
     @Column(name = "monthly_limit")
     private BigDecimal monthlyLimit = new BigDecimal("10000.00"); // Default $10000 monthly limit
     
-    @Column(name = "daily_spent")
+    // Rolling spend lives in SpendWindowTracker; these are only filled in for responses
+    @Column(name = "daily_spent", updatable = false)
     private BigDecimal dailySpent = BigDecimal.ZERO;
     
-    @Column(name = "monthly_spent")
+    @Column(name = "monthly_spent", updatable = false)
     private BigDecimal monthlySpent = BigDecimal.ZERO;
     
-    @Column(name = "last_reset_date")
+    @Column(name = "last_reset_date", updatable = false)
     private LocalDateTime lastResetDate = LocalDateTime.now();
     
     @Column(name = "created_at")
@@ -61,20 +63,6 @@ public class Wallet {
         return balance.compareTo(amount) >= 0;
     }
     
-    public void addFunds(BigDecimal amount) {
-        this.balance = this.balance.add(amount);
-    }
-    
-    public boolean deductFunds(BigDecimal amount) {
-        if (canWithdraw(amount)) {
-            this.balance = this.balance.subtract(amount);
-            this.dailySpent = this.dailySpent.add(amount);
-            this.monthlySpent = this.monthlySpent.add(amount);
-            return true;
-        }
-        return false;
-    }
-    
     public void resetDailyLimits() {
         this.dailySpent = BigDecimal.ZERO;
         this.lastResetDate = LocalDateTime.now();
@@ -8,7 +8,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "wallet_transactions")
+@Table(
+        name = "wallet_transactions",
+        indexes = {
+                @Index(name = "idx_wallet_tx_history", columnList = "wallet_id, createdAt, id"),
+                @Index(name = "idx_wallet_tx_reference", columnList = "reference")
+        }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,6 +37,9 @@ public class WalletTransaction {
 
     private String reference; // Delivery ID, Promo ID, etc.
 
+    @Column(name = "posting_id", length = 36)
+    private String postingId; // Ledger posting this statement line belongs to
+
     private LocalDateTime createdAt;
     @PrePersist
     protected void onCreate() {
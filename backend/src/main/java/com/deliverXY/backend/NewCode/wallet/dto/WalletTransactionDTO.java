@@ -3,12 +3,16 @@ package com.deliverXY.backend.NewCode.wallet.dto;
 import com.deliverXY.backend.NewCode.common.enums.TransactionType;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class WalletTransactionDTO {
     private Long id;
     private TransactionType type;
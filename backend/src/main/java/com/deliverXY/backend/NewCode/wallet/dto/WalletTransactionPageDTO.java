@@ -0,0 +1,16 @@
+package com.deliverXY.backend.NewCode.wallet.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class WalletTransactionPageDTO {
+
+    private List<WalletTransactionDTO> items;
+
+    // Pass back as ?cursor= for the next (older) page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,7 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import java.math.BigDecimal;
+
+/** One wallet credit in a {@link LedgerBatchWriter} run. */
+public record BatchCredit(Long userId, BigDecimal amount, String reference) {
+}
@@ -0,0 +1,41 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+/**
+ * Ledger account key. User accounts are keyed by wallet id and their
+ * balance is projected onto wallets.balance; the system accounts are
+ * projected onto striped rows in ledger_balances.
+ */
+public record LedgerAccount(String key) implements Comparable<LedgerAccount> {
+
+    private static final String USER_PREFIX = "USER:";
+
+    /** Platform revenue (commission). */
+    public static final LedgerAccount PLATFORM = new LedgerAccount("PLATFORM");
+    /** Customer payments held until the delivery is settled or refunded. */
+    public static final LedgerAccount ESCROW = new LedgerAccount("ESCROW");
+    /** Money entering or leaving the system (top-ups, card payments, withdrawals, payouts). */
+    public static final LedgerAccount EXTERNAL = new LedgerAccount("EXTERNAL");
+
+    public static LedgerAccount user(Long walletId) {
+        return new LedgerAccount(USER_PREFIX + walletId);
+    }
+
+    public boolean isUser() {
+        return key.startsWith(USER_PREFIX);
+    }
+
+    public Long walletId() {
+        if (!isUser()) throw new IllegalStateException(key + " is not a user account");
+        return Long.valueOf(key.substring(USER_PREFIX.length()));
+    }
+
+    @Override
+    public int compareTo(LedgerAccount other) {
+        return key.compareTo(other.key);
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,35 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance projection of a system account, split into stripes so that
+ * concurrent postings to the same hot account update different rows.
+ * The account balance is the sum of its stripes.
+ */
+@Entity
+@Table(
+        name = "ledger_balances",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ledger_balance_stripe", columnNames = {"account", "stripe"})
+)
+@Data
+@NoArgsConstructor
+public class LedgerBalance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 40)
+    private String account;
+
+    @Column(nullable = false)
+    private Integer stripe;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+}
@@ -0,0 +1,43 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of one bulk credit run. Credits are applied in ascending user
+ * id order and {@code lastUserId} moves in the same transaction as each
+ * chunk, so a rerun after a crash continues after the last committed
+ * chunk. Written by {@link LedgerBatchWriter} only.
+ */
+@Entity
+@Table(name = "ledger_batches")
+@Data
+@NoArgsConstructor
+public class LedgerBatch {
+
+    @Id
+    @Column(name = "batch_id", length = 80)
+    private String batchId;
+
+    @Column(nullable = false, length = 40)
+    private String source;
+
+    @Column(name = "last_user_id")
+    private Long lastUserId;
+
+    @Column(nullable = false)
+    private Integer credited;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,267 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
+import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
+import com.deliverXY.backend.NewCode.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Bulk wallet credits (payout runs and the like).
+ * Credits are merged per user, sorted by user id and applied in chunks,
+ * one transaction and one balanced posting per chunk: the source's
+ * stripe moves once, every wallet in the chunk moves with a single
+ * set-based UPDATE, and journal lines and statement lines go in as JDBC
+ * batches. Progress is kept in ledger_batches, so rerunning a batch id
+ * after a crash skips what already committed.
+ */
+@Service
+@Slf4j
+public class LedgerBatchWriter {
+
+    private static final String START_SQL = """
+            INSERT INTO ledger_batches (batch_id, source, credited, total, started_at)
+            VALUES (?, ?, 0, 0, ?)
+            ON CONFLICT (batch_id) DO NOTHING
+            """;
+
+    private static final String PROGRESS_SQL =
+            "SELECT last_user_id, finished_at FROM ledger_batches WHERE batch_id = ?";
+
+    private static final String ADVANCE_SQL = """
+            UPDATE ledger_batches SET last_user_id = ?, credited = credited + ?, total = total + ?
+            WHERE batch_id = ?
+            """;
+
+    private static final String FINISH_SQL = "UPDATE ledger_batches SET finished_at = ? WHERE batch_id = ?";
+
+    private static final String RESOLVE_WALLETS_SQL = "SELECT user_id, id FROM wallets WHERE user_id = ANY(?)";
+
+    private static final String CREDIT_WALLETS_SQL = """
+            UPDATE wallets w SET balance = w.balance + v.amount, updated_at = ?
+            FROM unnest(?::bigint[], ?::numeric[]) AS v(id, amount)
+            WHERE w.id = v.id
+            """;
+
+    private static final String INSERT_STATEMENT_LINE_SQL = """
+            INSERT INTO wallet_transactions (wallet_id, amount, type, reference, posting_id, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final LedgerService ledger;
+    private final WalletRepository walletRepository;
+    private final AppUserRepository userRepo;
+    private final int chunkSize;
+    private final Timer chunkLatency;
+
+    /** Called inside each chunk's transaction with the credits that chunk applied. */
+    @FunctionalInterface
+    public interface ChunkListener {
+        void onChunk(String postingId, List<BatchCredit> credited);
+    }
+
+    public record Result(String batchId, int credited, int chunks, boolean resumed) {
+    }
+
+    public LedgerBatchWriter(JdbcTemplate jdbc,
+                             PlatformTransactionManager txManager,
+                             LedgerService ledger,
+                             WalletRepository walletRepository,
+                             AppUserRepository userRepo,
+                             MeterRegistry meters,
+                             @Value("${ledger.batch.chunk-size:1000}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.ledger = ledger;
+        this.walletRepository = walletRepository;
+        this.userRepo = userRepo;
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.chunkLatency = Timer.builder("wallet.ledger.batch.chunk.latency")
+                .description("Time to apply one chunk of a bulk credit run")
+                .register(meters);
+    }
+
+    /**
+     * Credits every user in {@code credits} from {@code source}. Must not
+     * be called inside a transaction: each chunk commits on its own. A
+     * batch id that already finished is a no-op, and one that was cut
+     * short resumes after its last committed chunk, so callers rerun a
+     * failed run with the same id and the same credits.
+     */
+    public Result creditAll(String batchId, TransactionType type, LedgerAccount source,
+                            List<BatchCredit> credits, ChunkListener listener) {
+        if (source.isUser()) {
+            throw new IllegalArgumentException("Bulk credits must come from a system account");
+        }
+        TreeMap<Long, BatchCredit> byUser = merge(credits);
+
+        jdbc.update(START_SQL, batchId, source.key(), Timestamp.valueOf(LocalDateTime.now()));
+        Progress progress = progress(batchId);
+        if (progress.finished()) {
+            log.info("Ledger batch {} already finished, nothing to do", batchId);
+            return new Result(batchId, 0, 0, true);
+        }
+
+        Long cursor = progress.lastUserId();
+        List<BatchCredit> pending = new ArrayList<>(
+                cursor == null ? byUser.values() : byUser.tailMap(cursor, false).values());
+
+        long started = System.currentTimeMillis();
+        int credited = 0;
+        int chunks = 0;
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<BatchCredit> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            Long expected = from == 0 ? cursor : pending.get(from - 1).userId();
+            Integer applied = chunkLatency.record(() -> tx.execute(status ->
+                    applyChunk(batchId, type, source, expected, chunk, listener)));
+            credited += applied != null ? applied : 0;
+            chunks++;
+        }
+
+        jdbc.update(FINISH_SQL, Timestamp.valueOf(LocalDateTime.now()), batchId);
+        log.info("Ledger batch {}: credited {} wallets in {} chunks in {} ms{}", batchId, credited, chunks,
+                System.currentTimeMillis() - started, cursor != null ? " (resumed)" : "");
+        return new Result(batchId, credited, chunks, cursor != null);
+    }
+
+    private static TreeMap<Long, BatchCredit> merge(List<BatchCredit> credits) {
+        TreeMap<Long, BatchCredit> byUser = new TreeMap<>();
+        for (BatchCredit c : credits) {
+            if (c.userId() == null || c.amount() == null || c.amount().signum() <= 0) {
+                throw new IllegalArgumentException("Bulk credit needs a user and a positive amount: " + c);
+            }
+            byUser.merge(c.userId(), c, (a, b) -> new BatchCredit(a.userId(), a.amount().add(b.amount()), a.reference()));
+        }
+        return byUser;
+    }
+
+    // -------------------------------------------------------------
+    // CHUNK
+    // -------------------------------------------------------------
+    private int applyChunk(String batchId, TransactionType type, LedgerAccount source, Long expectedCursor,
+                           List<BatchCredit> chunk, ChunkListener listener) {
+        // Locks the batch row; a second runner of the same batch waits here and then fails the check
+        Long cursor = jdbc.queryForObject(PROGRESS_SQL + " FOR UPDATE",
+                (rs, i) -> rs.getObject(1, Long.class), batchId);
+        if (!Objects.equals(cursor, expectedCursor)) {
+            throw new IllegalStateException("Ledger batch " + batchId + " was advanced by another run");
+        }
+
+        Map<Long, Long> walletIds = resolveWallets(chunk);
+        List<Line> lines = new ArrayList<>(chunk.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (BatchCredit c : chunk) {
+            Long walletId = walletIds.get(c.userId());
+            if (walletId == null) {
+                log.warn("Ledger batch {}: user {} not found, skipping credit of {}", batchId, c.userId(), c.amount());
+                continue;
+            }
+            BigDecimal amount = c.amount().setScale(2, RoundingMode.HALF_UP);
+            lines.add(new Line(c, walletId, amount));
+            total = total.add(amount);
+        }
+
+        Long last = chunk.get(chunk.size() - 1).userId();
+        if (lines.isEmpty()) {
+            jdbc.update(ADVANCE_SQL, last, 0, BigDecimal.ZERO, batchId);
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String postingId = UUID.randomUUID().toString();
+
+        // System account first: same lock order as LedgerService.post
+        jdbc.update(LedgerService.ADD_TO_STRIPE_SQL, source.key(), ledger.randomStripe(), total.negate());
+
+        Long[] ids = lines.stream().map(Line::walletId).toArray(Long[]::new);
+        BigDecimal[] amounts = lines.stream().map(Line::amount).toArray(BigDecimal[]::new);
+        int updated = jdbc.update(CREDIT_WALLETS_SQL, ps -> {
+            ps.setTimestamp(1, now);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(3, ps.getConnection().createArrayOf("numeric", amounts));
+        });
+        if (updated != lines.size()) {
+            throw new IllegalStateException("Ledger batch " + batchId + ": credited " + updated
+                    + " of " + lines.size() + " wallets");
+        }
+
+        List<Posting.Leg> legs = new ArrayList<>(lines.size() + 1);
+        legs.add(new Posting.Leg(source, total.negate()));
+        lines.forEach(line -> legs.add(new Posting.Leg(LedgerAccount.user(line.walletId()), line.amount())));
+        jdbc.batchUpdate(LedgerService.INSERT_ENTRY_SQL, legs, legs.size(), (ps, leg) -> {
+            ps.setString(1, postingId);
+            ps.setString(2, leg.account().key());
+            ps.setBigDecimal(3, leg.amount());
+            ps.setString(4, type.name());
+            ps.setString(5, batchId);
+            ps.setTimestamp(6, now);
+        });
+
+        jdbc.batchUpdate(INSERT_STATEMENT_LINE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setLong(1, line.walletId());
+            ps.setBigDecimal(2, line.amount());
+            ps.setInt(3, type.ordinal()); // wallet_transactions.type is mapped as an ordinal
+            ps.setString(4, line.credit().reference());
+            ps.setString(5, postingId);
+            ps.setTimestamp(6, now);
+        });
+
+        List<BatchCredit> applied = lines.stream()
+                .map(line -> new BatchCredit(line.credit().userId(), line.amount(), line.credit().reference()))
+                .toList();
+        if (listener != null) listener.onChunk(postingId, applied);
+
+        jdbc.update(ADVANCE_SQL, last, lines.size(), total, batchId);
+        return lines.size();
+    }
+
+    /** Wallet id per user; wallets that do not exist yet are created, unknown users are left out. */
+    private Map<Long, Long> resolveWallets(List<BatchCredit> chunk) {
+        Long[] userIds = chunk.stream().map(BatchCredit::userId).toArray(Long[]::new);
+        Map<Long, Long> walletIds = new HashMap<>(chunk.size() * 2);
+        jdbc.query(RESOLVE_WALLETS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds)),
+                rs -> {
+                    walletIds.put(rs.getLong(1), rs.getLong(2));
+                });
+
+        for (Long userId : userIds) {
+            if (walletIds.containsKey(userId)) continue;
+            userRepo.findById(userId).ifPresent(user ->
+                    walletIds.put(userId, walletRepository.save(new Wallet(user)).getId()));
+        }
+        return walletIds;
+    }
+
+    private Progress progress(String batchId) {
+        return jdbc.queryForObject(PROGRESS_SQL,
+                (rs, i) -> new Progress(rs.getObject(1, Long.class), rs.getTimestamp(2) != null), batchId);
+    }
+
+    private record Progress(Long lastUserId, boolean finished) {
+    }
+
+    private record Line(BatchCredit credit, Long walletId, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only journal line. Rows are written by {@link LedgerService}
+ * only and never updated or deleted.
+ */
+@Entity
+@Table(
+        name = "ledger_entries",
+        indexes = {
+                @Index(name = "idx_ledger_account", columnList = "account, id"),
+                @Index(name = "idx_ledger_posting", columnList = "posting_id")
+        }
+)
+@Data
+@NoArgsConstructor
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "posting_id", nullable = false, length = 36)
+    private String postingId;
+
+    @Column(nullable = false, length = 40)
+    private String account;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionType type;
+
+    private String reference;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,218 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Double-entry wallet ledger.
+ * ledger_entries is the append-only source of truth; balances are
+ * projections moved by single atomic increments, with no read-modify-write
+ * and no lock taken before the write. A user account's row is only locked
+ * by its own UPDATE, and system accounts spread their increments over
+ * striped rows, so throughput scales with the number of accounts touched
+ * rather than with how long any one lock is held.
+ */
+@Service
+@Slf4j
+public class LedgerService {
+
+    private static final String DEBIT_WALLET_SQL =
+            "UPDATE wallets SET balance = balance + ?, updated_at = ? WHERE id = ? AND balance + ? >= 0";
+    private static final String CREDIT_WALLET_SQL =
+            "UPDATE wallets SET balance = balance + ?, updated_at = ? WHERE id = ?";
+
+    static final String ADD_TO_STRIPE_SQL = """
+            INSERT INTO ledger_balances (account, stripe, balance) VALUES (?, ?, ?)
+            ON CONFLICT (account, stripe) DO UPDATE SET balance = ledger_balances.balance + EXCLUDED.balance
+            """;
+
+    static final String INSERT_ENTRY_SQL = """
+            INSERT INTO ledger_entries (posting_id, account, amount, type, reference, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    /** Transaction-scoped advisory lock serialising the opening posting across instances. */
+    static final String OPENING_LOCK_SQL = "SELECT pg_advisory_xact_lock(7310582112504321)";
+
+    private static final String WALLET_BALANCE_SQL = "SELECT balance FROM wallets WHERE id = ?";
+    private static final String SYSTEM_BALANCE_SQL =
+            "SELECT COALESCE(SUM(balance), 0) FROM ledger_balances WHERE account = ?";
+
+    /** Wallets whose projected balance differs from the sum of their entries. */
+    private static final String USER_DRIFT_SQL = """
+            SELECT COUNT(*) FROM wallets w
+            LEFT JOIN (SELECT account, SUM(amount) AS total FROM ledger_entries
+                       WHERE account LIKE 'USER:%' GROUP BY account) e
+                   ON e.account = 'USER:' || w.id
+            WHERE w.balance <> COALESCE(e.total, 0)
+            """;
+
+    /** System accounts whose stripes differ from the sum of their entries. */
+    private static final String SYSTEM_DRIFT_SQL = """
+            SELECT COUNT(*) FROM (
+                SELECT account, SUM(balance) AS total FROM ledger_balances GROUP BY account
+            ) b
+            FULL JOIN (
+                SELECT account, SUM(amount) AS total FROM ledger_entries
+                WHERE account NOT LIKE 'USER:%' GROUP BY account
+            ) e ON e.account = b.account
+            WHERE COALESCE(b.total, 0) <> COALESCE(e.total, 0)
+            """;
+
+    private static final String UNBALANCED_SQL = "SELECT COALESCE(SUM(amount), 0) FROM ledger_entries";
+
+    private final JdbcTemplate jdbc;
+    private final int stripes;
+    private final Timer postLatency;
+    private final AtomicInteger driftedAccounts = new AtomicInteger();
+
+    public LedgerService(JdbcTemplate jdbc,
+                         MeterRegistry meters,
+                         @Value("${ledger.system-stripes:16}") int stripes) {
+        this.jdbc = jdbc;
+        this.stripes = Math.max(stripes, 1);
+        this.postLatency = Timer.builder("wallet.ledger.post.latency")
+                .description("Time to write one ledger posting")
+                .register(meters);
+        meters.gauge("wallet.ledger.drift.accounts", driftedAccounts);
+    }
+
+    // -------------------------------------------------------------
+    // POSTING
+    // -------------------------------------------------------------
+
+    /**
+     * Writes the posting in the caller's transaction and returns its id.
+     * Balances are moved in account-key order so concurrent postings
+     * always lock rows in the same order. A user account that would go
+     * negative fails the posting with "Insufficient funds".
+     */
+    @Transactional
+    public String post(Posting posting) {
+        return postLatency.record(() -> write(posting));
+    }
+
+    private String write(Posting posting) {
+        List<Posting.Leg> legs = posting.netLegs();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (Posting.Leg leg : legs) {
+            LedgerAccount account = leg.account();
+            BigDecimal amount = leg.amount();
+
+            if (!account.isUser()) {
+                jdbc.update(ADD_TO_STRIPE_SQL, account.key(), randomStripe(), amount);
+            } else if (amount.signum() < 0) {
+                if (jdbc.update(DEBIT_WALLET_SQL, amount, now, account.walletId(), amount) == 0) {
+                    throw new BadRequestException("Insufficient funds");
+                }
+            } else if (jdbc.update(CREDIT_WALLET_SQL, amount, now, account.walletId()) == 0) {
+                throw new IllegalStateException("Wallet not found for ledger account " + account);
+            }
+        }
+
+        String postingId = UUID.randomUUID().toString();
+        jdbc.batchUpdate(INSERT_ENTRY_SQL, legs, legs.size(), (ps, leg) -> {
+            ps.setString(1, postingId);
+            ps.setString(2, leg.account().key());
+            ps.setBigDecimal(3, leg.amount());
+            ps.setString(4, posting.type().name());
+            ps.setString(5, posting.reference());
+            ps.setTimestamp(6, now);
+        });
+        return postingId;
+    }
+
+    /** Stripe a system-account increment goes to; spreads concurrent writers over rows. */
+    int randomStripe() {
+        return ThreadLocalRandom.current().nextInt(stripes);
+    }
+
+    // -------------------------------------------------------------
+    // READS
+    // -------------------------------------------------------------
+    public BigDecimal balanceOf(LedgerAccount account) {
+        if (account.isUser()) {
+            List<BigDecimal> rows = jdbc.queryForList(WALLET_BALANCE_SQL, BigDecimal.class, account.walletId());
+            return rows.isEmpty() || rows.get(0) == null ? BigDecimal.ZERO : rows.get(0);
+        }
+        return jdbc.queryForObject(SYSTEM_BALANCE_SQL, BigDecimal.class, account.key());
+    }
+
+    // -------------------------------------------------------------
+    // OPENING BALANCES
+    // -------------------------------------------------------------
+
+    /**
+     * Wallet balances that predate the ledger are brought in once as an
+     * opening posting against EXTERNAL, so every projection starts out
+     * equal to the sum of its entries. Instances starting together queue
+     * on the lock; the later ones then find the journal non-empty.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void openExistingBalances() {
+        jdbc.execute(OPENING_LOCK_SQL);
+        Integer entries = jdbc.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM ledger_entries LIMIT 1) e", Integer.class);
+        if (entries != null && entries > 0) return;
+
+        BigDecimal total = jdbc.queryForObject("SELECT COALESCE(SUM(balance), 0) FROM wallets", BigDecimal.class);
+        if (total == null || total.signum() == 0) return;
+
+        String postingId = UUID.randomUUID().toString();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int wallets = jdbc.update("""
+                INSERT INTO ledger_entries (posting_id, account, amount, type, reference, created_at)
+                SELECT ?, 'USER:' || id, balance, ?, 'Opening balance', ? FROM wallets WHERE balance <> 0
+                """, postingId, TransactionType.DEPOSIT.name(), now);
+        jdbc.update(INSERT_ENTRY_SQL, postingId, LedgerAccount.EXTERNAL.key(), total.negate(),
+                TransactionType.DEPOSIT.name(), "Opening balance", now);
+        jdbc.update(ADD_TO_STRIPE_SQL, LedgerAccount.EXTERNAL.key(), 0, total.negate());
+
+        log.info("Opened ledger with balances of {} wallets (total {})", wallets, total);
+    }
+
+    // -------------------------------------------------------------
+    // DRIFT CHECK
+    // -------------------------------------------------------------
+
+    /**
+     * Compares every projection with the sum of its entries and checks that
+     * the journal as a whole balances. Returns the number of drifted
+     * accounts, also published as wallet.ledger.drift.accounts.
+     */
+    @Scheduled(cron = "${ledger.verify-cron:0 15 * * * *}")
+    public int verify() {
+        Integer users = jdbc.queryForObject(USER_DRIFT_SQL, Integer.class);
+        Integer system = jdbc.queryForObject(SYSTEM_DRIFT_SQL, Integer.class);
+        BigDecimal unbalanced = jdbc.queryForObject(UNBALANCED_SQL, BigDecimal.class);
+
+        int drifted = (users != null ? users : 0) + (system != null ? system : 0);
+        driftedAccounts.set(drifted);
+
+        if (drifted > 0 || (unbalanced != null && unbalanced.signum() != 0)) {
+            log.error("Ledger drift: {} user accounts, {} system accounts, journal off by {}", users, system, unbalanced);
+        } else {
+            log.debug("Ledger verified: no drift");
+        }
+        return drifted;
+    }
+}
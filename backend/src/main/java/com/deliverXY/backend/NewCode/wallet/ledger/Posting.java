@@ -0,0 +1,54 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One balanced journal posting: legs per account whose amounts sum to
+ * zero. A positive amount credits the account (raises its balance), a
+ * negative one debits it.
+ */
+public record Posting(TransactionType type, String reference, List<Leg> legs) {
+
+    public record Leg(LedgerAccount account, BigDecimal amount) {
+    }
+
+    public Posting {
+        if (legs == null || legs.size() < 2) {
+            throw new IllegalArgumentException("A posting needs at least two legs");
+        }
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Leg leg : legs) sum = sum.add(leg.amount());
+        if (sum.signum() != 0) {
+            throw new IllegalArgumentException("Posting is not balanced: legs sum to " + sum);
+        }
+        legs = List.copyOf(legs);
+    }
+
+    /** Moves {@code amount} from one account to another. */
+    public static Posting transfer(TransactionType type, String reference,
+                                   LedgerAccount from, LedgerAccount to, BigDecimal amount) {
+        return new Posting(type, reference, List.of(new Leg(from, amount.negate()), new Leg(to, amount)));
+    }
+
+    /**
+     * Legs merged per account, rounded to cents and ordered by account
+     * key, which is the order rows are locked in.
+     */
+    List<Leg> netLegs() {
+        Map<LedgerAccount, BigDecimal> net = new TreeMap<>();
+        for (Leg leg : legs) net.merge(leg.account(), leg.amount(), BigDecimal::add);
+
+        List<Leg> out = new ArrayList<>(net.size());
+        net.forEach((account, amount) -> {
+            if (amount.signum() != 0) out.add(new Leg(account, amount.setScale(2, RoundingMode.HALF_UP)));
+        });
+        return out;
+    }
+}
@@ -0,0 +1,305 @@
+package com.deliverXY.backend.NewCode.wallet.limits;
+
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolling daily and monthly wallet spend.
+ * Each wallet keeps a ring of 24 hourly buckets and a ring of 30 daily
+ * buckets with running totals, so "spent in the last day/month" is O(1)
+ * and nothing on the wallet row is read-modify-written or reset. Spend
+ * is counted (and limits are checked) before the ledger posting takes
+ * its row locks, and taken back if the transaction rolls back. Hourly
+ * deltas are upserted into wallet_spend_buckets on a fixed cadence
+ * (write-behind) and reloaded from there on first use.
+ */
+@Service
+@Slf4j
+public class SpendWindowTracker {
+
+    private static final int DAY_HOURS = 24;
+    private static final int MONTH_DAYS = 30;
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    private static final String LOAD_SQL =
+            "SELECT epoch_hour, amount FROM wallet_spend_buckets WHERE wallet_id = ? AND epoch_hour >= ?";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO wallet_spend_buckets (wallet_id, epoch_hour, amount) VALUES (?, ?, ?)
+            ON CONFLICT (wallet_id, epoch_hour) DO UPDATE SET amount = wallet_spend_buckets.amount + EXCLUDED.amount
+            """;
+
+    private static final String PURGE_SQL = "DELETE FROM wallet_spend_buckets WHERE epoch_hour <= ?";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final boolean enforce;
+    private final int maxResident;
+
+    private final ConcurrentHashMap<Long, Window> windows = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public record Spent(BigDecimal lastDay, BigDecimal lastMonth) {
+    }
+
+    public SpendWindowTracker(JdbcTemplate jdbc,
+                              PlatformTransactionManager txManager,
+                              MeterRegistry meters,
+                              @Value("${wallet.limits.enforce:false}") boolean enforce,
+                              @Value("${wallet.spend.max-resident-wallets:200000}") int maxResident) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.enforce = enforce;
+        this.maxResident = maxResident;
+
+        meters.gauge("wallet.spend.resident", windows, ConcurrentHashMap::size);
+        meters.gauge("wallet.spend.dirty", dirty, Set::size);
+    }
+
+    // -------------------------------------------------------------
+    // SPEND
+    // -------------------------------------------------------------
+
+    /**
+     * Counts {@code amount} against the wallet's windows. With
+     * wallet.limits.enforce on, spend that would take the last day or
+     * month over the wallet's limit is refused with a BadRequestException
+     * and not counted. Check and count are one atomic step per wallet.
+     */
+    public void spend(Wallet wallet, BigDecimal amount) {
+        Long walletId = wallet.getId();
+        long cents = toCents(amount);
+        long hour = currentHour();
+        long dayLimit = enforce && wallet.getDailyLimit() != null ? toCents(wallet.getDailyLimit()) : Long.MAX_VALUE;
+        long monthLimit = enforce && wallet.getMonthlyLimit() != null ? toCents(wallet.getMonthlyLimit()) : Long.MAX_VALUE;
+
+        String[] refused = new String[1];
+        windows.compute(walletId, (id, w) -> {
+            Window window = w != null ? w : load(id, hour);
+            refused[0] = window.tryAdd(hour, cents, dayLimit, monthLimit);
+            if (refused[0] == null) dirty.add(id);
+            return window;
+        });
+
+        if (refused[0] != null) {
+            throw new BadRequestException(String.format("%s spend limit of %.2f reached",
+                    refused[0], BigDecimal.valueOf("Daily".equals(refused[0]) ? dayLimit : monthLimit, 2)));
+        }
+        takeBackOnRollback(walletId, hour, cents);
+    }
+
+    public Spent spent(Long walletId) {
+        long hour = currentHour();
+        Window window = windows.computeIfAbsent(walletId, id -> load(id, hour));
+        long[] totals = window.totals(hour);
+        return new Spent(BigDecimal.valueOf(totals[0], 2), BigDecimal.valueOf(totals[1], 2));
+    }
+
+    private void takeBackOnRollback(Long walletId, long hour, long cents) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) return;
+                windows.compute(walletId, (id, w) -> {
+                    Window window = w != null ? w : load(id, currentHour());
+                    window.tryAdd(hour, -cents, Long.MAX_VALUE, Long.MAX_VALUE);
+                    dirty.add(id);
+                    return window;
+                });
+            }
+        });
+    }
+
+    private Window load(Long walletId, long hour) {
+        Window window = new Window(hour);
+        jdbc.query(LOAD_SQL, rs -> {
+            window.restore(rs.getLong(1), toCents(rs.getBigDecimal(2)));
+        }, walletId, (hour / DAY_HOURS - MONTH_DAYS + 1) * DAY_HOURS);
+        return window;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long currentHour() {
+        return System.currentTimeMillis() / MILLIS_PER_HOUR;
+    }
+
+    // -------------------------------------------------------------
+    // WRITE-BEHIND
+    // -------------------------------------------------------------
+    @Scheduled(fixedDelayString = "${wallet.spend.flush-interval-ms:5000}")
+    public void flush() {
+        if (!dirty.isEmpty()) write(drain());
+        evictIfOverCapacity();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private List<Row> drain() {
+        List<Row> batch = new ArrayList<>();
+        for (Long walletId : dirty) {
+            dirty.remove(walletId);
+            Window window = windows.get(walletId);
+            if (window == null) continue;
+            window.drainUnflushed().forEach((hour, cents) -> batch.add(new Row(walletId, hour, cents)));
+        }
+        return batch;
+    }
+
+    private void write(List<Row> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            tx.executeWithoutResult(status -> jdbc.batchUpdate(UPSERT_SQL, batch, batch.size(), (ps, row) -> {
+                ps.setLong(1, row.walletId());
+                ps.setLong(2, row.hour());
+                ps.setBigDecimal(3, BigDecimal.valueOf(row.cents(), 2));
+            }));
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} spend buckets, re-queueing", batch.size(), e);
+            for (Row row : batch) {
+                windows.compute(row.walletId(), (id, w) -> {
+                    if (w != null) w.requeue(row.hour(), row.cents());
+                    dirty.add(id);
+                    return w;
+                });
+            }
+        }
+    }
+
+    private void evictIfOverCapacity() {
+        if (windows.size() <= maxResident) return;
+        for (Long walletId : windows.keySet()) {
+            // Clean windows only; a dirty one still has deltas to write
+            windows.computeIfPresent(walletId, (id, w) -> dirty.contains(id) ? w : null);
+            if (windows.size() <= maxResident / 2) break;
+        }
+    }
+
+    @Scheduled(cron = "${wallet.spend.purge-cron:0 45 4 * * *}")
+    public void purge() {
+        int purged = jdbc.update(PURGE_SQL, currentHour() - (long) (MONTH_DAYS + 1) * DAY_HOURS);
+        log.debug("Purged {} expired spend buckets", purged);
+    }
+
+    private record Row(Long walletId, long hour, long cents) {
+    }
+
+    // -------------------------------------------------------------
+    // WINDOW
+    // -------------------------------------------------------------
+
+    /**
+     * Hourly and daily rings with running totals. Advancing to a new hour
+     * or day clears only the buckets that fell out, so every operation is
+     * O(1) amortised. Guarded by its own monitor; callers touch a window
+     * inside the map's compute for that wallet.
+     */
+    static final class Window {
+
+        private final long[] hours = new long[DAY_HOURS];
+        private final long[] days = new long[MONTH_DAYS];
+        private long headHour;
+        private long headDay;
+        private long dayTotal;
+        private long monthTotal;
+
+        /** Deltas per hour not yet written to wallet_spend_buckets. */
+        private Map<Long, Long> unflushed = new HashMap<>();
+
+        Window(long hour) {
+            this.headHour = hour;
+            this.headDay = hour / DAY_HOURS;
+        }
+
+        /** Adds the delta unless it breaks a limit; returns "Daily"/"Monthly" when refused. */
+        synchronized String tryAdd(long hour, long cents, long dayLimit, long monthLimit) {
+            advance(Math.max(hour, headHour));
+            if (cents > 0 && dayTotal + cents > dayLimit) return "Daily";
+            if (cents > 0 && monthTotal + cents > monthLimit) return "Monthly";
+            apply(hour, cents);
+            unflushed.merge(hour, cents, Long::sum);
+            return null;
+        }
+
+        /** Adds a persisted bucket while loading; does not mark it for writing. */
+        synchronized void restore(long hour, long cents) {
+            advance(Math.max(hour, headHour));
+            apply(hour, cents);
+        }
+
+        synchronized void requeue(long hour, long cents) {
+            unflushed.merge(hour, cents, Long::sum);
+        }
+
+        synchronized Map<Long, Long> drainUnflushed() {
+            Map<Long, Long> out = unflushed;
+            unflushed = new HashMap<>();
+            out.values().removeIf(cents -> cents == 0);
+            return out;
+        }
+
+        /** {last day, last month} in cents as of {@code hour}. */
+        synchronized long[] totals(long hour) {
+            advance(Math.max(hour, headHour));
+            return new long[]{dayTotal, monthTotal};
+        }
+
+        private void apply(long hour, long cents) {
+            // Buckets that already left a window no longer count towards it
+            if (hour > headHour - DAY_HOURS) {
+                hours[(int) Math.floorMod(hour, (long) DAY_HOURS)] += cents;
+                dayTotal += cents;
+            }
+            long day = hour / DAY_HOURS;
+            if (day > headDay - MONTH_DAYS) {
+                days[(int) Math.floorMod(day, (long) MONTH_DAYS)] += cents;
+                monthTotal += cents;
+            }
+        }
+
+        private void advance(long hour) {
+            long steps = Math.min(hour - headHour, DAY_HOURS);
+            for (long h = hour - steps + 1; h <= hour; h++) {
+                int i = (int) Math.floorMod(h, (long) DAY_HOURS);
+                dayTotal -= hours[i];
+                hours[i] = 0;
+            }
+            headHour = hour;
+
+            long day = hour / DAY_HOURS;
+            long daySteps = Math.min(day - headDay, MONTH_DAYS);
+            for (long d = day - daySteps + 1; d <= day; d++) {
+                int i = (int) Math.floorMod(d, (long) MONTH_DAYS);
+                monthTotal -= days[i];
+                days[i] = 0;
+            }
+            headDay = day;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.deliverXY.backend.NewCode.wallet.limits;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Amount a wallet spent in one UTC hour. Persistence of
+ * {@link SpendWindowTracker}; rows older than the monthly window are purged.
+ */
+@Entity
+@Table(
+        name = "wallet_spend_buckets",
+        uniqueConstraints = @UniqueConstraint(name = "uk_wallet_spend_hour", columnNames = {"wallet_id", "epoch_hour"})
+)
+@Data
+@NoArgsConstructor
+public class WalletSpendBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    // Hours since 1970-01-01T00:00Z
+    @Column(name = "epoch_hour", nullable = false)
+    private Long epochHour;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount = BigDecimal.ZERO;
+}
@@ -2,9 +2,7 @@ package com.deliverXY.backend.NewCode.wallet.repository;
 
 import com.deliverXY.backend.NewCode.user.domain.AppUser;
 import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
-import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,8 +10,7 @@ import java.util.Optional;
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // No row locks: balances are moved by LedgerService with atomic increments
     Optional<Wallet> findByUser(AppUser user);
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Wallet> findByUserId(Long userId);
 } 
\ No newline at end of file
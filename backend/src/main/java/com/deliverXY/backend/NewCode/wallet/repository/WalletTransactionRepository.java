@@ -1,11 +1,32 @@
 package com.deliverXY.backend.NewCode.wallet.repository;
 
 import com.deliverXY.backend.NewCode.wallet.domain.WalletTransaction;
+import com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionDTO;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface WalletTransactionRepository extends JpaRepository<WalletTransaction, Long> {
     List<WalletTransaction> findByWalletIdOrderByCreatedAtDesc(Long walletId);
-    List<WalletTransaction> findByWalletUserIdOrderByCreatedAtDesc(Long userId);
-}
\ No newline at end of file
+
+    // Keyset pages, newest first, served from idx_wallet_tx_history (wallet_id, created_at, id)
+    @Query("SELECT new com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionDTO(" +
+            "t.id, t.type, t.amount, t.reference, t.createdAt) " +
+            "FROM WalletTransaction t WHERE t.wallet.id = :walletId " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<WalletTransactionDTO> findHistory(@Param("walletId") Long walletId, Limit limit);
+
+    @Query("SELECT new com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionDTO(" +
+            "t.id, t.type, t.amount, t.reference, t.createdAt) " +
+            "FROM WalletTransaction t WHERE t.wallet.id = :walletId " +
+            "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<WalletTransactionDTO> findHistoryBefore(@Param("walletId") Long walletId,
+                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id,
+                                                 Limit limit);
+}
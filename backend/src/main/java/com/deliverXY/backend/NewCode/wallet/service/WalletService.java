@@ -1,16 +1,25 @@
 package com.deliverXY.backend.NewCode.wallet.service;
 
 import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
 import com.deliverXY.backend.NewCode.user.domain.AppUser;
 import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
 import com.deliverXY.backend.NewCode.wallet.dto.TopUpInitResponseDTO;
 import com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionDTO;
+import com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionPageDTO;
+import com.deliverXY.backend.NewCode.wallet.ledger.BatchCredit;
+import com.deliverXY.backend.NewCode.wallet.ledger.LedgerAccount;
+import com.deliverXY.backend.NewCode.wallet.ledger.LedgerBatchWriter;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface WalletService {
     Wallet getWallet(Long userId);
+
+    /** The wallet with dailySpent/monthlySpent set to the rolling last-day and last-month spend. */
+    Wallet getWalletOverview(Long userId);
     void createWalletForUser(AppUser user);
     TopUpInitResponseDTO initiateTopUp(Long userId, BigDecimal amount, PaymentProvider provider);
     void finalizeTopUp(Long topUpId, boolean success, String referenceId);
@@ -18,7 +27,28 @@ public interface WalletService {
     void ensureSufficientBalance(Long userId, BigDecimal amount);
     boolean withdraw(Long userId, BigDecimal amount, String reference);
 
+    /** Moves a delivery payment from the user's wallet into escrow. */
+    void payIntoEscrow(Long userId, BigDecimal amount, String reference);
+
+    /** Returns escrowed money to the user's wallet. */
+    void refundFromEscrow(Long userId, BigDecimal amount, String reference);
+
+    /** Pays the driver and the platform fee for a completed delivery in one posting. */
+    void settleDelivery(Long driverId, BigDecimal driverAmount, BigDecimal platformFee,
+                        boolean paidFromWallet, String reference);
+
+    /**
+     * Credits many wallets from a system account in chunked transactions.
+     * Resumable: rerunning the same batch id skips chunks that already committed.
+     */
+    LedgerBatchWriter.Result creditAll(String batchId, TransactionType type, LedgerAccount source,
+                                       List<BatchCredit> credits, LedgerBatchWriter.ChunkListener listener);
+
     void addTransaction(Long userId, BigDecimal amount, String type, String reference);
 
-    List<WalletTransactionDTO> getTransactions(Long userId);
+    /** Newest-first page of the user's statement; {@code cursor} is the previous page's nextCursor. */
+    WalletTransactionPageDTO getTransactions(Long userId, String cursor, int limit);
+
+    /** Streams the user's whole statement, newest first, to {@code sink}. */
+    void exportTransactions(Long userId, Consumer<WalletTransactionDTO> sink);
 }
@@ -3,6 +3,7 @@ package com.deliverXY.backend.NewCode.wallet.service.impl;
 import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
 import com.deliverXY.backend.NewCode.common.enums.TopUpStatus;
 import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
 import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
 import com.deliverXY.backend.NewCode.user.domain.AppUser;
 import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
@@ -11,6 +12,13 @@ import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
 import com.deliverXY.backend.NewCode.wallet.domain.WalletTransaction;
 import com.deliverXY.backend.NewCode.wallet.dto.TopUpInitResponseDTO;
 import com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionDTO;
+import com.deliverXY.backend.NewCode.wallet.dto.WalletTransactionPageDTO;
+import com.deliverXY.backend.NewCode.wallet.ledger.BatchCredit;
+import com.deliverXY.backend.NewCode.wallet.ledger.LedgerAccount;
+import com.deliverXY.backend.NewCode.wallet.ledger.LedgerBatchWriter;
+import com.deliverXY.backend.NewCode.wallet.ledger.LedgerService;
+import com.deliverXY.backend.NewCode.wallet.ledger.Posting;
+import com.deliverXY.backend.NewCode.wallet.limits.SpendWindowTracker;
 import com.deliverXY.backend.NewCode.wallet.repository.TopUpRepository;
 import com.deliverXY.backend.NewCode.wallet.repository.WalletRepository;
 import com.deliverXY.backend.NewCode.wallet.repository.WalletTransactionRepository;
@@ -19,14 +27,18 @@ import com.stripe.model.PaymentIntent;
 import com.stripe.param.PaymentIntentCreateParams;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -34,38 +46,21 @@ import java.util.UUID;
 @Transactional
 public class WalletServiceImpl implements WalletService {
 
+    private static final int MAX_HISTORY_PAGE = 200;
+    private static final int EXPORT_PAGE = 1000;
+
     private final WalletRepository walletRepository;
     private final WalletTransactionRepository transactionRepository;
     private final AppUserRepository userRepo;
     private final TopUpRepository topUpRepository;
+    private final LedgerService ledger;
+    private final LedgerBatchWriter batchWriter;
+    private final SpendWindowTracker spendWindows;
 
     private Wallet getWalletEntity(Long userId) {
         return getWallet(userId); // ✅ auto-create
     }
 
-    //Check and reset limits if needed
-    private void checkAndResetLimits(Wallet wallet) {
-        LocalDate now = LocalDate.now();
-        LocalDateTime lastResetDateTime = wallet.getLastResetDate();
-        LocalDate lastResetDate = lastResetDateTime.toLocalDate();
-
-        // 1. Daily Reset: If the last reset was on a different day
-        if (!now.isEqual(lastResetDate)) {
-            wallet.setDailySpent(BigDecimal.ZERO);
-            // We set the date here, but will refine the monthly logic below
-        }
-
-        // 2. Monthly Reset: If the last reset was in a different month
-        if (now.getMonth() != lastResetDate.getMonth() || now.getYear() != lastResetDate.getYear()) {
-            wallet.setMonthlySpent(BigDecimal.ZERO);
-        }
-
-        // Update the last reset date only if any reset occurred
-        if (!now.isEqual(lastResetDate) || now.getMonth() != lastResetDate.getMonth()) {
-            wallet.setLastResetDate(LocalDateTime.now());
-        }
-        // Note: The Wallet entity will be saved automatically by the @Transactional context.
-    }
     @Override
     public Wallet getWallet(Long userId) {
         AppUser user = userRepo.findById(userId)
@@ -75,6 +70,16 @@ public class WalletServiceImpl implements WalletService {
                 .orElseGet(() -> walletRepository.save(new Wallet(user)));
     }
 
+    @Override
+    public Wallet getWalletOverview(Long userId) {
+        Wallet wallet = getWallet(userId);
+        SpendWindowTracker.Spent spent = spendWindows.spent(wallet.getId());
+        // Not updatable columns, so this only shapes the response
+        wallet.setDailySpent(spent.lastDay());
+        wallet.setMonthlySpent(spent.lastMonth());
+        return wallet;
+    }
+
     @Override
     public void createWalletForUser(AppUser user) {
         walletRepository.findByUser(user)
@@ -145,6 +150,13 @@ public class WalletServiceImpl implements WalletService {
         TopUpRequest req = topUpRepository.findById(topUpId)
                 .orElseThrow(()-> new NotFoundException("Top up request not found:" + topUpId));
 
+        // Gateways retry callbacks and may report a failed attempt before a successful one;
+        // only a success is final
+        if (req.getStatus() == TopUpStatus.SUCCESS) {
+            log.info("Top-up {} already finalized as {}, ignoring callback", topUpId, req.getStatus());
+            return;
+        }
+
         req.setReferenceId(referenceId);
         if (success){
             req.setStatus(TopUpStatus.SUCCESS);
@@ -162,11 +174,68 @@ public class WalletServiceImpl implements WalletService {
             throw new NotFoundException("Deposit amount must be positive");
 
         Wallet wallet = getWallet(userId);
-        wallet.addFunds(amount);
-        walletRepository.save(wallet);
+        String postingId = ledger.post(Posting.transfer(TransactionType.DEPOSIT, reference,
+                LedgerAccount.EXTERNAL, LedgerAccount.user(wallet.getId()), amount));
+
+        saveTransaction(wallet, amount, TransactionType.DEPOSIT, reference, postingId);
+    }
+
+    @Override
+    @Transactional
+    public void payIntoEscrow(Long userId, BigDecimal amount, String reference) {
+        requirePositive(amount);
+
+        Wallet wallet = getWalletEntity(userId);
+        spendWindows.spend(wallet, amount);
+
+        String postingId = ledger.post(Posting.transfer(TransactionType.PAYMENT, reference,
+                LedgerAccount.user(wallet.getId()), LedgerAccount.ESCROW, amount));
+
+        saveTransaction(wallet, amount.negate(), TransactionType.PAYMENT, reference, postingId);
+    }
+
+    @Override
+    @Transactional
+    public void refundFromEscrow(Long userId, BigDecimal amount, String reference) {
+        requirePositive(amount);
+
+        Wallet wallet = getWallet(userId);
+        String postingId = ledger.post(Posting.transfer(TransactionType.REFUND, reference,
+                LedgerAccount.ESCROW, LedgerAccount.user(wallet.getId()), amount));
+
+        saveTransaction(wallet, amount, TransactionType.REFUND, reference, postingId);
+    }
 
-        saveTransaction(wallet, amount, TransactionType.DEPOSIT, reference);
+    @Override
+    @Transactional
+    public void settleDelivery(Long driverId, BigDecimal driverAmount, BigDecimal platformFee,
+                               boolean paidFromWallet, String reference) {
+        requirePositive(driverAmount);
+        BigDecimal fee = safe(platformFee);
+
+        // Wallet payments sit in escrow; card and cash payments arrived from outside
+        LedgerAccount source = paidFromWallet ? LedgerAccount.ESCROW : LedgerAccount.EXTERNAL;
+
+        Wallet wallet = getWallet(driverId);
+        String postingId = ledger.post(new Posting(TransactionType.DEPOSIT, reference, List.of(
+                new Posting.Leg(source, driverAmount.add(fee).negate()),
+                new Posting.Leg(LedgerAccount.user(wallet.getId()), driverAmount),
+                new Posting.Leg(LedgerAccount.PLATFORM, fee)
+        )));
+
+        saveTransaction(wallet, driverAmount, TransactionType.DEPOSIT, reference, postingId);
+    }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // every chunk commits on its own
+    public LedgerBatchWriter.Result creditAll(String batchId, TransactionType type, LedgerAccount source,
+                                              List<BatchCredit> credits, LedgerBatchWriter.ChunkListener listener) {
+        return batchWriter.creditAll(batchId, type, source, credits, listener);
+    }
+
+    private static void requirePositive(BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0)
+            throw new IllegalArgumentException("Amount must be positive");
     }
 
     @Override
@@ -177,12 +246,9 @@ public class WalletServiceImpl implements WalletService {
         }
 
         Wallet wallet = getWalletEntity(userId);
-        
-        // Reload to ensure we have the latest balance (in case of concurrent updates)
-        wallet = walletRepository.findById(wallet.getId())
-                .orElseThrow(() -> new com.deliverXY.backend.NewCode.exceptions.NotFoundException("Wallet not found"));
 
-        BigDecimal balance = wallet.getBalance() != null ? wallet.getBalance() : BigDecimal.ZERO;
+        // Read the projection directly; the entity may predate postings made in this transaction
+        BigDecimal balance = ledger.balanceOf(LedgerAccount.user(wallet.getId()));
         
         log.info("Checking wallet balance for user {}: Required={}, Available={}", userId, amount, balance);
 
@@ -191,7 +257,7 @@ public class WalletServiceImpl implements WalletService {
             String errorMsg = String.format("Insufficient wallet balance. Required: %.2f MKD, Available: %.2f MKD", 
                 amount, balance);
             log.warn("Balance check failed for user {}: {}", userId, errorMsg);
-            throw new com.deliverXY.backend.NewCode.exceptions.BadRequestException(errorMsg);
+            throw new BadRequestException(errorMsg);
         }
         
         log.info("Balance check passed for user {}: Available={} >= Required={}", userId, balance, amount);
@@ -209,25 +275,24 @@ public class WalletServiceImpl implements WalletService {
 
         Wallet wallet = getWalletEntity(userId);
 
-        checkAndResetLimits(wallet);
-
-        // not enough funds
-        if (!wallet.canWithdraw(amount)) {
-            throw new NotFoundException("Insufficient funds");
-        }
+        // Rolling spend is counted (and limits checked) before the posting locks the wallet row
+        spendWindows.spend(wallet, amount);
 
-        wallet.deductFunds(amount);
-        walletRepository.save(wallet);
+        // Fails with "Insufficient funds" if the balance would go negative
+        String postingId = ledger.post(Posting.transfer(TransactionType.WITHDRAW, reference,
+                LedgerAccount.user(wallet.getId()), LedgerAccount.EXTERNAL, amount));
 
-        saveTransaction(wallet, amount.negate(), TransactionType.WITHDRAW, reference);
+        saveTransaction(wallet, amount.negate(), TransactionType.WITHDRAW, reference, postingId);
         return true;
     }
-    private void saveTransaction(Wallet wallet, BigDecimal amount, TransactionType type, String reference) {
+    private void saveTransaction(Wallet wallet, BigDecimal amount, TransactionType type, String reference,
+                                 String postingId) {
         WalletTransaction tx = WalletTransaction.builder()
                 .wallet(wallet)
                 .type(type)
                 .amount(amount)
                 .reference(reference)
+                .postingId(postingId)
                 .build();
 
         transactionRepository.save(tx);
@@ -240,23 +305,70 @@ public class WalletServiceImpl implements WalletService {
         TransactionType txType = TransactionType.valueOf(type.toUpperCase());
 
         Wallet wallet = getWallet(userId);
-        saveTransaction(wallet, amount, txType, reference);
+        saveTransaction(wallet, amount, txType, reference, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public WalletTransactionPageDTO getTransactions(Long userId, String cursor, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_HISTORY_PAGE);
+        Long walletId = walletRepository.findByUserId(userId).map(Wallet::getId).orElse(null);
+        if (walletId == null) {
+            return new WalletTransactionPageDTO(List.of(), null);
+        }
+
+        // One extra row tells whether an older page exists
+        List<WalletTransactionDTO> rows = historyPage(walletId, HistoryCursor.decode(cursor), size + 1);
+        if (rows.size() <= size) {
+            return new WalletTransactionPageDTO(rows, null);
+        }
+        List<WalletTransactionDTO> page = rows.subList(0, size);
+        return new WalletTransactionPageDTO(page, HistoryCursor.after(page.get(size - 1)).encode());
     }
 
     @Override
-    public List<WalletTransactionDTO> getTransactions(Long userId) {
-        return transactionRepository
-                .findByWalletUserIdOrderByCreatedAtDesc(userId)
-                .stream()
-                .map(tx ->{
-                    WalletTransactionDTO dto = new WalletTransactionDTO();
-                    dto.setId(tx.getId());
-                    dto.setAmount(tx.getAmount());
-                    dto.setType(tx.getType());
-                    dto.setReference(tx.getReference());
-                    dto.setCreatedAt(tx.getCreatedAt());
-                    return dto;
-                })
-                .toList();
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // each page on its own short read
+    public void exportTransactions(Long userId, Consumer<WalletTransactionDTO> sink) {
+        Long walletId = walletRepository.findByUserId(userId).map(Wallet::getId).orElse(null);
+        if (walletId == null) return;
+
+        // Walks the history page by page, so memory stays flat whatever its length
+        HistoryCursor cursor = null;
+        List<WalletTransactionDTO> page;
+        do {
+            page = historyPage(walletId, cursor, EXPORT_PAGE);
+            page.forEach(sink);
+            if (!page.isEmpty()) cursor = HistoryCursor.after(page.get(page.size() - 1));
+        } while (page.size() == EXPORT_PAGE);
+    }
+
+    private List<WalletTransactionDTO> historyPage(Long walletId, HistoryCursor cursor, int size) {
+        return cursor == null
+                ? transactionRepository.findHistory(walletId, Limit.of(size))
+                : transactionRepository.findHistoryBefore(walletId, cursor.createdAt(), cursor.id(), Limit.of(size));
+    }
+
+    /** Position in a wallet's history: the (created_at, id) of the last row returned. */
+    private record HistoryCursor(LocalDateTime createdAt, Long id) {
+
+        static HistoryCursor after(WalletTransactionDTO row) {
+            return new HistoryCursor(row.getCreatedAt(), row.getId());
+        }
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new HistoryCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
     }
 }
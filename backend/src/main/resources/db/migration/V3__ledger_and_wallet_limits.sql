@@ -0,0 +1,45 @@
+-- Double-entry ledger behind wallet balances (LedgerService, LedgerBatchWriter)
+-- and the rolling spend buckets that replace daily/monthly counters on wallets.
+
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    id          BIGSERIAL PRIMARY KEY,
+    posting_id  VARCHAR(36)    NOT NULL,
+    account     VARCHAR(40)    NOT NULL,
+    amount      NUMERIC(19, 2) NOT NULL,
+    type        VARCHAR(255)   NOT NULL,
+    reference   VARCHAR(255),
+    created_at  TIMESTAMP      NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_ledger_account ON ledger_entries (account, id);
+CREATE INDEX IF NOT EXISTS idx_ledger_posting ON ledger_entries (posting_id);
+
+-- House accounts are striped so concurrent postings do not queue on one row
+CREATE TABLE IF NOT EXISTS ledger_balances (
+    id       BIGSERIAL PRIMARY KEY,
+    account  VARCHAR(40)    NOT NULL,
+    stripe   INTEGER        NOT NULL,
+    balance  NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    CONSTRAINT uk_ledger_balance_stripe UNIQUE (account, stripe)
+);
+
+CREATE TABLE IF NOT EXISTS ledger_batches (
+    batch_id      VARCHAR(80) PRIMARY KEY,
+    source        VARCHAR(40)    NOT NULL,
+    last_user_id  BIGINT,
+    credited      INTEGER        NOT NULL,
+    total         NUMERIC(19, 2) NOT NULL,
+    started_at    TIMESTAMP      NOT NULL,
+    finished_at   TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS wallet_spend_buckets (
+    id          BIGSERIAL PRIMARY KEY,
+    wallet_id   BIGINT         NOT NULL,
+    epoch_hour  BIGINT         NOT NULL,
+    amount      NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    CONSTRAINT uk_wallet_spend_hour UNIQUE (wallet_id, epoch_hour)
+);
+
+ALTER TABLE wallet_transactions ADD COLUMN IF NOT EXISTS posting_id VARCHAR(36);
+CREATE INDEX IF NOT EXISTS idx_wallet_tx_history ON wallet_transactions (wallet_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_wallet_tx_reference ON wallet_transactions (reference);
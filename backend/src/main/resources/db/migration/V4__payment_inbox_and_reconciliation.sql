@@ -0,0 +1,60 @@
+-- Provider callbacks queued for ordered, retried processing (InboundEventQueue),
+-- statement reconciliation runs, and stored responses for idempotent requests.
+
+CREATE TABLE IF NOT EXISTS inbound_events (
+    id               BIGSERIAL PRIMARY KEY,
+    kind             VARCHAR(30)  NOT NULL,
+    order_key        VARCHAR(200) NOT NULL,
+    dedupe_key       VARCHAR(200) UNIQUE,
+    subject          VARCHAR(200) NOT NULL,
+    success          BOOLEAN,
+    reference        VARCHAR(200),
+    status           VARCHAR(20)  NOT NULL,
+    attempts         INTEGER      NOT NULL,
+    next_attempt_at  TIMESTAMP    NOT NULL,
+    locked_until     TIMESTAMP,
+    last_error       VARCHAR(500),
+    received_at      TIMESTAMP    NOT NULL,
+    processed_at     TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_inbound_events_due ON inbound_events (status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_inbound_events_order ON inbound_events (order_key, id);
+
+CREATE TABLE IF NOT EXISTS reconciliation_runs (
+    id              BIGSERIAL PRIMARY KEY,
+    provider        VARCHAR(20)  NOT NULL,
+    statement       VARCHAR(200) NOT NULL,
+    status          VARCHAR(20)  NOT NULL,
+    last_reference  VARCHAR(255),
+    matched         BIGINT       NOT NULL,
+    mismatched      BIGINT       NOT NULL,
+    error           VARCHAR(500),
+    started_at      TIMESTAMP    NOT NULL,
+    finished_at     TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS reconciliation_mismatches (
+    id               BIGSERIAL PRIMARY KEY,
+    run_id           BIGINT         NOT NULL,
+    reference        VARCHAR(255)   NOT NULL,
+    record_kind      VARCHAR(20),
+    type             VARCHAR(30)    NOT NULL,
+    our_amount       NUMERIC(19, 2),
+    provider_amount  NUMERIC(19, 2),
+    credited_amount  NUMERIC(19, 2),
+    our_status       VARCHAR(30),
+    provider_status  VARCHAR(30)
+);
+CREATE INDEX IF NOT EXISTS idx_recon_mismatch_run ON reconciliation_mismatches (run_id, id);
+
+CREATE INDEX IF NOT EXISTS idx_payment_delivery ON payments (delivery_id);
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    store_key     VARCHAR(200) PRIMARY KEY,
+    request_hash  VARCHAR(64)  NOT NULL,
+    status        VARCHAR(20)  NOT NULL,
+    response      TEXT,
+    created_at    TIMESTAMP    NOT NULL,
+    expires_at    TIMESTAMP    NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_idempotency_expires ON idempotency_keys (expires_at);
@@ -0,0 +1,43 @@
+-- Recorded routes, pricing zones and revisions, per-user delivery counters
+-- and the daily earnings rollup.
+
+ALTER TABLE deliveries ADD COLUMN IF NOT EXISTS actual_distance_km DOUBLE PRECISION;
+ALTER TABLE deliveries ADD COLUMN IF NOT EXISTS route_polyline TEXT;
+ALTER TABLE deliveries ADD COLUMN IF NOT EXISTS pricing_config_id BIGINT;
+ALTER TABLE deliveries ADD COLUMN IF NOT EXISTS pricing_version BIGINT;
+
+CREATE TABLE IF NOT EXISTS delivery_route_segments (
+    id           BIGSERIAL PRIMARY KEY,
+    delivery_id  BIGINT    NOT NULL,
+    point_count  INTEGER,
+    started_at   TIMESTAMP,
+    ended_at     TIMESTAMP,
+    points       BYTEA     NOT NULL,
+    compacted    BOOLEAN   DEFAULT FALSE
+);
+CREATE INDEX IF NOT EXISTS idx_route_segment_delivery ON delivery_route_segments (delivery_id);
+
+ALTER TABLE pricing_configs ADD COLUMN IF NOT EXISTS revision BIGINT DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS pricing_zones (
+    id         BIGSERIAL PRIMARY KEY,
+    city       VARCHAR(255) NOT NULL,
+    name       VARCHAR(255) NOT NULL,
+    type       VARCHAR(255) NOT NULL,
+    polygon    TEXT         NOT NULL,
+    is_active  BOOLEAN      DEFAULT TRUE
+);
+CREATE INDEX IF NOT EXISTS idx_pricing_zone_city ON pricing_zones (city);
+
+ALTER TABLE app_user_stats ADD COLUMN IF NOT EXISTS requested_deliveries INTEGER DEFAULT 0;
+ALTER TABLE app_user_stats ADD COLUMN IF NOT EXISTS completed_deliveries INTEGER DEFAULT 0;
+ALTER TABLE app_user_stats ADD COLUMN IF NOT EXISTS cancelled_deliveries INTEGER DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS earnings_daily_rollup (
+    day               DATE PRIMARY KEY,
+    deliveries        BIGINT         NOT NULL,
+    driver_total      NUMERIC(19, 2) NOT NULL,
+    tip_total         NUMERIC(19, 2) NOT NULL,
+    platform_revenue  NUMERIC(19, 2) NOT NULL,
+    refreshed_at      TIMESTAMP      NOT NULL
+);
@@ -0,0 +1,131 @@
+package com.deliverXY.backend.NewCode.admin.dashboard;
+
+import com.deliverXY.backend.NewCode.admin.dto.AdminDashboardDTO;
+import com.deliverXY.backend.NewCode.common.enums.DeliveryStatus;
+import com.deliverXY.backend.NewCode.common.enums.KYCStatus;
+import com.deliverXY.backend.NewCode.common.enums.UserRole;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DashboardCountersTest {
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private final DashboardCounters counters = new DashboardCounters(jdbc);
+    private final TransactionTemplate tx = new TransactionTemplate(new StubTransactionManager());
+
+    @Test
+    void eventsMoveTheCountsBetweenStatuses() {
+        counters.onUserCreated(UserRole.CLIENT);
+        counters.onUserCreated(UserRole.AGENT);
+        counters.onUserCreated(null);
+        counters.onKycStatusChange(null, KYCStatus.PENDING);
+        counters.onDeliveryCreated(DeliveryStatus.REQUESTED);
+        counters.onDeliveryCreated(DeliveryStatus.REQUESTED);
+        counters.onDeliveryStatusChange(DeliveryStatus.REQUESTED, DeliveryStatus.IN_TRANSIT);
+        counters.onDeliveryStatusChange(DeliveryStatus.IN_TRANSIT, DeliveryStatus.IN_TRANSIT);
+
+        assertThat(counters.snapshot()).isEqualTo(new AdminDashboardDTO(3, 1, 1, 1, 2, 1, 1, 0));
+
+        counters.onUserDeleted(UserRole.AGENT);
+        counters.onKycStatusChange(KYCStatus.PENDING, KYCStatus.APPROVED);
+        counters.onDeliveryStatusChange(DeliveryStatus.IN_TRANSIT, DeliveryStatus.DELIVERED);
+        counters.onDeliveryDeleted(DeliveryStatus.REQUESTED);
+
+        assertThat(counters.snapshot()).isEqualTo(new AdminDashboardDTO(2, 1, 0, 0, 1, 0, 0, 1));
+    }
+
+    @Test
+    void eventsCountOnlyOnceTheirTransactionCommits() {
+        tx.executeWithoutResult(status -> {
+            counters.onUserCreated(UserRole.CLIENT);
+            assertThat(counters.snapshot().getTotalUsers()).isZero();
+        });
+        assertThat(counters.snapshot().getTotalClients()).isEqualTo(1L);
+
+        tx.executeWithoutResult(status -> {
+            counters.onDeliveryCreated(DeliveryStatus.REQUESTED);
+            status.setRollbackOnly();
+        });
+        assertThat(counters.snapshot().getTotalDeliveries()).isZero();
+    }
+
+    @Test
+    void reconcileReplacesTheCountsWithTheDatabase() {
+        counters.onUserCreated(UserRole.CLIENT);
+        counters.onDeliveryCreated(DeliveryStatus.CANCELLED);
+        jdbc.rows.add(new Object[]{"USER", "CLIENT", 5L});
+        jdbc.rows.add(new Object[]{"USER", "ADMIN", 1L});
+        jdbc.rows.add(new Object[]{"USER", null, 2L});
+        jdbc.rows.add(new Object[]{"KYC", "PENDING", 3L});
+        jdbc.rows.add(new Object[]{"DELIVERY", "REQUESTED", 4L});
+        jdbc.rows.add(new Object[]{"DELIVERY", "DELIVERED", 6L});
+
+        counters.reconcile();
+
+        assertThat(counters.snapshot()).isEqualTo(new AdminDashboardDTO(8, 5, 0, 3, 10, 4, 0, 6));
+    }
+
+    @Test
+    void updatesDuringAReconcileAreKept() {
+        jdbc.rows.add(new Object[]{"DELIVERY", "REQUESTED", 4L});
+        // Committed after the count query read the table, so its result misses it
+        jdbc.duringQuery = () -> counters.onDeliveryStatusChange(DeliveryStatus.REQUESTED, DeliveryStatus.PICKED_UP);
+
+        counters.reconcile();
+
+        assertThat(counters.snapshot().getPendingDeliveries()).isEqualTo(3L);
+        assertThat(counters.snapshot().getTotalDeliveries()).isEqualTo(4L);
+
+        // Only that reconcile replays it
+        jdbc.duringQuery = null;
+        jdbc.rows.set(0, new Object[]{"DELIVERY", "REQUESTED", 3L});
+        jdbc.rows.add(new Object[]{"DELIVERY", "PICKED_UP", 1L});
+        counters.reconcile();
+        assertThat(counters.snapshot().getPendingDeliveries()).isEqualTo(3L);
+    }
+
+    @Test
+    void failedReconcileKeepsTheCurrentCounts() {
+        counters.onUserCreated(UserRole.CLIENT);
+        jdbc.down = true;
+
+        counters.reconcile();
+        counters.onUserCreated(UserRole.CLIENT);
+
+        assertThat(counters.snapshot().getTotalClients()).isEqualTo(2L);
+    }
+
+    /** The grouped count query as (kind, status, count) rows. */
+    private static class FakeJdbc extends JdbcTemplate {
+        final List<Object[]> rows = new ArrayList<>();
+        Runnable duringQuery;
+        boolean down;
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            if (down) throw new QueryTimeoutException("timeout");
+            for (Object[] row : rows) {
+                ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class}, (proxy, method, params) -> row[(Integer) params[0] - 1]);
+                try {
+                    rch.processRow(rs);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (duringQuery != null) duringQuery.run();
+        }
+    }
+}
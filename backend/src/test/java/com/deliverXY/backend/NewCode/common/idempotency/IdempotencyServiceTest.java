@@ -0,0 +1,275 @@
+package com.deliverXY.backend.NewCode.common.idempotency;
+
+import com.deliverXY.backend.NewCode.common.response.ApiResponse;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.exceptions.ConflictException;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyServiceTest {
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private final IdempotencyService service = service();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private IdempotencyService service() {
+        return new IdempotencyService(jdbc, new ObjectMapper(), new SimpleMeterRegistry(), 24, 60, 1000);
+    }
+
+    private record Deposit(long walletId, String amount) {
+    }
+
+    private ApiResponse<String> deposit(IdempotencyService service, String key, Deposit request) {
+        return service.execute("wallet.deposit", 7L, key, request, String.class,
+                () -> ApiResponse.ok("tx-" + runs.incrementAndGet()));
+    }
+
+    @Test
+    void requestsWithoutAKeyAlwaysRun() {
+        deposit(service, null, new Deposit(1, "10.00"));
+        deposit(service, " ", new Deposit(1, "10.00"));
+
+        assertThat(runs.get()).isEqualTo(2);
+        assertThat(jdbc.roundTrips.get()).isZero();
+    }
+
+    @Test
+    void retryGetsTheStoredResponseWithoutRunningAgain() {
+        ApiResponse<String> first = deposit(service, "k1", new Deposit(1, "10.00"));
+        int roundTrips = jdbc.roundTrips.get();
+
+        ApiResponse<String> retry = deposit(service, "k1", new Deposit(1, "10.00"));
+
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(retry.getData()).isEqualTo("tx-1");
+        assertThat(retry.isSuccess()).isTrue();
+        assertThat(first.getData()).isEqualTo("tx-1");
+        // Answered from the in-memory tier
+        assertThat(jdbc.roundTrips.get()).isEqualTo(roundTrips);
+        assertThat(jdbc.rows.get("wallet.deposit:7:k1").status).isEqualTo("COMPLETED");
+    }
+
+    @Test
+    void retryOnAnotherInstanceIsAnsweredFromTheTable() {
+        deposit(service, "k2", new Deposit(1, "10.00"));
+
+        ApiResponse<String> retry = deposit(service(), "k2", new Deposit(1, "10.00"));
+
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(retry.getData()).isEqualTo("tx-1");
+    }
+
+    @Test
+    void keysAreScopedPerUser() {
+        deposit(service, "k3", new Deposit(1, "10.00"));
+        service.execute("wallet.deposit", 8L, "k3", new Deposit(1, "10.00"), String.class,
+                () -> ApiResponse.ok("tx-" + runs.incrementAndGet()));
+
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+    @Test
+    void reusingAKeyForADifferentRequestIsRejected() {
+        deposit(service, "k4", new Deposit(1, "10.00"));
+
+        assertThatThrownBy(() -> deposit(service, "k4", new Deposit(1, "99.00")))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void retryWhileTheFirstAttemptRunsIsAConflict() {
+        service.execute("wallet.deposit", 7L, "k5", new Deposit(1, "10.00"), String.class, () -> {
+            assertThatThrownBy(() -> deposit(service(), "k5", new Deposit(1, "10.00")))
+                    .isInstanceOf(ConflictException.class);
+            return ApiResponse.ok("first");
+        });
+
+        assertThat(runs.get()).isZero();
+        assertThat(deposit(service, "k5", new Deposit(1, "10.00")).getData()).isEqualTo("first");
+    }
+
+    @Test
+    void failedAttemptsReleaseTheKey() {
+        assertThatThrownBy(() -> service.execute("wallet.deposit", 7L, "k6", new Deposit(1, "10.00"), String.class,
+                () -> {
+                    throw new IllegalStateException("gateway down");
+                }))
+                .hasMessageContaining("gateway down");
+        assertThat(jdbc.rows).isEmpty();
+
+        ApiResponse<String> refused = service.execute("wallet.deposit", 7L, "k6", new Deposit(1, "10.00"),
+                String.class, () -> ApiResponse.error("Insufficient funds"));
+        assertThat(refused.isSuccess()).isFalse();
+        assertThat(jdbc.rows).isEmpty();
+
+        assertThat(deposit(service, "k6", new Deposit(1, "10.00")).getData()).isEqualTo("tx-1");
+    }
+
+    @Test
+    void claimAbandonedPastTheLeaseIsTakenOver() {
+        jdbc.insert("wallet.deposit:7:k7", "IN_PROGRESS", LocalDateTime.now().minusMinutes(5));
+
+        assertThat(deposit(service, "k7", new Deposit(1, "10.00")).getData()).isEqualTo("tx-1");
+        assertThat(jdbc.rows.get("wallet.deposit:7:k7").status).isEqualTo("COMPLETED");
+    }
+
+    @Test
+    void oversizedKeyIsRejectedBeforeRunning() {
+        assertThatThrownBy(() -> deposit(service, "x".repeat(101), new Deposit(1, "10.00")))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(runs.get()).isZero();
+    }
+
+    @Test
+    void claimOnceRollsBackWithTheCallerAndThenHoldsFromMemory() {
+        TransactionTemplate tx = new TransactionTemplate(new StubTransactionManager());
+
+        tx.executeWithoutResult(status -> {
+            assertThat(service.claimOnce("delivery.settle", 42L)).isTrue();
+            status.setRollbackOnly();
+        });
+        assertThat(jdbc.rows).isEmpty();
+
+        Boolean first = tx.execute(status -> service.claimOnce("delivery.settle", 42L));
+        Boolean duplicate = tx.execute(status -> service.claimOnce("delivery.settle", 42L));
+        assertThat(first).isTrue();
+        assertThat(duplicate).isFalse();
+
+        int roundTrips = jdbc.roundTrips.get();
+        assertThat(service.claimOnce("delivery.settle", 42L)).isFalse();
+        assertThat(jdbc.roundTrips.get()).isEqualTo(roundTrips);
+
+        // Another instance, with nothing in memory yet, still sees the mark
+        assertThat(service().claimOnce("delivery.settle", 42L)).isFalse();
+    }
+
+    @Test
+    void purgeDropsExpiredKeysOnly() {
+        jdbc.insert("old", "COMPLETED", LocalDateTime.now().minusDays(2));
+        jdbc.insert("new", "COMPLETED", LocalDateTime.now());
+
+        service.purgeExpired();
+
+        assertThat(jdbc.rows.keySet()).containsExactly("new");
+    }
+
+    // -------------------------------------------------------------
+    // idempotency_keys IN MEMORY
+    // -------------------------------------------------------------
+    private static final class Row {
+        String requestHash;
+        String status;
+        String response;
+        LocalDateTime createdAt;
+        LocalDateTime expiresAt;
+    }
+
+    /** A claim made in a transaction disappears again if it rolls back. */
+    private static class FakeJdbc extends JdbcTemplate {
+        final Map<String, Row> rows = new ConcurrentHashMap<>();
+        final AtomicInteger roundTrips = new AtomicInteger();
+
+        void insert(String key, String status, LocalDateTime createdAt) {
+            Row row = new Row();
+            row.requestHash = "";
+            row.status = status;
+            row.createdAt = createdAt;
+            row.expiresAt = createdAt.plusHours(24);
+            rows.put(key, row);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            roundTrips.incrementAndGet();
+            if (sql.contains("INSERT INTO idempotency_keys")) {
+                String key = (String) args[0];
+                Row row = new Row();
+                row.requestHash = (String) args[1];
+                row.status = (String) args[2];
+                row.createdAt = ((Timestamp) args[3]).toLocalDateTime();
+                row.expiresAt = ((Timestamp) args[4]).toLocalDateTime();
+                if (rows.putIfAbsent(key, row) != null) return 0;
+                if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            if (status != STATUS_COMMITTED) rows.remove(key, row);
+                        }
+                    });
+                }
+                return 1;
+            }
+            if (sql.contains("SET request_hash")) {
+                Row row = rows.get((String) args[3]);
+                LocalDateTime leaseCutoff = ((Timestamp) args[4]).toLocalDateTime();
+                LocalDateTime now = ((Timestamp) args[5]).toLocalDateTime();
+                if (row == null || !(("IN_PROGRESS".equals(row.status) && row.createdAt.isBefore(leaseCutoff))
+                        || row.expiresAt.isBefore(now))) {
+                    return 0;
+                }
+                row.requestHash = (String) args[0];
+                row.status = "IN_PROGRESS";
+                row.response = null;
+                row.createdAt = ((Timestamp) args[1]).toLocalDateTime();
+                row.expiresAt = ((Timestamp) args[2]).toLocalDateTime();
+                return 1;
+            }
+            if (sql.contains("SET status = 'COMPLETED'")) {
+                Row row = rows.get((String) args[1]);
+                row.status = "COMPLETED";
+                row.response = (String) args[0];
+                return 1;
+            }
+            if (sql.startsWith("DELETE FROM idempotency_keys WHERE store_key")) {
+                Row row = rows.get((String) args[0]);
+                return row != null && "IN_PROGRESS".equals(row.status) && rows.remove(args[0], row) ? 1 : 0;
+            }
+            if (sql.startsWith("DELETE FROM idempotency_keys WHERE expires_at")) {
+                LocalDateTime now = ((Timestamp) args[0]).toLocalDateTime();
+                int before = rows.size();
+                rows.values().removeIf(row -> row.expiresAt.isBefore(now));
+                return before - rows.size();
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            roundTrips.incrementAndGet();
+            Row row = rows.get((String) args[0]);
+            if (row == null) return List.of();
+            ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, params) -> switch ((Integer) params[0]) {
+                        case 1 -> row.requestHash;
+                        case 2 -> row.status;
+                        default -> row.response;
+                    });
+            try {
+                return List.of(rowMapper.mapRow(rs, 0));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
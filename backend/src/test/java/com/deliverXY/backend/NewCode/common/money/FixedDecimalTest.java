@@ -0,0 +1,174 @@
+package com.deliverXY.backend.NewCode.common.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * FixedDecimal and Money against BigDecimal over random inputs. Every
+ * operation must give BigDecimal's exact result; the only allowed
+ * difference is an ArithmeticException when a value does not fit a long.
+ */
+class FixedDecimalTest {
+
+    private static final int ROUNDS = 200_000;
+
+    private final Random random = new Random(12);
+
+    /** Unscaled values of every magnitude up to 63 bits, either sign. */
+    private long randomUnscaled() {
+        int bits = random.nextInt(64);
+        long value = bits == 0 ? 0 : random.nextLong() >>> (64 - bits);
+        return random.nextBoolean() ? value : -value;
+    }
+
+    private FixedDecimal randomDecimal() {
+        return new FixedDecimal(randomUnscaled(), random.nextInt(19));
+    }
+
+    @Test
+    void multiplyHalfUpMatchesBigDecimal() {
+        int checked = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            FixedDecimal a = randomDecimal();
+            FixedDecimal b = randomDecimal();
+            int target = random.nextInt(a.scale() + b.scale() + 3);
+
+            BigDecimal expected = a.toBigDecimal().multiply(b.toBigDecimal()).setScale(target, RoundingMode.HALF_UP);
+            try {
+                long actual = a.multiplyHalfUp(b, target);
+                assertThat(BigDecimal.valueOf(actual, target)).as("%s * %s at scale %d", a, b, target)
+                        .isEqualTo(expected);
+                checked++;
+            } catch (ArithmeticException e) {
+                assertOverflows(expected, e);
+            }
+        }
+        // Random 63-bit operands overflow often; make sure most rounds still compared a value
+        assertThat(checked).isGreaterThan(ROUNDS / 2);
+    }
+
+    @Test
+    void multiplyHalfUpMatchesBigDecimalAtFareMagnitudes() {
+        for (int i = 0; i < ROUNDS; i++) {
+            // Amounts below 10^7 with up to 4 decimals times rates below 10^3 with up to 6, rounded to cents
+            int aScale = random.nextInt(5);
+            int bScale = random.nextInt(7);
+            FixedDecimal a = new FixedDecimal(random.nextLong(-10_000_000L * pow10(aScale), 10_000_000L * pow10(aScale)), aScale);
+            FixedDecimal b = new FixedDecimal(random.nextLong(-1_000L * pow10(bScale), 1_000L * pow10(bScale)), bScale);
+            int target = Money.MINOR_DIGITS;
+
+            BigDecimal expected = a.toBigDecimal().multiply(b.toBigDecimal()).setScale(target, RoundingMode.HALF_UP);
+            assertThat(BigDecimal.valueOf(a.multiplyHalfUp(b, target), target)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void halfwayValuesRoundAwayFromZero() {
+        assertThat(new FixedDecimal(125, 3).roundHalfUp(2)).isEqualTo(13L);
+        assertThat(new FixedDecimal(-125, 3).roundHalfUp(2)).isEqualTo(-13L);
+        assertThat(new FixedDecimal(1249, 4).roundHalfUp(2)).isEqualTo(12L);
+        assertThat(new FixedDecimal(5, 1).multiplyHalfUp(FixedDecimal.ONE, 0)).isEqualTo(1L);
+        assertThat(new FixedDecimal(-5, 1).multiplyHalfUp(FixedDecimal.ONE, 0)).isEqualTo(-1L);
+    }
+
+    @Test
+    void roundHalfUpMatchesBigDecimal() {
+        for (int i = 0; i < ROUNDS; i++) {
+            FixedDecimal a = randomDecimal();
+            int target = random.nextInt(a.scale() + 2);
+
+            BigDecimal expected = a.toBigDecimal().setScale(target, RoundingMode.HALF_UP);
+            try {
+                assertThat(BigDecimal.valueOf(a.roundHalfUp(target), target)).isEqualTo(expected);
+            } catch (ArithmeticException e) {
+                assertOverflows(expected, e);
+            }
+        }
+    }
+
+    @Test
+    void addSubtractAndCompareMatchBigDecimal() {
+        for (int i = 0; i < ROUNDS; i++) {
+            FixedDecimal a = randomDecimal();
+            FixedDecimal b = randomDecimal();
+            BigDecimal x = a.toBigDecimal();
+            BigDecimal y = b.toBigDecimal();
+
+            // Operands are first brought to the larger scale, which is where these can overflow
+            boolean rescalable = fitsAtScale(x, Math.max(a.scale(), b.scale()))
+                    && fitsAtScale(y, Math.max(a.scale(), b.scale()));
+            try {
+                assertThat(Integer.signum(a.compareTo(b))).isEqualTo(x.compareTo(y));
+                assertThat(a.add(b).toBigDecimal()).isEqualTo(x.add(y));
+                assertThat(a.subtract(b).toBigDecimal()).isEqualTo(x.subtract(y));
+            } catch (ArithmeticException e) {
+                boolean sumsFit = fitsAtScale(x.add(y), x.scale() > y.scale() ? x.scale() : y.scale())
+                        && fitsAtScale(x.subtract(y), x.scale() > y.scale() ? x.scale() : y.scale());
+                assertThat(rescalable && sumsFit).as("%s and %s threw %s", a, b, e).isFalse();
+            }
+        }
+    }
+
+    private static long pow10(int n) {
+        return BigInteger.TEN.pow(n).longValueExact();
+    }
+
+    private static boolean fitsAtScale(BigDecimal value, int scale) {
+        return value.setScale(scale).unscaledValue().bitLength() < 64;
+    }
+
+    /**
+     * Products keep one extra digit before rounding, so a result can
+     * overflow up to one digit before the rounded value would; never sooner.
+     */
+    private static void assertOverflows(BigDecimal expected, ArithmeticException e) {
+        assertThat(expected.unscaledValue().abs().multiply(BigInteger.TEN).bitLength())
+                .as("threw %s for %s, which fits", e.getMessage(), expected)
+                .isGreaterThanOrEqualTo(64);
+    }
+
+    @Test
+    void parsesDoublesToTheDigitsOfBigDecimalValueOf() {
+        for (int i = 0; i < ROUNDS; i++) {
+            double value = switch (i % 4) {
+                case 0 -> random.nextDouble() * 100;
+                case 1 -> random.nextInt(100_000) / 100.0;
+                case 2 -> Double.longBitsToDouble(random.nextLong());
+                default -> (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+            };
+            if (Double.isNaN(value) || Double.isInfinite(value)) continue;
+
+            assertThat(FixedDecimal.of(value).toBigDecimal()).as("%s", value).isEqualTo(BigDecimal.valueOf(value));
+        }
+    }
+
+    @Test
+    void moneyOfRoundsLikeSetScale() {
+        for (int i = 0; i < ROUNDS; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(-1_000_000_000_000L, 1_000_000_000_000L), random.nextInt(7));
+            Money money = Money.of(amount, "MKD");
+
+            assertThat(money.toBigDecimal()).isEqualTo(amount.setScale(2, RoundingMode.HALF_UP));
+            assertThat(money.toDouble()).isEqualTo(money.toBigDecimal().doubleValue());
+        }
+    }
+
+    @Test
+    void moneyPlusIsExactAndChecksCurrency() {
+        for (int i = 0; i < ROUNDS; i++) {
+            long a = random.nextLong(-1_000_000_000_000L, 1_000_000_000_000L);
+            long b = random.nextLong(-1_000_000_000_000L, 1_000_000_000_000L);
+            Money sum = new Money(a, "MKD").plus(new Money(b, "MKD"));
+            assertThat(sum.toBigDecimal()).isEqualTo(BigDecimal.valueOf(a, 2).add(BigDecimal.valueOf(b, 2)));
+        }
+        assertThatThrownBy(() -> new Money(1, "MKD").plus(new Money(1, "EUR")))
+                .isInstanceOf(RuntimeException.class);
+    }
+}
@@ -0,0 +1,73 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingConfig;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One fare quote on the fixed-point path against the BigDecimal reference
+ * path, cycling through 4096 random routes under the default pricing.
+ *
+ * Run with the {@code main} method (e.g. from the IDE) after
+ * {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareCalculatorBenchmark {
+
+    private static final SurgeBand[] BANDS = SurgeBand.values();
+
+    private PricingSnapshot pricing;
+    private double[] distances;
+    private int[] minutes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        pricing = PricingSnapshot.of(new PricingConfig());
+
+        Random random = new Random(3);
+        distances = new double[4096];
+        minutes = new int[distances.length];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = random.nextDouble() * 25;
+            minutes[i] = (int) Math.ceil(distances[i] / DeliveryConstants.AVERAGE_CITY_SPEED_KMH * 60);
+        }
+    }
+
+    @Benchmark
+    public FareBreakdown fixedPoint() {
+        int i = next++ & (distances.length - 1);
+        return FareCalculator.priceFixed(pricing, BANDS[i & 3], 1.0, distances[i], minutes[i], (i & 4) != 0, (i & 8) != 0);
+    }
+
+    @Benchmark
+    public FareBreakdown bigDecimal() {
+        int i = next++ & (distances.length - 1);
+        return FareCalculator.priceDecimal(pricing, BANDS[i & 3], 1.0, distances[i], minutes[i], (i & 4) != 0, (i & 8) != 0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FareCalculatorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,171 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.common.money.Money;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingConfig;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The fixed-point fare path against BigDecimal over random pricing and
+ * routes: against {@link FareCalculator#priceDecimal}, and against the
+ * breakdown PricingService computed before the Money type, copied below.
+ */
+class FareCalculatorTest {
+
+    private static final int ROUNDS = 100_000;
+    private static final SurgeBand[] BANDS = SurgeBand.values();
+
+    private final Random random = new Random(7);
+
+    /** A decimal in [0, max) with the given number of decimals, as a config double. */
+    private double amount(double max, int decimals) {
+        return BigDecimal.valueOf(random.nextDouble() * max).setScale(decimals, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private PricingSnapshot randomPricing() {
+        PricingConfig c = new PricingConfig();
+        c.setId(1L);
+        c.setRevision((long) random.nextInt(100));
+        c.setBaseFare(amount(200, 2));
+        c.setPerKmRate(amount(80, random.nextInt(5)));
+        c.setPerMinuteRate(amount(10, random.nextInt(5)));
+        c.setMinimumFare(amount(300, 2));
+        c.setCityCenterMultiplier(1 + amount(0.5, random.nextInt(4)));
+        c.setAirportSurcharge(amount(500, random.nextInt(4)));
+        c.setNightMultiplier(1 + amount(1, 2));
+        c.setPeakHourMultiplier(1 + amount(1, 2));
+        c.setWeekendMultiplier(1 + amount(1, 2));
+        c.setSurgeMultiplier(1 + amount(1, 3));
+        return PricingSnapshot.of(c);
+    }
+
+    /** Full-precision doubles, as the haversine produces them. */
+    private double distanceKm() {
+        return random.nextInt(10) == 0 ? random.nextInt(40) : random.nextDouble() * 60;
+    }
+
+    @Test
+    void fixedPointMatchesTheBigDecimalPath() {
+        for (int i = 0; i < ROUNDS; i++) {
+            PricingSnapshot pricing = randomPricing();
+            SurgeBand band = BANDS[random.nextInt(BANDS.length)];
+            double demand = random.nextBoolean() ? 1.0 : 1 + random.nextInt(11) / 10.0;
+            double km = distanceKm();
+            int minutes = random.nextInt(180);
+            boolean center = random.nextBoolean();
+            boolean airport = random.nextBoolean();
+
+            FareBreakdown fixed = FareCalculator.priceFixed(pricing, band, demand, km, minutes, center, airport);
+            FareBreakdown decimal = FareCalculator.priceDecimal(pricing, band, demand, km, minutes, center, airport);
+            assertThat(fixed).as("%s %s x%s %s km %s min", pricing, band, demand, km, minutes).isEqualTo(decimal);
+        }
+    }
+
+    @Test
+    void matchesTheBreakdownBeforeMoney() {
+        for (int i = 0; i < ROUNDS; i++) {
+            PricingSnapshot pricing = randomPricing();
+            SurgeBand band = BANDS[random.nextInt(BANDS.length)];
+            double km = distanceKm();
+            int minutes = random.nextInt(180);
+            boolean center = random.nextBoolean();
+            boolean airport = random.nextBoolean();
+
+            // No live demand, as before the surge engine
+            FareBreakdown actual = FareCalculator.price(pricing, band, 1.0, km, minutes, center, airport);
+            Legacy expected = legacy(pricing, band, km, minutes, center, airport);
+
+            assertThat(actual.getTotalFare().toBigDecimal()).isEqualByComparingTo(expected.total);
+            assertThat(actual.getBaseFare().toBigDecimal()).isEqualByComparingTo(expected.baseFare);
+            assertThat(actual.getDistanceFare().toBigDecimal()).isEqualByComparingTo(expected.distanceFare);
+            assertThat(actual.getTimeFare().toBigDecimal()).isEqualByComparingTo(expected.timeFare);
+            assertThat(actual.getCityCenterCharge().toBigDecimal()).isEqualByComparingTo(expected.cityCenterCharge);
+            assertThat(actual.getAirportCharge().toBigDecimal()).isEqualByComparingTo(expected.airportCharge);
+            assertThat(actual.getSurgeMultiplier()).isEqualTo(expected.surgeMultiplier);
+            assertThat(actual.isDemandSurge()).isFalse();
+        }
+    }
+
+    @Test
+    void outOfRangeValuesFallBackToBigDecimal() {
+        PricingSnapshot pricing = randomPricing();
+        double km = 1e15;
+
+        FareBreakdown fare = FareCalculator.price(pricing, SurgeBand.NORMAL, 1.0, km, 10, false, false);
+        assertThat(fare).isEqualTo(FareCalculator.priceDecimal(pricing, SurgeBand.NORMAL, 1.0, km, 10, false, false));
+    }
+
+    @Test
+    void minimumFareAppliesAfterSurcharges() {
+        PricingConfig c = new PricingConfig();
+        c.setBaseFare(10.0);
+        c.setPerKmRate(1.0);
+        c.setPerMinuteRate(0.0);
+        c.setMinimumFare(80.0);
+        c.setAirportSurcharge(100.0);
+        c.setSurgeMultiplier(1.0);
+        PricingSnapshot pricing = PricingSnapshot.of(c);
+
+        assertThat(FareCalculator.price(pricing, SurgeBand.NORMAL, 1.0, 2.0, 5, false, false).getTotalFare())
+                .isEqualTo(new Money(8_000, "MKD"));
+        assertThat(FareCalculator.price(pricing, SurgeBand.NORMAL, 1.0, 2.0, 5, false, true).getTotalFare())
+                .isEqualTo(new Money(11_200, "MKD"));
+    }
+
+    // -------------------------------------------------------------
+    // BREAKDOWN BEFORE MONEY (PricingService.getFareBreakdown, time band passed in)
+    // -------------------------------------------------------------
+    private record Legacy(BigDecimal total, BigDecimal baseFare, BigDecimal distanceFare, BigDecimal timeFare,
+                          double surgeMultiplier, BigDecimal cityCenterCharge, BigDecimal airportCharge) {
+    }
+
+    private static Legacy legacy(PricingSnapshot p, SurgeBand band, double distanceKm, int estimatedMinutes,
+                                 boolean inCityCenter, boolean atAirport) {
+        final int SCALE = 2;
+        BigDecimal baseFare = p.baseFare();
+        BigDecimal perKmRate = p.perKmRate();
+        BigDecimal perMinuteRate = p.perMinuteRate();
+        BigDecimal minimumFare = p.minimumFare();
+
+        BigDecimal distanceDec = BigDecimal.valueOf(distanceKm);
+        BigDecimal minutesDec = BigDecimal.valueOf(estimatedMinutes);
+
+        BigDecimal distanceFare = distanceDec.multiply(perKmRate).setScale(SCALE, RoundingMode.HALF_UP);
+        BigDecimal timeFare = minutesDec.multiply(perMinuteRate).setScale(SCALE, RoundingMode.HALF_UP);
+
+        BigDecimal surgeMultiplier = p.surgeMultiplier(band);
+
+        BigDecimal preSurgeTotal = baseFare.add(distanceFare).add(timeFare);
+        BigDecimal afterSurge = preSurgeTotal
+                .multiply(surgeMultiplier)
+                .setScale(SCALE, RoundingMode.HALF_UP);
+
+        BigDecimal cityCenterMultiplier = inCityCenter ? p.cityCenterMultiplier() : BigDecimal.ONE;
+
+        BigDecimal cityCenterCharge = BigDecimal.ZERO;
+        if (inCityCenter && cityCenterMultiplier.compareTo(BigDecimal.ONE) > 0) {
+            cityCenterCharge = afterSurge
+                    .multiply(cityCenterMultiplier.subtract(BigDecimal.ONE))
+                    .setScale(SCALE, RoundingMode.HALF_UP);
+        }
+
+        BigDecimal airportSurcharge = (atAirport ? p.airportSurcharge() : BigDecimal.ZERO)
+                .setScale(SCALE, RoundingMode.HALF_UP);
+
+        BigDecimal total = afterSurge
+                .add(cityCenterCharge)
+                .add(airportSurcharge)
+                .setScale(SCALE, RoundingMode.HALF_UP);
+
+        total = total.max(minimumFare).setScale(SCALE, RoundingMode.HALF_UP);
+
+        return new Legacy(total, baseFare, distanceFare, timeFare, surgeMultiplier.doubleValue(),
+                cityCenterCharge, airportSurcharge);
+    }
+}
@@ -0,0 +1,51 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.common.money.Money;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FareEstimateCacheTest {
+
+    private final FareEstimateCache cache = new FareEstimateCache(new SimpleMeterRegistry(), 1 << 20, 600);
+
+    private static FareEstimateCache.Key key(double lat, double lon) {
+        return new FareEstimateCache.Key(
+                FareEstimateCache.cellOf(lat, lon), FareEstimateCache.cellOf(42.0, 21.4),
+                false, false, SurgeBand.NORMAL, 10, 1L, 1);
+    }
+
+    private static FareBreakdown fare(long minorUnits) {
+        Money total = new Money(minorUnits, "MKD");
+        Money zero = Money.zero("MKD");
+        return new FareBreakdown(total, total, zero, zero, 3.2, 9, "MKD", 1.0, false, zero, zero, 1L, 1);
+    }
+
+    @Test
+    void callersCannotChangeTheCachedEntry() {
+        FareBreakdown first = cache.get(key(42.0, 21.43), k -> fare(25_000));
+        first.setTotalFare(Money.zero("MKD"));
+        first.setSurgeMultiplier(9.9);
+
+        FareBreakdown second = cache.get(key(42.0, 21.43), k -> fare(1));
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getTotalFare()).isEqualTo(new Money(25_000, "MKD"));
+        assertThat(second.getSurgeMultiplier()).isEqualTo(1.0);
+    }
+
+    @Test
+    void pointsInOneCellShareAnEntryAndNeighbouringCellsDoNot() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(key(42.00001, 21.43001), k -> fare(loads.incrementAndGet()));
+        cache.get(key(42.00009, 21.42995), k -> fare(loads.incrementAndGet()));
+        assertThat(loads.get()).isEqualTo(1);
+
+        cache.get(key(42.0006, 21.43), k -> fare(loads.incrementAndGet()));
+        assertThat(loads.get()).isEqualTo(2);
+    }
+}
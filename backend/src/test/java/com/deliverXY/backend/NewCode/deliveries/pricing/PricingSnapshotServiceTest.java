@@ -0,0 +1,144 @@
+package com.deliverXY.backend.NewCode.deliveries.pricing;
+
+import com.deliverXY.backend.NewCode.common.money.FixedDecimal;
+import com.deliverXY.backend.NewCode.common.money.Money;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingConfig;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown;
+import com.deliverXY.backend.NewCode.deliveries.service.PricingConfigService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PricingSnapshotServiceTest {
+
+    private final PricingConfigService configs = mock(PricingConfigService.class);
+    private final FareEstimateCache estimateCache = new FareEstimateCache(new SimpleMeterRegistry(), 1 << 20, 600);
+    private final PricingSnapshotService service = new PricingSnapshotService(configs, estimateCache);
+
+    private final Map<String, PricingConfig> active = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        active.put("Skopje", config(1L, "Skopje", 50.0));
+        active.put("Bitola", config(2L, "Bitola", 40.0));
+        when(configs.getActivePricing(anyString())).thenAnswer(inv -> active.get(inv.<String>getArgument(0)));
+    }
+
+    private static PricingConfig config(Long id, String city, double baseFare) {
+        PricingConfig config = new PricingConfig();
+        config.setId(id);
+        config.setCity(city);
+        config.setBaseFare(baseFare);
+        return config;
+    }
+
+    // -------------------------------------------------------------
+    // SNAPSHOT
+    // -------------------------------------------------------------
+    @Test
+    void snapshotCarriesTheConfigRatesAndSurgeBands() {
+        PricingConfig config = config(1L, "Skopje", 50.0);
+        config.setRevision(4L);
+        config.setCityCenterMultiplier(1.1);
+        config.setNightMultiplier(1.25);
+        config.setPeakHourMultiplier(1.3);
+
+        PricingSnapshot snapshot = PricingSnapshot.of(config);
+
+        assertThat(snapshot.configId()).isEqualTo(1L);
+        assertThat(snapshot.version()).isEqualTo(4L);
+        assertThat(snapshot.baseFare()).isEqualByComparingTo("50.0");
+        assertThat(snapshot.surgeMultiplier(SurgeBand.NIGHT)).isEqualByComparingTo("1.25");
+        assertThat(snapshot.surgeMultiplier(SurgeBand.PEAK)).isEqualByComparingTo("1.3");
+        assertThat(snapshot.fixed().surge(SurgeBand.NIGHT)).isEqualTo(new FixedDecimal(125, 2));
+        assertThat(snapshot.fixed().surgeValue(SurgeBand.PEAK)).isEqualTo(1.3);
+        // The city-centre rate is kept as the extra on top of the fare
+        assertThat(snapshot.fixed().cityCenterExtra()).isEqualTo(new FixedDecimal(1, 1));
+    }
+
+    @Test
+    void missingRevisionAndCommissionFallBackToDefaults() {
+        PricingConfig config = config(1L, "Skopje", 50.0);
+        config.setRevision(null);
+        config.setPlatformCommissionPercent(null);
+
+        PricingSnapshot snapshot = PricingSnapshot.of(config);
+
+        assertThat(snapshot.version()).isZero();
+        assertThat(snapshot.platformCommissionPercent()).isEqualTo(20.0);
+    }
+
+    @Test
+    void surgeBandsFollowTheTimeOfWeek() {
+        // 2026-10-19 is a Monday
+        assertThat(SurgeBand.at(LocalDateTime.of(2026, 10, 19, 23, 30))).isEqualTo(SurgeBand.NIGHT);
+        assertThat(SurgeBand.at(LocalDateTime.of(2026, 10, 19, 5, 59))).isEqualTo(SurgeBand.NIGHT);
+        assertThat(SurgeBand.at(LocalDateTime.of(2026, 10, 19, 8, 0))).isEqualTo(SurgeBand.PEAK);
+        assertThat(SurgeBand.at(LocalDateTime.of(2026, 10, 19, 17, 0))).isEqualTo(SurgeBand.PEAK);
+        assertThat(SurgeBand.at(LocalDateTime.of(2026, 10, 19, 12, 0))).isEqualTo(SurgeBand.NORMAL);
+        assertThat(SurgeBand.at(LocalDateTime.of(2026, 10, 18, 12, 0))).isEqualTo(SurgeBand.WEEKEND);
+        // Night wins over the weekend
+        assertThat(SurgeBand.at(LocalDateTime.of(2026, 10, 18, 2, 0))).isEqualTo(SurgeBand.NIGHT);
+    }
+
+    // -------------------------------------------------------------
+    // SERVICE
+    // -------------------------------------------------------------
+    @Test
+    void eachCityIsLoadedOnce() {
+        PricingSnapshot first = service.current("Skopje");
+        PricingSnapshot again = service.current("Skopje");
+        service.current("Bitola");
+
+        assertThat(again).isSameAs(first);
+        verify(configs, times(1)).getActivePricing("Skopje");
+        verify(configs, times(1)).getActivePricing("Bitola");
+    }
+
+    @Test
+    void refreshSwapsInNewPricesForEveryCachedCity() {
+        service.current("Skopje");
+        service.current("Bitola");
+
+        active.put("Skopje", config(1L, "Skopje", 60.0));
+        active.put("Ohrid", config(3L, "Ohrid", 70.0));
+        service.refresh("Ohrid");
+
+        assertThat(service.current("Skopje").baseFare()).isEqualByComparingTo("60.0");
+        assertThat(service.current("Bitola").baseFare()).isEqualByComparingTo("40.0");
+        assertThat(service.current("Ohrid").baseFare()).isEqualByComparingTo("70.0");
+        verify(configs, times(1)).getActivePricing("Ohrid");
+    }
+
+    @Test
+    void refreshDropsCachedEstimates() {
+        AtomicInteger loads = new AtomicInteger();
+        FareEstimateCache.Key key = new FareEstimateCache.Key(1, 2, false, false, SurgeBand.NORMAL, 10, 1L, 0);
+        estimateCache.get(key, k -> fare());
+        service.refresh("Skopje");
+
+        estimateCache.get(key, k -> {
+            loads.incrementAndGet();
+            return fare();
+        });
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    private static FareBreakdown fare() {
+        Money total = new Money(25_000, "MKD");
+        Money zero = Money.zero("MKD");
+        return new FareBreakdown(total, total, zero, zero, 3.2, 9, "MKD", 1.0, false, zero, zero, 1L, 0);
+    }
+}
@@ -0,0 +1,93 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
+import com.deliverXY.backend.NewCode.deliveries.service.impl.LocationService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class DeliveryRouteFinalizerTest {
+
+    private static final double LAT = 41.99;
+    private static final double LON = 21.43;
+
+    private final DeliveryRepository deliveryRepo = mock(DeliveryRepository.class);
+    private final DeliveryRouteFinalizer finalizer = new DeliveryRouteFinalizer(new LocationService(), deliveryRepo);
+
+    @Test
+    void spikeOnTheFirstPointIsDropped() {
+        List<RoutePoint> trail = new ArrayList<>();
+        trail.add(new RoutePoint(LAT + 0.05, LON, 0));  // ~5.5 km off, 10 s before the real trail
+        trail.addAll(straightNorth(10, 10_000));
+
+        List<RoutePoint> clean = finalizer.removeJitter(trail);
+
+        assertThat(clean).containsExactlyElementsOf(trail.subList(1, trail.size()));
+    }
+
+    @Test
+    void isolatedSpikesMidRouteAreDropped() {
+        List<RoutePoint> trail = straightNorth(10, 0);
+        RoutePoint spike = new RoutePoint(LAT + 0.05, LON + 0.05, trail.get(4).timestampMillis() + 1);
+        RoutePoint spike2 = new RoutePoint(LAT - 0.05, LON, trail.get(6).timestampMillis() + 1);
+        List<RoutePoint> noisy = new ArrayList<>(trail);
+        noisy.add(5, spike);
+        noisy.add(8, spike2);
+
+        assertThat(finalizer.removeJitter(noisy)).containsExactlyElementsOf(trail);
+    }
+
+    @Test
+    void twoAgreeingSpikesDoNotMoveTheAnchor() {
+        List<RoutePoint> trail = straightNorth(10, 0);
+        List<RoutePoint> noisy = new ArrayList<>(trail);
+        long t = trail.get(4).timestampMillis();
+        noisy.add(5, new RoutePoint(LAT + 0.05, LON, t + 1_000));
+        noisy.add(6, new RoutePoint(LAT + 0.0501, LON, t + 2_000));
+
+        assertThat(finalizer.removeJitter(noisy)).containsExactlyElementsOf(trail);
+    }
+
+    @Test
+    void standingStillIsCollapsed() {
+        List<RoutePoint> trail = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // ~1 m wobble around the same spot, one fix per second
+            trail.add(new RoutePoint(LAT + (i % 2) * 0.00001, LON, i * 1_000L));
+        }
+
+        // The first fix, plus the final one the polyline always ends on
+        assertThat(finalizer.removeJitter(trail)).containsExactly(trail.get(0), trail.get(19));
+    }
+
+    @Test
+    void travelledDistanceIgnoresTheFirstPointSpike() {
+        List<RoutePoint> trail = new ArrayList<>();
+        trail.add(new RoutePoint(LAT + 0.05, LON, 0));
+        trail.addAll(straightNorth(10, 10_000));
+
+        finalizer.finalizeRoute(1L, trail);
+
+        // Nine 100 m steps
+        double expectedKm = new LocationService().distanceKm(LAT, LON, LAT + 9 * 0.0009, LON);
+        verify(deliveryRepo).updateRoute(eq(1L), eq(Math.round(expectedKm * 100) / 100.0), anyString());
+        assertThat(expectedKm).isCloseTo(0.9, within(0.01));
+    }
+
+    /** {@code n} fixes 100 m apart heading north, 10 s apart (36 km/h). */
+    private static List<RoutePoint> straightNorth(int n, long startMillis) {
+        List<RoutePoint> points = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            points.add(new RoutePoint(LAT + i * 0.0009, LON, startMillis + i * 10_000L));
+        }
+        return points;
+    }
+}
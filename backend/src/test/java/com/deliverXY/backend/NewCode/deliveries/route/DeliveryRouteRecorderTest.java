@@ -0,0 +1,131 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+import com.deliverXY.backend.NewCode.deliveries.domain.DeliveryRouteSegment;
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRouteSegmentRepository;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliveryRouteRecorderTest {
+
+    private final DeliveryRouteSegmentRepository segmentRepo = mock(DeliveryRouteSegmentRepository.class);
+    private final StubTransactionManager txManager = new StubTransactionManager();
+    private final Map<Long, DeliveryRouteSegment> table = new HashMap<>();
+    private final Map<Long, List<RoutePoint>> finalized = new HashMap<>();
+    private long nextId = 1;
+
+    private DeliveryRouteRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        when(segmentRepo.save(any())).thenAnswer(inv -> insert(inv.getArgument(0)));
+        when(segmentRepo.saveAll(any())).thenAnswer(inv -> {
+            inv.<Iterable<DeliveryRouteSegment>>getArgument(0).forEach(this::insert);
+            return inv.getArgument(0);
+        });
+        when(segmentRepo.findByDeliveryIdOrderByIdAsc(anyLong())).thenAnswer(inv -> table.values().stream()
+                .filter(s -> s.getDeliveryId().equals(inv.getArgument(0)))
+                .sorted(Comparator.comparing(DeliveryRouteSegment::getId))
+                .toList());
+        doAnswer(inv -> {
+            inv.<Iterable<DeliveryRouteSegment>>getArgument(0).forEach(s -> table.remove(s.getId()));
+            return null;
+        }).when(segmentRepo).deleteAll(any());
+
+        DeliveryRouteFinalizer finalizer = new DeliveryRouteFinalizer(null, null) {
+            @Override
+            public void finalizeRoute(Long deliveryId, List<RoutePoint> trail) {
+                finalized.put(deliveryId, List.copyOf(trail));
+            }
+        };
+        recorder = new DeliveryRouteRecorder(segmentRepo, finalizer, txManager, 3_600_000);
+    }
+
+    @Test
+    void completionInsideATransactionWaitsForCommit() {
+        recorder.record(1L, 41.990, 21.430, 1_000);
+        recorder.flush();
+
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            recorder.complete(1L);
+            status.setRollbackOnly();
+        });
+        recorder.flush();
+        assertThat(finalized).isEmpty();
+
+        new TransactionTemplate(txManager).executeWithoutResult(status -> recorder.complete(1L));
+        recorder.flush();
+        assertThat(finalized).containsKey(1L);
+    }
+
+    @Test
+    void finishedRouteIsCompactedIntoOneSegment() {
+        recorder.record(1L, 41.990, 21.430, 1_000);
+        recorder.record(1L, 41.991, 21.431, 2_000);
+        recorder.flush();
+        recorder.record(1L, 41.992, 21.432, 3_000);
+        recorder.complete(1L);
+        recorder.flush();
+
+        assertThat(table).hasSize(1);
+        DeliveryRouteSegment compacted = table.values().iterator().next();
+        assertThat(compacted.getCompacted()).isTrue();
+        assertThat(compacted.getPointCount()).isEqualTo(3);
+        assertThat(finalized.get(1L)).hasSize(3);
+    }
+
+    @Test
+    void pingsAfterCompletionAreIgnored() {
+        recorder.record(1L, 41.990, 21.430, 1_000);
+        recorder.complete(1L);
+        recorder.flush();
+
+        recorder.record(1L, 41.995, 21.435, 5_000);
+        recorder.flush();
+
+        assertThat(table).hasSize(1);
+        assertThat(replay(1L)).hasSize(1);
+    }
+
+    @Test
+    void replayLoadsAllSegmentsInOneQuery() {
+        recorder.record(1L, 41.990, 21.430, 1_000);
+        recorder.flush();
+        recorder.record(1L, 41.991, 21.431, 2_000);
+        recorder.flush();
+        recorder.record(1L, 41.992, 21.432, 3_000);
+
+        List<RoutePoint> points = replay(1L);
+
+        assertThat(points.stream().map(RoutePoint::timestampMillis).toList()).containsExactly(1_000L, 2_000L, 3_000L);
+        verify(segmentRepo, never()).findById(anyLong());
+    }
+
+    private List<RoutePoint> replay(Long deliveryId) {
+        List<RoutePoint> points = new ArrayList<>();
+        recorder.replay(deliveryId, points::add);
+        return points;
+    }
+
+    private DeliveryRouteSegment insert(DeliveryRouteSegment s) {
+        if (s.getId() == null) s.setId(nextId++);
+        table.put(s.getId(), s);
+        return s;
+    }
+}
@@ -0,0 +1,79 @@
+package com.deliverXY.backend.NewCode.deliveries.route;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route finalization cost on synthetic trails: a random walk at city
+ * speed, one fix per second with ~3 m of GPS noise. Measures the
+ * Douglas-Peucker pass alone and together with polyline encoding.
+ *
+ * Run with the {@code main} method (e.g. from the IDE) after
+ * {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteSimplifierBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int points;
+
+    private List<RoutePoint> trail;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        trail = new ArrayList<>(points);
+        double lat = 41.99;
+        double lon = 21.43;
+        double heading = 0;
+        for (int i = 0; i < points; i++) {
+            // Turn now and then, move ~8 m (30 km/h), add ~3 m of noise
+            if (random.nextInt(60) == 0) heading += (random.nextDouble() - 0.5) * Math.PI;
+            lat += Math.cos(heading) * 0.00007;
+            lon += Math.sin(heading) * 0.00009;
+            trail.add(new RoutePoint(
+                    lat + random.nextGaussian() * 0.00003,
+                    lon + random.nextGaussian() * 0.00004,
+                    i * 1_000L));
+        }
+    }
+
+    @Benchmark
+    public List<RoutePoint> simplify() {
+        return RouteSimplifier.simplify(trail, DeliveryConstants.ROUTE_SIMPLIFY_TOLERANCE_METERS);
+    }
+
+    @Benchmark
+    public String simplifyAndEncode() {
+        return PolylineEncoder.encode(RouteSimplifier.simplify(trail, DeliveryConstants.ROUTE_SIMPLIFY_TOLERANCE_METERS));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouteSimplifierBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,166 @@
+package com.deliverXY.backend.NewCode.deliveries.service.impl;
+
+import com.deliverXY.backend.NewCode.deliveries.domain.Delivery;
+import com.deliverXY.backend.NewCode.deliveries.domain.DeliveryTracking;
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryTrackingRepository;
+import com.deliverXY.backend.NewCode.deliveries.route.DeliveryRouteRecorder;
+import com.deliverXY.backend.NewCode.deliveries.websocket.DeliveryTrackingPublisher;
+import com.deliverXY.backend.NewCode.exceptions.NotFoundException;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeliveryTrackingServiceImplTest {
+
+    private final DeliveryTrackingRepository repo = mock(DeliveryTrackingRepository.class);
+    private final DeliveryRepository deliveryRepo = mock(DeliveryRepository.class);
+    private final StubTransactionManager txManager = new StubTransactionManager();
+    private final List<List<DeliveryTracking>> saved = new ArrayList<>();
+    private boolean databaseDown;
+    /** Delivery whose row the database rejects, as if it had been deleted. */
+    private Long deletedDelivery;
+
+    private DeliveryTrackingServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 3; id++) {
+            Delivery delivery = delivery(id);
+            delivery.setDropoffLatitude(42.0);
+            delivery.setDropoffLongitude(21.4);
+            when(deliveryRepo.findById(id)).thenReturn(Optional.of(delivery));
+        }
+        when(deliveryRepo.getReferenceById(any())).thenAnswer(inv -> delivery(inv.getArgument(0)));
+
+        when(repo.saveAll(any())).thenAnswer(inv -> {
+            if (databaseDown) throw new IllegalStateException("connection refused");
+            List<DeliveryTracking> rows = new ArrayList<>();
+            inv.<Iterable<DeliveryTracking>>getArgument(0).forEach(rows::add);
+            if (rows.stream().anyMatch(row -> row.getDelivery().getId().equals(deletedDelivery))) {
+                throw new DataIntegrityViolationException("violates foreign key constraint");
+            }
+            saved.add(rows);
+            return rows;
+        });
+
+        service = new DeliveryTrackingServiceImpl(repo, deliveryRepo, new LocationService(),
+                new DeliveryTrackingPublisher(null),
+                new DeliveryRouteRecorder(null, null, txManager, 3_600_000),
+                txManager, 30, 3);
+    }
+
+    private static Delivery delivery(Long id) {
+        Delivery delivery = new Delivery();
+        delivery.setId(id);
+        return delivery;
+    }
+
+    private List<Long> savedIds() {
+        return saved.stream().flatMap(List::stream).map(row -> row.getDelivery().getId()).toList();
+    }
+
+    @Test
+    void checkpointWritesEachMovedDeliveryOnce() {
+        service.updateLocation(1L, 41.99, 21.43);
+
+        service.checkpoint();
+        service.checkpoint();
+
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).get(0).getCurrentLatitude()).isEqualTo(41.99);
+    }
+
+    @Test
+    void failedCheckpointIsRetriedOnTheNextRun() {
+        service.updateLocation(1L, 41.99, 21.43);
+
+        databaseDown = true;
+        service.checkpoint();
+        assertThat(saved).isEmpty();
+        assertThat(txManager.rollbacks()).isEqualTo(1);
+
+        databaseDown = false;
+        service.checkpoint();
+
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).get(0).getCurrentLatitude()).isEqualTo(41.99);
+        assertThat(saved.get(0).get(0).getCurrentLongitude()).isEqualTo(21.43);
+    }
+
+    @Test
+    void retryWritesThePositionReceivedAfterTheFailure() {
+        service.updateLocation(1L, 41.99, 21.43);
+
+        databaseDown = true;
+        service.checkpoint();
+
+        service.updateLocation(1L, 41.995, 21.435);
+        databaseDown = false;
+        service.checkpoint();
+
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).get(0).getCurrentLatitude()).isEqualTo(41.995);
+    }
+
+    @Test
+    void rejectedDeliveryIsSplitOutAndDroppedAfterItsLastAttempt() {
+        deletedDelivery = 2L;
+        service.updateLocation(1L, 41.99, 21.43);
+        service.updateLocation(2L, 41.99, 21.43);
+        service.updateLocation(3L, 41.99, 21.43);
+
+        service.checkpoint();
+        // The others are written in the same run
+        assertThat(savedIds()).containsExactlyInAnyOrder(1L, 3L);
+
+        service.checkpoint();
+        service.checkpoint();
+        saved.clear();
+        service.checkpoint();
+
+        // Third rejection dropped it; nothing is left to retry
+        assertThat(saved).isEmpty();
+        when(repo.findById(2L)).thenReturn(Optional.empty());
+        assertThatThrownBy(() -> service.getTracking(2L)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void completedDeliveryIsEvictedOnceItsLastFrameIsWritten() {
+        service.updateLocation(1L, 41.99, 21.43);
+
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            service.complete(1L);
+            service.checkpoint();
+        });
+        // Not finished until the status change commits
+        assertThat(service.getTracking(1L).getLatitude()).isEqualTo(41.99);
+
+        service.checkpoint();
+        assertThat(savedIds()).containsExactly(1L);
+        when(repo.findById(1L)).thenReturn(Optional.empty());
+        assertThatThrownBy(() -> service.getTracking(1L)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void discardedDeliveryIsNeverWritten() {
+        service.updateLocation(1L, 41.99, 21.43);
+
+        service.discard(1L);
+        service.checkpoint();
+
+        assertThat(saved).isEmpty();
+    }
+}
@@ -0,0 +1,80 @@
+package com.deliverXY.backend.NewCode.deliveries.service.impl;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareEstimateDTO;
+import com.deliverXY.backend.NewCode.deliveries.pricing.FareEstimateCache;
+import com.deliverXY.backend.NewCode.deliveries.pricing.PricingSnapshotService;
+import com.deliverXY.backend.NewCode.deliveries.service.PricingConfigService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A full bulk request ({@code BULK_QUOTE_MAX_ROUTES} routes) through
+ * {@link PricingService#quoteAll} against the same routes priced one by
+ * one with {@link PricingService#getFareBreakdown(double, double, double, double)},
+ * over the zones and routes of {@link PricingServiceTest}.
+ *
+ * Run with the {@code main} method (e.g. from the IDE) after
+ * {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingServiceBenchmark {
+
+    private PricingService service;
+    private List<FareEstimateDTO> routes;
+
+    @Setup
+    public void setUp() {
+        PricingConfigService configs = mock(PricingConfigService.class);
+        when(configs.getActivePricing(anyString())).thenAnswer(inv ->
+                PricingServiceTest.config(1L, inv.getArgument(0), 50.0));
+        FareEstimateCache estimateCache = new FareEstimateCache(new SimpleMeterRegistry(), 1 << 20, 600);
+
+        service = PricingServiceTest.service(new PricingSnapshotService(configs, estimateCache), estimateCache);
+        routes = PricingServiceTest.routes(DeliveryConstants.BULK_QUOTE_MAX_ROUTES);
+    }
+
+    @Benchmark
+    public void batch(Blackhole bh) {
+        service.quoteAll(routes, (breakdown, index) -> bh.consume(breakdown));
+    }
+
+    @Benchmark
+    public void perRoute(Blackhole bh) {
+        for (FareEstimateDTO r : routes) {
+            bh.consume(service.getFareBreakdown(r.getPickupLatitude(), r.getPickupLongitude(),
+                    r.getDropoffLatitude(), r.getDropoffLongitude()));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PricingServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
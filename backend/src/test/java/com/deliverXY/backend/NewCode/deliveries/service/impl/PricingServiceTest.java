@@ -0,0 +1,177 @@
+package com.deliverXY.backend.NewCode.deliveries.service.impl;
+
+import com.deliverXY.backend.NewCode.common.constants.DeliveryConstants;
+import com.deliverXY.backend.NewCode.common.enums.ZoneType;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingConfig;
+import com.deliverXY.backend.NewCode.deliveries.domain.PricingZone;
+import com.deliverXY.backend.NewCode.deliveries.dto.BulkFareQuoteDTO;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareBreakdown;
+import com.deliverXY.backend.NewCode.deliveries.dto.FareEstimateDTO;
+import com.deliverXY.backend.NewCode.deliveries.pricing.FareEstimateCache;
+import com.deliverXY.backend.NewCode.deliveries.pricing.PricingSnapshotService;
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
+import com.deliverXY.backend.NewCode.deliveries.repository.PricingZoneRepository;
+import com.deliverXY.backend.NewCode.deliveries.service.PricingConfigService;
+import com.deliverXY.backend.NewCode.deliveries.surge.SurgeEngine;
+import com.deliverXY.backend.NewCode.deliveries.zones.ZoneIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PricingServiceTest {
+
+    private final PricingConfigService configs = mock(PricingConfigService.class);
+    private final FareEstimateCache estimateCache = new FareEstimateCache(new SimpleMeterRegistry(), 1 << 20, 600);
+    private final PricingSnapshotService snapshots = new PricingSnapshotService(configs, estimateCache);
+    private final Map<String, PricingConfig> active = new HashMap<>();
+
+    private PricingService service;
+
+    @BeforeEach
+    void setUp() {
+        active.put("Skopje", config(1L, "Skopje", 50.0));
+        active.put("Bitola", config(2L, "Bitola", 40.0));
+        when(configs.getActivePricing(anyString())).thenAnswer(inv -> active.get(inv.<String>getArgument(0)));
+        service = service(snapshots, estimateCache);
+    }
+
+    /** A PricingService over Skopje (with its centre) and Bitola, with no live demand. */
+    static PricingService service(PricingSnapshotService snapshots, FareEstimateCache estimateCache) {
+        PricingZoneRepository zoneRepo = mock(PricingZoneRepository.class);
+        when(zoneRepo.findByIsActiveTrueOrderByIdAsc()).thenReturn(List.of(
+                zone(1L, "Skopje", ZoneType.CITY, 41.90, 21.25, 42.08, 21.70),
+                zone(2L, "Skopje", ZoneType.CITY_CENTER, 41.98, 21.40, 42.01, 21.45),
+                zone(3L, "Bitola", ZoneType.CITY, 41.00, 21.30, 41.05, 21.37)));
+        ZoneIndex zones = new ZoneIndex(zoneRepo);
+        zones.reload();
+
+        SurgeEngine surge = new SurgeEngine(mock(DeliveryRepository.class), new SimpleMeterRegistry(),
+                30_000, 20, 0.3, 0.5, 2.0);
+        PricingService service = new PricingService(new LocationService(), null, snapshots, zones,
+                surge, estimateCache);
+        ReflectionTestUtils.setField(service, "defaultCity", "Skopje");
+        return service;
+    }
+
+    static PricingConfig config(Long id, String city, double baseFare) {
+        PricingConfig config = new PricingConfig();
+        config.setId(id);
+        config.setCity(city);
+        config.setBaseFare(baseFare);
+        return config;
+    }
+
+    private static PricingZone zone(Long id, String city, ZoneType type,
+                                    double minLat, double minLon, double maxLat, double maxLon) {
+        PricingZone z = new PricingZone();
+        z.setId(id);
+        z.setCity(city);
+        z.setName(city + " " + type);
+        z.setType(type);
+        z.setPolygon(minLat + "," + minLon + ";" + minLat + "," + maxLon + ";"
+                + maxLat + "," + maxLon + ";" + maxLat + "," + minLon);
+        z.setIsActive(true);
+        return z;
+    }
+
+    /** Routes around Skopje (some through the centre), Bitola and outside both cities. */
+    static List<FareEstimateDTO> routes(int count) {
+        Random random = new Random(10);
+        List<FareEstimateDTO> routes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double lat = switch (i % 3) {
+                case 0 -> 41.95;
+                case 1 -> 41.01;
+                default -> 40.50;
+            };
+            double lon = i % 3 == 1 ? 21.31 : 21.35;
+            FareEstimateDTO route = new FareEstimateDTO();
+            route.setPickupLatitude(lat + random.nextDouble() * 0.04);
+            route.setPickupLongitude(lon + random.nextDouble() * 0.1);
+            route.setDropoffLatitude(lat + random.nextDouble() * 0.04);
+            route.setDropoffLongitude(lon + random.nextDouble() * 0.1);
+            routes.add(route);
+        }
+        return routes;
+    }
+
+    private List<Object[]> quoteAll(List<FareEstimateDTO> routes) {
+        List<Object[]> quotes = new ArrayList<>();
+        service.quoteAll(routes, (breakdown, index) -> quotes.add(new Object[]{index, breakdown}));
+        return quotes;
+    }
+
+    @Test
+    void quotesComeBackInInputOrder() {
+        List<Object[]> quotes = quoteAll(routes(300));
+
+        assertThat(quotes).hasSize(300);
+        for (int i = 0; i < quotes.size(); i++) {
+            assertThat(quotes.get(i)[0]).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void eachBatchQuoteEqualsTheSingleRouteEstimate() {
+        List<FareEstimateDTO> routes = routes(300);
+        List<Object[]> quotes = quoteAll(routes);
+
+        for (int i = 0; i < routes.size(); i++) {
+            FareEstimateDTO r = routes.get(i);
+            FareBreakdown single = service.estimate(r.getPickupLatitude(), r.getPickupLongitude(),
+                    r.getDropoffLatitude(), r.getDropoffLongitude());
+            assertThat(quotes.get(i)[1]).isEqualTo(single);
+        }
+        // Both cities and the default city were priced
+        assertThat(((FareBreakdown) quotes.get(0)[1]).getPricingConfigId()).isEqualTo(1L);
+        assertThat(((FareBreakdown) quotes.get(1)[1]).getPricingConfigId()).isEqualTo(2L);
+        assertThat(((FareBreakdown) quotes.get(2)[1]).getPricingConfigId()).isEqualTo(1L);
+    }
+
+    @Test
+    void wholeBatchIsPricedAgainstTheSnapshotItStartedWith() {
+        List<FareEstimateDTO> routes = routes(30);
+        List<Long> versions = new ArrayList<>();
+
+        service.quoteAll(routes, (breakdown, index) -> {
+            versions.add(breakdown.getPricingVersion());
+            if (index == 0) {
+                // An admin saves new Skopje prices while the batch is running
+                PricingConfig changed = config(1L, "Skopje", 90.0);
+                changed.setRevision(5L);
+                active.put("Skopje", changed);
+                snapshots.refresh("Skopje");
+            }
+        });
+
+        assertThat(versions).hasSize(30).doesNotContain(5L);
+        assertThat(snapshots.current("Skopje").version()).isEqualTo(5L);
+    }
+
+    @Test
+    void bulkRequestIsLimitedToTheConfiguredRouteCount() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+        BulkFareQuoteDTO atLimit = new BulkFareQuoteDTO(routes(DeliveryConstants.BULK_QUOTE_MAX_ROUTES));
+        BulkFareQuoteDTO overLimit = new BulkFareQuoteDTO(routes(DeliveryConstants.BULK_QUOTE_MAX_ROUTES + 1));
+
+        assertThat(validator.validate(atLimit)).isEmpty();
+        assertThat(validator.validate(overLimit)).hasSize(1);
+        assertThat(validator.validate(overLimit).iterator().next().getMessage())
+                .isEqualTo("At most " + DeliveryConstants.BULK_QUOTE_MAX_ROUTES + " routes per request");
+    }
+}
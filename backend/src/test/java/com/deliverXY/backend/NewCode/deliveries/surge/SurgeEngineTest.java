@@ -0,0 +1,175 @@
+package com.deliverXY.backend.NewCode.deliveries.surge;
+
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays scripted demand and supply against a controlled clock. One
+ * bucket is 30 s and the window is 20 buckets, as in production.
+ */
+class SurgeEngineTest {
+
+    private static final long BUCKET_MS = 30_000;
+    private static final int WINDOW = 20;
+    private static final double LAT = 5.601;
+    private static final double LON = -0.187;
+
+    private final StubTransactionManager txManager = new StubTransactionManager();
+    private long now = 1_700_000_000_000L;
+
+    private SurgeEngine engine(double smoothing) {
+        return new SurgeEngine(mock(DeliveryRepository.class), new SimpleMeterRegistry(),
+                BUCKET_MS, WINDOW, smoothing, 0.5, 2.0) {
+            @Override
+            long now() {
+                return now;
+            }
+        };
+    }
+
+    /** Advances one bucket: the drivers ping, then the scheduler ticks. */
+    private void bucket(SurgeEngine engine, long... drivers) {
+        now += BUCKET_MS;
+        for (long driver : drivers) engine.recordDriverPing(driver, LAT, LON);
+        engine.recompute();
+    }
+
+    @Test
+    void replayedDemandRaisesAndReleasesTheMultiplier() {
+        SurgeEngine engine = engine(0.3);
+
+        // Two idle drivers cover the cell for a full window with nothing to do
+        for (int i = 0; i < WINDOW; i++) bucket(engine, 1, 2);
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(1.0);
+
+        // Six open requests against two drivers: target 1 + 0.5 * (3 - 1) = 2.0
+        for (long id = 100; id < 106; id++) engine.requestOpened(id, LAT, LON);
+        List<Double> rising = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            bucket(engine, 1, 2);
+            rising.add(engine.multiplierAt(LAT, LON));
+        }
+        for (int i = 1; i < rising.size(); i++) assertThat(rising.get(i)).isGreaterThanOrEqualTo(rising.get(i - 1));
+        assertThat(rising.get(0)).isGreaterThan(1.0);
+        assertThat(rising.get(rising.size() - 1)).isEqualTo(2.0);
+
+        // Four requests are taken by drivers from elsewhere, one is cancelled
+        for (long id = 100; id < 104; id++) {
+            engine.requestClosed(id);
+            engine.markBusy(50 + id);
+        }
+        engine.requestClosed(104L);
+        for (int i = 0; i < 12; i++) bucket(engine, 1, 2);
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(1.0);
+    }
+
+    @Test
+    void assignedAndCancelledRequestsStopCountingAsDemand() {
+        SurgeEngine engine = engine(1.0);
+
+        engine.requestOpened(1L, LAT, LON);
+        engine.requestOpened(2L, LAT, LON);
+        engine.requestOpened(3L, LAT, LON);
+        bucket(engine);
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(2.0);
+
+        engine.requestClosed(1L);
+        engine.requestClosed(2L);
+        bucket(engine);
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(1.0);
+
+        // Closing twice, or closing something never opened, changes nothing
+        engine.requestClosed(2L);
+        engine.requestClosed(99L);
+        engine.requestOpened(4L, LAT, LON);
+        bucket(engine);
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(1.5);
+    }
+
+    @Test
+    void supplyFromBeforeMissedTicksIsNotCounted() {
+        SurgeEngine engine = engine(1.0);
+        long[] drivers = new long[10];
+        for (int i = 0; i < drivers.length; i++) drivers[i] = i + 1;
+
+        for (int i = 0; i < WINDOW; i++) bucket(engine, drivers);
+        engine.requestOpened(1L, LAT, LON);
+        engine.requestOpened(2L, LAT, LON);
+        engine.requestOpened(3L, LAT, LON);
+        bucket(engine, drivers);
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(1.0);
+
+        // The scheduler stalls for longer than a window; every driver left meanwhile
+        now += (WINDOW + 5) * BUCKET_MS;
+        engine.recompute();
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(2.0);
+
+        // A stall shorter than the window only drops the buckets it skipped
+        for (int i = 0; i < WINDOW; i++) bucket(engine, drivers);
+        now += (WINDOW / 2) * BUCKET_MS;
+        engine.recompute();
+        // 10 drivers in 10 of the 19 completed buckets average 5.3 per bucket, above the 3 requests
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(1.0);
+    }
+
+    @Test
+    void staleSlotIsResetByTheFirstPingOfItsNewBucket() {
+        SurgeEngine engine = engine(1.0);
+        long[] crowd = new long[40];
+        for (int i = 0; i < crowd.length; i++) crowd[i] = i + 1;
+        for (int i = 0; i < WINDOW; i++) bucket(engine, crowd);
+
+        // The clock skips ahead without a tick, so the next pings land in slots still holding the crowd
+        now += (WINDOW - 1) * BUCKET_MS;
+        for (int i = 0; i < WINDOW; i++) bucket(engine, 100);
+        for (long id = 1; id <= 4; id++) engine.requestOpened(id, LAT, LON);
+        bucket(engine, 100);
+
+        // One driver against four requests; the crowd's counts are long gone
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(2.0);
+    }
+
+    @Test
+    void signalsApplyOnlyOnceTheirTransactionCommits() {
+        SurgeEngine engine = engine(1.0);
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+
+        for (int i = 0; i < WINDOW; i++) bucket(engine, 1, 2);
+
+        tx.executeWithoutResult(status -> {
+            for (long id = 1; id <= 6; id++) engine.requestOpened(id, LAT, LON);
+            engine.recompute();
+            assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(1.0);
+        });
+        bucket(engine, 1, 2);
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(2.0);
+
+        // A rolled-back assignment leaves the request open and the driver idle
+        tx.executeWithoutResult(status -> {
+            engine.requestClosed(1L);
+            engine.markBusy(1L);
+            status.setRollbackOnly();
+        });
+        for (int i = 0; i < WINDOW; i++) bucket(engine, 1, 2);
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(2.0);
+
+        // A committed one closes the request and stops counting the driver
+        tx.executeWithoutResult(status -> {
+            for (long id = 1; id <= 4; id++) engine.requestClosed(id);
+            engine.markBusy(1L);
+        });
+        for (int i = 0; i < WINDOW; i++) bucket(engine, 1, 2);
+        // Two requests against the one driver still idle
+        assertThat(engine.multiplierAt(LAT, LON)).isEqualTo(1.5);
+        assertThat(txManager.rollbacks()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.deliverXY.backend.NewCode.deliveries.zones;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zone lookup for one point: the grid against ray casting every zone,
+ * over the same 200 random polygons as {@link ZoneGridTest}.
+ *
+ * Run with the {@code main} method (e.g. from the IDE) after
+ * {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZoneGridBenchmark {
+
+    private List<ZonePolygon> zones;
+    private ZoneGrid grid;
+    private double[][] points;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(2024);
+        zones = ZoneGridTest.randomZones(random, 200);
+        grid = new ZoneGrid(zones);
+
+        points = new double[4096][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[]{41.9 + random.nextDouble() * 0.25, 21.3 + random.nextDouble() * 0.3};
+        }
+    }
+
+    @Benchmark
+    public void grid(Blackhole bh) {
+        double[] p = points[next++ & (points.length - 1)];
+        grid.forEachAt(p[0], p[1], bh::consume);
+    }
+
+    @Benchmark
+    public void bruteForce(Blackhole bh) {
+        double[] p = points[next++ & (points.length - 1)];
+        for (ZonePolygon z : zones) {
+            if (z.contains(p[0], p[1])) bh.consume(z);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ZoneGridBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
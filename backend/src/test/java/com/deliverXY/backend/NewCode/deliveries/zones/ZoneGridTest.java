@@ -0,0 +1,88 @@
+package com.deliverXY.backend.NewCode.deliveries.zones;
+
+import com.deliverXY.backend.NewCode.common.enums.ZoneType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ZoneGridTest {
+
+    @Test
+    void gridLookupMatchesBruteForceRayCasting() {
+        Random random = new Random(2024);
+        List<ZonePolygon> zones = randomZones(random, 200);
+        ZoneGrid grid = new ZoneGrid(zones);
+
+        int mismatches = 0;
+        for (int i = 0; i < 200_000; i++) {
+            double lat = 41.9 + random.nextDouble() * 0.25;
+            double lon = 21.3 + random.nextDouble() * 0.3;
+
+            Set<Long> expected = new HashSet<>();
+            for (ZonePolygon z : zones) {
+                if (z.contains(lat, lon)) expected.add(z.getId());
+            }
+            Set<Long> actual = new HashSet<>();
+            grid.forEachAt(lat, lon, z -> actual.add(z.getId()));
+
+            if (!expected.equals(actual)) mismatches++;
+        }
+
+        assertThat(mismatches).isZero();
+    }
+
+    @Test
+    void pointsOutsideEveryZoneResolveToNothing() {
+        ZonePolygon square = square(1L, 42.0, 21.4, 0.02);
+        ZoneGrid grid = new ZoneGrid(List.of(square));
+
+        List<ZonePolygon> found = new ArrayList<>();
+        grid.forEachAt(42.01, 21.41, found::add);
+        grid.forEachAt(43.0, 21.41, found::add);
+        grid.forEachAt(42.01, 20.0, found::add);
+
+        assertThat(found).containsExactly(square);
+    }
+
+    @Test
+    void emptyGridFindsNothing() {
+        List<ZonePolygon> found = new ArrayList<>();
+        ZoneGrid.EMPTY.forEachAt(42.0, 21.4, found::add);
+
+        assertThat(found).isEmpty();
+    }
+
+    /** Star-shaped (often concave) polygons of 5-40 vertices, 0.5-5 km across, around Skopje. */
+    static List<ZonePolygon> randomZones(Random random, int count) {
+        List<ZonePolygon> zones = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double centerLat = 41.95 + random.nextDouble() * 0.15;
+            double centerLon = 21.35 + random.nextDouble() * 0.2;
+            double radius = 0.005 + random.nextDouble() * 0.045;
+            int vertices = 5 + random.nextInt(36);
+
+            double[] lats = new double[vertices];
+            double[] lons = new double[vertices];
+            for (int v = 0; v < vertices; v++) {
+                double angle = 2 * Math.PI * v / vertices;
+                double r = radius * (0.3 + 0.7 * random.nextDouble());
+                lats[v] = centerLat + r * Math.sin(angle);
+                lons[v] = centerLon + r * Math.cos(angle) * 1.35;
+            }
+            zones.add(new ZonePolygon((long) i, "Skopje", "zone-" + i, ZoneType.CITY_CENTER, lats, lons));
+        }
+        return zones;
+    }
+
+    private static ZonePolygon square(Long id, double lat, double lon, double size) {
+        return new ZonePolygon(id, "Skopje", "square", ZoneType.CITY,
+                new double[]{lat, lat, lat + size, lat + size},
+                new double[]{lon, lon + size, lon + size, lon});
+    }
+}
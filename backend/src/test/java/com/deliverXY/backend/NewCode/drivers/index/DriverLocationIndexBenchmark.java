@@ -0,0 +1,120 @@
+package com.deliverXY.backend.NewCode.drivers.index;
+
+import com.deliverXY.backend.NewCode.deliveries.service.impl.LocationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-driver lookup through the grid index against a full scan of
+ * every known position (what the old native haversine query did, minus
+ * the database round trip). Drivers are spread over a ~50 km square.
+ *
+ * Run with the {@code main} method (e.g. from the IDE) after
+ * {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverLocationIndexBenchmark {
+
+    private static final double CENTER_LAT = 41.33;
+    private static final double CENTER_LON = 19.82;
+    private static final double SPREAD_DEG = 0.45;
+    private static final int K = 10;
+    private static final double MAX_KM = 3.0;
+
+    @Param({"1000", "10000", "100000"})
+    int drivers;
+
+    private final LocationService locationService = new LocationService();
+    private DriverLocationIndex index;
+    private double[] lats;
+    private double[] lons;
+    private double[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new DriverLocationIndex(locationService, null);
+        lats = new double[drivers];
+        lons = new double[drivers];
+        for (int i = 0; i < drivers; i++) {
+            lats[i] = CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD_DEG;
+            lons[i] = CENTER_LON + (random.nextDouble() - 0.5) * SPREAD_DEG;
+            index.upsert((long) i, lats[i], lons[i]);
+        }
+
+        queries = new double[1024][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[]{
+                    CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD_DEG,
+                    CENTER_LON + (random.nextDouble() - 0.5) * SPREAD_DEG};
+        }
+    }
+
+    @Benchmark
+    public List<DriverLocationIndex.Neighbor> indexNearest() {
+        double[] q = queries[next++ & (queries.length - 1)];
+        return index.nearest(q[0], q[1], K, MAX_KM);
+    }
+
+    @Benchmark
+    public List<DriverLocationIndex.Neighbor> fullScanNearest() {
+        double[] q = queries[next++ & (queries.length - 1)];
+        return scanNearest(q[0], q[1]);
+    }
+
+    @Benchmark
+    public List<DriverLocationIndex.Neighbor> indexWithinRadius() {
+        double[] q = queries[next++ & (queries.length - 1)];
+        return index.withinRadius(q[0], q[1], MAX_KM);
+    }
+
+    private List<DriverLocationIndex.Neighbor> scanNearest(double lat, double lon) {
+        // Max-heap of the K best so far
+        PriorityQueue<DriverLocationIndex.Neighbor> best = new PriorityQueue<>(
+                Comparator.comparingDouble(DriverLocationIndex.Neighbor::distanceKm).reversed());
+        for (int i = 0; i < lats.length; i++) {
+            double d = locationService.distanceKm(lat, lon, lats[i], lons[i]);
+            if (d > MAX_KM) continue;
+            if (best.size() < K) {
+                best.add(new DriverLocationIndex.Neighbor((long) i, lats[i], lons[i], d));
+            } else if (d < best.peek().distanceKm()) {
+                best.poll();
+                best.add(new DriverLocationIndex.Neighbor((long) i, lats[i], lons[i], d));
+            }
+        }
+        List<DriverLocationIndex.Neighbor> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(DriverLocationIndex.Neighbor::distanceKm));
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DriverLocationIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
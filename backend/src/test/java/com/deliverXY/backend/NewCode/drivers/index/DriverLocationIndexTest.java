@@ -0,0 +1,94 @@
+package com.deliverXY.backend.NewCode.drivers.index;
+
+import com.deliverXY.backend.NewCode.deliveries.service.impl.LocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DriverLocationIndexTest {
+
+    private final LocationService locationService = new LocationService();
+    private DriverLocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new DriverLocationIndex(locationService, null);
+    }
+
+    @Test
+    void nearestMatchesFullScan() {
+        Random random = new Random(7);
+        double[][] drivers = new double[5_000][];
+        for (int i = 0; i < drivers.length; i++) {
+            drivers[i] = new double[]{41.33 + (random.nextDouble() - 0.5) * 0.3, 19.82 + (random.nextDouble() - 0.5) * 0.3};
+            index.upsert((long) i, drivers[i][0], drivers[i][1]);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double lat = 41.33 + (random.nextDouble() - 0.5) * 0.3;
+            double lon = 19.82 + (random.nextDouble() - 0.5) * 0.3;
+            double maxKm = 0.5 + random.nextDouble() * 4;
+
+            List<Long> expected = scan(drivers, lat, lon, maxKm).stream().limit(10).toList();
+            List<Long> actual = index.nearest(lat, lon, 10, maxKm).stream()
+                    .map(DriverLocationIndex.Neighbor::driverId).toList();
+
+            assertThat(actual).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void withinRadiusMatchesFullScan() {
+        Random random = new Random(11);
+        double[][] drivers = new double[2_000][];
+        for (int i = 0; i < drivers.length; i++) {
+            drivers[i] = new double[]{41.33 + (random.nextDouble() - 0.5) * 0.2, 19.82 + (random.nextDouble() - 0.5) * 0.2};
+            index.upsert((long) i, drivers[i][0], drivers[i][1]);
+        }
+
+        for (int q = 0; q < 100; q++) {
+            double lat = 41.33 + (random.nextDouble() - 0.5) * 0.2;
+            double lon = 19.82 + (random.nextDouble() - 0.5) * 0.2;
+
+            List<Long> actual = index.withinRadius(lat, lon, 3.0).stream()
+                    .map(DriverLocationIndex.Neighbor::driverId).toList();
+
+            assertThat(actual).containsExactlyElementsOf(scan(drivers, lat, lon, 3.0));
+        }
+    }
+
+    @Test
+    void movedDriverIsOnlyFoundAtItsNewPosition() {
+        index.upsert(1L, 41.33, 19.82);
+        index.upsert(1L, 41.40, 19.90);
+
+        assertThat(index.withinRadius(41.33, 19.82, 1.0)).isEmpty();
+        assertThat(index.nearest(41.40, 19.90, 1, 1.0)).hasSize(1);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removedDriverIsNotFound() {
+        index.upsert(1L, 41.33, 19.82);
+        index.remove(1L);
+
+        assertThat(index.nearest(41.33, 19.82, 5, 10.0)).isEmpty();
+        assertThat(index.position(1L)).isEmpty();
+    }
+
+    private List<Long> scan(double[][] drivers, double lat, double lon, double maxKm) {
+        List<DriverLocationIndex.Neighbor> hits = new ArrayList<>();
+        for (int i = 0; i < drivers.length; i++) {
+            double d = locationService.distanceKm(lat, lon, drivers[i][0], drivers[i][1]);
+            if (d <= maxKm) hits.add(new DriverLocationIndex.Neighbor((long) i, drivers[i][0], drivers[i][1], d));
+        }
+        hits.sort(Comparator.comparingDouble(DriverLocationIndex.Neighbor::distanceKm));
+        return hits.stream().map(DriverLocationIndex.Neighbor::driverId).toList();
+    }
+}
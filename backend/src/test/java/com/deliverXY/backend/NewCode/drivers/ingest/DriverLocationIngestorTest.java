@@ -0,0 +1,133 @@
+package com.deliverXY.backend.NewCode.drivers.ingest;
+
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DriverLocationIngestorTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private DriverLocationIngestor ingestor;
+
+    @BeforeEach
+    void setUp() {
+        ingestor = new DriverLocationIngestor(jdbc, new StubTransactionManager(), meters, 1000, 3);
+    }
+
+    @Test
+    void flushWritesLatestPingPerDriver() {
+        ingestor.accept(ping(1L, 1.0, 100));
+        ingestor.accept(ping(1L, 2.0, 200));
+        assertThat(ingestor.accept(ping(1L, 3.0, 150))).isFalse();
+        ingestor.accept(ping(2L, 5.0, 100));
+
+        ingestor.flush();
+
+        assertThat(jdbc.table).hasSize(2);
+        assertThat(jdbc.table.get(1L).latitude()).isEqualTo(2.0);
+        assertThat(jdbc.batches).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedRowIsSplitOutAndDroppedAfterMaxAttempts() {
+        jdbc.rejected.add(7L);
+        for (long id = 1; id <= 20; id++) {
+            ingestor.accept(ping(id, id, 100));
+        }
+
+        ingestor.flush();
+
+        // Everyone but driver 7 is written on the first flush
+        assertThat(jdbc.table).hasSize(19);
+        assertThat(jdbc.table).doesNotContainKey(7L);
+
+        ingestor.flush();
+        ingestor.flush();
+        assertThat(dropped("write_failed")).isEqualTo(1.0);
+
+        // Nothing left to retry
+        int batches = jdbc.batches;
+        ingestor.flush();
+        assertThat(jdbc.batches).isEqualTo(batches);
+    }
+
+    @Test
+    void rejectedRowRecoversWhenANewerPingIsAccepted() {
+        jdbc.rejected.add(7L);
+        ingestor.accept(ping(7L, 1.0, 100));
+        ingestor.flush();
+
+        jdbc.rejected.clear();
+        ingestor.accept(ping(7L, 2.0, 200));
+        ingestor.flush();
+
+        assertThat(jdbc.table.get(7L).latitude()).isEqualTo(2.0);
+        assertThat(dropped("write_failed")).isEqualTo(0.0);
+    }
+
+    @Test
+    void transientFailureRequeuesWholeBatchWithoutCountingAttempts() {
+        for (long id = 1; id <= 5; id++) {
+            ingestor.accept(ping(id, id, 100));
+        }
+
+        jdbc.down = true;
+        for (int i = 0; i < 5; i++) {
+            ingestor.flush();
+        }
+        assertThat(jdbc.table).isEmpty();
+
+        jdbc.down = false;
+        ingestor.flush();
+
+        assertThat(jdbc.table).hasSize(5);
+        assertThat(dropped("write_failed")).isEqualTo(0.0);
+    }
+
+    private double dropped(String reason) {
+        return meters.get("drivers.location.pings.dropped").tag("reason", reason).counter().count();
+    }
+
+    private static DriverLocationIngestor.Ping ping(long driverId, double lat, long at) {
+        return new DriverLocationIngestor.Ping(driverId, lat, 0.0, at);
+    }
+
+    /** driver_locations as a map; the whole batch fails if any row is rejected. */
+    private static class FakeJdbc extends JdbcTemplate {
+        final Map<Long, DriverLocationIngestor.Ping> table = new HashMap<>();
+        final Set<Long> rejected = new HashSet<>();
+        boolean down;
+        int batches;
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            batches++;
+            if (down) throw new QueryTimeoutException("timeout");
+            for (T arg : batchArgs) {
+                if (rejected.contains(((DriverLocationIngestor.Ping) arg).driverId())) {
+                    throw new DataIntegrityViolationException("violates foreign key constraint");
+                }
+            }
+            for (T arg : batchArgs) {
+                DriverLocationIngestor.Ping ping = (DriverLocationIngestor.Ping) arg;
+                table.put(ping.driverId(), ping);
+            }
+            return new int[][]{};
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.deliverXY.backend.NewCode.drivers.service.impl;
+
+import com.deliverXY.backend.NewCode.deliveries.domain.Delivery;
+import com.deliverXY.backend.NewCode.deliveries.service.impl.LocationService;
+import com.deliverXY.backend.NewCode.drivers.index.DriverLocationIndex;
+import com.deliverXY.backend.NewCode.notifications.service.NotificationService;
+import com.deliverXY.backend.NewCode.user.domain.AppUser;
+import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DriverMatchingServiceTest {
+
+    private static final double LAT = 41.99;
+    private static final double LON = 21.43;
+
+    private final LocationService locationService = new LocationService();
+    private final DriverLocationIndex index = new DriverLocationIndex(locationService, null);
+    private final AppUserRepository appUserRepo = mock(AppUserRepository.class);
+    private final List<Long> notified = new ArrayList<>();
+
+    private final NotificationService notifications = new NotificationService(null, null, null) {
+        @Override
+        public void sendDeliveryRequest(AppUser driver, Delivery delivery) {
+            notified.add(driver.getId());
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        // 15 drivers 100 m apart heading north from the pickup (all within 3 km), 2 more 5 km out
+        for (long id = 1; id <= 15; id++) {
+            index.upsert(id, LAT + id * 0.0009, LON);
+        }
+        index.upsert(100L, LAT + 0.045, LON);
+        index.upsert(101L, LAT - 0.045, LON);
+
+        when(appUserRepo.findAllById(any())).thenAnswer(inv -> {
+            List<AppUser> users = new ArrayList<>();
+            for (Long id : inv.<Iterable<Long>>getArgument(0)) {
+                AppUser user = new AppUser();
+                user.setId(id);
+                users.add(user);
+            }
+            return users;
+        });
+    }
+
+    @Test
+    void broadcastReachesEveryDriverInRadiusByDefault() {
+        service(0).broadcastDeliveryRequest(delivery());
+
+        assertThat(notified).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L);
+    }
+
+    @Test
+    void broadcastCanBeCappedToNearestDrivers() {
+        service(10).broadcastDeliveryRequest(delivery());
+
+        assertThat(notified).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    private DriverMatchingService service(int maxDrivers) {
+        return new DriverMatchingService(null, index, appUserRepo, locationService, notifications, maxDrivers);
+    }
+
+    private static Delivery delivery() {
+        Delivery d = new Delivery();
+        d.setId(1L);
+        d.setPickupLatitude(LAT);
+        d.setPickupLongitude(LON);
+        return d;
+    }
+}
@@ -0,0 +1,107 @@
+package com.deliverXY.backend.NewCode.earnings.rollup;
+
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the live totals query against H2 in PostgreSQL mode. The nightly
+ * refresh statement uses Postgres-only syntax and is not covered here.
+ */
+class EarningsRollupTest {
+
+    private JdbcTemplate jdbc;
+    private EarningsRollup rollup;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;NON_KEYWORDS=DAY;DB_CLOSE_DELAY=-1"));
+        jdbc.execute("""
+                CREATE TABLE driver_earnings (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    delivery_id BIGINT, driver_earnings NUMERIC(12, 2), tip NUMERIC(12, 2), created_at TIMESTAMP)
+                """);
+        jdbc.execute("""
+                CREATE TABLE payments (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    delivery_id BIGINT NOT NULL, amount NUMERIC(12, 2), platform_fee NUMERIC(12, 2), driver_amount NUMERIC(12, 2),
+                    tip NUMERIC(12, 2))
+                """);
+        jdbc.execute("""
+                CREATE TABLE earnings_daily_rollup (day DATE PRIMARY KEY, deliveries BIGINT,
+                    driver_total NUMERIC(14, 2), tip_total NUMERIC(14, 2), platform_revenue NUMERIC(14, 2),
+                    refreshed_at TIMESTAMP)
+                """);
+        rollup = new EarningsRollup(jdbc, new StubTransactionManager(), 7);
+    }
+
+    private void earning(Long deliveryId, String driverEarnings, String tip, LocalDateTime at) {
+        jdbc.update("INSERT INTO driver_earnings (delivery_id, driver_earnings, tip, created_at) VALUES (?, ?, ?, ?)",
+                deliveryId, driverEarnings, tip, Timestamp.valueOf(at));
+    }
+
+    private void payment(long deliveryId, String amount, String platformFee, String driverAmount, String tip) {
+        jdbc.update("INSERT INTO payments (delivery_id, amount, platform_fee, driver_amount, tip) VALUES (?, ?, ?, ?, ?)",
+                deliveryId, amount, platformFee, driverAmount, tip);
+    }
+
+    @Test
+    void revenueFollowsTheFallbackOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        // Platform fee on the payment
+        earning(1L, "16.00", "0", now);
+        payment(1, "20.00", "3.00", "16.00", "0");
+        // Amount left after the driver and the tip
+        earning(2L, "15.00", "1.00", now);
+        payment(2, "20.00", "0", "15.00", "1.00");
+        // Payment with nothing to go on, then no payment at all: a quarter of the driver's earnings
+        earning(3L, "8.00", "0", now);
+        payment(3, "0", "0", "0", "0");
+        earning(4L, "12.00", "0", now);
+
+        EarningsRollup.Totals totals = rollup.totals();
+
+        assertThat(totals.deliveries()).isEqualTo(4L);
+        assertThat(totals.driverTotal()).isEqualByComparingTo("51.00");
+        assertThat(totals.tipTotal()).isEqualByComparingTo("1.00");
+        assertThat(totals.platformRevenue()).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void earningsWithoutADeliveryEarnThePlatformNothing() {
+        earning(null, "10.00", "2.00", LocalDateTime.now());
+        earning(5L, "8.00", "0", LocalDateTime.now());
+
+        EarningsRollup.Totals totals = rollup.totals();
+
+        assertThat(totals.deliveries()).isEqualTo(2L);
+        assertThat(totals.driverTotal()).isEqualByComparingTo("18.00");
+        assertThat(totals.tipTotal()).isEqualByComparingTo("2.00");
+        assertThat(totals.platformRevenue()).isEqualByComparingTo("2.00");
+    }
+
+    @Test
+    void rolledUpDaysAreAddedToTheLiveRowsAfterThem() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        jdbc.update("INSERT INTO earnings_daily_rollup VALUES (?, 10, 100.00, 5.00, 25.00, ?)",
+                Date.valueOf(yesterday), Timestamp.valueOf(LocalDateTime.now()));
+        // Already in the rolled-up day, so not counted again
+        earning(6L, "40.00", "0", yesterday.atTime(12, 0));
+        earning(7L, "4.00", "0", LocalDateTime.now());
+
+        EarningsRollup.Totals totals = rollup.totals();
+
+        assertThat(totals.deliveries()).isEqualTo(11L);
+        assertThat(totals.driverTotal()).isEqualByComparingTo("104.00");
+        assertThat(totals.platformRevenue()).isEqualByComparingTo("26.00");
+    }
+}
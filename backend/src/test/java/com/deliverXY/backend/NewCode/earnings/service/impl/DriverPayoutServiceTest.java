@@ -0,0 +1,136 @@
+package com.deliverXY.backend.NewCode.earnings.service.impl;
+
+import com.deliverXY.backend.NewCode.earnings.repository.DriverEarningsRepository;
+import com.deliverXY.backend.NewCode.earnings.repository.DriverEarningsRepository.AgentTotal;
+import com.deliverXY.backend.NewCode.user.domain.AppUser;
+import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
+import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
+import com.deliverXY.backend.NewCode.wallet.ledger.LedgerService;
+import com.deliverXY.backend.NewCode.wallet.repository.TopUpRepository;
+import com.deliverXY.backend.NewCode.wallet.repository.WalletRepository;
+import com.deliverXY.backend.NewCode.wallet.repository.WalletTransactionRepository;
+import com.deliverXY.backend.NewCode.wallet.service.impl.WalletServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DriverPayoutServiceTest {
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private final DriverEarningsRepository earningsRepo = mock(DriverEarningsRepository.class);
+    private final AppUserRepository userRepo = mock(AppUserRepository.class);
+    private final WalletRepository walletRepo = mock(WalletRepository.class);
+
+    private WalletServiceImpl wallets;
+    private DriverPayoutService payouts;
+
+    @BeforeEach
+    void setUp() {
+        AppUser driver = new AppUser();
+        driver.setId(7L);
+        Wallet wallet = new Wallet(driver);
+        wallet.setId(70L);
+        when(userRepo.findById(7L)).thenReturn(Optional.of(driver));
+        when(walletRepo.findByUser(any())).thenReturn(Optional.of(wallet));
+
+        LedgerService ledger = new LedgerService(jdbc, new SimpleMeterRegistry(), 1);
+        wallets = new WalletServiceImpl(walletRepo, mock(WalletTransactionRepository.class), userRepo,
+                mock(TopUpRepository.class), ledger, null, null);
+        payouts = new DriverPayoutService(earningsRepo, jdbc);
+    }
+
+    private static AgentTotal total(Long agentId, String amount) {
+        return new AgentTotal() {
+            @Override
+            public Long getAgentId() {
+                return agentId;
+            }
+
+            @Override
+            public BigDecimal getTotal() {
+                return new BigDecimal(amount);
+            }
+        };
+    }
+
+    @Test
+    void settledDeliveryIsCreditedOnceAndOnlyRecordedByThePayout() {
+        wallets.settleDelivery(7L, new BigDecimal("80.00"), new BigDecimal("20.00"), false, "DELIVERY_EARNINGS_T1");
+        assertThat(jdbc.walletCredits).isEqualTo(1);
+
+        when(earningsRepo.sumByAgentBetween(any(), any())).thenReturn(List.of(total(7L, "80.00")));
+        payouts.generateWeeklyPayout();
+
+        assertThat(jdbc.walletCredits).isEqualTo(1);
+        assertThat(jdbc.payouts).hasSize(1);
+        assertThat(jdbc.payouts.get(0)[0]).isEqualTo(7L);
+        assertThat((BigDecimal) jdbc.payouts.get(0)[1]).isEqualByComparingTo("80.00");
+    }
+
+    @Test
+    void rerunRecordsNothingNew() {
+        when(earningsRepo.sumByAgentBetween(any(), any())).thenReturn(List.of(total(7L, "80.00"), total(8L, "0.00")));
+
+        payouts.generateWeeklyPayout();
+        payouts.generateWeeklyPayout();
+
+        assertThat(jdbc.payouts).hasSize(1);
+        assertThat(jdbc.walletCredits).isZero();
+    }
+
+    /** Counts wallet credits from the ledger and keeps driver_payouts rows, skipping a driver's repeat period. */
+    private static class FakeJdbc extends JdbcTemplate {
+        int walletCredits;
+        final List<Object[]> payouts = new ArrayList<>();
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("UPDATE wallets")) walletCredits++;
+            return 1;
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            if (!sql.contains("driver_payouts")) return new int[][]{};
+            for (T arg : batchArgs) {
+                Map<Integer, Object> params = new HashMap<>();
+                PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                        (proxy, method, a) -> {
+                            params.put((Integer) a[0], a[1]);
+                            return null;
+                        });
+                try {
+                    pss.setValues(ps, arg);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                boolean exists = payouts.stream().anyMatch(row ->
+                        row[0].equals(params.get(8)) && row[2].equals(params.get(9)));
+                if (!exists) {
+                    payouts.add(new Object[]{params.get(1), params.get(2), params.get(3), params.get(4)});
+                }
+            }
+            return new int[][]{};
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.deliverXY.backend.NewCode.payments.gateway;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.exceptions.PaymentException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GatewayBulkheadTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private GatewayBulkhead bulkhead;
+
+    private GatewayBulkhead bulkhead(Map<String, Object> properties) {
+        StandardEnvironment env = new StandardEnvironment();
+        env.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        bulkhead = new GatewayBulkhead(env, meters);
+        return bulkhead;
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        bulkhead.shutdown();
+    }
+
+    private String blocked() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "late";
+    }
+
+    @Test
+    void callsRunInTheProvidersOwnLane() {
+        GatewayBulkhead bulkhead = bulkhead(Map.of());
+
+        String thread = bulkhead.call(PaymentProvider.STRIPE, () -> Thread.currentThread().getName());
+
+        assertThat(thread).startsWith("gateway-stripe-");
+        assertThat(meters.get("payments.gateway.call").tag("outcome", "ok").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void fullLaneRejectsAtOnceWithoutAffectingOtherProviders() {
+        GatewayBulkhead bulkhead = bulkhead(Map.of(
+                "payments.gateway.stripe.max-concurrent", 1,
+                "payments.gateway.stripe.queue-capacity", 1));
+
+        CompletableFuture<String> running = bulkhead.submit(PaymentProvider.STRIPE, this::blocked);
+        CompletableFuture<String> queued = bulkhead.submit(PaymentProvider.STRIPE, this::blocked);
+
+        assertThatThrownBy(() -> bulkhead.call(PaymentProvider.STRIPE, () -> "never"))
+                .isInstanceOf(PaymentException.class)
+                .hasMessageContaining("busy");
+        assertThat(meters.get("payments.gateway.rejected").tag("provider", "stripe").counter().count())
+                .isEqualTo(1.0);
+        // Other providers have lanes of their own
+        assertThat(bulkhead.call(PaymentProvider.PAYPAL_API, () -> "ok")).isEqualTo("ok");
+
+        release.countDown();
+        assertThat(running.join()).isEqualTo("late");
+        assertThat(queued.join()).isEqualTo("late");
+    }
+
+    @Test
+    void overrunningCallTimesOut() {
+        GatewayBulkhead bulkhead = bulkhead(Map.of("payments.gateway.timeout-ms", 50));
+
+        assertThatThrownBy(() -> bulkhead.call(PaymentProvider.STRIPE, this::blocked))
+                .isInstanceOf(PaymentException.class)
+                .hasMessageContaining("did not respond in time");
+        assertThat(meters.get("payments.gateway.call").tag("outcome", "timeout").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void providerErrorsReachTheCallerUnwrapped() {
+        GatewayBulkhead bulkhead = bulkhead(Map.of());
+
+        assertThatThrownBy(() -> bulkhead.call(PaymentProvider.STRIPE, () -> {
+            throw new IllegalStateException("card declined");
+        }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("card declined");
+        assertThat(meters.get("payments.gateway.call").tag("outcome", "error").timer().count()).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,186 @@
+package com.deliverXY.backend.NewCode.payments.inbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboundEventQueueTest {
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private final InboundEventQueue queue = new InboundEventQueue(jdbc, new SimpleMeterRegistry(), 120, 3, 1000, 60_000, 7);
+
+    @Test
+    void repeatedCallbacksWithTheSameOutcomeCollapse() {
+        assertThat(queue.enqueueTopUpCallback(1L, false, "pi_1")).isTrue();
+        assertThat(queue.enqueueTopUpCallback(1L, false, "pi_1")).isFalse();
+        assertThat(queue.enqueuePaymentConfirmation("pay_1")).isTrue();
+        assertThat(queue.enqueuePaymentConfirmation("pay_1")).isFalse();
+
+        assertThat(jdbc.rows).hasSize(2);
+    }
+
+    @Test
+    void failureThenSuccessAreBothAppliedInArrivalOrder() {
+        assertThat(queue.enqueueTopUpCallback(1L, false, "pi_1")).isTrue();
+        assertThat(queue.enqueueTopUpCallback(1L, true, "pi_1")).isTrue();
+        assertThat(queue.enqueueTopUpCallback(2L, true, "pi_2")).isTrue();
+
+        // The success for top-up 1 waits behind its failure; top-up 2 is independent
+        List<InboundEventQueue.Claimed> first = queue.claim(10);
+        assertThat(first.stream().map(InboundEventQueue.Claimed::subject).toList()).containsExactly("1", "2");
+        assertThat(first.get(0).success()).isFalse();
+        assertThat(queue.claim(10)).isEmpty();
+
+        queue.markDone(first.get(0));
+        List<InboundEventQueue.Claimed> second = queue.claim(10);
+        assertThat(second).hasSize(1);
+        assertThat(second.get(0).subject()).isEqualTo("1");
+        assertThat(second.get(0).success()).isTrue();
+        assertThat(second.get(0).reference()).isEqualTo("pi_1");
+    }
+
+    @Test
+    void aRetriedFailureKeepsLaterCallbacksWaiting() {
+        queue.enqueueTopUpCallback(1L, false, "pi_1");
+        queue.enqueueTopUpCallback(1L, true, "pi_1");
+
+        InboundEventQueue.Claimed failure = queue.claim(10).get(0);
+        queue.markFailed(failure, new IllegalStateException("db down"), false);
+        assertThat(queue.claim(10)).isEmpty();
+
+        jdbc.rows.get(0).nextAttemptAt = LocalDateTime.now().minusSeconds(1);
+        InboundEventQueue.Claimed retried = queue.claim(10).get(0);
+        assertThat(retried.attempts()).isEqualTo(2);
+
+        // Once it is given up on, the next callback for the top-up goes ahead
+        queue.markFailed(retried, new IllegalArgumentException("bad"), true);
+        assertThat(queue.claim(10).stream().map(InboundEventQueue.Claimed::success).toList()).containsExactly(true);
+    }
+
+    @Test
+    void callbackArrivingAfterProcessingIsQueuedAgain() {
+        queue.enqueueTopUpCallback(1L, true, "pi_1");
+        queue.markDone(queue.claim(10).get(0));
+
+        // Dedupe only collapses callbacks still waiting; the worker ignores replays of a final outcome
+        assertThat(queue.enqueueTopUpCallback(1L, true, "pi_1")).isTrue();
+    }
+
+    private static final class Row {
+        long id;
+        String kind;
+        String orderKey;
+        String dedupeKey;
+        String subject;
+        Boolean success;
+        String reference;
+        String status = "PENDING";
+        int attempts;
+        LocalDateTime nextAttemptAt;
+        LocalDateTime lockedUntil;
+    }
+
+    /** inbound_events as a list in id order. */
+    private static class FakeJdbc extends JdbcTemplate {
+        final List<Row> rows = new ArrayList<>();
+
+        private Row byId(Object id) {
+            return rows.stream().filter(r -> r.id == (Long) id).findFirst().orElseThrow();
+        }
+
+        private static LocalDateTime at(Object timestamp) {
+            return ((Timestamp) timestamp).toLocalDateTime();
+        }
+
+        private static boolean open(Row row) {
+            return row.status.equals("PENDING") || row.status.equals("PROCESSING");
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.contains("INSERT INTO inbound_events")) {
+                if (rows.stream().anyMatch(r -> Objects.equals(r.dedupeKey, args[2]))) return 0;
+                Row row = new Row();
+                row.id = rows.size() + 1;
+                row.kind = (String) args[0];
+                row.orderKey = (String) args[1];
+                row.dedupeKey = (String) args[2];
+                row.subject = (String) args[3];
+                row.success = (Boolean) args[4];
+                row.reference = (String) args[5];
+                row.nextAttemptAt = at(args[6]);
+                rows.add(row);
+                return 1;
+            }
+            if (sql.contains("SET status = 'DONE'")) {
+                Row row = byId(args[1]);
+                row.status = "DONE";
+                row.dedupeKey = null;
+                return 1;
+            }
+            if (sql.contains("SET status = 'PENDING'")) {
+                Row row = byId(args[2]);
+                row.status = "PENDING";
+                row.lockedUntil = null;
+                row.nextAttemptAt = at(args[0]);
+                return 1;
+            }
+            if (sql.contains("SET status = 'FAILED'")) {
+                Row row = byId(args[2]);
+                row.status = "FAILED";
+                row.dedupeKey = null;
+                return 1;
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            LocalDateTime lockedUntil = at(args[0]);
+            LocalDateTime now = at(args[1]);
+            int limit = (Integer) args[3];
+
+            List<Row> due = rows.stream()
+                    .filter(e -> (e.status.equals("PENDING") && !e.nextAttemptAt.isAfter(now))
+                            || (e.status.equals("PROCESSING") && e.lockedUntil.isBefore(now)))
+                    .filter(e -> rows.stream().noneMatch(p -> p.orderKey.equals(e.orderKey) && p.id < e.id && open(p)))
+                    .limit(limit)
+                    .toList();
+
+            List<T> out = new ArrayList<>();
+            for (Row row : due) {
+                row.status = "PROCESSING";
+                row.lockedUntil = lockedUntil;
+                row.attempts++;
+                ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class}, (proxy, method, params) -> switch ((String) params[0]) {
+                            case "id" -> row.id;
+                            case "kind" -> row.kind;
+                            case "subject" -> row.subject;
+                            case "success" -> row.success;
+                            case "reference" -> row.reference;
+                            case "attempts" -> row.attempts;
+                            default -> throw new UnsupportedOperationException((String) params[0]);
+                        });
+                try {
+                    out.add(rowMapper.mapRow(rs, out.size()));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return out;
+        }
+    }
+}
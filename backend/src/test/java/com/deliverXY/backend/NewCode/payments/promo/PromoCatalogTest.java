@@ -0,0 +1,181 @@
+package com.deliverXY.backend.NewCode.payments.promo;
+
+import com.deliverXY.backend.NewCode.payments.domain.PromoCode;
+import com.deliverXY.backend.NewCode.payments.repository.PromoCodeRepository;
+import com.deliverXY.backend.NewCode.payments.repository.PromoCodeUsageRepository;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PromoCatalogTest {
+
+    private static final int THREADS = 8;
+
+    private final PromoCodeRepository promoCodeRepo = mock(PromoCodeRepository.class);
+    private final PromoCodeUsageRepository usageRepo = mock(PromoCodeUsageRepository.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final List<PromoCode> stored = new ArrayList<>();
+
+    private PromoCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        when(promoCodeRepo.findAll()).thenReturn(stored);
+        when(usageRepo.countUsesPerUser()).thenReturn(List.of());
+        catalog = new PromoCatalog(promoCodeRepo, usageRepo, null, new StubTransactionManager(), meters, 0.01, 1024);
+    }
+
+    static PromoCode code(long id, String code, Integer usageLimit, Integer usagePerUser) {
+        PromoCode promo = new PromoCode();
+        promo.setId(id);
+        promo.setCode(code);
+        promo.setUsageLimit(usageLimit);
+        promo.setUsagePerUser(usagePerUser);
+        return promo;
+    }
+
+    /** Every thread tries {@code attempts} reservations for each user, all released at once. */
+    private Map<Long, AtomicInteger> reserveConcurrently(String code, int users, int attempts)
+            throws InterruptedException {
+        Map<Long, AtomicInteger> reserved = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < attempts; i++) {
+                    for (long user = 1; user <= users; user++) {
+                        if (catalog.reserve(code, user) == PromoCatalog.Outcome.RESERVED) {
+                            reserved.computeIfAbsent(user, u -> new AtomicInteger()).incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        return reserved;
+    }
+
+    private static int total(Map<Long, AtomicInteger> reserved) {
+        return reserved.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Test
+    void concurrentReservationsStopExactlyAtTheUsageLimit() throws InterruptedException {
+        stored.add(code(1L, "SPRING", 100, null));
+
+        Map<Long, AtomicInteger> reserved = reserveConcurrently("spring", 50, 20);
+
+        assertThat(total(reserved)).isEqualTo(100);
+        assertThat(catalog.usage("SPRING")).isEqualTo(100);
+        assertThat(catalog.reserve("SPRING", 99L)).isEqualTo(PromoCatalog.Outcome.LIMIT_REACHED);
+    }
+
+    @Test
+    void concurrentReservationsStopExactlyAtEachUsersLimit() throws InterruptedException {
+        stored.add(code(1L, "SPRING", 1000, 3));
+
+        Map<Long, AtomicInteger> reserved = reserveConcurrently("SPRING", 40, 20);
+
+        assertThat(reserved).hasSize(40);
+        reserved.values().forEach(count -> assertThat(count.get()).isEqualTo(3));
+        // Claims given back by users over their limit do not count against the total
+        assertThat(catalog.usage("SPRING")).isEqualTo(120);
+        assertThat(catalog.usageBy("SPRING", 1L)).isEqualTo(3);
+    }
+
+    @Test
+    void releasedReservationCanBeTakenAgain() {
+        stored.add(code(1L, "ONCE", 1, 1));
+
+        assertThat(catalog.reserve("ONCE", 7L)).isEqualTo(PromoCatalog.Outcome.RESERVED);
+        assertThat(catalog.reserve("ONCE", 8L)).isEqualTo(PromoCatalog.Outcome.LIMIT_REACHED);
+
+        catalog.release("ONCE", 7L);
+
+        assertThat(catalog.usageBy("ONCE", 7L)).isZero();
+        assertThat(catalog.reserve("ONCE", 8L)).isEqualTo(PromoCatalog.Outcome.RESERVED);
+    }
+
+    // -------------------------------------------------------------
+    // FILTER
+    // -------------------------------------------------------------
+    private double rejections() {
+        return meters.get("promo.filter.rejections").counter().count();
+    }
+
+    @Test
+    void everyCatalogCodePassesTheFilter() {
+        for (long id = 1; id <= 500; id++) stored.add(code(id, "CODE" + id, null, 1));
+
+        for (long id = 1; id <= 500; id++) {
+            assertThat(catalog.mightExist("code" + id)).isTrue();
+        }
+        assertThat(rejections()).isZero();
+    }
+
+    @Test
+    void unknownCodesAreCountedAsRejections() {
+        stored.add(code(1L, "SPRING", null, 1));
+
+        assertThat(catalog.find("GUESS-1")).isNull();
+        assertThat(catalog.reserve("GUESS-2", 1L)).isEqualTo(PromoCatalog.Outcome.NOT_FOUND);
+
+        assertThat(rejections()).isEqualTo(2.0);
+    }
+
+    @Test
+    void putRebuildsTheFilterForNewAndChangedCodes() {
+        stored.add(code(1L, "SPRING", null, 1));
+        assertThat(catalog.mightExist("SUMMER")).isFalse();
+
+        catalog.put(code(2L, "SUMMER", null, 1));
+        assertThat(catalog.mightExist("SUMMER")).isTrue();
+        assertThat(catalog.find("summer").getId()).isEqualTo(2L);
+
+        // A deactivated code stays known, so validation reports it as inactive rather than unknown
+        PromoCode deactivated = code(1L, "SPRING", null, 1);
+        deactivated.setIsActive(false);
+        catalog.put(deactivated);
+        assertThat(catalog.mightExist("SPRING")).isTrue();
+        assertThat(catalog.find("SPRING").getIsActive()).isFalse();
+    }
+
+    @Test
+    void filterIsSizedFromTheConfiguredRateAndCapacity() {
+        stored.add(code(1L, "SPRING", null, 1));
+        catalog.warmUp();
+
+        // Minimum capacity of 1024 codes at 1%
+        PromoCodeFilter expected = PromoCodeFilter.of(List.of(), 1024, 0.01);
+        assertThat(meters.get("promo.filter.bits").gauge().value()).isEqualTo((double) expected.bitSize());
+        assertThat(meters.get("promo.filter.hashes").gauge().value()).isEqualTo((double) expected.hashCount());
+
+        // Past the minimum the filter keeps room for twice the catalog
+        for (long id = 2; id <= 600; id++) catalog.put(code(id, "CODE" + id, null, 1));
+        PromoCodeFilter grown = PromoCodeFilter.of(List.of(), 1200, 0.01);
+        assertThat(meters.get("promo.filter.bits").gauge().value()).isEqualTo((double) grown.bitSize());
+    }
+}
@@ -0,0 +1,65 @@
+package com.deliverXY.backend.NewCode.payments.promo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromoCodeFilterTest {
+
+    private static Set<String> randomCodes(Random random, int count) {
+        Set<String> codes = new HashSet<>();
+        while (codes.size() < count) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) sb.append((char) ('A' + random.nextInt(26)));
+            codes.add(sb.toString());
+        }
+        return codes;
+    }
+
+    @Test
+    void everyAddedCodeIsAccepted() {
+        Set<String> codes = randomCodes(new Random(14), 5000);
+        PromoCodeFilter filter = PromoCodeFilter.of(codes, codes.size(), 0.01);
+
+        assertThat(codes.stream().filter(code -> !filter.mightContain(code)).count()).isZero();
+    }
+
+    @Test
+    void sizeFollowsCapacityAndFalsePositiveRate() {
+        // m = ceil(-n ln p / ln^2 2) rounded up to whole words, k = round(m / n ln 2)
+        PromoCodeFilter filter = PromoCodeFilter.of(List.of(), 1000, 0.01);
+        assertThat(filter.bitSize()).isEqualTo(9600L);
+        assertThat(filter.hashCount()).isEqualTo(7);
+
+        PromoCodeFilter stricter = PromoCodeFilter.of(List.of(), 1000, 0.001);
+        assertThat(stricter.bitSize()).isEqualTo(14400L);
+        assertThat(stricter.hashCount()).isEqualTo(10);
+
+        // More codes than the capacity size the filter for the codes
+        PromoCodeFilter grown = PromoCodeFilter.of(randomCodes(new Random(1), 2000), 1000, 0.01);
+        assertThat(grown.bitSize()).isGreaterThan(filter.bitSize());
+    }
+
+    @Test
+    void filterFilledToCapacityStaysNearItsFalsePositiveRate() {
+        Random random = new Random(7);
+        Set<String> codes = randomCodes(random, 1000);
+        PromoCodeFilter filter = PromoCodeFilter.of(codes, 1000, 0.01);
+
+        int falsePositives = 0;
+        int probes = 0;
+        for (String guess : randomCodes(random, 101_000)) {
+            if (codes.contains(guess)) continue;
+            probes++;
+            if (filter.mightContain(guess)) falsePositives++;
+        }
+
+        assertThat((double) falsePositives / probes).isLessThan(0.015);
+        assertThat(filter.expectedFpp()).isLessThan(0.011);
+    }
+}
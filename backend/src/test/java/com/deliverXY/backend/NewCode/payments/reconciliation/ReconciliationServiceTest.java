@@ -0,0 +1,239 @@
+package com.deliverXY.backend.NewCode.payments.reconciliation;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReconciliationServiceTest {
+
+    private static final String HEADER = "reference,amount,status\n";
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private final OurRecords ours = new OurRecords();
+    private String statement;
+
+    private ReconciliationService service;
+
+    @BeforeEach
+    void setUp() {
+        ReconciliationRunRepository runs = mock(ReconciliationRunRepository.class);
+        when(runs.save(any())).thenAnswer(inv -> {
+            ReconciliationRun saved = inv.getArgument(0);
+            saved.setId(1L);
+            jdbc.run = saved;
+            return saved;
+        });
+        when(runs.findById(1L)).thenAnswer(inv -> Optional.of(jdbc.run));
+
+        StatementSource source = (provider, name) -> new BufferedReader(new StringReader(statement));
+        service = new ReconciliationService(runs, mock(ReconciliationMismatchRepository.class), source, jdbc,
+                ours.dataSource(), new StubTransactionManager(), new SimpleMeterRegistry(), 100, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private ReconciliationRun awaitFinish() throws InterruptedException {
+        assertThat(jdbc.finished.poll(5, TimeUnit.SECONDS)).isNotNull();
+        return jdbc.run;
+    }
+
+    private List<String> mismatchesOfType(ReconciliationMismatch.Type type) {
+        return jdbc.mismatches.stream().filter(m -> m[3].equals(type.name())).map(m -> (String) m[1]).toList();
+    }
+
+    @Test
+    void mergeJoinReportsEachKindOfDisagreement() throws InterruptedException {
+        ours.add("pay_a", "PAYMENT", "10.00", "COMPLETED", null);
+        ours.add("pay_b", "PAYMENT", "10.00", "COMPLETED", null);
+        ours.add("pay_c", "PAYMENT", "5.00", "FAILED", null);
+        ours.add("pay_d", "PAYMENT", "7.00", "COMPLETED", null);
+        ours.add("top_a", "TOPUP", "20.00", "SUCCESS", null);
+        ours.add("top_b", "TOPUP", "20.00", "SUCCESS", "20.00");
+        ours.add("top_c", "TOPUP", "15.00", "PENDING", null);
+        statement = HEADER
+                + "pay_a,10.00,succeeded\n"
+                + "pay_b,12.00,succeeded\n"
+                + "pay_c,5.00,succeeded\n"
+                + "pay_e,3.00,paid\n"
+                + "pay_e,3.00,paid\n"
+                + "top_a,20.00,succeeded\n"
+                + "top_b,20.0,SUCCEEDED\n"
+                + "top_c,15.00,processing\n"
+                + "zzz,1.00,paid\n";
+
+        service.start(PaymentProvider.STRIPE, "2026-10-17.csv");
+        ReconciliationRun run = awaitFinish();
+
+        assertThat(run.getStatus()).isEqualTo(ReconciliationRun.Status.COMPLETED);
+        assertThat(mismatchesOfType(ReconciliationMismatch.Type.AMOUNT_DRIFT)).containsExactly("pay_b");
+        assertThat(mismatchesOfType(ReconciliationMismatch.Type.STATUS_DRIFT)).containsExactly("pay_c");
+        assertThat(mismatchesOfType(ReconciliationMismatch.Type.MISSING_AT_PROVIDER)).containsExactly("pay_d");
+        assertThat(mismatchesOfType(ReconciliationMismatch.Type.MISSING_LOCALLY)).containsExactly("pay_e", "zzz");
+        assertThat(mismatchesOfType(ReconciliationMismatch.Type.DUPLICATE_AT_PROVIDER)).containsExactly("pay_e");
+        // A successful top-up that never reached the wallet
+        assertThat(mismatchesOfType(ReconciliationMismatch.Type.CREDIT_DRIFT)).containsExactly("top_a");
+
+        assertThat(run.getMatched()).isEqualTo(3L);
+        assertThat(run.getMismatched()).isEqualTo(7L);
+        assertThat(run.getLastReference()).isEqualTo("zzz");
+    }
+
+    @Test
+    void failedRunResumesFromItsCheckpointWithoutRepeatingMismatches() throws InterruptedException {
+        for (int i = 1; i <= 5; i++) ours.add("r" + i, "PAYMENT", "10.00", "COMPLETED", null);
+        String good = "r1,10.00,succeeded\nr2,11.00,succeeded\nr3,10.00,succeeded\n";
+        statement = HEADER + good + "r0,10.00,succeeded\n";
+
+        service.start(PaymentProvider.STRIPE, "2026-10-17.csv");
+        ReconciliationRun run = awaitFinish();
+
+        // The checkpoint after r2 holds; r3 was being compared when the statement broke
+        assertThat(run.getStatus()).isEqualTo(ReconciliationRun.Status.FAILED);
+        assertThat(run.getError()).contains("not sorted");
+        assertThat(run.getLastReference()).isEqualTo("r2");
+        assertThat(mismatchesOfType(ReconciliationMismatch.Type.AMOUNT_DRIFT)).containsExactly("r2");
+
+        statement = HEADER + good + "r4,10.00,succeeded\nr5,10.00,succeeded\n";
+        service.resume(1L);
+        awaitFinish();
+
+        assertThat(run.getStatus()).isEqualTo(ReconciliationRun.Status.COMPLETED);
+        assertThat(ours.startedAfter).containsExactly("", "r2");
+        assertThat(jdbc.mismatches).hasSize(1);
+        assertThat(run.getMatched()).isEqualTo(4L);
+        assertThat(run.getMismatched()).isEqualTo(1L);
+    }
+
+    // -------------------------------------------------------------
+    // FAKES
+    // -------------------------------------------------------------
+
+    /** reconciliation_runs (the one run) and reconciliation_mismatches; writes land immediately. */
+    private static class FakeJdbc extends JdbcTemplate {
+        volatile ReconciliationRun run;
+        final List<Object[]> mismatches = new ArrayList<>();
+        final BlockingQueue<String> finished = new LinkedBlockingQueue<>();
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.contains("SET last_reference")) {
+                run.setLastReference((String) args[0]);
+                run.setMatched((Long) args[1]);
+                run.setMismatched((Long) args[2]);
+                return 1;
+            }
+            if (sql.contains("SET status")) {
+                run.setStatus(ReconciliationRun.Status.valueOf((String) args[0]));
+                run.setError((String) args[1]);
+                finished.add((String) args[0]);
+                return 1;
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            mismatches.addAll(batchArgs);
+            return new int[batchArgs.size()];
+        }
+    }
+
+    /** Payments and top-ups behind a DataSource, served in reference order past the query's lower bound. */
+    private static class OurRecords {
+        private final List<Map<String, Object>> rows = new ArrayList<>();
+        final List<String> startedAfter = new ArrayList<>();
+
+        void add(String reference, String kind, String amount, String status, String credited) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("reference", reference);
+            row.put("record_kind", kind);
+            row.put("amount", new BigDecimal(amount));
+            row.put("status", status);
+            row.put("credited", credited != null ? new BigDecimal(credited) : null);
+            rows.add(row);
+        }
+
+        DataSource dataSource() {
+            return stub(DataSource.class, (proxy, method, args) ->
+                    method.getName().equals("getConnection") ? connection() : null);
+        }
+
+        private Connection connection() {
+            return stub(Connection.class, (proxy, method, args) ->
+                    method.getName().equals("prepareStatement") ? statement() : null);
+        }
+
+        private PreparedStatement statement() {
+            Map<Integer, Object> params = new HashMap<>();
+            return stub(PreparedStatement.class, (proxy, method, args) -> {
+                if (method.getName().startsWith("set") && args.length == 2 && args[0] instanceof Integer i) {
+                    params.put(i, args[1]);
+                } else if (method.getName().equals("executeQuery")) {
+                    String after = (String) params.get(4);
+                    startedAfter.add(after);
+                    return resultSet(rows.stream()
+                            .filter(r -> ((String) r.get("reference")).compareTo(after) > 0)
+                            .sorted(Comparator.comparing(r -> (String) r.get("reference")))
+                            .iterator());
+                }
+                return null;
+            });
+        }
+
+        private ResultSet resultSet(Iterator<Map<String, Object>> it) {
+            Object[] current = new Object[1];
+            return stub(ResultSet.class, (proxy, method, args) -> switch (method.getName()) {
+                case "next" -> {
+                    current[0] = it.hasNext() ? it.next() : null;
+                    yield current[0] != null;
+                }
+                case "getString", "getBigDecimal" -> ((Map<?, ?>) current[0]).get(args[0]);
+                default -> null;
+            });
+        }
+
+        /** Proxy answering unhandled calls with null, false or zero. */
+        @SuppressWarnings("unchecked")
+        private static <T> T stub(Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                Object result = handler.invoke(proxy, method, args);
+                if (result != null || !method.getReturnType().isPrimitive()) return result;
+                if (method.getReturnType() == boolean.class) return false;
+                if (method.getReturnType() == void.class) return null;
+                return method.getReturnType() == long.class ? (Object) 0L : (Object) 0;
+            });
+        }
+    }
+}
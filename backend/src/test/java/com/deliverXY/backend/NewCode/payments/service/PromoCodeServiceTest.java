@@ -0,0 +1,93 @@
+package com.deliverXY.backend.NewCode.payments.service;
+
+import com.deliverXY.backend.NewCode.payments.domain.PromoCode;
+import com.deliverXY.backend.NewCode.payments.promo.PromoCatalog;
+import com.deliverXY.backend.NewCode.payments.repository.PromoCodeRepository;
+import com.deliverXY.backend.NewCode.payments.repository.PromoCodeUsageRepository;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PromoCodeServiceTest {
+
+    private final PromoCodeRepository promoCodeRepo = mock(PromoCodeRepository.class);
+    private final PromoCodeUsageRepository usageRepo = mock(PromoCodeUsageRepository.class);
+    private final StubTransactionManager txManager = new StubTransactionManager();
+    private final TransactionTemplate tx = new TransactionTemplate(txManager);
+
+    private PromoCatalog catalog;
+    private PromoCodeService service;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        when(promoCodeRepo.findAll()).thenReturn(List.of());
+        when(promoCodeRepo.existsByCodeIgnoreCase(anyString())).thenReturn(false);
+        when(promoCodeRepo.save(any())).thenAnswer(inv -> {
+            PromoCode code = inv.getArgument(0);
+            if (code.getId() == null) code.setId(nextId++);
+            return code;
+        });
+        when(usageRepo.countUsesPerUser()).thenReturn(List.of());
+
+        catalog = new PromoCatalog(promoCodeRepo, usageRepo, null, txManager, new SimpleMeterRegistry(), 0.01, 64);
+        catalog.warmUp();
+        service = new PromoCodeService(promoCodeRepo, usageRepo, catalog, null);
+    }
+
+    private static PromoCode code(String value) {
+        PromoCode code = new PromoCode();
+        code.setCode(value);
+        return code;
+    }
+
+    @Test
+    void createdCodeIsRedeemableOnlyAfterCommit() {
+        tx.executeWithoutResult(status -> {
+            service.createPromoCode(code("SPRING10"), "admin@example.com");
+            assertThat(catalog.find("SPRING10")).isNull();
+        });
+
+        assertThat(catalog.find("SPRING10")).isNotNull();
+        assertThat(catalog.find("spring10").getCreatedBy()).isEqualTo("admin@example.com");
+    }
+
+    @Test
+    void rolledBackCreateLeavesNoCodeBehind() {
+        tx.executeWithoutResult(status -> {
+            service.createPromoCode(code("GHOST"), "admin@example.com");
+            status.setRollbackOnly();
+        });
+
+        assertThat(catalog.find("GHOST")).isNull();
+        assertThat(catalog.mightExist("GHOST")).isFalse();
+        assertThat(txManager.rollbacks()).isEqualTo(1);
+    }
+
+    @Test
+    void rolledBackDeactivationKeepsTheCodeActive() {
+        PromoCode created = service.createPromoCode(code("KEEP"), "admin@example.com");
+        when(promoCodeRepo.findById(anyLong())).thenReturn(Optional.of(code("KEEP")));
+
+        tx.executeWithoutResult(status -> {
+            service.deactivatePromoCode(created.getId());
+            status.setRollbackOnly();
+        });
+        assertThat(catalog.find("KEEP").getIsActive()).isTrue();
+
+        tx.executeWithoutResult(status -> service.deactivatePromoCode(created.getId()));
+        assertThat(catalog.find("KEEP").getIsActive()).isFalse();
+    }
+}
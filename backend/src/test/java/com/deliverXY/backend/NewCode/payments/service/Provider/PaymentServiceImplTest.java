@@ -0,0 +1,208 @@
+package com.deliverXY.backend.NewCode.payments.service.Provider;
+
+import com.deliverXY.backend.NewCode.common.enums.PaymentProvider;
+import com.deliverXY.backend.NewCode.common.enums.PaymentStatus;
+import com.deliverXY.backend.NewCode.deliveries.domain.Delivery;
+import com.deliverXY.backend.NewCode.deliveries.repository.DeliveryRepository;
+import com.deliverXY.backend.NewCode.payments.domain.Payment;
+import com.deliverXY.backend.NewCode.payments.dto.PaymentResultDTO;
+import com.deliverXY.backend.NewCode.payments.gateway.GatewayBulkhead;
+import com.deliverXY.backend.NewCode.payments.repository.PaymentRepository;
+import com.deliverXY.backend.NewCode.payments.service.PaymentGatewayProvider;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import com.deliverXY.backend.NewCode.wallet.service.WalletService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceImplTest {
+
+    private final RemoteGateway gateway = new RemoteGateway();
+    private final GatewayBulkhead bulkhead = new GatewayBulkhead(new StandardEnvironment(), new SimpleMeterRegistry());
+    private final PaymentRepository paymentRepo = mock(PaymentRepository.class);
+    private final DeliveryRepository deliveryRepo = mock(DeliveryRepository.class);
+
+    /** One entry per commit, so a test can wait for the transaction recording the gateway's answer. */
+    private final BlockingQueue<Boolean> commits = new LinkedBlockingQueue<>();
+    private final StubTransactionManager txManager = new StubTransactionManager() {
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            super.doCommit(status);
+            commits.add(true);
+        }
+    };
+    private final TransactionTemplate tx = new TransactionTemplate(txManager);
+
+    private Payment payment;
+    private PaymentServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        Delivery delivery = new Delivery();
+        delivery.setId(3L);
+        when(deliveryRepo.findById(3L)).thenReturn(Optional.of(delivery));
+        when(paymentRepo.save(any())).thenAnswer(inv -> {
+            payment = inv.getArgument(0);
+            payment.setId(10L);
+            return payment;
+        });
+        when(paymentRepo.findById(10L)).thenAnswer(inv -> Optional.ofNullable(payment));
+
+        service = new PaymentServiceImpl(List.of(gateway), paymentRepo, deliveryRepo,
+                mock(WalletService.class), bulkhead, txManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.release.countDown();
+        bulkhead.shutdown();
+    }
+
+    private PaymentResultDTO pay() {
+        return service.initializePayment(3L, new BigDecimal("250.00"), PaymentProvider.STRIPE, 7L);
+    }
+
+    /** The payment's own commit, then the one recording the gateway's answer. */
+    private void awaitGatewayCommit() throws InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            Boolean committed = commits.poll(5, TimeUnit.SECONDS);
+            assertThat(committed).isTrue();
+        }
+    }
+
+    @Test
+    void remoteGatewayIsCalledOnlyAfterCommit() throws InterruptedException {
+        gateway.release.countDown();
+
+        PaymentResultDTO result = tx.execute(status -> {
+            PaymentResultDTO started = pay();
+            assertThat(gateway.calls.get()).isZero();
+            return started;
+        });
+        assertThat(result.getStatus()).isEqualTo(PaymentStatus.PROCESSING);
+
+        awaitGatewayCommit();
+        assertThat(gateway.calls.get()).isEqualTo(1);
+        assertThat(payment.getProviderReference()).isEqualTo("pi_10");
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PENDING);
+    }
+
+    @Test
+    void rolledBackPaymentNeverReachesTheGateway() {
+        gateway.release.countDown();
+
+        tx.executeWithoutResult(status -> {
+            pay();
+            status.setRollbackOnly();
+        });
+
+        assertThat(gateway.calls.get()).isZero();
+    }
+
+    @Test
+    void failedCallMarksThePaymentFailed() throws InterruptedException {
+        gateway.failure = new IllegalStateException("card network down");
+        gateway.release.countDown();
+
+        tx.executeWithoutResult(status -> pay());
+
+        awaitGatewayCommit();
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.FAILED);
+        assertThat(payment.getProviderReference()).isNull();
+    }
+
+    @Test
+    void paymentThatMovedOnMeanwhileIsLeftAlone() throws InterruptedException {
+        tx.executeWithoutResult(status -> pay());
+
+        // A webhook completes the payment while the gateway call is still out
+        payment.setStatus(PaymentStatus.COMPLETED);
+        gateway.release.countDown();
+
+        awaitGatewayCommit();
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(payment.getProviderReference()).isNull();
+    }
+
+    @Test
+    void timedOutCallLeavesThePaymentProcessing() throws InterruptedException {
+        StandardEnvironment env = new StandardEnvironment();
+        env.getPropertySources().addFirst(new MapPropertySource("test", Map.of("payments.gateway.timeout-ms", 50)));
+        GatewayBulkhead impatient = new GatewayBulkhead(env, new SimpleMeterRegistry());
+        service = new PaymentServiceImpl(List.of(gateway), paymentRepo, deliveryRepo,
+                mock(WalletService.class), impatient, txManager);
+
+        try {
+            tx.executeWithoutResult(status -> pay());
+
+            // The provider may still create the intent after we stopped waiting
+            awaitGatewayCommit();
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PROCESSING);
+            assertThat(gateway.calls.get()).isEqualTo(1);
+        } finally {
+            impatient.shutdown();
+        }
+    }
+
+    /** A remote provider that answers once released, or fails with {@code failure}. */
+    private static class RemoteGateway implements PaymentGatewayProvider {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        volatile RuntimeException failure;
+
+        @Override
+        public PaymentProvider getProviderType() {
+            return PaymentProvider.STRIPE;
+        }
+
+        @Override
+        public boolean isRemote() {
+            return true;
+        }
+
+        @Override
+        public PaymentResultDTO initiateTransaction(Payment payment) {
+            calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) throw failure;
+            return PaymentResultDTO.builder()
+                    .providerReference("pi_" + payment.getId())
+                    .status(PaymentStatus.PENDING)
+                    .build();
+        }
+
+        @Override
+        public PaymentResultDTO confirmTransaction(String providerReference) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void refundTransaction(Payment payment, BigDecimal amount, String reason) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.deliverXY.backend.NewCode.support;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Transaction manager with no resource behind it. Begin, commit and
+ * rollback do nothing, but transaction synchronization runs as usual, so
+ * code that defers work to afterCommit can be tested without a database.
+ */
+public class StubTransactionManager extends AbstractPlatformTransactionManager {
+
+    private int commits;
+    private int rollbacks;
+
+    public int commits() {
+        return commits;
+    }
+
+    public int rollbacks() {
+        return rollbacks;
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        commits++;
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        rollbacks++;
+    }
+}
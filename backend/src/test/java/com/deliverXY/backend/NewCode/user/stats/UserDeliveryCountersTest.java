@@ -0,0 +1,163 @@
+package com.deliverXY.backend.NewCode.user.stats;
+
+import com.deliverXY.backend.NewCode.common.enums.DeliveryStatus;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDeliveryCountersTest {
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private final StubTransactionManager txManager = new StubTransactionManager();
+
+    private UserDeliveryCounters counters(int maxResident) {
+        return new UserDeliveryCounters(jdbc, txManager, new SimpleMeterRegistry(), maxResident);
+    }
+
+    @Test
+    void flushWritesChangedUsersOnly() {
+        UserDeliveryCounters counters = counters(1000);
+        counters.onCreated(1L);
+        counters.onCreated(1L);
+        counters.onStatusChange(1L, 2L, DeliveryStatus.IN_TRANSIT, DeliveryStatus.DELIVERED);
+
+        counters.flush();
+        assertThat(jdbc.table.get(1L)).isEqualTo(new UserDeliveryCounters.Counts(2, 0, 0));
+        assertThat(jdbc.table.get(2L)).isEqualTo(new UserDeliveryCounters.Counts(0, 1, 0));
+
+        int batches = jdbc.batches;
+        counters.flush();
+        assertThat(jdbc.batches).isEqualTo(batches);
+    }
+
+    @Test
+    void updatesApplyOnlyAfterCommit() {
+        UserDeliveryCounters counters = counters(1000);
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+
+        tx.executeWithoutResult(status -> {
+            counters.onCreated(1L);
+            status.setRollbackOnly();
+        });
+        tx.executeWithoutResult(status -> {
+            counters.onCreated(1L);
+            counters.onStatusChange(1L, null, DeliveryStatus.REQUESTED, DeliveryStatus.CANCELLED);
+            assertThat(counters.get(1L).requested()).isZero();
+        });
+
+        assertThat(counters.get(1L)).isEqualTo(new UserDeliveryCounters.Counts(1, 0, 1));
+    }
+
+    @Test
+    void failedFlushIsRetriedAndDirtyUsersAreNotEvicted() {
+        UserDeliveryCounters counters = counters(2);
+        for (long user = 1; user <= 5; user++) counters.onCreated(user);
+
+        int loads = jdbc.loads;
+        jdbc.down = true;
+        counters.flush();
+        assertThat(jdbc.table).isEmpty();
+
+        // Over capacity, but every resident user still has an unwritten change
+        for (long user = 1; user <= 5; user++) {
+            assertThat(counters.get(user).requested()).isEqualTo(1);
+        }
+        assertThat(jdbc.loads).isEqualTo(loads);
+
+        jdbc.down = false;
+        counters.flush();
+        assertThat(jdbc.table).hasSize(5);
+    }
+
+    /**
+     * Writers and the flusher race on the same few users. Whatever
+     * interleaving happens, the last row written for each user must equal
+     * its final count; an update whose dirty mark was consumed before its
+     * value became visible would leave the row one behind.
+     */
+    @Test
+    void concurrentUpdatesAreNeverLostByTheFlush() throws InterruptedException {
+        UserDeliveryCounters counters = counters(1000);
+        int users = 8;
+        int writers = 8;
+        int perWriter = 50_000;
+        AtomicIntegerArray expected = new AtomicIntegerArray(users + 1);
+
+        CountDownLatch done = new CountDownLatch(writers);
+        for (int w = 0; w < writers; w++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perWriter; i++) {
+                    int user = 1 + random.nextInt(users);
+                    counters.onCreated((long) user);
+                    expected.incrementAndGet(user);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        while (done.getCount() > 0) counters.flush();
+        counters.flush();
+
+        for (int user = 1; user <= users; user++) {
+            UserDeliveryCounters.Counts written = jdbc.table.get((long) user);
+            assertThat(written.requested()).as("user %d", user).isEqualTo(expected.get(user));
+            assertThat(counters.get((long) user).requested()).isEqualTo(expected.get(user));
+        }
+    }
+
+    /** app_user_stats as a map: LOAD_SQL finds nothing, upserts replace the row. */
+    private static class FakeJdbc extends JdbcTemplate {
+        final Map<Long, UserDeliveryCounters.Counts> table = new ConcurrentHashMap<>();
+        volatile boolean down;
+        volatile int batches;
+        volatile int loads;
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            loads++;
+            return List.of();
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            batches++;
+            if (down) throw new QueryTimeoutException("timeout");
+            for (T arg : batchArgs) {
+                long[] values = new long[6];
+                PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                        (proxy, method, params) -> {
+                            values[(Integer) params[0]] = ((Number) params[1]).longValue();
+                            return null;
+                        });
+                try {
+                    pss.setValues(ps, arg);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                table.put(values[1], new UserDeliveryCounters.Counts((int) values[3], (int) values[4], (int) values[5]));
+            }
+            return new int[][]{};
+        }
+    }
+}
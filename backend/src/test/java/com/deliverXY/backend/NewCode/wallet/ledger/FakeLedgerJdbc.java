@@ -0,0 +1,225 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tables LedgerBatchWriter touches, in memory: wallets, ledger_batches,
+ * ledger_balances, ledger_entries and wallet_transactions. Writes made in
+ * a transaction only land when it commits, so a chunk that fails leaves
+ * nothing behind. Every call counts as one database round trip.
+ */
+class FakeLedgerJdbc extends JdbcTemplate {
+
+    record Entry(String postingId, String account, BigDecimal amount, String reference) {
+    }
+
+    record StatementLine(long walletId, BigDecimal amount, String reference, String postingId) {
+    }
+
+    static final class Batch {
+        Long lastUserId;
+        int credited;
+        BigDecimal total = BigDecimal.ZERO;
+        boolean finished;
+    }
+
+    final Map<Long, Long> walletByUser = new HashMap<>();
+    final Map<Long, BigDecimal> balances = new HashMap<>();
+    final Map<String, Batch> batches = new HashMap<>();
+    final Map<String, BigDecimal> stripes = new HashMap<>();
+    final List<Entry> entries = new ArrayList<>();
+    final List<StatementLine> lines = new ArrayList<>();
+    int roundTrips;
+
+    void addWallet(long userId, long walletId) {
+        walletByUser.put(userId, walletId);
+        balances.put(walletId, BigDecimal.ZERO);
+    }
+
+    /** Drops everything but the wallets and zeroes their balances. */
+    void clearJournal() {
+        balances.replaceAll((id, balance) -> BigDecimal.ZERO);
+        batches.clear();
+        stripes.clear();
+        entries.clear();
+        lines.clear();
+        roundTrips = 0;
+    }
+
+    BigDecimal balanceOfUser(long userId) {
+        return balances.get(walletByUser.get(userId));
+    }
+
+    BigDecimal stripeTotal(String account) {
+        return stripes.entrySet().stream().filter(s -> s.getKey().startsWith(account + "#"))
+                .map(Map.Entry::getValue).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // -------------------------------------------------------------
+    // JDBC
+    // -------------------------------------------------------------
+    @Override
+    public int update(String sql, Object... args) {
+        roundTrips++;
+        if (sql.startsWith("INSERT INTO ledger_batches")) {
+            batches.putIfAbsent((String) args[0], new Batch());
+        } else if (sql.startsWith("UPDATE ledger_batches SET last_user_id")) {
+            Long last = (Long) args[0];
+            int credited = (Integer) args[1];
+            BigDecimal total = (BigDecimal) args[2];
+            Batch batch = batches.get((String) args[3]);
+            onCommit(() -> {
+                batch.lastUserId = last;
+                batch.credited += credited;
+                batch.total = batch.total.add(total);
+            });
+        } else if (sql.startsWith("UPDATE ledger_batches SET finished_at")) {
+            batches.get((String) args[1]).finished = true;
+        } else if (sql.equals(LedgerService.ADD_TO_STRIPE_SQL)) {
+            String stripe = args[0] + "#" + args[1];
+            BigDecimal amount = (BigDecimal) args[2];
+            onCommit(() -> stripes.merge(stripe, amount, BigDecimal::add));
+        } else {
+            throw new UnsupportedOperationException(sql);
+        }
+        return 1;
+    }
+
+    @Override
+    public int update(String sql, PreparedStatementSetter pss) {
+        roundTrips++;
+        if (!sql.contains("UPDATE wallets w")) throw new UnsupportedOperationException(sql);
+        Object[] values = capture(pss::setValues);
+        Long[] ids = (Long[]) values[2];
+        BigDecimal[] amounts = (BigDecimal[]) values[3];
+        int updated = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (!balances.containsKey(ids[i])) continue;
+            long id = ids[i];
+            BigDecimal amount = amounts[i];
+            onCommit(() -> balances.merge(id, amount, BigDecimal::add));
+            updated++;
+        }
+        return updated;
+    }
+
+    @Override
+    public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+        roundTrips++;
+        if (!sql.startsWith("SELECT last_user_id")) throw new UnsupportedOperationException(sql);
+        Batch batch = batches.get((String) args[0]);
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, params) -> switch (method.getName()) {
+                    case "getObject" -> batch.lastUserId;
+                    case "getTimestamp" -> batch.finished ? new Timestamp(0) : null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        try {
+            return rowMapper.mapRow(rs, 0);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+        roundTrips++;
+        if (!sql.startsWith("SELECT user_id, id FROM wallets")) throw new UnsupportedOperationException(sql);
+        Long[] userIds = (Long[]) capture(pss::setValues)[1];
+        for (Long userId : userIds) {
+            Long walletId = walletByUser.get(userId);
+            if (walletId == null) continue;
+            ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    (proxy, method, params) -> (Integer) params[0] == 1 ? userId : walletId);
+            try {
+                rch.processRow(rs);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                   ParameterizedPreparedStatementSetter<T> pss) {
+        roundTrips++;
+        for (T arg : batchArgs) {
+            Object[] v = capture(ps -> pss.setValues(ps, arg));
+            if (sql.equals(LedgerService.INSERT_ENTRY_SQL)) {
+                Entry entry = new Entry((String) v[1], (String) v[2], (BigDecimal) v[3], (String) v[5]);
+                onCommit(() -> entries.add(entry));
+            } else if (sql.contains("INSERT INTO wallet_transactions")) {
+                StatementLine line = new StatementLine((Long) v[1], (BigDecimal) v[2], (String) v[4], (String) v[5]);
+                onCommit(() -> lines.add(line));
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+        }
+        return new int[][]{};
+    }
+
+    // -------------------------------------------------------------
+    // HELPERS
+    // -------------------------------------------------------------
+    private static void onCommit(Runnable write) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                write.run();
+            }
+        });
+    }
+
+    private interface StatementWriter {
+        void write(PreparedStatement ps) throws SQLException;
+    }
+
+    /** Parameters set on a statement, by index; SQL arrays come back as their elements. */
+    private static Object[] capture(StatementWriter writer) {
+        Object[] values = new Object[8];
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, params) -> {
+                    Object elements = params[1];
+                    return Proxy.newProxyInstance(Array.class.getClassLoader(), new Class<?>[]{Array.class},
+                            (a, m, p) -> elements);
+                });
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, params) -> {
+                    if (method.getName().equals("getConnection")) return connection;
+                    Object value = params[1];
+                    values[(Integer) params[0]] = value instanceof Array array ? array.getArray() : value;
+                    return null;
+                });
+        try {
+            writer.write(ps);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,79 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
+import com.deliverXY.backend.NewCode.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A 50k-driver payout run through LedgerBatchWriter against the in-memory
+ * tables of {@link FakeLedgerJdbc}. This is the application-side cost of
+ * a run (merging, chunking, building batches); the database adds about
+ * seven round trips per chunk plus the batched inserts themselves, which
+ * {@link LedgerBatchWriterTest} pins down.
+ *
+ * Run with the {@code main} method (e.g. from the IDE) after
+ * {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LedgerBatchWriterBenchmark {
+
+    private static final int DRIVERS = 50_000;
+
+    @Param({"500", "1000", "5000"})
+    private int chunkSize;
+
+    private FakeLedgerJdbc jdbc;
+    private LedgerBatchWriter writer;
+    private List<BatchCredit> credits;
+
+    @Setup
+    public void setUp() {
+        jdbc = new FakeLedgerJdbc();
+        credits = new ArrayList<>(DRIVERS);
+        for (long user = 1; user <= DRIVERS; user++) {
+            jdbc.addWallet(user, 1000 + user);
+            credits.add(new BatchCredit(user, BigDecimal.valueOf(1000 + user % 9000, 2), "payout-" + user));
+        }
+        LedgerService ledger = new LedgerService(jdbc, new SimpleMeterRegistry(), 16);
+        writer = new LedgerBatchWriter(jdbc, new StubTransactionManager(), ledger,
+                Mockito.mock(WalletRepository.class), Mockito.mock(AppUserRepository.class),
+                new SimpleMeterRegistry(), chunkSize);
+    }
+
+    @Benchmark
+    public LedgerBatchWriter.Result payoutRun() {
+        jdbc.clearJournal();
+        return writer.creditAll("bench", TransactionType.DEPOSIT, LedgerAccount.PLATFORM, credits, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LedgerBatchWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,189 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import com.deliverXY.backend.NewCode.user.domain.AppUser;
+import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
+import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
+import com.deliverXY.backend.NewCode.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LedgerBatchWriterTest {
+
+    private static final int CHUNK = 100;
+
+    private final FakeLedgerJdbc jdbc = new FakeLedgerJdbc();
+    private final AppUserRepository userRepo = mock(AppUserRepository.class);
+    private final WalletRepository walletRepo = mock(WalletRepository.class);
+    private LedgerBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepo.findById(anyLong())).thenReturn(Optional.empty());
+        writer = writer(CHUNK);
+    }
+
+    private LedgerBatchWriter writer(int chunkSize) {
+        LedgerService ledger = new LedgerService(jdbc, new SimpleMeterRegistry(), 4);
+        return new LedgerBatchWriter(jdbc, new StubTransactionManager(), ledger, walletRepo, userRepo,
+                new SimpleMeterRegistry(), chunkSize);
+    }
+
+    /** Users 1..n with wallets 1001.., each owed (userId) cents. */
+    private List<BatchCredit> credits(int users) {
+        List<BatchCredit> credits = new ArrayList<>(users);
+        for (long user = 1; user <= users; user++) {
+            jdbc.addWallet(user, 1000 + user);
+            credits.add(new BatchCredit(user, BigDecimal.valueOf(user, 2), "payout-" + user));
+        }
+        return credits;
+    }
+
+    private static BigDecimal cents(long userId) {
+        return BigDecimal.valueOf(userId, 2);
+    }
+
+    @Test
+    void creditsEveryUserInBalancedChunkPostings() {
+        List<BatchCredit> credits = credits(250);
+        credits.add(new BatchCredit(7L, new BigDecimal("1.00"), "payout-7"));
+
+        List<Integer> chunkSizes = new ArrayList<>();
+        LedgerBatchWriter.Result result = writer.creditAll("run-1", TransactionType.DEPOSIT, LedgerAccount.PLATFORM,
+                credits, (postingId, applied) -> chunkSizes.add(applied.size()));
+
+        assertThat(result.credited()).isEqualTo(250);
+        assertThat(result.chunks()).isEqualTo(3);
+        assertThat(result.resumed()).isFalse();
+        assertThat(chunkSizes).containsExactly(100, 100, 50);
+
+        // Duplicate rows for one user are merged into one credit
+        assertThat(jdbc.balanceOfUser(7L)).isEqualByComparingTo("1.07");
+        assertThat(jdbc.balanceOfUser(250L)).isEqualByComparingTo("2.50");
+
+        Map<String, BigDecimal> perPosting = new HashMap<>();
+        for (FakeLedgerJdbc.Entry e : jdbc.entries) perPosting.merge(e.postingId(), e.amount(), BigDecimal::add);
+        assertThat(perPosting).hasSize(3);
+        assertThat(perPosting.values()).allMatch(sum -> sum.signum() == 0);
+
+        BigDecimal paid = jdbc.balances.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(jdbc.stripeTotal("PLATFORM")).isEqualByComparingTo(paid.negate());
+        assertThat(jdbc.lines).hasSize(250);
+        assertThat(jdbc.batches.get("run-1").finished).isTrue();
+        assertThat(jdbc.batches.get("run-1").total).isEqualByComparingTo(paid);
+    }
+
+    @Test
+    void crashedRunResumesAfterItsLastCommittedChunk() {
+        List<BatchCredit> credits = credits(250);
+
+        int[] chunk = {0};
+        assertThatThrownBy(() -> writer.creditAll("run-2", TransactionType.DEPOSIT, LedgerAccount.PLATFORM,
+                credits, (postingId, applied) -> {
+                    if (++chunk[0] == 2) throw new IllegalStateException("killed");
+                }))
+                .hasMessageContaining("killed");
+
+        // The first chunk committed, the second rolled back whole
+        assertThat(jdbc.batches.get("run-2").lastUserId).isEqualTo(100L);
+        assertThat(jdbc.batches.get("run-2").finished).isFalse();
+        assertThat(jdbc.balanceOfUser(100L)).isEqualByComparingTo(cents(100));
+        assertThat(jdbc.balanceOfUser(101L)).isEqualByComparingTo("0");
+        assertThat(jdbc.lines).hasSize(100);
+
+        LedgerBatchWriter.Result rerun = writer.creditAll("run-2", TransactionType.DEPOSIT, LedgerAccount.PLATFORM,
+                credits, null);
+
+        assertThat(rerun.resumed()).isTrue();
+        assertThat(rerun.credited()).isEqualTo(150);
+        for (long user = 1; user <= 250; user++) {
+            assertThat(jdbc.balanceOfUser(user)).as("user %d", user).isEqualByComparingTo(cents(user));
+        }
+        assertThat(jdbc.lines).hasSize(250);
+        assertThat(jdbc.entries).hasSize(250 + 3);
+        assertThat(jdbc.batches.get("run-2").credited).isEqualTo(250);
+    }
+
+    @Test
+    void finishedBatchIsNotAppliedTwice() {
+        List<BatchCredit> credits = credits(10);
+        writer.creditAll("run-3", TransactionType.DEPOSIT, LedgerAccount.PLATFORM, credits, null);
+
+        LedgerBatchWriter.Result again = writer.creditAll("run-3", TransactionType.DEPOSIT, LedgerAccount.PLATFORM,
+                credits, null);
+
+        assertThat(again.credited()).isZero();
+        assertThat(jdbc.balanceOfUser(10L)).isEqualByComparingTo(cents(10));
+        assertThat(jdbc.lines).hasSize(10);
+    }
+
+    @Test
+    void unknownUsersAreSkippedAndMissingWalletsCreated() {
+        AppUser newcomer = new AppUser();
+        newcomer.setId(500L);
+        when(userRepo.findById(500L)).thenReturn(Optional.of(newcomer));
+        when(walletRepo.save(any())).thenAnswer(inv -> {
+            Wallet wallet = inv.getArgument(0);
+            wallet.setId(9500L);
+            jdbc.addWallet(500L, 9500L);
+            return wallet;
+        });
+
+        List<BatchCredit> credits = new ArrayList<>(credits(3));
+        credits.add(new BatchCredit(500L, new BigDecimal("5.00"), "payout-500"));
+        credits.add(new BatchCredit(404L, new BigDecimal("4.04"), "payout-404"));
+
+        LedgerBatchWriter.Result result = writer.creditAll("run-4", TransactionType.DEPOSIT, LedgerAccount.PLATFORM,
+                credits, null);
+
+        assertThat(result.credited()).isEqualTo(4);
+        assertThat(jdbc.balanceOfUser(500L)).isEqualByComparingTo("5.00");
+        assertThat(jdbc.stripeTotal("PLATFORM")).isEqualByComparingTo("-5.06");
+        assertThat(jdbc.batches.get("run-4").lastUserId).isEqualTo(500L);
+    }
+
+    @Test
+    void rejectsUserSourcesAndNonPositiveAmounts() {
+        assertThatThrownBy(() -> writer.creditAll("run-5", TransactionType.DEPOSIT, LedgerAccount.user(1L),
+                credits(1), null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> writer.creditAll("run-5", TransactionType.DEPOSIT, LedgerAccount.PLATFORM,
+                List.of(new BatchCredit(1L, BigDecimal.ZERO, "zero")), null)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(jdbc.batches).isEmpty();
+    }
+
+    /**
+     * The 50k-driver payout target: database cost scales with round trips,
+     * which must stay a fixed handful per chunk rather than several per
+     * driver as with one deposit per driver.
+     */
+    @Test
+    void fiftyThousandCreditsTakeAFixedNumberOfRoundTripsPerChunk() {
+        LedgerBatchWriter writer = writer(1000);
+        List<BatchCredit> credits = credits(50_000);
+
+        LedgerBatchWriter.Result result = writer.creditAll("run-50k", TransactionType.DEPOSIT, LedgerAccount.PLATFORM,
+                credits, null);
+
+        assertThat(result.credited()).isEqualTo(50_000);
+        assertThat(result.chunks()).isEqualTo(50);
+        // start, progress and finish, then per chunk: lock, resolve wallets, stripe, wallets, entries, lines, advance
+        assertThat(jdbc.roundTrips).isEqualTo(3 + 50 * 7);
+        assertThat(jdbc.lines).hasSize(50_000);
+    }
+}
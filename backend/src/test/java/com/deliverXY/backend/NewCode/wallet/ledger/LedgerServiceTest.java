@@ -0,0 +1,312 @@
+package com.deliverXY.backend.NewCode.wallet.ledger;
+
+import com.deliverXY.backend.NewCode.common.enums.TransactionType;
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LedgerServiceTest {
+
+    private static final long WALLET = 1L;
+    private static final LedgerAccount USER = LedgerAccount.user(WALLET);
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private final TransactionTemplate tx = new TransactionTemplate(new StubTransactionManager());
+    private final LedgerService ledger = new LedgerService(jdbc, new SimpleMeterRegistry(), 4);
+
+    private String post(Posting posting) {
+        return tx.execute(status -> ledger.post(posting));
+    }
+
+    @Test
+    void debitBeyondTheBalanceFailsAndWritesNothing() {
+        post(Posting.transfer(TransactionType.DEPOSIT, "top-up", LedgerAccount.EXTERNAL, USER, new BigDecimal("10.00")));
+
+        assertThatThrownBy(() -> post(Posting.transfer(TransactionType.PAYMENT, "order",
+                USER, LedgerAccount.PLATFORM, new BigDecimal("10.01"))))
+                .isInstanceOf(BadRequestException.class);
+
+        assertThat(jdbc.walletBalance()).isEqualByComparingTo("10.00");
+        assertThat(jdbc.entries).hasSize(2);
+        assertThat(jdbc.stripeTotal("PLATFORM")).isEqualByComparingTo("0");
+    }
+
+    /**
+     * Top-ups and payments race on one wallet. Every posting either lands
+     * whole or not at all: the wallet never dips below zero, its balance
+     * equals the sum of its entries, and every committed posting left both
+     * of its entries behind.
+     */
+    @Test
+    void concurrentDebitsAndCreditsOnOneWalletStayConsistent() throws InterruptedException {
+        int threads = 8;
+        int perThread = 5_000;
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        AtomicReference<BigDecimal> expected = new AtomicReference<>(BigDecimal.ZERO);
+        List<Throwable> errors = new ArrayList<>();
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(5_000), 2);
+                        // Slightly more spending than funding, so the balance keeps hitting zero
+                        boolean debit = random.nextInt(100) < 55;
+                        Posting posting = debit
+                                ? Posting.transfer(TransactionType.PAYMENT, "order", USER, LedgerAccount.PLATFORM, amount)
+                                : Posting.transfer(TransactionType.DEPOSIT, "top-up", LedgerAccount.EXTERNAL, USER, amount);
+                        try {
+                            post(posting);
+                            committed.incrementAndGet();
+                            expected.accumulateAndGet(debit ? amount.negate() : amount, BigDecimal::add);
+                        } catch (BadRequestException e) {
+                            refused.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertThat(errors).isEmpty();
+        assertThat(refused.get()).as("some debits must have hit an empty wallet").isPositive();
+        assertThat(committed.get() + refused.get()).isEqualTo(threads * perThread);
+
+        assertThat(jdbc.lowestBalance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+        assertThat(jdbc.walletBalance()).isEqualByComparingTo(expected.get());
+        assertThat(jdbc.walletBalance()).isEqualByComparingTo(jdbc.entryTotal(USER.key()));
+
+        // No lost entries: two per committed posting, each posting balanced
+        assertThat(jdbc.entries).hasSize(2 * committed.get());
+        Map<String, BigDecimal> perPosting = new HashMap<>();
+        for (Entry e : jdbc.entries) perPosting.merge(e.postingId(), e.amount(), BigDecimal::add);
+        assertThat(perPosting).hasSize(committed.get());
+        assertThat(perPosting.values()).allMatch(sum -> sum.signum() == 0);
+
+        // Striped system balances agree with their entries too
+        for (String account : Set.of("PLATFORM", "EXTERNAL")) {
+            assertThat(jdbc.stripeTotal(account)).as(account).isEqualByComparingTo(jdbc.entryTotal(account));
+        }
+    }
+
+    @Test
+    void instancesStartingTogetherOpenExistingBalancesOnce() throws InterruptedException {
+        OpeningJdbc opening = new OpeningJdbc();
+        LedgerService instance = new LedgerService(opening, new SimpleMeterRegistry(), 4);
+
+        int instances = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(instances);
+        for (int i = 0; i < instances; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    tx.executeWithoutResult(status -> instance.openExistingBalances());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertThat(opening.postings).hasSize(1);
+        assertThat(opening.locksTaken.get()).isEqualTo(instances);
+    }
+
+    private record Entry(String postingId, String account, BigDecimal amount) {
+    }
+
+    /**
+     * Two wallets holding 150.00 before the ledger existed. The advisory
+     * lock is held until the transaction completes, and opening postings
+     * become visible on commit, as in Postgres.
+     */
+    private static class OpeningJdbc extends JdbcTemplate {
+        final Set<String> postings = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        final AtomicInteger locksTaken = new AtomicInteger();
+        private final ReentrantLock advisoryLock = new ReentrantLock();
+
+        @Override
+        public void execute(String sql) {
+            assertThat(sql).isEqualTo(LedgerService.OPENING_LOCK_SQL);
+            advisoryLock.lock();
+            locksTaken.incrementAndGet();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    advisoryLock.unlock();
+                }
+            });
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            if (sql.contains("FROM ledger_entries")) return requiredType.cast(postings.size());
+            try {
+                Thread.sleep(20); // the wallet scan; long enough for unguarded instances to overlap
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return requiredType.cast(new BigDecimal("150.00"));
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.contains("FROM wallets")) {
+                String postingId = (String) args[0];
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        postings.add(postingId);
+                    }
+                });
+                return 2;
+            }
+            return 1;
+        }
+    }
+
+    /**
+     * wallets, ledger_balances and ledger_entries in memory. The wallet
+     * row's conditional increment is atomic, as the row lock makes it;
+     * stripe and entry writes are held per transaction and applied on
+     * commit, and a rolled-back transaction undoes its wallet increment.
+     */
+    private static class FakeJdbc extends JdbcTemplate {
+        final List<Entry> entries = new ArrayList<>();
+        final Map<String, BigDecimal> stripes = new HashMap<>();
+        BigDecimal balance = BigDecimal.ZERO;
+        BigDecimal lowestBalance = BigDecimal.ZERO;
+
+        synchronized BigDecimal walletBalance() {
+            return balance;
+        }
+
+        synchronized BigDecimal entryTotal(String account) {
+            return entries.stream().filter(e -> e.account().equals(account))
+                    .map(Entry::amount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+
+        synchronized BigDecimal stripeTotal(String account) {
+            return stripes.entrySet().stream().filter(s -> s.getKey().startsWith(account + "#"))
+                    .map(Map.Entry::getValue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.equals(LedgerService.ADD_TO_STRIPE_SQL)) {
+                String stripe = args[0] + "#" + args[1];
+                BigDecimal amount = (BigDecimal) args[2];
+                pending().add(() -> stripes.merge(stripe, amount, BigDecimal::add));
+                return 1;
+            }
+            if (sql.startsWith("UPDATE wallets")) {
+                BigDecimal amount = (BigDecimal) args[0];
+                assertThat(args[2]).isEqualTo(WALLET);
+                synchronized (this) {
+                    BigDecimal next = balance.add(amount);
+                    if (sql.contains(">= 0") && next.signum() < 0) return 0;
+                    balance = next;
+                    if (next.compareTo(lowestBalance) < 0) lowestBalance = next;
+                }
+                undo().add(() -> balance = balance.subtract(amount));
+                return 1;
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            assertThat(sql).isEqualTo(LedgerService.INSERT_ENTRY_SQL);
+            for (T arg : batchArgs) {
+                Object[] values = new Object[7];
+                PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                        (proxy, method, params) -> {
+                            values[(Integer) params[0]] = params[1];
+                            return null;
+                        });
+                try {
+                    pss.setValues(ps, arg);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                Entry entry = new Entry((String) values[1], (String) values[2], (BigDecimal) values[3]);
+                pending().add(() -> entries.add(entry));
+            }
+            return new int[][]{};
+        }
+
+        private final ThreadLocal<List<Runnable>> pending = new ThreadLocal<>();
+        private final ThreadLocal<List<Runnable>> undo = new ThreadLocal<>();
+
+        private List<Runnable> pending() {
+            join();
+            return pending.get();
+        }
+
+        private List<Runnable> undo() {
+            join();
+            return undo.get();
+        }
+
+        /** Opens this thread's unit of work the first time the transaction writes. */
+        private void join() {
+            if (pending.get() != null) return;
+            pending.set(new ArrayList<>());
+            undo.set(new ArrayList<>());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    List<Runnable> actions = status == STATUS_COMMITTED ? pending.get() : undo.get();
+                    pending.remove();
+                    undo.remove();
+                    synchronized (FakeJdbc.this) {
+                        actions.forEach(Runnable::run);
+                    }
+                }
+            });
+        }
+    }
+}
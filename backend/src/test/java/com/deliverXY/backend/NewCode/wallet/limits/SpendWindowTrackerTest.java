@@ -0,0 +1,215 @@
+package com.deliverXY.backend.NewCode.wallet.limits;
+
+import com.deliverXY.backend.NewCode.exceptions.BadRequestException;
+import com.deliverXY.backend.NewCode.support.StubTransactionManager;
+import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpendWindowTrackerTest {
+
+    private static final long NOW = 500_000L;
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+    private final StubTransactionManager txManager = new StubTransactionManager();
+
+    private SpendWindowTracker tracker(boolean enforce) {
+        return new SpendWindowTracker(jdbc, txManager, new SimpleMeterRegistry(), enforce, 1000);
+    }
+
+    private static Wallet wallet(long id, String dailyLimit, String monthlyLimit) {
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        wallet.setDailyLimit(new BigDecimal(dailyLimit));
+        wallet.setMonthlyLimit(new BigDecimal(monthlyLimit));
+        return wallet;
+    }
+
+    // -------------------------------------------------------------
+    // ROLLING WINDOWS
+    // -------------------------------------------------------------
+    @Test
+    void lastDayDropsHoursAsTheyTurn24HoursOld() {
+        SpendWindowTracker.Window window = new SpendWindowTracker.Window(NOW);
+        window.tryAdd(NOW, 100, Long.MAX_VALUE, Long.MAX_VALUE);
+        window.tryAdd(NOW + 5, 50, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        assertThat(window.totals(NOW + 23)[0]).isEqualTo(150L);
+        assertThat(window.totals(NOW + 24)[0]).isEqualTo(50L);
+        assertThat(window.totals(NOW + 29)[0]).isZero();
+        assertThat(window.totals(NOW + 29)[1]).isEqualTo(150L);
+    }
+
+    @Test
+    void lastMonthDropsDaysAfterThirty() {
+        long day = NOW / 24;
+        SpendWindowTracker.Window window = new SpendWindowTracker.Window(day * 24);
+        window.tryAdd(day * 24, 100, Long.MAX_VALUE, Long.MAX_VALUE);
+        window.tryAdd((day + 10) * 24, 40, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        assertThat(window.totals((day + 29) * 24 + 23)[1]).isEqualTo(140L);
+        assertThat(window.totals((day + 30) * 24)[1]).isEqualTo(40L);
+        // A long idle gap clears everything at once
+        assertThat(window.totals((day + 1000) * 24)).containsExactly(0L, 0L);
+    }
+
+    @Test
+    void refusedSpendIsNotCounted() {
+        SpendWindowTracker.Window window = new SpendWindowTracker.Window(NOW);
+        assertThat(window.tryAdd(NOW, 80, 100, 1000)).isNull();
+        assertThat(window.tryAdd(NOW, 30, 100, 1000)).isEqualTo("Daily");
+        assertThat(window.tryAdd(NOW, 20, 1000, 90)).isEqualTo("Monthly");
+
+        assertThat(window.totals(NOW)).containsExactly(80L, 80L);
+        assertThat(window.drainUnflushed()).isEqualTo(Map.of(NOW, 80L));
+    }
+
+    @Test
+    void restoredBucketsCountButAreNotWrittenAgain() {
+        SpendWindowTracker.Window window = new SpendWindowTracker.Window(NOW);
+        window.restore(NOW - 30, 70);
+        window.restore(NOW - 2, 20);
+
+        assertThat(window.totals(NOW)).containsExactly(20L, 90L);
+        assertThat(window.drainUnflushed()).isEmpty();
+    }
+
+    // -------------------------------------------------------------
+    // TRACKER
+    // -------------------------------------------------------------
+    @Test
+    void enforcedLimitsRefuseSpendBeyondTheDay() {
+        SpendWindowTracker tracker = tracker(true);
+        Wallet wallet = wallet(1, "100.00", "1000.00");
+
+        tracker.spend(wallet, new BigDecimal("60.00"));
+        assertThatThrownBy(() -> tracker.spend(wallet, new BigDecimal("40.01")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Daily");
+        tracker.spend(wallet, new BigDecimal("40.00"));
+
+        assertThat(tracker.spent(1L).lastDay()).isEqualByComparingTo("100.00");
+        assertThat(tracker.spent(1L).lastMonth()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void limitsOnlyCountWhenNotEnforced() {
+        SpendWindowTracker tracker = tracker(false);
+        tracker.spend(wallet(1, "100.00", "1000.00"), new BigDecimal("250.00"));
+
+        assertThat(tracker.spent(1L).lastDay()).isEqualByComparingTo("250.00");
+    }
+
+    @Test
+    void rolledBackSpendIsTakenBack() {
+        SpendWindowTracker tracker = tracker(true);
+        Wallet wallet = wallet(1, "100.00", "1000.00");
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+
+        tx.executeWithoutResult(status -> {
+            tracker.spend(wallet, new BigDecimal("90.00"));
+            status.setRollbackOnly();
+        });
+        assertThat(tracker.spent(1L).lastDay()).isEqualByComparingTo("0");
+
+        // The limit is free again for the retry
+        tx.executeWithoutResult(status -> tracker.spend(wallet, new BigDecimal("90.00")));
+        assertThat(tracker.spent(1L).lastDay()).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void flushedSpendIsReloadedByAFreshTracker() {
+        SpendWindowTracker tracker = tracker(false);
+        tracker.spend(wallet(1, "100.00", "1000.00"), new BigDecimal("12.34"));
+        tracker.spend(wallet(2, "100.00", "1000.00"), new BigDecimal("5.00"));
+        tracker.flush();
+        tracker.spend(wallet(1, "100.00", "1000.00"), new BigDecimal("0.66"));
+        tracker.flush();
+
+        // Deltas are added to the stored bucket, not written over it
+        assertThat(jdbc.buckets.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo("18.00");
+
+        SpendWindowTracker restarted = tracker(false);
+        assertThat(restarted.spent(1L).lastDay()).isEqualByComparingTo("13.00");
+        assertThat(restarted.spent(2L).lastMonth()).isEqualByComparingTo("5.00");
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        SpendWindowTracker tracker = tracker(false);
+        tracker.spend(wallet(1, "100.00", "1000.00"), new BigDecimal("7.00"));
+
+        jdbc.down = true;
+        tracker.flush();
+        assertThat(jdbc.buckets).isEmpty();
+
+        jdbc.down = false;
+        tracker.flush();
+        assertThat(tracker(false).spent(1L).lastDay()).isEqualByComparingTo("7.00");
+    }
+
+    /** wallet_spend_buckets as a map keyed by "wallet:hour"; the upsert adds to the stored amount. */
+    private static class FakeJdbc extends JdbcTemplate {
+        final Map<String, BigDecimal> buckets = new ConcurrentHashMap<>();
+        volatile boolean down;
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            String prefix = args[0] + ":";
+            long from = (Long) args[1];
+            for (Map.Entry<String, BigDecimal> bucket : buckets.entrySet()) {
+                if (!bucket.getKey().startsWith(prefix)) continue;
+                long hour = Long.parseLong(bucket.getKey().substring(prefix.length()));
+                if (hour < from) continue;
+                ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class},
+                        (proxy, method, params) -> (Integer) params[0] == 1 ? hour : bucket.getValue());
+                try {
+                    rch.processRow(rs);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            if (down) throw new QueryTimeoutException("timeout");
+            for (T arg : batchArgs) {
+                Object[] values = new Object[4];
+                PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                        (proxy, method, params) -> {
+                            values[(Integer) params[0]] = params[1];
+                            return null;
+                        });
+                try {
+                    pss.setValues(ps, arg);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                buckets.merge(values[1] + ":" + values[2], (BigDecimal) values[3], BigDecimal::add);
+            }
+            return new int[][]{};
+        }
+    }
+}
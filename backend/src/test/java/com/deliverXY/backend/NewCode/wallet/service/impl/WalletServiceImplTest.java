@@ -0,0 +1,95 @@
+package com.deliverXY.backend.NewCode.wallet.service.impl;
+
+import com.deliverXY.backend.NewCode.common.enums.TopUpStatus;
+import com.deliverXY.backend.NewCode.user.domain.AppUser;
+import com.deliverXY.backend.NewCode.user.repository.AppUserRepository;
+import com.deliverXY.backend.NewCode.wallet.domain.TopUpRequest;
+import com.deliverXY.backend.NewCode.wallet.domain.Wallet;
+import com.deliverXY.backend.NewCode.wallet.ledger.LedgerService;
+import com.deliverXY.backend.NewCode.wallet.repository.TopUpRepository;
+import com.deliverXY.backend.NewCode.wallet.repository.WalletRepository;
+import com.deliverXY.backend.NewCode.wallet.repository.WalletTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WalletServiceImplTest {
+
+    private final CreditCounter jdbc = new CreditCounter();
+    private final TopUpRepository topUpRepo = mock(TopUpRepository.class);
+    private final AppUserRepository userRepo = mock(AppUserRepository.class);
+    private final WalletRepository walletRepo = mock(WalletRepository.class);
+    private final WalletTransactionRepository transactionRepo = mock(WalletTransactionRepository.class);
+
+    private final TopUpRequest topUp = new TopUpRequest();
+    private WalletServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        AppUser user = new AppUser();
+        user.setId(5L);
+        Wallet wallet = new Wallet(user);
+        wallet.setId(50L);
+
+        topUp.setId(1L);
+        topUp.setUserId(5L);
+        topUp.setAmount(new BigDecimal("20.00"));
+
+        when(topUpRepo.findById(1L)).thenReturn(Optional.of(topUp));
+        when(topUpRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(userRepo.findById(5L)).thenReturn(Optional.of(user));
+        when(walletRepo.findByUser(any())).thenReturn(Optional.of(wallet));
+
+        LedgerService ledger = new LedgerService(jdbc, new SimpleMeterRegistry(), 1);
+        service = new WalletServiceImpl(walletRepo, transactionRepo, userRepo, topUpRepo, ledger, null, null);
+    }
+
+    @Test
+    void successAfterAFailedAttemptCreditsTheWallet() {
+        service.finalizeTopUp(1L, false, "pi_1");
+        assertThat(topUp.getStatus()).isEqualTo(TopUpStatus.FAILED);
+        assertThat(jdbc.walletCredits).isZero();
+
+        service.finalizeTopUp(1L, true, "pi_1");
+        assertThat(topUp.getStatus()).isEqualTo(TopUpStatus.SUCCESS);
+        assertThat(jdbc.walletCredits).isEqualTo(1);
+    }
+
+    @Test
+    void successIsFinal() {
+        service.finalizeTopUp(1L, true, "pi_1");
+        service.finalizeTopUp(1L, true, "pi_1");
+        service.finalizeTopUp(1L, false, "pi_1");
+
+        assertThat(topUp.getStatus()).isEqualTo(TopUpStatus.SUCCESS);
+        assertThat(jdbc.walletCredits).isEqualTo(1);
+    }
+
+    /** Accepts every ledger write and counts the wallet credits among them. */
+    private static class CreditCounter extends JdbcTemplate {
+        int walletCredits;
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("UPDATE wallets")) walletCredits++;
+            return 1;
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            return new int[][]{};
+        }
+    }
+}
@@ -3,8 +3,17 @@ import { apiRequest } from "./api";
 export async function getWallet(){
     return await apiRequest("GET", "/api/wallet");
 }
-export async function getWalletTransactions() {
-    return apiRequest("GET", "/api/wallet/transactions");
+export interface WalletTransactionPage {
+    items: any[];
+    nextCursor: string | null; // pass back for the next (older) page; null on the last page
+}
+
+export async function getWalletTransactions(
+    cursor?: string | null,
+    limit = 50
+  ): Promise<WalletTransactionPage> {
+    const params = `limit=${limit}` + (cursor ? `&cursor=${encodeURIComponent(cursor)}` : "");
+    return apiRequest("GET", `/api/wallet/transactions?${params}`);
 }
 
 export async function initiateTopUp(